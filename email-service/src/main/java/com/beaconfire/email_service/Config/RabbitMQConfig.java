@@ -0,0 +1,80 @@
+package com.beaconfire.email_service.Config;
+
+import lombok.Getter;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@Getter
+public class RabbitMQConfig {
+
+    public static final String EMAIL_QUEUE = "email_service_queue";
+    public static final String DEAD_LETTER_QUEUE = EMAIL_QUEUE + ".dlq";
+
+    @Value("${email.retry.max-attempts:3}")
+    private int maxRetryAttempts;
+
+    @Value("${email.retry.initial-interval-ms:5000}")
+    private long initialRetryInterval;
+
+    @Value("${email.retry.multiplier:5}")
+    private int retryMultiplier;
+
+    @Value("${email.retry.confirm-timeout-ms:5000}")
+    private long confirmTimeout;
+
+    @Value("${email.retry.republish-backoff-ms:500}")
+    private long republishBackoff;
+
+    @Value("${email.retry.max-republish-backoff-ms:30000}")
+    private long maxRepublishBackoff;
+
+    @Bean
+    public Queue emailServiceQueue() {
+        // Declared exactly like the auth-service producer does, otherwise the broker rejects the redeclaration.
+        return new Queue(EMAIL_QUEUE, false);
+    }
+
+    @Bean
+    public Queue emailDeadLetterQueue() {
+        return QueueBuilder.durable(DEAD_LETTER_QUEUE).build();
+    }
+
+    /**
+     * One delay queue per attempt. RabbitMQ only expires messages at the head of a queue, so
+     * different delays in a single queue would let a long backoff hold up the shorter ones.
+     * Expired messages are dead-lettered straight back onto the main email queue.
+     */
+    @Bean
+    public Declarables emailRetryQueues() {
+        List<Declarable> queues = new ArrayList<>();
+        for (int attempt = 1; attempt <= maxRetryAttempts; attempt++) {
+            queues.add(QueueBuilder.durable(retryQueueName(attempt))
+                    .ttl((int) retryDelay(attempt))
+                    .deadLetterExchange("")
+                    .deadLetterRoutingKey(EMAIL_QUEUE)
+                    .build());
+        }
+        return new Declarables(queues);
+    }
+
+    public String retryQueueName(int attempt) {
+        return EMAIL_QUEUE + ".retry." + attempt;
+    }
+
+    public long retryDelay(int attempt) {
+        long delay = initialRetryInterval;
+        for (int i = 1; i < attempt; i++) {
+            delay *= retryMultiplier;
+        }
+        return delay;
+    }
+}
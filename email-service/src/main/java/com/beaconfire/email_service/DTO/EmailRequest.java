@@ -0,0 +1,23 @@
+package com.beaconfire.email_service.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmailRequest {
+   // Messages from auth-service carry no type and are verification emails
+   @Builder.Default
+   private EmailType type = EmailType.VERIFICATION;
+   private String email;
+   private String firstName;
+   private String lastName;
+   private String url;
+   private List<String> items;
+}
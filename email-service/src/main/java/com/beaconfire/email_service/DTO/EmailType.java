@@ -0,0 +1,18 @@
+package com.beaconfire.email_service.DTO;
+
+import lombok.Getter;
+
+@Getter
+public enum EmailType {
+    VERIFICATION("verification", "Welcome to Our Service"),
+    PASSWORD_RESET("password-reset", "Reset Your Password"),
+    NOTIFICATION_DIGEST("notification-digest", "Your Forum Notifications");
+
+    private final String template;
+    private final String subject;
+
+    EmailType(String template, String subject) {
+        this.template = template;
+        this.subject = subject;
+    }
+}
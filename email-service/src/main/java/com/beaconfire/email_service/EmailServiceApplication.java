@@ -1,47 +1,73 @@
 package com.beaconfire.email_service;
 
+import com.beaconfire.email_service.Config.RabbitMQConfig;
+import com.beaconfire.email_service.DTO.EmailRequest;
+import com.beaconfire.email_service.Service.EmailMessageDecoder;
+import com.beaconfire.email_service.Service.EmailRetryHandler;
 import com.beaconfire.email_service.Service.EmailService;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
-import org.springframework.amqp.core.Queue;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.Bean;
 
+import java.io.IOException;
+
+@Slf4j
 @SpringBootApplication
 public class EmailServiceApplication {
 
 	@Autowired
 	private EmailService emailService;
 
+	@Autowired
+	private EmailRetryHandler emailRetryHandler;
+
+	@Autowired
+	private EmailMessageDecoder emailMessageDecoder;
+
 	public static void main(String[] args) {
 		SpringApplication.run(EmailServiceApplication.class, args);
 	}
 
-	@Bean
-	public Queue emailServiceQueue() {
-		return new Queue("email_service_queue", false);
-	}
-
-	@RabbitListener(queues = "email_service_queue")
-	public void handleEmailMessage(String message) {
+	@RabbitListener(queues = RabbitMQConfig.EMAIL_QUEUE)
+	public void handleEmailMessage(Message message, Channel channel) throws IOException {
+		long deliveryTag = message.getMessageProperties().getDeliveryTag();
+		emailRetryHandler.messageStarted();
 		try {
-			System.out.println(" [x] Received '" + message + "'");
-
-			ObjectMapper objectMapper = new ObjectMapper();
-			JsonNode jsonNode = objectMapper.readTree(message);
-
-			String email = jsonNode.get("email").asText();
-			String firstname = jsonNode.get("firstName").asText();
-			String lastname = jsonNode.get("lastName").asText();
-			String url = jsonNode.get("url").asText();
+			// The body carries addresses and verification links, so only its size is logged
+			log.debug("Received email message {} ({} bytes)",
+					message.getMessageProperties().getMessageId(), message.getBody().length);
 
-			emailService.sendEmail(email, firstname, lastname, url);
+			EmailRequest request;
+			try {
+				request = emailMessageDecoder.decode(message.getBody());
+			} catch (IOException | IllegalArgumentException e) {
+				// A malformed message will never succeed, so it goes straight to the dead-letter queue
+				emailRetryHandler.handleFailure(message, e, false);
+				channel.basicAck(deliveryTag, false);
+				return;
+			}
 
-		} catch (Exception e) {
-			System.err.println("Error handling message: " + e.getMessage());
+			try {
+				emailService.sendEmail(request);
+				emailRetryHandler.recordDelivered();
+			} catch (Exception e) {
+				log.warn("Error handling email message: {}", e.getMessage());
+				emailRetryHandler.handleFailure(message, e, true);
+			}
+			channel.basicAck(deliveryTag, false);
+		} catch (AmqpException e) {
+			// Could not republish for retry: hand the message back to the broker rather than lose it,
+			// after a pause that grows while the broker keeps refusing publishes
+			log.error("Failed to reschedule email message: {}", e.getMessage());
+			emailRetryHandler.backOffAfterFailedPublish();
+			channel.basicNack(deliveryTag, false, true);
+		} finally {
+			emailRetryHandler.messageFinished();
 		}
 	}
 }
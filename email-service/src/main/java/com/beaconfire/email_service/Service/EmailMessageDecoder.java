@@ -0,0 +1,53 @@
+package com.beaconfire.email_service.Service;
+
+import com.beaconfire.email_service.DTO.EmailRequest;
+import com.beaconfire.email_service.DTO.EmailType;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Decodes queue payloads into {@link EmailRequest}. The reader is immutable and shared across
+ * listener threads, so nothing is allocated per message beyond the request itself.
+ */
+@Component
+public class EmailMessageDecoder {
+
+    private final ObjectReader reader;
+
+    public EmailMessageDecoder(ObjectMapper objectMapper) {
+        this.reader = objectMapper.readerFor(EmailRequest.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    public EmailRequest decode(byte[] payload) throws IOException {
+        EmailRequest request = reader.readValue(payload);
+        validate(request);
+        return request;
+    }
+
+    private void validate(EmailRequest request) {
+        if (request.getType() == null) {
+            request.setType(EmailType.VERIFICATION);
+        }
+        require(request.getEmail(), "email");
+        require(request.getFirstName(), "firstName");
+        require(request.getLastName(), "lastName");
+
+        if (request.getType() != EmailType.NOTIFICATION_DIGEST) {
+            require(request.getUrl(), "url");
+        }
+        if (request.getUrl() != null && !request.getUrl().startsWith("http://") && !request.getUrl().startsWith("https://")) {
+            throw new IllegalArgumentException("Unsupported url scheme: " + request.getUrl());
+        }
+    }
+
+    private void require(String value, String field) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing field: " + field);
+        }
+    }
+}
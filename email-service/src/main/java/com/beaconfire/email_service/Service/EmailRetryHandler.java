@@ -0,0 +1,135 @@
+package com.beaconfire.email_service.Service;
+
+import com.beaconfire.email_service.Config.RabbitMQConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Service
+public class EmailRetryHandler {
+
+    public static final String RETRY_COUNT_HEADER = "x-retry-count";
+    public static final String FAILURE_REASON_HEADER = "x-failure-reason";
+
+    private final RabbitTemplate rabbitTemplate;
+    private final RabbitMQConfig rabbitMQConfig;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger failedPublishes = new AtomicInteger();
+    private final Counter deliveredCounter;
+    private final Counter retriedCounter;
+    private final Counter deadLetteredCounter;
+
+    public EmailRetryHandler(RabbitTemplate rabbitTemplate, RabbitMQConfig rabbitMQConfig, MeterRegistry meterRegistry) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.rabbitMQConfig = rabbitMQConfig;
+
+        Gauge.builder("email.messages.in_flight", inFlight, AtomicInteger::get)
+                .description("Email messages currently being processed")
+                .register(meterRegistry);
+        this.deliveredCounter = Counter.builder("email.messages.delivered")
+                .description("Email messages handed to the SMTP server")
+                .register(meterRegistry);
+        this.retriedCounter = Counter.builder("email.messages.retried")
+                .description("Email messages scheduled for a delayed retry")
+                .register(meterRegistry);
+        this.deadLetteredCounter = Counter.builder("email.messages.dead_lettered")
+                .description("Email messages moved to the dead-letter queue")
+                .register(meterRegistry);
+    }
+
+    public void messageStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    public void messageFinished() {
+        inFlight.decrementAndGet();
+    }
+
+    public void recordDelivered() {
+        deliveredCounter.increment();
+    }
+
+    /**
+     * Republishes a failed message to the next delay queue, or to the dead-letter queue once the
+     * retry budget is spent or the message can never succeed. Returns only once the broker has
+     * confirmed the copy, and throws {@link AmqpException} if it was not confirmed or could not be
+     * routed, so the caller acks the original delivery only when the copy is safe with the broker.
+     */
+    public void handleFailure(Message message, Exception cause, boolean retryable) {
+        int attempts = retryCount(message);
+
+        if (retryable && attempts < rabbitMQConfig.getMaxRetryAttempts()) {
+            int nextAttempt = attempts + 1;
+            publish(rabbitMQConfig.retryQueueName(nextAttempt), copyWithHeader(message, RETRY_COUNT_HEADER, nextAttempt));
+            retriedCounter.increment();
+            log.warn("Email delivery failed, retry {} in {} ms: {}", nextAttempt,
+                    rabbitMQConfig.retryDelay(nextAttempt), cause.getMessage());
+            return;
+        }
+
+        publish(RabbitMQConfig.DEAD_LETTER_QUEUE, copyWithHeader(message, FAILURE_REASON_HEADER, String.valueOf(cause.getMessage())));
+        deadLetteredCounter.increment();
+        log.warn("Email message dead-lettered after {} retries: {}", attempts, cause.getMessage());
+    }
+
+    /**
+     * Holds the listener thread before a message whose copy could not be published is handed back
+     * to the broker, doubling the pause with each consecutive failure up to the configured
+     * maximum, so a broker refusing publishes is not hit by a tight redelivery loop.
+     */
+    public void backOffAfterFailedPublish() {
+        int failures = failedPublishes.incrementAndGet();
+        long delay = rabbitMQConfig.getRepublishBackoff() << Math.min(failures - 1, 16);
+        try {
+            Thread.sleep(Math.min(delay, rabbitMQConfig.getMaxRepublishBackoff()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void publish(String queue, Message message) {
+        CorrelationData correlation = new CorrelationData();
+        rabbitTemplate.send("", queue, message, correlation);
+        CorrelationData.Confirm confirm;
+        try {
+            confirm = correlation.getFuture().get(rabbitMQConfig.getConfirmTimeout(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmqpException("Interrupted waiting for the broker to confirm a publish to " + queue, e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new AmqpException("The broker did not confirm a publish to " + queue, e);
+        }
+        if (!confirm.isAck()) {
+            throw new AmqpException("The broker refused a publish to " + queue + ": " + confirm.getReason());
+        }
+        if (correlation.getReturned() != null) {
+            throw new AmqpException("No queue " + queue + " to publish to: " + correlation.getReturned().getReplyText());
+        }
+        failedPublishes.set(0);
+    }
+
+    int retryCount(Message message) {
+        Object header = message.getMessageProperties().getHeaders().get(RETRY_COUNT_HEADER);
+        return header instanceof Number number ? number.intValue() : 0;
+    }
+
+    private Message copyWithHeader(Message message, String name, Object value) {
+        return MessageBuilder.fromMessage(message)
+                .setHeader(name, value)
+                .build();
+    }
+}
@@ -1,7 +1,18 @@
 package com.beaconfire.email_service.Service;
 
+import com.beaconfire.email_service.DTO.EmailRequest;
+
 import javax.mail.MessagingException;
 
 public interface EmailService {
-    void sendEmail(String recipientEmail, String firstname, String lastname, String url) throws MessagingException;
+    void sendEmail(EmailRequest request) throws MessagingException;
+
+    default void sendEmail(String recipientEmail, String firstname, String lastname, String url) throws MessagingException {
+        sendEmail(EmailRequest.builder()
+                .email(recipientEmail)
+                .firstName(firstname)
+                .lastName(lastname)
+                .url(url)
+                .build());
+    }
 }
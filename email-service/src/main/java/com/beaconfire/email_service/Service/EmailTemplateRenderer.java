@@ -0,0 +1,71 @@
+package com.beaconfire.email_service.Service;
+
+import com.beaconfire.email_service.DTO.EmailRequest;
+import com.beaconfire.email_service.DTO.EmailType;
+import com.samskivert.mustache.Escapers;
+import com.samskivert.mustache.Mustache;
+import com.samskivert.mustache.Template;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Compiles every email template once at startup. Values are HTML-escaped on render, and each
+ * listener thread renders into its own reusable buffer.
+ */
+@Component
+public class EmailTemplateRenderer {
+
+    private static final String TEMPLATE_LOCATION = "templates/email/";
+    private static final int INITIAL_BUFFER_SIZE = 2048;
+
+    // jmustache's HTML escaper without '=': every value sits in text or a quoted attribute, and
+    // verification links must keep their query strings readable (token=...) in every mail client
+    private static final Mustache.Escaper HTML = Escapers.simple(
+            new String[] {"&", "&amp;"},
+            new String[] {"'", "&#39;"},
+            new String[] {"\"", "&quot;"},
+            new String[] {"<", "&lt;"},
+            new String[] {">", "&gt;"},
+            new String[] {"`", "&#x60;"});
+
+    private final Map<EmailType, Template> templates = new EnumMap<>(EmailType.class);
+    private final ThreadLocal<StringWriter> buffers = ThreadLocal.withInitial(() -> new StringWriter(INITIAL_BUFFER_SIZE));
+
+    public EmailTemplateRenderer() {
+        Mustache.Compiler compiler = Mustache.compiler()
+                .withEscaper(HTML)
+                .defaultValue("")
+                .emptyStringIsFalse(true);
+
+        for (EmailType type : EmailType.values()) {
+            templates.put(type, compiler.compile(load(type.getTemplate())));
+        }
+    }
+
+    public String render(EmailRequest request) {
+        StringWriter buffer = buffers.get();
+        buffer.getBuffer().setLength(0);
+        templates.get(request.getType()).execute(request, buffer);
+        return buffer.toString();
+    }
+
+    private String load(String name) {
+        ClassPathResource resource = new ClassPathResource(TEMPLATE_LOCATION + name + ".html");
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+            StringWriter content = new StringWriter();
+            reader.transferTo(content);
+            return content.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load email template " + name, e);
+        }
+    }
+}
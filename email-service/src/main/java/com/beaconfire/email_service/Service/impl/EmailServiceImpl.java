@@ -1,6 +1,8 @@
 package com.beaconfire.email_service.Service.impl;
 
+import com.beaconfire.email_service.DTO.EmailRequest;
 import com.beaconfire.email_service.Service.EmailService;
+import com.beaconfire.email_service.Service.EmailTemplateRenderer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -24,8 +26,14 @@ public class EmailServiceImpl implements EmailService {
     @Value("${email.smtp.from.address}")
     public String fromEmailAddress;
 
+    private final EmailTemplateRenderer templateRenderer;
+
+    public EmailServiceImpl(EmailTemplateRenderer templateRenderer) {
+        this.templateRenderer = templateRenderer;
+    }
+
     @Override
-    public void sendEmail(String recipientEmail, String firstname, String lastname, String url) throws MessagingException {
+    public void sendEmail(EmailRequest request) throws MessagingException {
         Properties properties = new Properties();
         properties.put("mail.smtp.auth", "true");
         properties.put("mail.smtp.starttls.enable", "true");
@@ -41,20 +49,14 @@ public class EmailServiceImpl implements EmailService {
 
         Message message = new MimeMessage(session);
         message.setFrom(new InternetAddress(fromEmailAddress));
-        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(recipientEmail));
-        message.setSubject("Welcome to Our Service");
+        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(request.getEmail()));
+        message.setSubject(request.getType().getSubject());
 
-        String htmlContent = "<html>" +
-                "<body>" +
-                "<p>Dear " + firstname + " " + lastname + ",</p>" +
-                "<p>Thank you for registering with us! Your token is:</p>" +
-                "<p><a href='" + url + "'>" + url + "</a></p>" +
-                "</body>" +
-                "</html>";
+        String htmlContent = templateRenderer.render(request);
 
         message.setContent(htmlContent, "text/html; charset=UTF-8");
 
         Transport.send(message);
-        System.out.println("Email sent successfully to: " + recipientEmail);
+        System.out.println("Email sent successfully to: " + request.getEmail());
     }
 }
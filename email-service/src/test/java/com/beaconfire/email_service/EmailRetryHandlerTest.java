@@ -0,0 +1,148 @@
+package com.beaconfire.email_service;
+
+import com.beaconfire.email_service.Config.RabbitMQConfig;
+import com.beaconfire.email_service.Service.EmailRetryHandler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class EmailRetryHandlerTest {
+
+    private RabbitTemplate rabbitTemplate;
+    private RabbitMQConfig rabbitMQConfig;
+    private MeterRegistry meterRegistry;
+    private EmailRetryHandler emailRetryHandler;
+
+    @BeforeEach
+    public void setUp() {
+        rabbitTemplate = mock(RabbitTemplate.class);
+        rabbitMQConfig = mock(RabbitMQConfig.class);
+        when(rabbitMQConfig.getMaxRetryAttempts()).thenReturn(3);
+        when(rabbitMQConfig.retryQueueName(anyInt())).thenAnswer(inv -> "email_service_queue.retry." + inv.getArgument(0));
+        when(rabbitMQConfig.getConfirmTimeout()).thenReturn(1000L);
+        meterRegistry = new SimpleMeterRegistry();
+        emailRetryHandler = new EmailRetryHandler(rabbitTemplate, rabbitMQConfig, meterRegistry);
+        confirmPublishes(true);
+    }
+
+    @Test
+    public void testHandleFailure_SchedulesNextRetry() {
+        Message message = MessageBuilder.withBody("{}".getBytes())
+                .setHeader(EmailRetryHandler.RETRY_COUNT_HEADER, 1)
+                .build();
+
+        emailRetryHandler.handleFailure(message, new RuntimeException("SMTP timeout"), true);
+
+        ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+        verify(rabbitTemplate).send(eq(""), eq("email_service_queue.retry.2"), captor.capture(), any(CorrelationData.class));
+        assertEquals(2, captor.getValue().getMessageProperties().getHeaders().get(EmailRetryHandler.RETRY_COUNT_HEADER));
+        assertEquals(1.0, meterRegistry.counter("email.messages.retried").count());
+    }
+
+    @Test
+    public void testHandleFailure_DeadLettersWhenRetriesExhausted() {
+        Message message = MessageBuilder.withBody("{}".getBytes())
+                .setHeader(EmailRetryHandler.RETRY_COUNT_HEADER, 3)
+                .build();
+
+        emailRetryHandler.handleFailure(message, new RuntimeException("SMTP timeout"), true);
+
+        verify(rabbitTemplate).send(eq(""), eq(RabbitMQConfig.DEAD_LETTER_QUEUE), any(Message.class), any(CorrelationData.class));
+        assertEquals(1.0, meterRegistry.counter("email.messages.dead_lettered").count());
+    }
+
+    @Test
+    public void testHandleFailure_DeadLettersPoisonMessageImmediately() {
+        Message message = MessageBuilder.withBody("not json".getBytes()).build();
+
+        emailRetryHandler.handleFailure(message, new IllegalArgumentException("Missing field: email"), false);
+
+        verify(rabbitTemplate).send(eq(""), eq(RabbitMQConfig.DEAD_LETTER_QUEUE), any(Message.class), any(CorrelationData.class));
+        verify(rabbitTemplate, never()).send(eq(""), startsWith("email_service_queue.retry."), any(Message.class), any(CorrelationData.class));
+    }
+
+    @Test
+    public void testHandleFailure_KeepsMessageProperties() {
+        Message message = MessageBuilder.withBody("{}".getBytes())
+                .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+                .setContentEncoding("UTF-8")
+                .setMessageId("message-1")
+                .build();
+
+        emailRetryHandler.handleFailure(message, new RuntimeException("SMTP timeout"), true);
+
+        ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+        verify(rabbitTemplate).send(eq(""), eq("email_service_queue.retry.1"), captor.capture(), any(CorrelationData.class));
+        MessageProperties properties = captor.getValue().getMessageProperties();
+        assertEquals(MessageProperties.CONTENT_TYPE_JSON, properties.getContentType());
+        assertEquals("UTF-8", properties.getContentEncoding());
+        assertEquals("message-1", properties.getMessageId());
+    }
+
+    @Test
+    public void testHandleFailure_ThrowsWhenBrokerRefusesPublish() {
+        confirmPublishes(false);
+        Message message = MessageBuilder.withBody("{}".getBytes()).build();
+
+        assertThrows(AmqpException.class,
+                () -> emailRetryHandler.handleFailure(message, new RuntimeException("SMTP timeout"), true));
+        assertEquals(0.0, meterRegistry.counter("email.messages.retried").count());
+    }
+
+    @Test
+    public void testHandleFailure_ThrowsWhenPublishIsNotConfirmed() {
+        doNothing().when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+        when(rabbitMQConfig.getConfirmTimeout()).thenReturn(10L);
+        Message message = MessageBuilder.withBody("{}".getBytes()).build();
+
+        assertThrows(AmqpException.class,
+                () -> emailRetryHandler.handleFailure(message, new RuntimeException("SMTP timeout"), true));
+    }
+
+    @Test
+    public void testHandleFailure_ThrowsWhenPublishIsUnroutable() {
+        doAnswer(inv -> {
+            Message sent = inv.getArgument(2);
+            CorrelationData correlation = inv.getArgument(3);
+            correlation.setReturned(new ReturnedMessage(sent, 312, "NO_ROUTE", "", inv.getArgument(1)));
+            correlation.getFuture().complete(new CorrelationData.Confirm(true, null));
+            return null;
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+        Message message = MessageBuilder.withBody("{}".getBytes()).build();
+
+        assertThrows(AmqpException.class,
+                () -> emailRetryHandler.handleFailure(message, new IllegalArgumentException("Missing field: email"), false));
+        assertEquals(0.0, meterRegistry.counter("email.messages.dead_lettered").count());
+    }
+
+    @Test
+    public void testInFlightGauge() {
+        emailRetryHandler.messageStarted();
+        emailRetryHandler.messageStarted();
+        emailRetryHandler.messageFinished();
+
+        assertEquals(1.0, meterRegistry.get("email.messages.in_flight").gauge().value());
+    }
+
+    private void confirmPublishes(boolean ack) {
+        doAnswer(inv -> {
+            CorrelationData correlation = inv.getArgument(3);
+            correlation.getFuture().complete(new CorrelationData.Confirm(ack, ack ? null : "queue full"));
+            return null;
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+    }
+}
@@ -1,13 +1,26 @@
 package com.beaconfire.email_service;
 
+import com.beaconfire.email_service.DTO.EmailRequest;
+import com.beaconfire.email_service.Service.EmailMessageDecoder;
+import com.beaconfire.email_service.Service.EmailRetryHandler;
 import com.beaconfire.email_service.Service.EmailService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import javax.mail.MessagingException;
+import java.nio.charset.StandardCharsets;
+
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
@@ -16,30 +29,90 @@ class EmailServiceApplicationTest {
 	@Mock
 	private EmailService emailService;
 
+	@Mock
+	private EmailRetryHandler emailRetryHandler;
+
+	@Mock
+	private Channel channel;
+
+	@Spy
+	private EmailMessageDecoder emailMessageDecoder = new EmailMessageDecoder(new ObjectMapper());
+
 	@InjectMocks
 	private EmailServiceApplication emailServiceApplication;
 
+	private final String validMessage = """
+            {
+                "email": "test@example.com",
+                "firstName": "John",
+                "lastName": "Doe",
+                "url": "http://example.com/verify"
+            }
+            """;
+
+	@BeforeEach
+	public void setUp() {
+		MockitoAnnotations.openMocks(this);
+	}
+
 	@Test
 	public void testHandleEmailMessage() throws Exception {
+		Message message = toMessage(validMessage, 7L);
 
-		MockitoAnnotations.openMocks(this);
+		emailServiceApplication.handleEmailMessage(message, channel);
+
+		verify(emailService, times(1)).sendEmail(EmailRequest.builder()
+				.email("test@example.com")
+				.firstName("John")
+				.lastName("Doe")
+				.url("http://example.com/verify")
+				.build());
+		verify(emailRetryHandler).recordDelivered();
+		verify(channel).basicAck(7L, false);
+		verify(emailRetryHandler).messageFinished();
+	}
+
+	@Test
+	public void testHandleEmailMessage_SendFailureIsRetried() throws Exception {
+		Message message = toMessage(validMessage, 3L);
+		doThrow(new MessagingException("SMTP timeout"))
+				.when(emailService).sendEmail(any(EmailRequest.class));
+
+		emailServiceApplication.handleEmailMessage(message, channel);
+
+		verify(emailRetryHandler).handleFailure(eq(message), any(MessagingException.class), eq(true));
+		verify(channel).basicAck(3L, false);
+	}
+
+	@Test
+	public void testHandleEmailMessage_MalformedMessageIsDeadLettered() throws Exception {
+		Message message = toMessage("{\"email\": \"test@example.com\"}", 4L);
+
+		emailServiceApplication.handleEmailMessage(message, channel);
+
+		verify(emailService, never()).sendEmail(any(EmailRequest.class));
+		verify(emailRetryHandler).handleFailure(eq(message), any(IllegalArgumentException.class), eq(false));
+		verify(channel).basicAck(4L, false);
+	}
+
+	@Test
+	public void testHandleEmailMessage_RequeuesWhenRetryPublishFails() throws Exception {
+		Message message = toMessage(validMessage, 5L);
+		doThrow(new MessagingException("SMTP timeout"))
+				.when(emailService).sendEmail(any(EmailRequest.class));
+		doThrow(new AmqpException("broker unavailable"))
+				.when(emailRetryHandler).handleFailure(any(), any(), anyBoolean());
+
+		emailServiceApplication.handleEmailMessage(message, channel);
+
+		verify(channel, never()).basicAck(anyLong(), anyBoolean());
+		verify(channel).basicNack(5L, false, true);
+		verify(emailRetryHandler).messageFinished();
+	}
 
-		String message = """
-                {
-                    "email": "test@example.com",
-                    "firstName": "John",
-                    "lastName": "Doe",
-                    "url": "http://example.com/verify"
-                }
-                """;
-
-		emailServiceApplication.handleEmailMessage(message);
-
-		verify(emailService, times(1)).sendEmail(
-				"test@example.com",
-				"John",
-				"Doe",
-				"http://example.com/verify"
-		);
+	private Message toMessage(String body, long deliveryTag) {
+		Message message = MessageBuilder.withBody(body.getBytes(StandardCharsets.UTF_8)).build();
+		message.getMessageProperties().setDeliveryTag(deliveryTag);
+		return message;
 	}
 }
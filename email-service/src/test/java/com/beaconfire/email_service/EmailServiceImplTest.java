@@ -1,5 +1,6 @@
 package com.beaconfire.email_service;
 
+import com.beaconfire.email_service.Service.EmailTemplateRenderer;
 import com.beaconfire.email_service.Service.impl.EmailServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,7 +17,7 @@ public class EmailServiceImplTest {
 
     @BeforeEach
     public void setUp() {
-        emailService = new EmailServiceImpl();
+        emailService = new EmailServiceImpl(new EmailTemplateRenderer());
         emailService.smtpHost = "smtp.example.com";
         emailService.smtpEmail = "test@example.com";
         emailService.smtpPassword = "password";
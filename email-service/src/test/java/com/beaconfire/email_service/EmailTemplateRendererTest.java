@@ -0,0 +1,97 @@
+package com.beaconfire.email_service;
+
+import com.beaconfire.email_service.DTO.EmailRequest;
+import com.beaconfire.email_service.DTO.EmailType;
+import com.beaconfire.email_service.Service.EmailMessageDecoder;
+import com.beaconfire.email_service.Service.EmailTemplateRenderer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmailTemplateRendererTest {
+
+    private EmailTemplateRenderer renderer;
+    private EmailMessageDecoder decoder;
+
+    @BeforeEach
+    public void setUp() {
+        renderer = new EmailTemplateRenderer();
+        decoder = new EmailMessageDecoder(new ObjectMapper());
+    }
+
+    @Test
+    public void testRender_EscapesHtml() {
+        EmailRequest request = EmailRequest.builder()
+                .email("test@example.com")
+                .firstName("<script>alert(1)</script>")
+                .lastName("Doe")
+                .url("http://example.com/verify?token=a&b=c")
+                .build();
+
+        String html = renderer.render(request);
+
+        assertFalse(html.contains("<script>"));
+        assertTrue(html.contains("&lt;script&gt;"));
+        assertTrue(html.contains("token=a&amp;b=c"));
+    }
+
+    @Test
+    public void testRender_ReusesBufferBetweenMessages() {
+        String first = renderer.render(EmailRequest.builder()
+                .firstName("John").lastName("Doe").url("http://example.com/a").build());
+        String second = renderer.render(EmailRequest.builder()
+                .firstName("Jane").lastName("Roe").url("http://example.com/b").build());
+
+        assertTrue(first.contains("John Doe"));
+        assertTrue(second.contains("Jane Roe"));
+        assertFalse(second.contains("John"));
+    }
+
+    @Test
+    public void testRender_NotificationDigest() {
+        EmailRequest request = EmailRequest.builder()
+                .type(EmailType.NOTIFICATION_DIGEST)
+                .firstName("John")
+                .lastName("Doe")
+                .items(List.of("New reply on your post", "Your post was published"))
+                .build();
+
+        String html = renderer.render(request);
+
+        assertTrue(html.contains("<li>New reply on your post</li>"));
+        assertTrue(html.contains("<li>Your post was published</li>"));
+        assertFalse(html.contains("Open the forum"));
+    }
+
+    @Test
+    public void testDecode_DefaultsToVerification() throws Exception {
+        String payload = "{\"email\": \"test@example.com\", \"firstName\": \"John\", \"lastName\": \"Doe\", \"url\": \"http://example.com/verify\"}";
+
+        EmailRequest request = decoder.decode(payload.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(EmailType.VERIFICATION, request.getType());
+        assertEquals("test@example.com", request.getEmail());
+    }
+
+    @Test
+    public void testDecode_PasswordReset() throws Exception {
+        String payload = "{\"type\": \"PASSWORD_RESET\", \"email\": \"test@example.com\", \"firstName\": \"John\", \"lastName\": \"Doe\", \"url\": \"https://example.com/reset\"}";
+
+        EmailRequest request = decoder.decode(payload.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(EmailType.PASSWORD_RESET, request.getType());
+        assertTrue(renderer.render(request).contains("reset your password"));
+    }
+
+    @Test
+    public void testDecode_RejectsUnsafeUrl() {
+        String payload = "{\"email\": \"test@example.com\", \"firstName\": \"John\", \"lastName\": \"Doe\", \"url\": \"javascript:alert(1)\"}";
+
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+}
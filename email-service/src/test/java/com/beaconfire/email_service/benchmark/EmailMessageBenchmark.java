@@ -0,0 +1,77 @@
+package com.beaconfire.email_service.benchmark;
+
+import com.beaconfire.email_service.DTO.EmailRequest;
+import com.beaconfire.email_service.Service.EmailMessageDecoder;
+import com.beaconfire.email_service.Service.EmailTemplateRenderer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-message decode and render cost, old path against the new one.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.beaconfire.email_service.benchmark.EmailMessageBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmailMessageBenchmark {
+
+    private byte[] payload;
+    private EmailMessageDecoder decoder;
+    private EmailTemplateRenderer renderer;
+    private EmailRequest request;
+
+    @Setup
+    public void setUp() throws Exception {
+        payload = ("{\"email\": \"test@example.com\", \"firstName\": \"John\", \"lastName\": \"Doe\","
+                + " \"url\": \"http://localhost:8080/auth/validate?token=O3FyKs-ezxjJbqdtFHx_y-jOTQmR6ISuDeQVpp_M8b0\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        decoder = new EmailMessageDecoder(new ObjectMapper());
+        renderer = new EmailTemplateRenderer();
+        request = decoder.decode(payload);
+    }
+
+    @Benchmark
+    public String decodeWithNewObjectMapperPerMessage() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode jsonNode = objectMapper.readTree(new String(payload, StandardCharsets.UTF_8));
+        return jsonNode.get("email").asText() + jsonNode.get("firstName").asText()
+                + jsonNode.get("lastName").asText() + jsonNode.get("url").asText();
+    }
+
+    @Benchmark
+    public EmailRequest decodeWithSharedReader() throws Exception {
+        return decoder.decode(payload);
+    }
+
+    @Benchmark
+    public String renderByConcatenation() {
+        return "<html>" +
+                "<body>" +
+                "<p>Dear " + request.getFirstName() + " " + request.getLastName() + ",</p>" +
+                "<p>Thank you for registering with us! Your token is:</p>" +
+                "<p><a href='" + request.getUrl() + "'>" + request.getUrl() + "</a></p>" +
+                "</body>" +
+                "</html>";
+    }
+
+    @Benchmark
+    public String renderPrecompiledTemplate() {
+        return renderer.render(request);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EmailMessageBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
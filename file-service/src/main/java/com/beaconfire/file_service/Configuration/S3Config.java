@@ -1,21 +1,34 @@
 package com.beaconfire.file_service.Configuration;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentials;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.net.URI;
+import java.time.Duration;
 
 @Configuration
+@ConditionalOnProperty(name = "file.storage.backend", havingValue = "s3", matchIfMissing = true)
 public class S3Config {
 
    @Value("${aws.s3.region}")
    private String region;
 
+   // Optional, points the clients at an S3-compatible store such as MinIO or LocalStack
+   @Value("${aws.s3.endpoint:}")
+   private String endpoint;
+
 //   @Value("${aws.s3.access-key}")
 //   private String accessKey;
 //
@@ -24,9 +37,51 @@ public class S3Config {
 
    @Bean
    public S3Client s3Client() {
-      return S3Client.builder()
+      var builder = S3Client.builder()
+            .region(Region.of(region))
+            .credentialsProvider(DefaultCredentialsProvider.create());
+      if (!endpoint.isBlank()) {
+         builder.endpointOverride(URI.create(endpoint))
+               .serviceConfiguration(pathStyle());
+      }
+      return builder.build();
+   }
+
+   /**
+    * Only created in async download mode. Requests are multiplexed over a few Netty event loop
+    * threads, so waiting on S3 does not hold a thread per download.
+    */
+   @Bean
+   @ConditionalOnProperty(name = "file.download.async", havingValue = "true")
+   public S3AsyncClient s3AsyncClient(@Value("${file.download.async-max-connections:200}") int maxConnections) {
+      var builder = S3AsyncClient.builder()
             .region(Region.of(region))
             .credentialsProvider(DefaultCredentialsProvider.create())
+            .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                  .maxConcurrency(maxConnections)
+                  .connectionAcquisitionTimeout(Duration.ofSeconds(10)));
+      if (!endpoint.isBlank()) {
+         builder.endpointOverride(URI.create(endpoint))
+               .serviceConfiguration(pathStyle());
+      }
+      return builder.build();
+   }
+
+   @Bean
+   public S3Presigner s3Presigner() {
+      var builder = S3Presigner.builder()
+            .region(Region.of(region))
+            .credentialsProvider(DefaultCredentialsProvider.create());
+      if (!endpoint.isBlank()) {
+         builder.endpointOverride(URI.create(endpoint))
+               .serviceConfiguration(pathStyle());
+      }
+      return builder.build();
+   }
+
+   private S3Configuration pathStyle() {
+      return S3Configuration.builder()
+            .pathStyleAccessEnabled(true)
             .build();
    }
 }
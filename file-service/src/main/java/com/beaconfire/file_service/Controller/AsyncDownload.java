@@ -0,0 +1,227 @@
+package com.beaconfire.file_service.Controller;
+
+import com.beaconfire.file_service.DTO.FileRequestResponse;
+import com.beaconfire.file_service.Storage.ObjectBody;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A download answered on an async servlet request without holding a thread for it. The response
+ * is written with non-blocking servlet output: chunks of the body are written only while the
+ * container reports the output ready, the next chunk is requested once one has been written, and
+ * the container calls back when the client has taken what was buffered. At most {@code window}
+ * chunks are held per download, and the request times out after {@code timeout}.
+ */
+public class AsyncDownload implements WriteListener, AsyncListener {
+   private static final Logger logger = LoggerFactory.getLogger(AsyncDownload.class);
+
+   private final AsyncContext asyncContext;
+   private final HttpServletResponse response;
+   private final int window;
+
+   // Guarded by this. Chunks arrive on the body's thread and are written by whichever thread
+   // drains: the one delivering a chunk, or the container's when the output is ready again
+   private final Queue<ByteBuffer> pending = new ArrayDeque<>();
+   private ObjectBody body;
+   private ServletOutputStream out;
+   private Subscription subscription;
+   private boolean bodyComplete;
+   private boolean finished;
+   private byte[] scratch;
+
+   public AsyncDownload(AsyncContext asyncContext, Duration timeout, int window) {
+      this.asyncContext = asyncContext;
+      this.response = (HttpServletResponse) asyncContext.getResponse();
+      this.window = Math.max(1, window);
+      asyncContext.setTimeout(timeout.toMillis());
+      asyncContext.addListener(this);
+   }
+
+   /**
+    * Answer with the download: status and headers now, then the body, if it has one, as the
+    * client takes it.
+    */
+   public synchronized void respond(FileRequestResponse download, String fileName) {
+      if(finished){
+         close(download.getContent());
+         return;
+      }
+      try{
+         body = S3Controller.writeHead(download, fileName, response);
+         if(body == null){
+            finish(null);
+            return;
+         }
+         out = response.getOutputStream();
+         out.setWriteListener(this);
+         body.chunks().subscribe(new ChunkSubscriber());
+      }
+      catch(IOException | RuntimeException e){
+         finish(e);
+      }
+   }
+
+   /**
+    * Answer with an error status and no body.
+    */
+   public synchronized void fail(int status) {
+      if(finished){
+         return;
+      }
+      response.setStatus(status);
+      finish(null);
+   }
+
+   @Override
+   public void onWritePossible() {
+      drain();
+   }
+
+   @Override
+   public synchronized void onError(Throwable error) {
+      finish(error);
+   }
+
+   @Override
+   public synchronized void onTimeout(AsyncEvent event) {
+      finish(new TimeoutException("Download timed out"));
+   }
+
+   @Override
+   public synchronized void onError(AsyncEvent event) {
+      finish(event.getThrowable());
+   }
+
+   @Override
+   public void onComplete(AsyncEvent event) {
+   }
+
+   @Override
+   public void onStartAsync(AsyncEvent event) {
+   }
+
+   private synchronized void drain() {
+      if(finished || out == null){
+         return;
+      }
+      try{
+         while(!finished && out.isReady()){
+            ByteBuffer chunk = pending.poll();
+            if(chunk == null){
+               if(bodyComplete){
+                  finish(null);
+               }
+               return;
+            }
+            write(chunk);
+            subscription.request(1);
+         }
+      }
+      catch(IOException | RuntimeException e){
+         finish(e);
+      }
+   }
+
+   private void write(ByteBuffer chunk) throws IOException {
+      int length = chunk.remaining();
+      if(chunk.hasArray()){
+         out.write(chunk.array(), chunk.arrayOffset() + chunk.position(), length);
+         return;
+      }
+      if(scratch == null || scratch.length < length){
+         scratch = new byte[length];
+      }
+      chunk.get(scratch, 0, length);
+      out.write(scratch, 0, length);
+   }
+
+   // Called with the lock held. Ends the response; an error before anything was sent becomes a 500
+   private void finish(Throwable error) {
+      if(finished){
+         return;
+      }
+      finished = true;
+      pending.clear();
+      if(error != null){
+         logger.debug("Download ended early: {}", error.getMessage());
+         if(subscription != null){
+            subscription.cancel();
+         }
+         if(!response.isCommitted()){
+            response.reset();
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+         }
+      }
+      close(body);
+      try{
+         asyncContext.complete();
+      }
+      catch(IllegalStateException e){
+         // Already completed by the container
+      }
+   }
+
+   private void close(ObjectBody content) {
+      if(content == null){
+         return;
+      }
+      try{
+         content.close();
+      }
+      catch(IOException e){
+         logger.debug("Could not close the download body: {}", e.getMessage());
+      }
+   }
+
+   private class ChunkSubscriber implements Subscriber<ByteBuffer> {
+      @Override
+      public void onSubscribe(Subscription chunks) {
+         synchronized(AsyncDownload.this){
+            subscription = chunks;
+            if(finished){
+               chunks.cancel();
+               return;
+            }
+         }
+         chunks.request(window);
+      }
+
+      @Override
+      public void onNext(ByteBuffer chunk) {
+         synchronized(AsyncDownload.this){
+            pending.add(chunk);
+         }
+         drain();
+      }
+
+      @Override
+      public void onError(Throwable error) {
+         synchronized(AsyncDownload.this){
+            finish(error);
+         }
+      }
+
+      @Override
+      public void onComplete() {
+         synchronized(AsyncDownload.this){
+            bodyComplete = true;
+         }
+         drain();
+      }
+   }
+}
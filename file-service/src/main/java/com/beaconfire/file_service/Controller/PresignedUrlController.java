@@ -0,0 +1,63 @@
+package com.beaconfire.file_service.Controller;
+
+import com.beaconfire.file_service.DTO.FileMetadata;
+import com.beaconfire.file_service.DTO.PresignedUploadRequest;
+import com.beaconfire.file_service.DTO.PresignedUrlResponse;
+import com.beaconfire.file_service.DTO.UploadCompletionRequest;
+import com.beaconfire.file_service.Exception.FileTooLargeException;
+import com.beaconfire.file_service.Exception.InvalidUploadException;
+import com.beaconfire.file_service.Service.PresignedUrlService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@ConditionalOnProperty(name = "file.storage.backend", havingValue = "s3", matchIfMissing = true)
+@RequestMapping("/files/presign")
+@Tag(name = "Fire Microservice", description = "APIs for direct uploads and downloads with pre-signed URLs")
+public class PresignedUrlController {
+
+   private final PresignedUrlService presignedUrlService;
+
+   @Autowired
+   public PresignedUrlController(PresignedUrlService presignedUrlService) {
+      this.presignedUrlService = presignedUrlService;
+   }
+
+   @PostMapping("/upload")
+   @Operation(summary = "Pre-sign an upload", description = "Returns a short-lived URL the client PUTs the file to directly.")
+   public ResponseEntity<PresignedUrlResponse> presignUpload(@RequestBody PresignedUploadRequest request) {
+      try{
+         return ResponseEntity.ok(presignedUrlService.presignUpload(request));
+      }
+      catch(FileTooLargeException e){
+         return ResponseEntity.status(413).build();
+      }
+      catch(InvalidUploadException e){
+         return ResponseEntity.badRequest().build();
+      }
+   }
+
+   @PostMapping("/complete")
+   @Operation(summary = "Complete a direct upload", description = "Verifies the uploaded object and records its metadata.")
+   public ResponseEntity<FileMetadata> completeUpload(@RequestBody UploadCompletionRequest request) {
+      try{
+         return ResponseEntity.ok(presignedUrlService.completeUpload(request.getKey()));
+      }
+      catch(FileTooLargeException e){
+         return ResponseEntity.status(413).build();
+      }
+      catch(InvalidUploadException e){
+         return ResponseEntity.badRequest().build();
+      }
+   }
+
+   @GetMapping("/download")
+   @Operation(summary = "Pre-sign a download", description = "Returns a short-lived URL the client GETs the file from directly.")
+   public ResponseEntity<PresignedUrlResponse> presignDownload(@RequestParam("objectUrl") String objectUrl) {
+      return ResponseEntity.ok(presignedUrlService.presignDownload(objectUrl));
+   }
+}
@@ -2,12 +2,18 @@ package com.beaconfire.file_service.Controller;
 
 import com.beaconfire.file_service.DTO.FileRequestResponse;
 import com.beaconfire.file_service.DTO.FileUploadResponse;
+import com.beaconfire.file_service.Exception.FileTooLargeException;
+import com.beaconfire.file_service.Exception.UnsupportedVariantException;
 import com.beaconfire.file_service.Service.S3Service;
+import com.beaconfire.file_service.Storage.ObjectBody;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
@@ -15,6 +21,8 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.time.Duration;
 
 @RestController
 @RequestMapping("/files")
@@ -24,10 +32,20 @@ public class S3Controller {
    private final String FAILURE_MESSAGE = "File could not be uploaded";
 
    private final S3Service s3Service;
+   private final Duration asyncTimeout;
+   private final int asyncWindow;
 
+   /**
+    * @param asyncTimeout how long an async download may take, including the transfer
+    * @param asyncWindow chunks buffered per async download
+    */
    @Autowired
-   public S3Controller(S3Service s3Service) {
+   public S3Controller(S3Service s3Service,
+                       @Value("${file.download.async-timeout:30m}") Duration asyncTimeout,
+                       @Value("${file.download.async-window:4}") int asyncWindow) {
       this.s3Service = s3Service;
+      this.asyncTimeout = asyncTimeout;
+      this.asyncWindow = asyncWindow;
    }
 
    @GetMapping
@@ -46,30 +64,139 @@ public class S3Controller {
                .build();
          return ResponseEntity.ok(response);
       }
+      catch(FileTooLargeException e){
+         return uploadFailure(413);
+      }
       catch(Exception e){
-         FileUploadResponse errorResponse = FileUploadResponse.builder()
-               .message(FAILURE_MESSAGE)
-               .objectUrl(null)
+         return uploadFailure(500);
+      }
+   }
+
+   @PutMapping("/upload/stream")
+   @Operation(summary = "Stream a file", description = "Streams the raw request body to AWS S3 without buffering it and returns the file URL.")
+   public ResponseEntity<FileUploadResponse> uploadFileStream(@RequestParam("fileName") String fileName,
+                                                              HttpServletRequest request) {
+      try(InputStream inputStream = request.getInputStream()){
+         String url = s3Service.uploadFile(fileName, request.getContentType(), inputStream);
+         FileUploadResponse response = FileUploadResponse.builder()
+               .message(SUCCESS_MESSAGE)
+               .objectUrl(url)
                .build();
-         return ResponseEntity.status(500).body(errorResponse);
+         return ResponseEntity.ok(response);
+      }
+      catch(FileTooLargeException e){
+         return uploadFailure(413);
+      }
+      catch(Exception e){
+         return uploadFailure(500);
       }
    }
 
    @GetMapping("/download")
-   @Operation(summary = "Download a file", description = "Downloads a file from AWS S3 based on the given object URL.")
-   public ResponseEntity<byte[]> downloadFile(@RequestParam("objectUrl") String objectUrl) {
+   @Operation(summary = "Download a file", description = "Streams a file from storage based on the given object URL. Supports Range and If-None-Match, and an optional image size (thumbnail, feed, full).")
+   public void downloadFile(@RequestParam("objectUrl") String objectUrl,
+                            @RequestParam(value = "size", required = false) String size,
+                            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                            HttpServletRequest request,
+                            HttpServletResponse response) {
+      if(s3Service.isAsyncDownloads()){
+         AsyncDownload download = new AsyncDownload(request.startAsync(request, response), asyncTimeout, asyncWindow);
+         try{
+            String fileName = extractKeyFromUrl(objectUrl);
+            s3Service.downloadFileAsync(objectUrl, size, range, ifNoneMatch).whenComplete((result, e) -> {
+               if(e != null){
+                  download.fail(500);
+               }
+               else{
+                  download.respond(result, fileName);
+               }
+            });
+         }
+         catch(UnsupportedVariantException e){
+            download.fail(400);
+         }
+         catch(Exception e){
+            download.fail(500);
+         }
+         return;
+      }
+
       try{
-         FileRequestResponse response = s3Service.downloadFile(objectUrl);
          String fileName = extractKeyFromUrl(objectUrl);
+         FileRequestResponse result = s3Service.downloadFile(objectUrl, size, range, ifNoneMatch);
+         ObjectBody content = writeHead(result, fileName, response);
+         if(content != null){
+            try(content){
+               content.writeTo(response.getOutputStream());
+            }
+         }
+      }
+      catch(UnsupportedVariantException e){
+         response.setStatus(400);
+      }
+      catch(Exception e){
+         if(!response.isCommitted()){
+            response.reset();
+            response.setStatus(500);
+         }
+      }
+   }
 
-         return ResponseEntity.ok()
-               .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
-               .contentType(MediaType.parseMediaType(response.getContentType()))
-               .body(response.getContent());
+   @DeleteMapping
+   @Operation(summary = "Delete a file", description = "Deletes a file. Deduplicated files may be shared: 204 when the last reference was deleted with the object, 202 when other uploads still reference it, 409 when it has no recorded references and was kept.")
+   public ResponseEntity<Void> deleteFile(@RequestParam("objectUrl") String objectUrl) {
+      try{
+         return switch(s3Service.deleteFile(objectUrl)){
+            case DELETED -> ResponseEntity.noContent().build();
+            case RELEASED -> ResponseEntity.accepted().build();
+            case UNTRACKED -> ResponseEntity.status(HttpStatus.CONFLICT).build();
+         };
       }
       catch(Exception e){
-         return ResponseEntity.status(500).body(null);
+         return ResponseEntity.status(500).build();
+      }
+   }
+
+   /**
+    * Set the status and headers of a download.
+    * @return the body still to be written, or null if the response has none
+    */
+   static ObjectBody writeHead(FileRequestResponse download, String fileName, HttpServletResponse response) {
+      if(download.getStatus() == 304){
+         response.setStatus(HttpStatus.NOT_MODIFIED.value());
+         if(download.getETag() != null){
+            response.setHeader(HttpHeaders.ETAG, download.getETag());
+         }
+         return null;
       }
+      if(download.getStatus() == 416){
+         response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+         return null;
+      }
+
+      response.setStatus(download.getStatus());
+      response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+      response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+      response.setContentType(download.getContentType()!=null?download.getContentType():"application/octet-stream");
+      if(download.getContentLength() != null){
+         response.setContentLengthLong(download.getContentLength());
+      }
+      if(download.getETag() != null){
+         response.setHeader(HttpHeaders.ETAG, download.getETag());
+      }
+      if(download.getContentRange() != null){
+         response.setHeader(HttpHeaders.CONTENT_RANGE, download.getContentRange());
+      }
+      return download.getContent();
+   }
+
+   private ResponseEntity<FileUploadResponse> uploadFailure(int status) {
+      FileUploadResponse errorResponse = FileUploadResponse.builder()
+            .message(FAILURE_MESSAGE)
+            .objectUrl(null)
+            .build();
+      return ResponseEntity.status(status).body(errorResponse);
    }
 
    private String extractKeyFromUrl(String url) {
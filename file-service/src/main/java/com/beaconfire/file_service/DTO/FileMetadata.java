@@ -0,0 +1,21 @@
+package com.beaconfire.file_service.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class FileMetadata {
+   private String key;
+   private String objectUrl;
+   private String contentType;
+   private long size;
+   private String eTag;
+   private Instant uploadedAt;
+}
@@ -1,5 +1,6 @@
 package com.beaconfire.file_service.DTO;
 
+import com.beaconfire.file_service.Storage.ObjectBody;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -10,6 +11,13 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @NoArgsConstructor
 public class FileRequestResponse {
-   private byte[] content;
+   // 200, 206 for a satisfied Range, 304 when If-None-Match matched, 416 for an unsatisfiable Range
+   @Builder.Default
+   private int status = 200;
+   // Open object body, the caller must write it out and close it
+   private ObjectBody content;
    private String contentType;
+   private Long contentLength;
+   private String eTag;
+   private String contentRange;
 }
@@ -0,0 +1,20 @@
+package com.beaconfire.file_service.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class IssuedUpload {
+   private String key;
+   private String contentType;
+   private long contentLength;
+   // The pre-signed URL expires earlier; this leaves a client time to report a late finished upload
+   private Instant completeBy;
+}
@@ -0,0 +1,16 @@
+package com.beaconfire.file_service.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PresignedUploadRequest {
+   private String fileName;
+   private String contentType;
+   private Long contentLength;
+}
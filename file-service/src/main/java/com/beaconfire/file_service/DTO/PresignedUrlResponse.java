@@ -0,0 +1,24 @@
+package com.beaconfire.file_service.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PresignedUrlResponse {
+   private String url;
+   private String method;
+   private String key;
+   private String objectUrl;
+   private Instant expiresAt;
+   // Headers the client must send unchanged, they are part of the signature
+   private Map<String, List<String>> signedHeaders;
+}
@@ -0,0 +1,11 @@
+package com.beaconfire.file_service.Exception;
+
+public class FileServiceException extends RuntimeException {
+   public FileServiceException(String message) {
+      super(message);
+   }
+
+   public FileServiceException(String message, Throwable cause) {
+      super(message, cause);
+   }
+}
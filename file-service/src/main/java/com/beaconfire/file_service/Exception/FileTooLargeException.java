@@ -0,0 +1,7 @@
+package com.beaconfire.file_service.Exception;
+
+public class FileTooLargeException extends FileServiceException {
+   public FileTooLargeException(String message) {
+      super(message);
+   }
+}
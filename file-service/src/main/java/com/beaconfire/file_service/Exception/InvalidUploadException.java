@@ -0,0 +1,7 @@
+package com.beaconfire.file_service.Exception;
+
+public class InvalidUploadException extends FileServiceException {
+   public InvalidUploadException(String message) {
+      super(message);
+   }
+}
@@ -0,0 +1,7 @@
+package com.beaconfire.file_service.Exception;
+
+public class UnsupportedVariantException extends FileServiceException {
+   public UnsupportedVariantException(String message) {
+      super(message);
+   }
+}
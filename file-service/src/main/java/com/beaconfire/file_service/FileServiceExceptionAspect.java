@@ -1,5 +1,6 @@
 package com.beaconfire.file_service;
 
+import com.beaconfire.file_service.Exception.FileServiceException;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
 import org.aspectj.lang.annotation.Around;
@@ -20,6 +21,9 @@ public class FileServiceExceptionAspect {
     public Object handleFileServiceExceptions(ProceedingJoinPoint joinPoint) throws Throwable {
         try {
             return joinPoint.proceed();
+        } catch (FileServiceException ex) {
+            // Already describes what went wrong, callers map it to a status code
+            throw ex;
         } catch (Exception ex) {
             logger.error("File-Service Exception in {}.{}: {}",
                     joinPoint.getSignature().getDeclaringTypeName(),
@@ -0,0 +1,66 @@
+package com.beaconfire.file_service.Service;
+
+import com.beaconfire.file_service.Storage.StorageBackend;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Reference count of content-addressed objects. Each upload of some content adds an empty
+ * marker object {@code refs/<content key>/<id>} to storage, and each delete removes one, so the
+ * count survives restarts and every instance sees the same one. Markers are never rewritten,
+ * which keeps concurrent uploads from losing each other's increments without conditional writes.
+ */
+@Component
+public class ContentReferences {
+
+   static final String PREFIX = "refs/";
+
+   private final StorageBackend storage;
+
+   @Autowired
+   public ContentReferences(StorageBackend storage) {
+      this.storage = storage;
+   }
+
+   /**
+    * Add a reference to the content.
+    * @return the marker, to {@link #remove} if the upload fails
+    */
+   public String add(String key) throws IOException {
+      String marker = prefix(key) + UUID.randomUUID();
+      storage.put(marker, "application/octet-stream", InputStream.nullInputStream());
+      return marker;
+   }
+
+   public void remove(String marker) {
+      storage.delete(marker);
+   }
+
+   /**
+    * Release one reference to the content. Concurrent releases may pick the same marker, which
+    * can only leave the object stored, never delete it while it is still referenced.
+    * @return false if the content had no references left to release
+    */
+   public boolean release(String key) {
+      List<String> markers = storage.list(prefix(key), 2);
+      if(markers.isEmpty()){
+         return false;
+      }
+      storage.delete(markers.get(ThreadLocalRandom.current().nextInt(markers.size())));
+      return true;
+   }
+
+   public boolean isReferenced(String key) {
+      return !storage.list(prefix(key), 1).isEmpty();
+   }
+
+   private static String prefix(String key) {
+      return PREFIX + key + "/";
+   }
+}
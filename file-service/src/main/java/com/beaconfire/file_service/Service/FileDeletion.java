@@ -0,0 +1,13 @@
+package com.beaconfire.file_service.Service;
+
+/**
+ * Outcome of deleting a file by its URL.
+ */
+public enum FileDeletion {
+   /** The object is gone, along with its image variants. */
+   DELETED,
+   /** One reference to shared content was released; other uploads still use the object. */
+   RELEASED,
+   /** A content-addressed object with no recorded references, so nothing was deleted. */
+   UNTRACKED
+}
@@ -0,0 +1,103 @@
+package com.beaconfire.file_service.Service;
+
+import com.beaconfire.file_service.DTO.FileMetadata;
+import com.beaconfire.file_service.DTO.IssuedUpload;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+
+/**
+ * Upload keys issued for direct uploads, and the metadata of uploads the client confirmed. Both
+ * are small JSON records kept in the bucket next to the files, so they survive restarts and
+ * every instance sees the same ones. Issued records are removed on completion; ones never
+ * completed carry their deadline and should also be expired by a lifecycle rule on their prefix.
+ */
+@Component
+@ConditionalOnProperty(name = "file.storage.backend", havingValue = "s3", matchIfMissing = true)
+public class FileMetadataRegistry {
+
+   static final String ISSUED_PREFIX = "uploads/issued/";
+   static final String METADATA_PREFIX = "uploads/metadata/";
+
+   private final S3Client s3Client;
+   private final ObjectMapper objectMapper;
+   private final String bucketName;
+
+   @Autowired
+   public FileMetadataRegistry(S3Client s3Client, ObjectMapper objectMapper,
+                               @Value("${aws.s3.bucket-name}") String bucketName) {
+      this.s3Client = s3Client;
+      this.objectMapper = objectMapper;
+      this.bucketName = bucketName;
+   }
+
+   public void issue(IssuedUpload upload) {
+      write(ISSUED_PREFIX + upload.getKey(), upload);
+   }
+
+   public Optional<IssuedUpload> findIssued(String key) {
+      return read(ISSUED_PREFIX + key, IssuedUpload.class);
+   }
+
+   /**
+    * Record the metadata of a completed upload and retire its issued key.
+    */
+   public void record(FileMetadata metadata) {
+      write(METADATA_PREFIX + metadata.getKey(), metadata);
+      delete(ISSUED_PREFIX + metadata.getKey());
+   }
+
+   public Optional<FileMetadata> find(String key) {
+      return read(METADATA_PREFIX + key, FileMetadata.class);
+   }
+
+   public void remove(String key) {
+      delete(METADATA_PREFIX + key);
+      delete(ISSUED_PREFIX + key);
+   }
+
+   private void write(String recordKey, Object value) {
+      try {
+         s3Client.putObject(PutObjectRequest.builder()
+               .bucket(bucketName)
+               .key(recordKey)
+               .contentType("application/json")
+               .build(), RequestBody.fromBytes(objectMapper.writeValueAsBytes(value)));
+      }
+      catch (IOException e) {
+         throw new UncheckedIOException("Failed to write upload record " + recordKey, e);
+      }
+   }
+
+   private <T> Optional<T> read(String recordKey, Class<T> type) {
+      try {
+         byte[] content = s3Client.getObjectAsBytes(GetObjectRequest.builder()
+               .bucket(bucketName)
+               .key(recordKey)
+               .build()).asByteArray();
+         return Optional.of(objectMapper.readValue(content, type));
+      }
+      catch (NoSuchKeyException e) {
+         return Optional.empty();
+      }
+      catch (IOException e) {
+         throw new UncheckedIOException("Failed to read upload record " + recordKey, e);
+      }
+   }
+
+   private void delete(String recordKey) {
+      s3Client.deleteObject(DeleteObjectRequest.builder().bucket(bucketName).key(recordKey).build());
+   }
+}
@@ -0,0 +1,38 @@
+package com.beaconfire.file_service.Service;
+
+import com.beaconfire.file_service.Exception.UnsupportedVariantException;
+
+/**
+ * Fixed image sizes served through the {@code size} download parameter. Each variant fits the
+ * image inside a square box, keeping the aspect ratio and never upscaling.
+ */
+public enum ImageVariant {
+   THUMBNAIL("thumbnail", 160),
+   FEED("feed", 640),
+   FULL("full", 1600);
+
+   private final String name;
+   private final int maxDimension;
+
+   ImageVariant(String name, int maxDimension) {
+      this.name = name;
+      this.maxDimension = maxDimension;
+   }
+
+   public String getName() {
+      return name;
+   }
+
+   public int getMaxDimension() {
+      return maxDimension;
+   }
+
+   public static ImageVariant fromName(String name) {
+      for (ImageVariant variant : values()) {
+         if (variant.name.equalsIgnoreCase(name)) {
+            return variant;
+         }
+      }
+      throw new UnsupportedVariantException("Unknown image size: " + name);
+   }
+}
@@ -0,0 +1,345 @@
+package com.beaconfire.file_service.Service;
+
+import com.beaconfire.file_service.Storage.ObjectMetadata;
+import com.beaconfire.file_service.Storage.StorageBackend;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Builds the fixed-size variants of uploaded images and stores them under
+ * {@code variants/<size>/<original key>}, next to the original.
+ * Variants are generated in the background after an upload on a small bounded pool. Anything
+ * missing (queue was full, uploaded before this existed, generation failed) is built on first
+ * request instead, on the same pool, with concurrent requests for the same image sharing one
+ * build. A request that cannot get a build in time is served the original.
+ */
+@Service
+public class ImageVariantService {
+   private static final Logger logger = LoggerFactory.getLogger(ImageVariantService.class);
+
+   private static final Map<String, String> FORMATS = Map.of(
+         "image/jpeg", "jpeg",
+         "image/png", "png",
+         "image/bmp", "bmp");
+
+   // Variants known to be stored, so repeated requests skip the HEAD. Bounded, and re-checked
+   // after a while since objects can also be removed outside this instance
+   private static final int MAX_KNOWN_VARIANTS = 10_000;
+   private static final long KNOWN_VARIANT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+   private final StorageBackend storage;
+   private final ThreadPoolExecutor workers;
+   private final Map<String, Long> storedVariants = Collections.synchronizedMap(
+         new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+               return size() > MAX_KNOWN_VARIANTS;
+            }
+         });
+   private final Map<String, CompletableFuture<Void>> inProgress = new ConcurrentHashMap<>();
+
+   @Value("${file.image.max-source-size:25MB}")
+   private DataSize maxSourceSize;
+
+   // Decoded size is width * height * 4 bytes whatever the file size, so huge dimensions are refused up front
+   @Value("${file.image.max-source-pixels:40000000}")
+   private long maxSourcePixels;
+
+   // How long a download waits for an on-demand build before it is served the original
+   @Value("${file.image.max-wait:10s}")
+   private Duration maxWait;
+
+   @Autowired
+   public ImageVariantService(StorageBackend storage,
+                              @Value("${file.image.workers:2}") int workers,
+                              @Value("${file.image.queue-capacity:100}") int queueCapacity) {
+      this.storage = storage;
+      this.workers = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), new ThreadPoolExecutor.AbortPolicy());
+   }
+
+   public static String variantKey(String key, ImageVariant variant) {
+      return "variants/" + variant.getName() + "/" + key;
+   }
+
+   public boolean supports(String contentType) {
+      return contentType != null && FORMATS.containsKey(contentType.toLowerCase());
+   }
+
+   /**
+    * Queue variant generation for a freshly stored object. Dropped when the pool is saturated,
+    * the variants are then built on first request.
+    */
+   public void scheduleVariants(String key, String contentType) {
+      if(!supports(contentType)){
+         return;
+      }
+      buildOnce(key, contentType).exceptionally(e -> {
+         if(e instanceof RejectedExecutionException){
+            logger.info("Image variant queue full, {} will be processed on first request", key);
+         }
+         else{
+            logger.warn("Could not generate image variants for {}: {}", key, e.getMessage());
+         }
+         return null;
+      });
+   }
+
+   /**
+    * @return the key to serve for the requested size: the variant, built now if missing, or the
+    * original when it is not a supported image or no variant could be built in time
+    */
+   public String resolveVariant(String key, ImageVariant variant) {
+      String variantKey = variantKey(key, variant);
+      if(isKnown(variantKey)){
+         return variantKey;
+      }
+      if(storage.stat(variantKey).isPresent()){
+         remember(variantKey);
+         return variantKey;
+      }
+
+      String contentType = storage.stat(key)
+            .map(ObjectMetadata::getContentType)
+            .orElse(null);
+      if(!supports(contentType)){
+         return key;
+      }
+      try{
+         buildOnce(key, contentType).get(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+      }
+      catch(ExecutionException | TimeoutException e){
+         logger.info("No {} variant of {} available yet, serving the original: {}", variant.getName(), key,
+               e instanceof ExecutionException ? e.getCause().getMessage() : "build still running");
+      }
+      catch(InterruptedException e){
+         Thread.currentThread().interrupt();
+      }
+      return isKnown(variantKey) ? variantKey : key;
+   }
+
+   /**
+    * Same as {@link #resolveVariant}, without blocking the caller: the lookups run on the worker
+    * pool, and no thread waits for a build. Completes with the original right away when the pool
+    * is saturated.
+    */
+   public CompletableFuture<String> resolveVariantAsync(String key, ImageVariant variant) {
+      String variantKey = variantKey(key, variant);
+      if(isKnown(variantKey)){
+         return CompletableFuture.completedFuture(variantKey);
+      }
+
+      CompletableFuture<String> resolved = new CompletableFuture<>();
+      try{
+         workers.execute(() -> {
+            try{
+               if(storage.stat(variantKey).isPresent()){
+                  remember(variantKey);
+                  resolved.complete(variantKey);
+                  return;
+               }
+               String contentType = storage.stat(key)
+                     .map(ObjectMetadata::getContentType)
+                     .orElse(null);
+               if(!supports(contentType)){
+                  resolved.complete(key);
+                  return;
+               }
+               // A copy, so the timeout does not fail the build for everyone sharing it
+               buildOnce(key, contentType).copy()
+                     .orTimeout(maxWait.toMillis(), TimeUnit.MILLISECONDS)
+                     .whenComplete((built, e) -> {
+                        if(e != null){
+                           Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                           logger.info("No {} variant of {} available yet, serving the original: {}", variant.getName(), key,
+                                 cause instanceof TimeoutException ? "build still running" : cause.getMessage());
+                        }
+                        resolved.complete(isKnown(variantKey) ? variantKey : key);
+                     });
+            }
+            catch(RuntimeException e){
+               resolved.completeExceptionally(e);
+            }
+         });
+      }
+      catch(RejectedExecutionException e){
+         resolved.complete(key);
+      }
+      return resolved;
+   }
+
+   /**
+    * Forget the variants of an object that was deleted, so a later upload under the same key
+    * gets them built again.
+    */
+   public void evictVariants(String key) {
+      for(ImageVariant variant : ImageVariant.values()){
+         storedVariants.remove(variantKey(key, variant));
+      }
+   }
+
+   private boolean isKnown(String variantKey) {
+      Long storedAt = storedVariants.get(variantKey);
+      if(storedAt == null){
+         return false;
+      }
+      if(System.currentTimeMillis() - storedAt > KNOWN_VARIANT_TTL_MILLIS){
+         storedVariants.remove(variantKey);
+         return false;
+      }
+      return true;
+   }
+
+   private void remember(String variantKey) {
+      storedVariants.put(variantKey, System.currentTimeMillis());
+   }
+
+   /**
+    * Run the build of all variants of the object on the worker pool, or join the one already
+    * running. The future fails with RejectedExecutionException when the pool is saturated.
+    */
+   private CompletableFuture<Void> buildOnce(String key, String contentType) {
+      CompletableFuture<Void> build = new CompletableFuture<>();
+      CompletableFuture<Void> running = inProgress.putIfAbsent(key, build);
+      if(running != null){
+         return running;
+      }
+      try{
+         workers.execute(() -> {
+            try{
+               generate(key, contentType);
+               build.complete(null);
+            }
+            catch(RuntimeException e){
+               build.completeExceptionally(e);
+            }
+            finally{
+               inProgress.remove(key, build);
+            }
+         });
+      }
+      catch(RejectedExecutionException e){
+         inProgress.remove(key, build);
+         build.completeExceptionally(e);
+      }
+      return build;
+   }
+
+   private void generate(String key, String contentType) {
+      ObjectMetadata metadata = storage.stat(key).orElse(null);
+      if(metadata == null || metadata.getSize() > maxSourceSize.toBytes()){
+         return;
+      }
+      BufferedImage source = decode(key);
+      if(source == null){
+         return;
+      }
+
+      String format = FORMATS.get(contentType.toLowerCase());
+      for(ImageVariant variant : ImageVariant.values()){
+         String variantKey = variantKey(key, variant);
+         if(Math.max(source.getWidth(), source.getHeight()) <= variant.getMaxDimension()){
+            // Already small enough, a copy inside the storage keeps the original bytes untouched
+            storage.copy(key, variantKey);
+         }
+         else{
+            byte[] encoded = encode(scale(source, variant.getMaxDimension(), format), format);
+            try{
+               storage.put(variantKey, contentType, new ByteArrayInputStream(encoded));
+            }
+            catch(IOException e){
+               throw new RuntimeException("Error storing image variant " + variantKey, e);
+            }
+         }
+         remember(variantKey);
+      }
+   }
+
+   /**
+    * @return the decoded image, or null if it is not readable or has more pixels than allowed;
+    * the dimensions come from the header, before any pixel data is decoded
+    */
+   private BufferedImage decode(String key) {
+      try(InputStream raw = storage.open(key); ImageInputStream in = ImageIO.createImageInputStream(raw)){
+         Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : Collections.emptyIterator();
+         if(!readers.hasNext()){
+            return null;
+         }
+         ImageReader reader = readers.next();
+         try{
+            reader.setInput(in, true, true);
+            long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+            if(pixels > maxSourcePixels){
+               logger.info("Not building variants of {}: {} pixels exceeds the limit of {}", key, pixels, maxSourcePixels);
+               return null;
+            }
+            return reader.read(0);
+         }
+         finally{
+            reader.dispose();
+         }
+      }
+      catch(IOException e){
+         throw new RuntimeException("Error reading image " + key, e);
+      }
+   }
+
+   static BufferedImage scale(BufferedImage source, int maxDimension, String format) {
+      double ratio = (double) maxDimension / Math.max(source.getWidth(), source.getHeight());
+      int width = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+      int height = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+      // JPEG and BMP writers cannot encode an alpha channel
+      int type = "png".equals(format) ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+      BufferedImage scaled = new BufferedImage(width, height, type);
+      Graphics2D graphics = scaled.createGraphics();
+      try{
+         graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+         graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+         graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+         graphics.drawImage(source, 0, 0, width, height, null);
+      }
+      finally{
+         graphics.dispose();
+      }
+      return scaled;
+   }
+
+   private byte[] encode(BufferedImage image, String format) {
+      try{
+         ByteArrayOutputStream out = new ByteArrayOutputStream();
+         ImageIO.write(image, format, out);
+         return out.toByteArray();
+      }
+      catch(IOException e){
+         throw new RuntimeException("Error encoding image variant", e);
+      }
+   }
+
+   @PreDestroy
+   public void shutdown() {
+      workers.shutdown();
+   }
+}
@@ -0,0 +1,48 @@
+package com.beaconfire.file_service.Service;
+
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Object key helpers shared by the upload paths.
+ */
+public final class ObjectKeys {
+
+   private static final Pattern CONTENT_KEY = Pattern.compile("[0-9a-f]{64}\\.[^/]*");
+
+   private ObjectKeys() {
+   }
+
+   public static String generateUniqueKey(String fileName) {
+      return UUID.randomUUID() + extension(fileName);
+   }
+
+   //Remain the file extension for retrieval recognition
+   public static String extension(String fileName) {
+      if(fileName!=null && !fileName.isEmpty()) {
+         int dotIndex = fileName.lastIndexOf(".");
+         if(dotIndex >= 0) {return fileName.substring(dotIndex);}
+      }
+      return ".bin";
+   }
+
+   public static String contentKey(byte[] sha256, String extension) {
+      return HexFormat.of().formatHex(sha256) + extension;
+   }
+
+   /**
+    * @return true for keys made by {@link #contentKey}, which any number of uploads may share
+    */
+   public static boolean isContentKey(String key) {
+      return CONTENT_KEY.matcher(key).matches();
+   }
+
+   public static String extractKeyFromUrl(String url) {
+      int index = url.lastIndexOf("/");
+      if(index < 0){
+         throw new IllegalArgumentException("Invalid URL");
+      }
+      return url.substring(index + 1);
+   }
+}
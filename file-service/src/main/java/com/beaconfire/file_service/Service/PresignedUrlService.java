@@ -0,0 +1,191 @@
+package com.beaconfire.file_service.Service;
+
+import com.beaconfire.file_service.DTO.FileMetadata;
+import com.beaconfire.file_service.DTO.IssuedUpload;
+import com.beaconfire.file_service.DTO.PresignedUploadRequest;
+import com.beaconfire.file_service.DTO.PresignedUrlResponse;
+import com.beaconfire.file_service.Exception.FileTooLargeException;
+import com.beaconfire.file_service.Exception.InvalidUploadException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeType;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Issues short-lived pre-signed URLs so clients move file bytes directly to and from object
+ * storage. The content type and length are part of the upload signature. Every issued key is
+ * recorded, and the completion callback only accepts keys issued here and not yet past their
+ * deadline, then checks the stored object against the limits before recording it.
+ * Only available with the S3 storage backend.
+ */
+@Service
+@ConditionalOnProperty(name = "file.storage.backend", havingValue = "s3", matchIfMissing = true)
+public class PresignedUrlService {
+
+   private final S3Presigner s3Presigner;
+   private final S3Client s3Client;
+   private final FileMetadataRegistry metadataRegistry;
+   private final ImageVariantService imageVariantService;
+
+   @Value("${aws.s3.bucket-name}")
+   private String bucketName;
+
+   @Value("${file.presign.ttl:15m}")
+   private Duration ttl;
+
+   @Value("${file.upload.max-size:2GB}")
+   private DataSize maxFileSize;
+
+   @Value("${file.presign.allowed-content-types:image/*,video/*,application/pdf}")
+   private List<String> allowedContentTypes;
+
+   @Autowired
+   public PresignedUrlService(S3Presigner s3Presigner, S3Client s3Client, FileMetadataRegistry metadataRegistry,
+                              ImageVariantService imageVariantService) {
+      this.s3Presigner = s3Presigner;
+      this.s3Client = s3Client;
+      this.metadataRegistry = metadataRegistry;
+      this.imageVariantService = imageVariantService;
+   }
+
+   public PresignedUrlResponse presignUpload(PresignedUploadRequest request) {
+      validate(request.getContentType(), request.getContentLength());
+
+      String key = ObjectKeys.generateUniqueKey(request.getFileName());
+      PresignedPutObjectRequest presigned = s3Presigner.presignPutObject(PutObjectPresignRequest.builder()
+            .signatureDuration(ttl)
+            .putObjectRequest(PutObjectRequest.builder()
+                  .bucket(bucketName)
+                  .key(key)
+                  .contentType(request.getContentType())
+                  .contentLength(request.getContentLength())
+                  .build())
+            .build());
+      metadataRegistry.issue(IssuedUpload.builder()
+            .key(key)
+            .contentType(request.getContentType())
+            .contentLength(request.getContentLength())
+            .completeBy(presigned.expiration().plus(ttl))
+            .build());
+
+      return PresignedUrlResponse.builder()
+            .url(presigned.url().toString())
+            .method("PUT")
+            .key(key)
+            .objectUrl(objectUrl(key))
+            .expiresAt(presigned.expiration())
+            .signedHeaders(presigned.signedHeaders())
+            .build();
+   }
+
+   public PresignedUrlResponse presignDownload(String objectUrl) {
+      String key = ObjectKeys.extractKeyFromUrl(objectUrl);
+      PresignedGetObjectRequest presigned = s3Presigner.presignGetObject(GetObjectPresignRequest.builder()
+            .signatureDuration(ttl)
+            .getObjectRequest(GetObjectRequest.builder()
+                  .bucket(bucketName)
+                  .key(key)
+                  .build())
+            .build());
+
+      return PresignedUrlResponse.builder()
+            .url(presigned.url().toString())
+            .method("GET")
+            .key(key)
+            .objectUrl(objectUrl)
+            .expiresAt(presigned.expiration())
+            .signedHeaders(presigned.signedHeaders())
+            .build();
+   }
+
+   /**
+    * Called by the client once its direct upload finished. The key must have been issued by
+    * {@link #presignUpload} and the object is checked with a HEAD request, so a client cannot
+    * register metadata for something it never uploaded or for any other object in the bucket.
+    * Completing the same upload again returns the recorded metadata.
+    */
+   public FileMetadata completeUpload(String key) {
+      Optional<FileMetadata> recorded = metadataRegistry.find(key);
+      if (recorded.isPresent()) {
+         return recorded.get();
+      }
+      metadataRegistry.findIssued(key)
+            .filter(issued -> issued.getCompleteBy().isAfter(Instant.now()))
+            .orElseThrow(() -> new InvalidUploadException("No pending upload was issued for key " + key));
+
+      HeadObjectResponse head;
+      try {
+         head = s3Client.headObject(HeadObjectRequest.builder()
+               .bucket(bucketName)
+               .key(key)
+               .build());
+      }
+      catch (NoSuchKeyException e) {
+         throw new InvalidUploadException("No uploaded object found for key " + key);
+      }
+
+      if (head.contentLength() > maxFileSize.toBytes()) {
+         s3Client.deleteObject(DeleteObjectRequest.builder().bucket(bucketName).key(key).build());
+         metadataRegistry.remove(key);
+         throw new FileTooLargeException("File exceeds the maximum upload size of " + maxFileSize.toBytes() + " bytes");
+      }
+
+      FileMetadata metadata = FileMetadata.builder()
+            .key(key)
+            .objectUrl(objectUrl(key))
+            .contentType(head.contentType())
+            .size(head.contentLength())
+            .eTag(head.eTag())
+            .uploadedAt(Instant.now())
+            .build();
+      metadataRegistry.record(metadata);
+      imageVariantService.scheduleVariants(key, head.contentType());
+      return metadata;
+   }
+
+   private void validate(String contentType, Long contentLength) {
+      if (contentLength == null || contentLength <= 0) {
+         throw new InvalidUploadException("contentLength is required");
+      }
+      if (contentLength > maxFileSize.toBytes()) {
+         throw new FileTooLargeException("File exceeds the maximum upload size of " + maxFileSize.toBytes() + " bytes");
+      }
+      if (contentType == null || !isAllowed(contentType)) {
+         throw new InvalidUploadException("Content type not allowed: " + contentType);
+      }
+   }
+
+   private boolean isAllowed(String contentType) {
+      MimeType requested;
+      try {
+         requested = MimeType.valueOf(contentType);
+      }
+      catch (IllegalArgumentException e) {
+         return false;
+      }
+      return allowedContentTypes.stream()
+            .map(MimeType::valueOf)
+            .anyMatch(allowed -> allowed.includes(requested));
+   }
+
+   private String objectUrl(String key) {
+      return s3Client.utilities().getUrl(GetUrlRequest.builder()
+            .bucket(bucketName)
+            .key(key)
+            .build()).toString();
+   }
+}
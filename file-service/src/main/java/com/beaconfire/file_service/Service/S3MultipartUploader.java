@@ -0,0 +1,232 @@
+package com.beaconfire.file_service.Service;
+
+import com.beaconfire.file_service.Exception.FileServiceException;
+import com.beaconfire.file_service.Exception.FileTooLargeException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Streams an upload into S3 without holding the whole file in heap.
+ * The input is cut into fixed-size parts that are uploaded in parallel. Each request owns at most
+ * {@code maxPartsInFlight} part buffers, so its memory budget is {@code partSize * maxPartsInFlight}
+ * no matter how large the file is. Files smaller than one part go through a single PutObject.
+ */
+@Component
+@ConditionalOnProperty(name = "file.storage.backend", havingValue = "s3", matchIfMissing = true)
+public class S3MultipartUploader {
+
+   // S3 rejects multipart parts smaller than 5 MB (except the last one)
+   private static final long MIN_PART_SIZE = DataSize.ofMegabytes(5).toBytes();
+
+   private final S3Client s3Client;
+   private final int partSize;
+   private final int maxPartsInFlight;
+   private final long maxFileSize;
+   private final ExecutorService partExecutor;
+
+   @Autowired
+   public S3MultipartUploader(S3Client s3Client,
+                              @Value("${file.upload.part-size:8MB}") DataSize partSize,
+                              @Value("${file.upload.max-parts-in-flight:4}") int maxPartsInFlight,
+                              @Value("${file.upload.max-size:2GB}") DataSize maxFileSize,
+                              @Value("${file.upload.threads:16}") int threads) {
+      if (partSize.toBytes() < MIN_PART_SIZE || partSize.toBytes() > Integer.MAX_VALUE) {
+         throw new IllegalArgumentException("file.upload.part-size must be between 5MB and 2GB");
+      }
+      this.s3Client = s3Client;
+      this.partSize = (int) partSize.toBytes();
+      this.maxPartsInFlight = Math.max(1, maxPartsInFlight);
+      this.maxFileSize = maxFileSize.toBytes();
+      this.partExecutor = Executors.newFixedThreadPool(threads);
+   }
+
+   public long getMaxFileSize() {
+      return maxFileSize;
+   }
+
+   public int getPartSize() {
+      return partSize;
+   }
+
+   /**
+    * Upload everything readable from the stream under the given key.
+    * @return the number of bytes stored
+    */
+   public long upload(String bucketName, String key, String contentType, InputStream inputStream) throws IOException {
+      BufferPool buffers = new BufferPool(maxPartsInFlight, partSize);
+
+      byte[] firstPart = buffers.take();
+      int firstLength = inputStream.readNBytes(firstPart, 0, partSize);
+      checkSize(firstLength);
+
+      if (firstLength < partSize) {
+         s3Client.putObject(PutObjectRequest.builder()
+                     .bucket(bucketName)
+                     .key(key)
+                     .contentType(contentType)
+                     .contentLength((long) firstLength)
+                     .build(),
+               RequestBody.fromInputStream(new ByteArrayInputStream(firstPart, 0, firstLength), firstLength));
+         return firstLength;
+      }
+
+      String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                  .bucket(bucketName)
+                  .key(key)
+                  .contentType(contentType)
+                  .build())
+            .uploadId();
+
+      List<Future<CompletedPart>> parts = new ArrayList<>();
+      try {
+         long total = 0;
+         int partNumber = 1;
+         byte[] buffer = firstPart;
+         int length = firstLength;
+
+         while (length > 0) {
+            total += length;
+            checkSize(total);
+            parts.add(submitPart(bucketName, key, uploadId, partNumber++, buffer, length, buffers));
+            failFast(parts);
+
+            // Blocks until one of our in-flight parts has finished and handed its buffer back
+            buffer = buffers.take();
+            length = inputStream.readNBytes(buffer, 0, partSize);
+         }
+
+         List<CompletedPart> completedParts = new ArrayList<>(parts.size());
+         for (Future<CompletedPart> part : parts) {
+            completedParts.add(part.get());
+         }
+         completedParts.sort(Comparator.comparing(CompletedPart::partNumber));
+
+         s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+               .bucket(bucketName)
+               .key(key)
+               .uploadId(uploadId)
+               .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+               .build());
+         return total;
+      }
+      catch (Exception e) {
+         parts.forEach(part -> part.cancel(true));
+         s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+               .bucket(bucketName)
+               .key(key)
+               .uploadId(uploadId)
+               .build());
+         throw rethrow(e);
+      }
+   }
+
+   private Future<CompletedPart> submitPart(String bucketName, String key, String uploadId, int partNumber,
+                                            byte[] buffer, int length, BufferPool buffers) {
+      return partExecutor.submit(() -> {
+         try {
+            UploadPartResponse response = s3Client.uploadPart(UploadPartRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber)
+                        .contentLength((long) length)
+                        .build(),
+                  RequestBody.fromInputStream(new ByteArrayInputStream(buffer, 0, length), length));
+            return CompletedPart.builder()
+                  .partNumber(partNumber)
+                  .eTag(response.eTag())
+                  .build();
+         }
+         finally {
+            buffers.release(buffer);
+         }
+      });
+   }
+
+   private void checkSize(long total) {
+      if (total > maxFileSize) {
+         throw new FileTooLargeException("File exceeds the maximum upload size of " + maxFileSize + " bytes");
+      }
+   }
+
+   private void failFast(List<Future<CompletedPart>> parts) throws ExecutionException, InterruptedException {
+      for (Future<CompletedPart> part : parts) {
+         if (part.isDone()) {
+            part.get();
+         }
+      }
+   }
+
+   private RuntimeException rethrow(Exception e) throws IOException {
+      if (e instanceof InterruptedException) {
+         Thread.currentThread().interrupt();
+      }
+      Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+      if (cause instanceof IOException io) {
+         throw io;
+      }
+      if (cause instanceof RuntimeException runtime) {
+         return runtime;
+      }
+      return new FileServiceException("Multipart upload failed", cause);
+   }
+
+   @PreDestroy
+   public void shutdown() {
+      partExecutor.shutdown();
+   }
+
+   /**
+    * Per-request part buffers, allocated lazily up to the limit and reused once a part is uploaded.
+    */
+   private static class BufferPool {
+      private final BlockingQueue<byte[]> free;
+      private final int limit;
+      private final int bufferSize;
+      private int allocated;
+
+      BufferPool(int limit, int bufferSize) {
+         this.free = new ArrayBlockingQueue<>(limit);
+         this.limit = limit;
+         this.bufferSize = bufferSize;
+      }
+
+      byte[] take() throws InterruptedIOException {
+         byte[] buffer = free.poll();
+         if (buffer != null) {
+            return buffer;
+         }
+         if (allocated < limit) {
+            allocated++;
+            return new byte[bufferSize];
+         }
+         try {
+            return free.take();
+         }
+         catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an upload buffer");
+         }
+      }
+
+      void release(byte[] buffer) {
+         free.offer(buffer);
+      }
+   }
+}
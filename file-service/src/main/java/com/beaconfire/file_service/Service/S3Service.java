@@ -1,28 +1,56 @@
 package com.beaconfire.file_service.Service;
 
 import com.beaconfire.file_service.DTO.FileRequestResponse;
+import com.beaconfire.file_service.Exception.FileTooLargeException;
+import com.beaconfire.file_service.Storage.HotObjectCache;
+import com.beaconfire.file_service.Storage.StorageBackend;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
-import software.amazon.awssdk.core.ResponseBytes;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.util.UUID;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class S3Service {
 
-   private final S3Client s3Client;
+   private static final String STAGING_PREFIX = "staging/";
+   private static final String PARKED_PREFIX = "parked/";
 
-   @Value("${aws.s3.bucket-name}")
-   private String bucketName;
+   private final StorageBackend storage;
+   private final HotObjectCache hotObjectCache;
+   private final ContentReferences references;
+   private final ImageVariantService imageVariantService;
+   private final int hashAheadSize;
+   private final long maxFileSize;
 
+   // Open downloads with the non-blocking S3 client instead of holding a request thread
+   @Value("${file.download.async:false}")
+   private boolean asyncDownloads;
+
+   /**
+    * @param hashAheadSize files up to this size are hashed in memory before anything is stored
+    */
    @Autowired
-   public S3Service(S3Client s3Client) {
-      this.s3Client = s3Client;
+   public S3Service(StorageBackend storage, HotObjectCache hotObjectCache, ContentReferences references,
+                    ImageVariantService imageVariantService,
+                    @Value("${file.upload.part-size:8MB}") DataSize hashAheadSize,
+                    @Value("${file.upload.max-size:2GB}") DataSize maxFileSize) {
+      this.storage = storage;
+      this.hotObjectCache = hotObjectCache;
+      this.references = references;
+      this.imageVariantService = imageVariantService;
+      this.hashAheadSize = (int) Math.min(hashAheadSize.toBytes(), Integer.MAX_VALUE - 8);
+      this.maxFileSize = maxFileSize.toBytes();
    }
 
    /**
@@ -31,70 +59,223 @@ public class S3Service {
     * @param file the path of the file
     */
    public String uploadFile(MultipartFile file) {
-      try{
-         String uniqueKey = generateUniqueKey(file.getOriginalFilename());
-         s3Client.putObject(PutObjectRequest.builder()
-                     .bucket(bucketName)
-                     .key(uniqueKey)
-                     .contentType(file.getContentType()!=null?file.getContentType():"application/octet-stream")
-                     .build(),
-               software.amazon.awssdk.core.sync.RequestBody.fromBytes(file.getBytes()));
-
-         return s3Client.utilities().getUrl(GetUrlRequest.builder()
-                     .bucket(bucketName)
-                     .key(uniqueKey)
-                     .build()).toString();
+      if(file.getSize() > maxFileSize){
+         throw tooLarge();
+      }
+      try(InputStream inputStream = file.getInputStream()){
+         return uploadFile(file.getOriginalFilename(), file.getContentType(), inputStream);
       }
       catch(IOException e){
          throw new RuntimeException("Error uploading file",e);
       }
+   }
 
+   /**
+    * Upload a file by streaming it into storage, so memory use does not depend on the file size.
+    * Objects are stored under the SHA-256 of their content, so identical files share one object.
+    * Small files are hashed first and never written if the content is already stored. Larger
+    * files are streamed to a staging key while hashing, then moved to their content key unless
+    * it already exists. Every upload adds a reference to its content, released by {@link #deleteFile}.
+    * @param fileName original file name, used for the key extension
+    * @param contentType content type stored with the object
+    * @param inputStream the file content, read until exhausted
+    */
+   public String uploadFile(String fileName, String contentType, InputStream inputStream) {
+      String type = contentType!=null?contentType:"application/octet-stream";
+      String extension = ObjectKeys.extension(fileName);
+      try{
+         MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+         DigestInputStream hashingStream = new DigestInputStream(new SizeLimitedInputStream(inputStream, maxFileSize), sha256);
+         byte[] head = hashingStream.readNBytes(hashAheadSize);
+
+         if(head.length < hashAheadSize){
+            String key = ObjectKeys.contentKey(sha256.digest(), extension);
+            String reference = references.add(key);
+            try{
+               if(!isStored(key)){
+                  storage.put(key, type, new ByteArrayInputStream(head));
+                  imageVariantService.scheduleVariants(key, type);
+               }
+            }
+            catch(IOException | RuntimeException e){
+               references.remove(reference);
+               throw e;
+            }
+            return storage.url(key);
+         }
+
+         String stagingKey = STAGING_PREFIX + ObjectKeys.generateUniqueKey(fileName);
+         storage.put(stagingKey, type, new SequenceInputStream(new ByteArrayInputStream(head), hashingStream));
+         String key = ObjectKeys.contentKey(sha256.digest(), extension);
+         boolean moved = false;
+         String reference = null;
+         try{
+            reference = references.add(key);
+            if(!isStored(key)){
+               storage.move(stagingKey, key);
+               moved = true;
+               imageVariantService.scheduleVariants(key, type);
+            }
+         }
+         catch(IOException | RuntimeException e){
+            if(reference != null){
+               references.remove(reference);
+            }
+            throw e;
+         }
+         finally{
+            if(!moved){
+               storage.delete(stagingKey);
+            }
+         }
+         return storage.url(key);
+      }
+      catch(IOException | NoSuchAlgorithmException e){
+         throw new RuntimeException("Error uploading file",e);
+      }
    }
 
-   public FileRequestResponse downloadFile(String objectUrl) {
+   /**
+    * Delete a file. A file stored under its own key is deleted outright. Content-addressed
+    * objects may be shared by any number of uploads, so deleting one releases a single reference
+    * and the object goes only with the last one. It is parked under another key while it is
+    * deleted, and restored if an upload of the same content referenced it meanwhile.
+    */
+   public FileDeletion deleteFile(String objectUrl) {
+      String key = ObjectKeys.extractKeyFromUrl(objectUrl);
+      if(!ObjectKeys.isContentKey(key)){
+         deleteObject(key);
+         return FileDeletion.DELETED;
+      }
+      if(!references.release(key)){
+         return FileDeletion.UNTRACKED;
+      }
+      if(references.isReferenced(key)){
+         return FileDeletion.RELEASED;
+      }
+      if(!isStored(key)){
+         return FileDeletion.DELETED;
+      }
+      String parkedKey = PARKED_PREFIX + key;
+      storage.copy(key, parkedKey);
       try{
-         String uniqueKey = extractKeyFromUrl(objectUrl);
+         storage.delete(key);
+         if(references.isReferenced(key)){
+            storage.copy(parkedKey, key);
+            return FileDeletion.RELEASED;
+         }
+         deleteObject(key);
+         return FileDeletion.DELETED;
+      }
+      finally{
+         storage.delete(parkedKey);
+      }
+   }
 
-         GetObjectRequest request = GetObjectRequest.builder()
-               .bucket(bucketName)
-               .key(uniqueKey)
-               .build();
+   private void deleteObject(String key) {
+      storage.delete(key);
+      hotObjectCache.evict(key);
+      imageVariantService.evictVariants(key);
+      for(ImageVariant variant : ImageVariant.values()){
+         storage.delete(ImageVariantService.variantKey(key, variant));
+         hotObjectCache.evict(ImageVariantService.variantKey(key, variant));
+      }
+   }
 
-         ResponseBytes<GetObjectResponse> response = s3Client.getObject(request,
-               software.amazon.awssdk.core.sync.ResponseTransformer.toBytes());
+   public FileRequestResponse downloadFile(String objectUrl) {
+      return downloadFile(objectUrl, null, null, null);
+   }
 
-         byte[] fileContent = response.asByteArray();
-         String contentType = response.response().contentType();
+   public FileRequestResponse downloadFile(String objectUrl, String range, String ifNoneMatch) {
+      return downloadFile(objectUrl, null, range, ifNoneMatch);
+   }
 
-         return FileRequestResponse.builder()
-               .content(fileContent)
-               .contentType(contentType)
-               .build();
+   /**
+    * Open a streaming download. The object body is not read here, it is streamed to the client
+    * by the caller, so memory use does not depend on the object size. Frequently requested
+    * objects are served from the hot-object cache.
+    * @param size optional image variant (thumbnail, feed, full), ignored for non-images
+    * @param range optional HTTP Range header
+    * @param ifNoneMatch optional ETag the client already has
+    */
+   public FileRequestResponse downloadFile(String objectUrl, String size, String range, String ifNoneMatch) {
+      String uniqueKey = ObjectKeys.extractKeyFromUrl(objectUrl);
+      if(size != null){
+         uniqueKey = imageVariantService.resolveVariant(uniqueKey, ImageVariant.fromName(size));
+      }
+      try{
+         return hotObjectCache.read(uniqueKey, range, ifNoneMatch);
       }
       catch(Exception e){
          throw new RuntimeException("Error downloading file",e);
       }
    }
 
-   private String generateUniqueKey(String fileName) {
-      String uuid = UUID.randomUUID().toString();
+   /**
+    * Download for the controller in async mode. The returned future completes on the S3 client's
+    * event loop once the object starts arriving, so no request thread waits on S3 meanwhile; an
+    * image variant is looked up, and built if missing, on the image worker pool first.
+    * Outside async mode it is already complete when returned.
+    */
+   public CompletableFuture<FileRequestResponse> downloadFileAsync(String objectUrl, String size, String range,
+                                                                   String ifNoneMatch) {
+      if(!asyncDownloads){
+         return CompletableFuture.completedFuture(downloadFile(objectUrl, size, range, ifNoneMatch));
+      }
+      String key = ObjectKeys.extractKeyFromUrl(objectUrl);
+      CompletableFuture<String> uniqueKey = size != null
+            ? imageVariantService.resolveVariantAsync(key, ImageVariant.fromName(size))
+            : CompletableFuture.completedFuture(key);
+      return uniqueKey.thenCompose(resolved -> hotObjectCache.readAsync(resolved, range, ifNoneMatch));
+   }
+
+   public boolean isAsyncDownloads() {
+      return asyncDownloads;
+   }
+
+   private boolean isStored(String key) {
+      return storage.stat(key).isPresent();
+   }
+
+   private FileTooLargeException tooLarge() {
+      return new FileTooLargeException("File exceeds the maximum upload size of " + maxFileSize + " bytes");
+   }
+
+   /**
+    * Fails the upload as soon as more than the limit has been read, whatever the backend.
+    */
+   private class SizeLimitedInputStream extends FilterInputStream {
+      private final long limit;
+      private long count;
 
-      //Remain the file extension for retrieval recognition
-      String extension = ".bin";
+      SizeLimitedInputStream(InputStream in, long limit) {
+         super(in);
+         this.limit = limit;
+      }
 
-      if(fileName!=null && !fileName.isEmpty()) {
-         int dotIndex = fileName.lastIndexOf(".");
-         if(dotIndex >= 0) {extension = fileName.substring(dotIndex);}
+      @Override
+      public int read() throws IOException {
+         int b = super.read();
+         if(b >= 0){
+            count(1);
+         }
+         return b;
       }
 
-      return uuid + extension;
-   }
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+         int read = super.read(b, off, len);
+         if(read > 0){
+            count(read);
+         }
+         return read;
+      }
 
-   private String extractKeyFromUrl(String url) {
-      int index = url.lastIndexOf("/");
-      if(index < 0){
-         throw new IllegalArgumentException("Invalid URL");
+      private void count(long read) {
+         count += read;
+         if(count > limit){
+            throw tooLarge();
+         }
       }
-      return url.substring(index + 1);
    }
 }
@@ -0,0 +1,60 @@
+package com.beaconfire.file_service.Storage;
+
+/**
+ * An inclusive byte range from an HTTP Range header, resolved against the object size.
+ */
+public record ByteRange(long start, long end) {
+
+   // Range asked only for bytes past the end of the object, answered with 416
+   public static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+   /**
+    * Single ranges only. Anything else is ignored and the whole object is served, which RFC 9110
+    * allows.
+    * @return null to serve the whole object
+    */
+   public static ByteRange parse(String range, long size) {
+      if(!range.startsWith("bytes=") || range.contains(",")){
+         return null;
+      }
+      String spec = range.substring("bytes=".length()).trim();
+      int dash = spec.indexOf('-');
+      if(dash < 0){
+         return null;
+      }
+      String first = spec.substring(0, dash).trim();
+      String last = spec.substring(dash + 1).trim();
+      try{
+         if(first.isEmpty()){
+            if(last.isEmpty()){
+               return null;
+            }
+            long suffix = Long.parseLong(last);
+            if(suffix == 0 || size == 0){
+               return UNSATISFIABLE;
+            }
+            return new ByteRange(Math.max(0, size - suffix), size - 1);
+         }
+         long start = Long.parseLong(first);
+         long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+         if(end < start){
+            return null;
+         }
+         if(start >= size){
+            return UNSATISFIABLE;
+         }
+         return new ByteRange(start, Math.min(end, size - 1));
+      }
+      catch(NumberFormatException e){
+         return null;
+      }
+   }
+
+   public long length() {
+      return end - start + 1;
+   }
+
+   public String contentRange(long size) {
+      return "bytes " + start + "-" + end + "/" + size;
+   }
+}
@@ -0,0 +1,655 @@
+package com.beaconfire.file_service.Storage;
+
+import com.beaconfire.file_service.DTO.FileRequestResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Keeps frequently downloaded objects close to the service so repeat downloads skip the storage
+ * backend. Tiny objects (avatars, icons) are held in memory, larger ones in a size-bounded
+ * directory on local disk; each tier evicts its least recently used objects once it is over
+ * capacity. Objects too large for the disk tier are always served from the backend; the keys
+ * of the most recent ones are remembered so they go there directly.
+ * Keys are content hashes or derived from them, so a cached object never goes stale and only
+ * deletes have to evict. Concurrent misses for the same key share one fetch, a single GET sized
+ * from its own response. Each copy in the disk tier is stored under its own file, so deleting an
+ * evicted copy never touches a newer copy of the same key.
+ * The disk tier lives in its own {@code hot-objects} directory under {@code file.cache.disk.dir},
+ * marked as the cache's, and only that directory's contents are ever cleared.
+ */
+@Component
+public class HotObjectCache {
+   private static final Logger logger = LoggerFactory.getLogger(HotObjectCache.class);
+
+   private final StorageBackend origin;
+   private final boolean enabled;
+   private final long memoryMaxObjectSize;
+   private final long memoryCapacity;
+   private final long diskMaxObjectSize;
+   private final long diskCapacity;
+   private final LocalStorageBackend diskTier;
+
+   // Access-ordered, so iteration starts at the least recently used entry. Guarded by this.
+   private final LinkedHashMap<String, CachedObject> memory = new LinkedHashMap<>(16, 0.75f, true);
+   private final LinkedHashMap<String, CachedObject> disk = new LinkedHashMap<>(16, 0.75f, true);
+   private long memoryBytes;
+   private long diskBytes;
+   // Keys of objects over the disk tier's limit, most recent last. Guarded by this.
+   private final LinkedHashMap<String, Boolean> tooLarge = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+         return size() > TOO_LARGE_KEYS;
+      }
+   };
+   private final AtomicLong diskCopies = new AtomicLong();
+
+   private static final int TOO_LARGE_KEYS = 10_000;
+
+   private static final String OWNED_DIR = "hot-objects";
+   private static final String OWNER_MARKER = ".hot-object-cache";
+   private static final List<String> OWNED_SUBDIRS = List.of("data", "meta", "tmp", "incoming");
+
+   private final Map<String, CompletableFuture<CachedObject>> fills = new ConcurrentHashMap<>();
+   // Keys whose async miss is being copied into a tier while it is sent, one copy per key
+   private final Set<String> teeing = ConcurrentHashMap.newKeySet();
+   private final Path incomingDir;
+
+   private final Counter memoryHits;
+   private final Counter diskHits;
+   private final Counter misses;
+   private final Counter bytesSaved;
+
+   @Autowired
+   public HotObjectCache(StorageBackend origin, MeterRegistry meterRegistry,
+                         @Value("${file.cache.enabled:true}") boolean enabled,
+                         @Value("${file.cache.memory.max-object-size:256KB}") DataSize memoryMaxObjectSize,
+                         @Value("${file.cache.memory.capacity:64MB}") DataSize memoryCapacity,
+                         @Value("${file.cache.disk.max-object-size:64MB}") DataSize diskMaxObjectSize,
+                         @Value("${file.cache.disk.capacity:2GB}") DataSize diskCapacity,
+                         @Value("${file.cache.disk.dir:${java.io.tmpdir}/file-service-cache}") Path diskDir) throws IOException {
+      this.origin = origin;
+      this.enabled = enabled;
+      this.memoryMaxObjectSize = memoryMaxObjectSize.toBytes();
+      this.memoryCapacity = memoryCapacity.toBytes();
+      this.diskMaxObjectSize = diskMaxObjectSize.toBytes();
+      this.diskCapacity = diskCapacity.toBytes();
+      if(enabled){
+         Path ownedDir = claim(diskDir.resolve(OWNED_DIR));
+         this.diskTier = new LocalStorageBackend(ownedDir, "cache://");
+         this.incomingDir = Files.createDirectories(ownedDir.resolve("incoming"));
+      }
+      else{
+         this.diskTier = null;
+         this.incomingDir = null;
+      }
+
+      this.memoryHits = Counter.builder("file.cache.hits").tag("tier", "memory")
+            .description("Downloads served from the in-memory tier").register(meterRegistry);
+      this.diskHits = Counter.builder("file.cache.hits").tag("tier", "disk")
+            .description("Downloads served from the disk tier").register(meterRegistry);
+      this.misses = Counter.builder("file.cache.misses")
+            .description("Downloads that had to go to the storage backend").register(meterRegistry);
+      this.bytesSaved = Counter.builder("file.cache.bytes_saved").baseUnit("bytes")
+            .description("Bytes served from the cache instead of the storage backend").register(meterRegistry);
+      Gauge.builder("file.cache.hit_ratio", this, HotObjectCache::getHitRatio)
+            .description("Share of downloads served from either tier").register(meterRegistry);
+      Gauge.builder("file.cache.size", this, cache -> cache.tierSize(false)).tag("tier", "memory").baseUnit("bytes")
+            .register(meterRegistry);
+      Gauge.builder("file.cache.size", this, cache -> cache.tierSize(true)).tag("tier", "disk").baseUnit("bytes")
+            .register(meterRegistry);
+   }
+
+   /**
+    * Same contract as {@link StorageBackend#read}, served from the cache when possible.
+    */
+   public FileRequestResponse read(String key, String range, String ifNoneMatch) throws IOException {
+      if(!enabled){
+         return origin.read(key, range, ifNoneMatch);
+      }
+
+      CachedObject cached = lookup(key);
+      if(cached != null){
+         FileRequestResponse response = serveHit(key, cached, range, ifNoneMatch);
+         if(response != null){
+            return response;
+         }
+      }
+
+      misses.increment();
+      if(isTooLarge(key)){
+         return origin.read(key, range, ifNoneMatch);
+      }
+      Loaded loaded = fill(key);
+      if(loaded.tooLarge() != null){
+         // The GET that found the object too large already answers a plain download
+         if(range == null && ifNoneMatch == null){
+            return loaded.tooLarge();
+         }
+         loaded.tooLarge().getContent().close();
+      }
+      if(loaded.cached() == null){
+         return origin.read(key, range, ifNoneMatch);
+      }
+
+      try{
+         return serve(loaded.cached(), range, ifNoneMatch);
+      }
+      catch(NoSuchFileException e){
+         // Evicted from the disk tier right after it was stored
+         forget(key, loaded.cached());
+         return origin.read(key, range, ifNoneMatch);
+      }
+   }
+
+   /**
+    * Non-blocking variant of {@link #read}. Hits are answered right away. A miss is answered by
+    * the backend's own async read, and a full response small enough for a tier is copied into it
+    * as it is written to the client, so the object is fetched from the backend only once and the
+    * caller never waits for the copy.
+    */
+   public CompletableFuture<FileRequestResponse> readAsync(String key, String range, String ifNoneMatch) {
+      if(!enabled){
+         return origin.readAsync(key, range, ifNoneMatch);
+      }
+
+      CachedObject cached = lookup(key);
+      if(cached != null){
+         try{
+            FileRequestResponse response = serveHit(key, cached, range, ifNoneMatch);
+            if(response != null){
+               return CompletableFuture.completedFuture(response);
+            }
+         }
+         catch(IOException e){
+            return CompletableFuture.failedFuture(e);
+         }
+      }
+
+      misses.increment();
+      return origin.readAsync(key, range, ifNoneMatch).thenApply(response -> {
+         // Only a whole object can be cached; ranged responses leave the cache to a later full read
+         boolean whole = response.getStatus() == 200 && response.getContent() != null
+               && response.getContentLength() != null;
+         if(whole && response.getContentLength() > diskMaxObjectSize){
+            rememberTooLarge(key);
+         }
+         else if(whole && teeing.add(key)){
+            response.setContent(new TeeBody(key, response));
+         }
+         return response;
+      });
+   }
+
+   /**
+    * Drop the object from both tiers, called when it is deleted from storage.
+    */
+   public void evict(String key) {
+      if(!enabled){
+         return;
+      }
+      CachedObject inDiskTier;
+      synchronized(this){
+         CachedObject inMemory = memory.remove(key);
+         if(inMemory != null){
+            memoryBytes -= inMemory.size();
+         }
+         inDiskTier = disk.remove(key);
+         if(inDiskTier != null){
+            diskBytes -= inDiskTier.size();
+         }
+         tooLarge.remove(key);
+      }
+      if(inDiskTier != null){
+         diskTier.delete(inDiskTier.file());
+      }
+   }
+
+   public double getHitRatio() {
+      double hits = memoryHits.count() + diskHits.count();
+      double total = hits + misses.count();
+      return total == 0 ? 0 : hits / total;
+   }
+
+   private synchronized CachedObject lookup(String key) {
+      CachedObject cached = memory.get(key);
+      return cached != null ? cached : disk.get(key);
+   }
+
+   private synchronized long tierSize(boolean onDisk) {
+      return onDisk ? diskBytes : memoryBytes;
+   }
+
+   private synchronized boolean isTooLarge(String key) {
+      return tooLarge.get(key) != null;
+   }
+
+   private synchronized void rememberTooLarge(String key) {
+      tooLarge.put(key, Boolean.TRUE);
+   }
+
+   /**
+    * Serve a cached object and count the hit.
+    * @return null if its disk copy is gone, in which case the entry is dropped and it is a miss
+    */
+   private FileRequestResponse serveHit(String key, CachedObject cached, String range, String ifNoneMatch) throws IOException {
+      FileRequestResponse response;
+      try{
+         response = serve(cached, range, ifNoneMatch);
+      }
+      catch(NoSuchFileException e){
+         forget(key, cached);
+         return null;
+      }
+      (cached.inMemory() ? memoryHits : diskHits).increment();
+      if(response.getContentLength() != null && response.getContent() != null){
+         bytesSaved.increment(response.getContentLength());
+      }
+      return response;
+   }
+
+   // Drops the entry if it is still the given copy, which is known to be unreadable
+   private synchronized void forget(String key, CachedObject cached) {
+      if(cached.inMemory()){
+         return;
+      }
+      if(disk.remove(key, cached)){
+         diskBytes -= cached.size();
+      }
+   }
+
+   private Loaded fill(String key) throws IOException {
+      CompletableFuture<CachedObject> fetch = new CompletableFuture<>();
+      CompletableFuture<CachedObject> running = fills.putIfAbsent(key, fetch);
+      if(running != null){
+         try{
+            return new Loaded(running.join(), null);
+         }
+         catch(CompletionException e){
+            // The shared fetch failed, this request tries the backend on its own
+            return new Loaded(null, null);
+         }
+      }
+      try{
+         Loaded loaded = load(key);
+         fetch.complete(loaded.cached());
+         return loaded;
+      }
+      catch(IOException | RuntimeException e){
+         fetch.completeExceptionally(e);
+         throw e;
+      }
+      finally{
+         fills.remove(key, fetch);
+      }
+   }
+
+   /**
+    * One GET of the whole object, which is stored in the tier its content length fits. An object
+    * too large for either tier is remembered as such and its open response handed back.
+    */
+   private Loaded load(String key) throws IOException {
+      FileRequestResponse whole = origin.read(key, null, null);
+      Long size = whole.getContentLength();
+      if(whole.getContent() == null || size == null){
+         if(whole.getContent() != null){
+            whole.getContent().close();
+         }
+         return new Loaded(null, null);
+      }
+      if(size > diskMaxObjectSize){
+         rememberTooLarge(key);
+         return new Loaded(null, whole);
+      }
+
+      try(ObjectBody body = whole.getContent()){
+         if(size <= memoryMaxObjectSize){
+            ByteArrayOutputStream content = new ByteArrayOutputStream(size.intValue());
+            body.writeTo(content);
+            return new Loaded(admitToMemory(key, whole.getContentType(), whole.getETag(), content.toByteArray()), null);
+         }
+         String file = diskFile(key);
+         long stored = diskTier.put(file, whole.getContentType(), body);
+         return new Loaded(admitToDisk(key, whole.getContentType(), whole.getETag(), stored, file), null);
+      }
+   }
+
+   // A file name of its own for each copy of the key admitted to the disk tier
+   private String diskFile(String key) {
+      return key + "." + diskCopies.incrementAndGet();
+   }
+
+   private CachedObject admitToMemory(String key, String contentType, String eTag, byte[] content) {
+      CachedObject cached = new CachedObject(contentType, eTag, content.length, content, null);
+      synchronized(this){
+         CachedObject previous = memory.put(key, cached);
+         memoryBytes += cached.size() - (previous != null ? previous.size() : 0);
+         evictOverCapacity(memory, false);
+      }
+      return cached;
+   }
+
+   // The object must already be stored in the disk tier under the file
+   private CachedObject admitToDisk(String key, String contentType, String eTag, long size, String file) {
+      CachedObject cached = new CachedObject(contentType, eTag, size, null, file);
+      List<CachedObject> evicted;
+      synchronized(this){
+         CachedObject previous = disk.put(key, cached);
+         diskBytes += cached.size() - (previous != null ? previous.size() : 0);
+         evicted = evictOverCapacity(disk, true);
+         if(previous != null){
+            evicted.add(previous);
+         }
+      }
+      // Outside the lock: each copy has its own file, which nothing else will ever write again
+      for(CachedObject victim : evicted){
+         diskTier.delete(victim.file());
+      }
+      return cached;
+   }
+
+   /**
+    * Take the cache's own directory inside the configured one. Everything in it was written by
+    * the cache, and the index lives in memory, so a previous run's objects are cleared. A
+    * directory by that name that the cache did not create is left alone and refused.
+    */
+   private static Path claim(Path ownedDir) throws IOException {
+      Path marker = ownedDir.resolve(OWNER_MARKER);
+      if(Files.exists(ownedDir) && !Files.exists(marker)){
+         try(Stream<Path> entries = Files.list(ownedDir)){
+            if(entries.findAny().isPresent()){
+               throw new IllegalStateException("Cache directory " + ownedDir + " exists and was not created by the cache");
+            }
+         }
+      }
+      Files.createDirectories(ownedDir);
+      for(String subdir : OWNED_SUBDIRS){
+         FileSystemUtils.deleteRecursively(ownedDir.resolve(subdir));
+      }
+      if(!Files.exists(marker)){
+         Files.createFile(marker);
+      }
+      return ownedDir;
+   }
+
+   // Called with the lock held; the newest entry is always kept, even if it alone exceeds the capacity
+   private List<CachedObject> evictOverCapacity(LinkedHashMap<String, CachedObject> tier, boolean onDisk) {
+      List<CachedObject> evicted = new ArrayList<>();
+      Iterator<Map.Entry<String, CachedObject>> eldest = tier.entrySet().iterator();
+      while(tier.size() > 1 && (onDisk ? diskBytes > diskCapacity : memoryBytes > memoryCapacity)){
+         Map.Entry<String, CachedObject> entry = eldest.next();
+         if(onDisk){
+            diskBytes -= entry.getValue().size();
+         }
+         else{
+            memoryBytes -= entry.getValue().size();
+         }
+         evicted.add(entry.getValue());
+         eldest.remove();
+      }
+      return evicted;
+   }
+
+   private FileRequestResponse serve(CachedObject cached, String range, String ifNoneMatch) throws IOException {
+      if(ifNoneMatch != null && cached.eTag() != null && (ifNoneMatch.trim().equals("*") || ifNoneMatch.contains(cached.eTag()))){
+         return FileRequestResponse.builder().status(304).eTag(cached.eTag()).build();
+      }
+
+      if(!cached.inMemory()){
+         // The disk tier has its own ETags, clients only ever see the backend's
+         FileRequestResponse response = diskTier.read(cached.file(), range, null);
+         response.setETag(cached.eTag());
+         return response;
+      }
+
+      byte[] content = cached.content();
+      ByteRange bytes = range != null ? ByteRange.parse(range, content.length) : null;
+      if(bytes == ByteRange.UNSATISFIABLE){
+         return FileRequestResponse.builder().status(416).contentRange("bytes */" + content.length).build();
+      }
+      FileRequestResponse.FileRequestResponseBuilder response = FileRequestResponse.builder()
+            .contentType(cached.contentType())
+            .eTag(cached.eTag());
+      if(bytes == null){
+         return response
+               .content(ObjectBody.of(new ByteArrayInputStream(content)))
+               .contentLength((long) content.length)
+               .build();
+      }
+      return response
+            .status(206)
+            .content(ObjectBody.of(new ByteArrayInputStream(content, (int) bytes.start(), (int) bytes.length())))
+            .contentLength(bytes.length())
+            .contentRange(bytes.contentRange(content.length))
+            .build();
+   }
+
+   /**
+    * Writes or publishes an object body from the backend to the client and, on the way, copies it
+    * into a buffer (memory tier) or an incoming file (disk tier). The copy is admitted only if the
+    * whole body went out; a failed copy never affects the client.
+    */
+   private class TeeBody implements ObjectBody {
+      private final String key;
+      private final ObjectBody body;
+      private final String contentType;
+      private final String eTag;
+      private final long size;
+      private OutputStream copy;
+      private Path incoming;
+
+      TeeBody(String key, FileRequestResponse response) {
+         this.key = key;
+         this.body = response.getContent();
+         this.contentType = response.getContentType();
+         this.eTag = response.getETag();
+         this.size = response.getContentLength();
+      }
+
+      @Override
+      public long writeTo(OutputStream out) throws IOException {
+         openCopy();
+         long written = body.writeTo(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+               write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+               out.write(b, off, len);
+               copy(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+               out.flush();
+            }
+         });
+         if(written == size){
+            admit();
+         }
+         return written;
+      }
+
+      @Override
+      public Publisher<ByteBuffer> chunks() {
+         Publisher<ByteBuffer> source = body.chunks();
+         return subscriber -> {
+            openCopy();
+            source.subscribe(new Subscriber<ByteBuffer>() {
+               private long written;
+
+               @Override
+               public void onSubscribe(Subscription subscription) {
+                  subscriber.onSubscribe(subscription);
+               }
+
+               @Override
+               public void onNext(ByteBuffer chunk) {
+                  written += chunk.remaining();
+                  copy(chunk.duplicate());
+                  subscriber.onNext(chunk);
+               }
+
+               @Override
+               public void onError(Throwable error) {
+                  subscriber.onError(error);
+               }
+
+               @Override
+               public void onComplete() {
+                  if(written == size){
+                     admit();
+                  }
+                  subscriber.onComplete();
+               }
+            });
+         };
+      }
+
+      @Override
+      public void close() throws IOException {
+         try{
+            body.close();
+         }
+         finally{
+            discard();
+            teeing.remove(key);
+         }
+      }
+
+      private synchronized void openCopy() {
+         try{
+            if(size <= memoryMaxObjectSize){
+               copy = new ByteArrayOutputStream((int) size);
+            }
+            else{
+               incoming = Files.createTempFile(incomingDir, "tee-", ".part");
+               copy = Files.newOutputStream(incoming);
+            }
+         }
+         catch(IOException e){
+            logger.debug("Could not cache {}: {}", key, e.getMessage());
+            discard();
+         }
+      }
+
+      private void copy(ByteBuffer chunk) {
+         if(chunk.hasArray()){
+            copy(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+         }
+         else{
+            byte[] bytes = new byte[chunk.remaining()];
+            chunk.get(bytes);
+            copy(bytes, 0, bytes.length);
+         }
+      }
+
+      // Synchronized with discard, since a published body can be closed while a chunk is arriving
+      private synchronized void copy(byte[] b, int off, int len) {
+         if(copy == null){
+            return;
+         }
+         try{
+            copy.write(b, off, len);
+         }
+         catch(IOException e){
+            logger.debug("Could not cache {}: {}", key, e.getMessage());
+            discard();
+         }
+      }
+
+      private synchronized void admit() {
+         if(copy == null){
+            return;
+         }
+         try{
+            copy.close();
+            if(copy instanceof ByteArrayOutputStream buffer){
+               admitToMemory(key, contentType, eTag, buffer.toByteArray());
+            }
+            else{
+               String file = diskFile(key);
+               long stored;
+               try(InputStream in = Files.newInputStream(incoming)){
+                  stored = diskTier.put(file, contentType, in);
+               }
+               admitToDisk(key, contentType, eTag, stored, file);
+            }
+         }
+         catch(IOException | RuntimeException e){
+            logger.debug("Could not cache {}: {}", key, e.getMessage());
+         }
+         finally{
+            discard();
+         }
+      }
+
+      private synchronized void discard() {
+         OutputStream current = copy;
+         copy = null;
+         try{
+            if(current != null){
+               current.close();
+            }
+            if(incoming != null){
+               Files.deleteIfExists(incoming);
+               incoming = null;
+            }
+         }
+         catch(IOException e){
+            logger.debug("Could not remove the incoming copy of {}: {}", key, e.getMessage());
+         }
+      }
+   }
+
+   /**
+    * @param content the bytes for the memory tier, null for objects in the disk tier
+    * @param file the copy's name in the disk tier, null for objects in memory
+    */
+   private record CachedObject(String contentType, String eTag, long size, byte[] content, String file) {
+      boolean inMemory() {
+         return content != null;
+      }
+   }
+
+   /**
+    * @param cached the object as stored in a tier, null if it was not
+    * @param tooLarge the open response for an object too large for either tier, for the caller
+    *                 that fetched it to answer with or close
+    */
+   private record Loaded(CachedObject cached, FileRequestResponse tooLarge) {
+   }
+}
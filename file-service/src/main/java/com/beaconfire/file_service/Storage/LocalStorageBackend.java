@@ -0,0 +1,341 @@
+package com.beaconfire.file_service.Storage;
+
+import com.beaconfire.file_service.DTO.FileRequestResponse;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Objects on the local filesystem, for single-node deployments and offline tests.
+ * Keys are spread over two levels of shard directories taken from the hash of the key, so no
+ * directory grows past a few thousand entries. Writes land in a temp file and are moved into
+ * place atomically, and downloads are sent with {@link FileChannel#transferTo}. Since keys are
+ * sharded by hash, listing a prefix walks the whole data directory.
+ * <pre>
+ * root/data/ab/cd/&lt;key&gt;   object bytes
+ * root/meta/ab/cd/&lt;key&gt;   content type
+ * root/tmp/                  writes in progress, same filesystem so the final move is atomic
+ * </pre>
+ */
+@Component
+@ConditionalOnProperty(name = "file.storage.backend", havingValue = "local")
+public class LocalStorageBackend implements StorageBackend {
+
+   private final Path dataDir;
+   private final Path metaDir;
+   private final Path tempDir;
+   private final String urlPrefix;
+
+   @Autowired
+   public LocalStorageBackend(@Value("${file.storage.local.root:./data/files}") Path root,
+                              @Value("${file.storage.local.url-prefix:local://files/}") String urlPrefix) throws IOException {
+      Path base = root.toAbsolutePath().normalize();
+      this.dataDir = Files.createDirectories(base.resolve("data"));
+      this.metaDir = Files.createDirectories(base.resolve("meta"));
+      this.tempDir = Files.createDirectories(base.resolve("tmp"));
+      this.urlPrefix = urlPrefix.endsWith("/") ? urlPrefix : urlPrefix + "/";
+      // Left behind by writes that were interrupted by a crash
+      try(Stream<Path> leftovers = Files.list(tempDir)){
+         for(Path leftover : (Iterable<Path>) leftovers::iterator){
+            Files.deleteIfExists(leftover);
+         }
+      }
+   }
+
+   @Override
+   public long put(String key, String contentType, InputStream content) throws IOException {
+      return put(key, contentType, content::transferTo);
+   }
+
+   /**
+    * Store a body opened on another backend, written straight into place.
+    */
+   long put(String key, String contentType, ObjectBody content) throws IOException {
+      return put(key, contentType, content::writeTo);
+   }
+
+   private interface Content {
+      long writeTo(OutputStream out) throws IOException;
+   }
+
+   private long put(String key, String contentType, Content content) throws IOException {
+      Path target = resolve(dataDir, key);
+      Path temp = Files.createTempFile(tempDir, "put-", ".part");
+      try{
+         long size;
+         try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)){
+            size = content.writeTo(Channels.newOutputStream(channel));
+            channel.force(false);
+         }
+         writeContentType(key, contentType);
+         publish(temp, target);
+         return size;
+      }
+      finally{
+         Files.deleteIfExists(temp);
+      }
+   }
+
+   @Override
+   public Optional<ObjectMetadata> stat(String key) {
+      try{
+         BasicFileAttributes attributes = Files.readAttributes(resolve(dataDir, key), BasicFileAttributes.class);
+         return Optional.of(ObjectMetadata.builder()
+               .size(attributes.size())
+               .contentType(readContentType(key))
+               .eTag(eTag(attributes))
+               .build());
+      }
+      catch(NoSuchFileException e){
+         return Optional.empty();
+      }
+      catch(IOException e){
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   @Override
+   public InputStream open(String key) throws IOException {
+      return Files.newInputStream(resolve(dataDir, key));
+   }
+
+   @Override
+   public FileRequestResponse read(String key, String range, String ifNoneMatch) throws IOException {
+      Path path = resolve(dataDir, key);
+      // The open channel keeps serving this version even if the key is replaced meanwhile
+      FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+      try{
+         String eTag = eTag(Files.readAttributes(path, BasicFileAttributes.class));
+         if(ifNoneMatch != null && (ifNoneMatch.trim().equals("*") || ifNoneMatch.contains(eTag))){
+            channel.close();
+            return FileRequestResponse.builder().status(304).eTag(eTag).build();
+         }
+
+         long size = channel.size();
+         ByteRange bytes = range != null ? ByteRange.parse(range, size) : null;
+         if(bytes == ByteRange.UNSATISFIABLE){
+            channel.close();
+            return FileRequestResponse.builder().status(416).contentRange("bytes */" + size).build();
+         }
+
+         FileRequestResponse.FileRequestResponseBuilder response = FileRequestResponse.builder()
+               .contentType(readContentType(key))
+               .eTag(eTag);
+         if(bytes == null){
+            return response
+                  .content(new FileChannelBody(channel, 0, size))
+                  .contentLength(size)
+                  .build();
+         }
+         return response
+               .status(206)
+               .content(new FileChannelBody(channel, bytes.start(), bytes.length()))
+               .contentLength(bytes.length())
+               .contentRange(bytes.contentRange(size))
+               .build();
+      }
+      catch(IOException | RuntimeException e){
+         channel.close();
+         throw e;
+      }
+   }
+
+   @Override
+   public void copy(String sourceKey, String targetKey) {
+      try{
+         Path temp = Files.createTempFile(tempDir, "copy-", ".part");
+         try{
+            Files.copy(resolve(dataDir, sourceKey), temp, StandardCopyOption.REPLACE_EXISTING);
+            writeContentType(targetKey, readContentType(sourceKey));
+            publish(temp, resolve(dataDir, targetKey));
+         }
+         finally{
+            Files.deleteIfExists(temp);
+         }
+      }
+      catch(IOException e){
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   /**
+    * A rename within the data directory, no bytes are copied.
+    */
+   @Override
+   public void move(String sourceKey, String targetKey) {
+      try{
+         writeContentType(targetKey, readContentType(sourceKey));
+         publish(resolve(dataDir, sourceKey), resolve(dataDir, targetKey));
+         Files.deleteIfExists(resolve(metaDir, sourceKey));
+      }
+      catch(IOException e){
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   @Override
+   public List<String> list(String prefix, int max) {
+      try(Stream<Path> files = Files.walk(dataDir)){
+         return files.filter(Files::isRegularFile)
+               .map(this::keyOf)
+               .filter(key -> key.startsWith(prefix))
+               .limit(max)
+               .toList();
+      }
+      catch(IOException e){
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   @Override
+   public void delete(String key) {
+      try{
+         Files.deleteIfExists(resolve(dataDir, key));
+         Files.deleteIfExists(resolve(metaDir, key));
+      }
+      catch(IOException e){
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   @Override
+   public String url(String key) {
+      return urlPrefix + key;
+   }
+
+   private Path resolve(Path base, String key) {
+      if(key == null || key.isBlank() || key.startsWith("/") || key.contains("\\")){
+         throw new IllegalArgumentException("Invalid object key: " + key);
+      }
+      for(String segment : key.split("/")){
+         if(segment.isEmpty() || segment.equals(".") || segment.equals("..")){
+            throw new IllegalArgumentException("Invalid object key: " + key);
+         }
+      }
+      String shard = HexFormat.of().formatHex(sha256(key), 0, 2);
+      return base.resolve(shard.substring(0, 2)).resolve(shard.substring(2, 4)).resolve(key);
+   }
+
+   // The key stored at data/ab/cd/<key>
+   private String keyOf(Path file) {
+      Path relative = dataDir.relativize(file);
+      return relative.subpath(2, relative.getNameCount()).toString().replace(File.separatorChar, '/');
+   }
+
+   private void publish(Path source, Path target) throws IOException {
+      Files.createDirectories(target.getParent());
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+   }
+
+   private void writeContentType(String key, String contentType) throws IOException {
+      Path temp = Files.createTempFile(tempDir, "meta-", ".part");
+      try{
+         Files.writeString(temp, contentType != null ? contentType : "", StandardCharsets.UTF_8);
+         publish(temp, resolve(metaDir, key));
+      }
+      finally{
+         Files.deleteIfExists(temp);
+      }
+   }
+
+   private String readContentType(String key) throws IOException {
+      try{
+         String contentType = Files.readString(resolve(metaDir, key), StandardCharsets.UTF_8);
+         return contentType.isEmpty() ? null : contentType;
+      }
+      catch(NoSuchFileException e){
+         return null;
+      }
+   }
+
+   // Every write publishes a new file, so modification time and size identify a version
+   private static String eTag(BasicFileAttributes attributes) {
+      return "\"" + Long.toHexString(attributes.lastModifiedTime().toMillis()) + "-" + Long.toHexString(attributes.size()) + "\"";
+   }
+
+   private static byte[] sha256(String key) {
+      try{
+         return MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+      }
+      catch(NoSuchAlgorithmException e){
+         throw new IllegalStateException(e);
+      }
+   }
+
+   /**
+    * Sends a slice of the file with {@link FileChannel#transferTo}. Into a file or socket channel
+    * the kernel moves the bytes itself; into a servlet stream the JDK falls back to a small
+    * reused buffer, so the object is never loaded into the heap either way.
+    */
+   private static class FileChannelBody implements ObjectBody {
+      private final FileChannel channel;
+      private long position;
+      private long remaining;
+
+      FileChannelBody(FileChannel channel, long position, long length) {
+         this.channel = channel;
+         this.position = position;
+         this.remaining = length;
+      }
+
+      @Override
+      public long writeTo(OutputStream out) throws IOException {
+         WritableByteChannel target = Channels.newChannel(out);
+         long written = 0;
+         while(remaining > 0){
+            long sent = channel.transferTo(position, remaining, target);
+            if(sent <= 0){
+               throw new EOFException("Object was truncated while it was being sent");
+            }
+            position += sent;
+            remaining -= sent;
+            written += sent;
+         }
+         return written;
+      }
+
+      @Override
+      public Publisher<ByteBuffer> chunks() {
+         return new ReadingPublisher(() -> {
+            if(remaining <= 0){
+               return null;
+            }
+            ByteBuffer chunk = ByteBuffer.allocate((int) Math.min(ReadingPublisher.CHUNK_SIZE, remaining));
+            int read = channel.read(chunk, position);
+            if(read < 0){
+               throw new EOFException("Object was truncated while it was being sent");
+            }
+            position += read;
+            remaining -= read;
+            return chunk.flip();
+         });
+      }
+
+      @Override
+      public void close() throws IOException {
+         channel.close();
+      }
+   }
+}
@@ -0,0 +1,50 @@
+package com.beaconfire.file_service.Storage;
+
+import org.reactivestreams.Publisher;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An open object body that is written straight to the response. Backends that can hand the
+ * bytes to the output without copying them through the heap implement this directly.
+ */
+public interface ObjectBody extends Closeable {
+
+   /**
+    * Write the remaining body to the output. Does not close the output.
+    * @return the number of bytes written
+    */
+   long writeTo(OutputStream out) throws IOException;
+
+   /**
+    * The remaining body as chunks that are produced only as they are requested, for a writer
+    * that must not block on the client. A body is either written or published, once.
+    */
+   Publisher<ByteBuffer> chunks();
+
+   static ObjectBody of(InputStream content) {
+      return new ObjectBody() {
+         @Override
+         public long writeTo(OutputStream out) throws IOException {
+            return content.transferTo(out);
+         }
+
+         @Override
+         public Publisher<ByteBuffer> chunks() {
+            return new ReadingPublisher(() -> {
+               byte[] chunk = content.readNBytes(ReadingPublisher.CHUNK_SIZE);
+               return chunk.length > 0 ? ByteBuffer.wrap(chunk) : null;
+            });
+         }
+
+         @Override
+         public void close() throws IOException {
+            content.close();
+         }
+      };
+   }
+}
@@ -0,0 +1,16 @@
+package com.beaconfire.file_service.Storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ObjectMetadata {
+   private long size;
+   private String contentType;
+   private String eTag;
+}
@@ -0,0 +1,129 @@
+package com.beaconfire.file_service.Storage;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Object body delivered by a non-blocking client. Chunks arrive on the client's event loop and
+ * are written out by the thread that streams the response, which asks for the next chunk only
+ * after writing one. At most {@code window} chunks are buffered, and a slow client never blocks
+ * the event loop. A non-blocking writer takes the client's publisher itself from {@link #chunks}.
+ */
+public class PublisherBody implements ObjectBody, Subscriber<ByteBuffer> {
+
+   private static final Object COMPLETE = new Object();
+
+   private final Publisher<ByteBuffer> publisher;
+   private final int window;
+   // ByteBuffer chunks, then COMPLETE or the Throwable that ended the stream
+   private final BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+   private volatile Subscription subscription;
+   private boolean subscribed;
+   private volatile boolean closed;
+
+   public PublisherBody(Publisher<ByteBuffer> publisher, int window) {
+      this.publisher = publisher;
+      this.window = Math.max(1, window);
+   }
+
+   @Override
+   public long writeTo(OutputStream out) throws IOException {
+      subscribe();
+      byte[] scratch = null;
+      long written = 0;
+      while(true){
+         Object signal;
+         try{
+            signal = signals.take();
+         }
+         catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            close();
+            throw new InterruptedIOException("Interrupted while waiting for the object body");
+         }
+         if(signal == COMPLETE){
+            return written;
+         }
+         if(signal instanceof Throwable error){
+            throw new IOException("Object body failed", error);
+         }
+
+         ByteBuffer chunk = (ByteBuffer) signal;
+         int length = chunk.remaining();
+         if(chunk.hasArray()){
+            out.write(chunk.array(), chunk.arrayOffset() + chunk.position(), length);
+         }
+         else{
+            if(scratch == null || scratch.length < length){
+               scratch = new byte[length];
+            }
+            chunk.get(scratch, 0, length);
+            out.write(scratch, 0, length);
+         }
+         written += length;
+         subscription.request(1);
+      }
+   }
+
+   @Override
+   public synchronized Publisher<ByteBuffer> chunks() {
+      if(subscribed){
+         throw new IllegalStateException("The body is already being written");
+      }
+      subscribed = true;
+      return publisher;
+   }
+
+   /**
+    * Cancels the transfer if the body was not fully written, e.g. when the client went away.
+    */
+   @Override
+   public void close() {
+      closed = true;
+      subscribe();
+      Subscription current = subscription;
+      if(current != null){
+         current.cancel();
+      }
+   }
+
+   private synchronized void subscribe() {
+      if(!subscribed){
+         subscribed = true;
+         publisher.subscribe(this);
+      }
+   }
+
+   @Override
+   public void onSubscribe(Subscription subscription) {
+      this.subscription = subscription;
+      if(closed){
+         subscription.cancel();
+         return;
+      }
+      subscription.request(window);
+   }
+
+   @Override
+   public void onNext(ByteBuffer chunk) {
+      signals.add(chunk);
+   }
+
+   @Override
+   public void onError(Throwable error) {
+      signals.add(error);
+   }
+
+   @Override
+   public void onComplete() {
+      signals.add(COMPLETE);
+   }
+}
@@ -0,0 +1,123 @@
+package com.beaconfire.file_service.Storage;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Publishes a body that is read from memory or local disk, one chunk per request, on the thread
+ * that requests it. A request made while chunks are being emitted only adds to the demand, so a
+ * subscriber that requests from onNext does not recurse. Supports a single subscriber.
+ */
+class ReadingPublisher implements Publisher<ByteBuffer> {
+
+   static final int CHUNK_SIZE = 64 * 1024;
+
+   interface ChunkSource {
+      /**
+       * @return the next chunk, or null at the end of the body
+       */
+      ByteBuffer next() throws IOException;
+   }
+
+   private final ChunkSource source;
+   private boolean subscribed;
+
+   ReadingPublisher(ChunkSource source) {
+      this.source = source;
+   }
+
+   @Override
+   public void subscribe(Subscriber<? super ByteBuffer> subscriber) {
+      boolean first;
+      synchronized(this){
+         first = !subscribed;
+         subscribed = true;
+      }
+      ReadingSubscription subscription = new ReadingSubscription(subscriber);
+      subscriber.onSubscribe(subscription);
+      if(!first){
+         subscription.fail(new IllegalStateException("The body can only be read once"));
+      }
+   }
+
+   private class ReadingSubscription implements Subscription {
+      private final Subscriber<? super ByteBuffer> subscriber;
+      // Guarded by this
+      private long demand;
+      private boolean emitting;
+      private boolean done;
+
+      ReadingSubscription(Subscriber<? super ByteBuffer> subscriber) {
+         this.subscriber = subscriber;
+      }
+
+      @Override
+      public void request(long n) {
+         if(n <= 0){
+            fail(new IllegalArgumentException("Requested " + n + " chunks"));
+            return;
+         }
+         synchronized(this){
+            if(done){
+               return;
+            }
+            demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            if(emitting){
+               return;
+            }
+            emitting = true;
+         }
+         emit();
+      }
+
+      @Override
+      public synchronized void cancel() {
+         done = true;
+      }
+
+      private void emit() {
+         while(true){
+            synchronized(this){
+               if(done || demand == 0){
+                  emitting = false;
+                  return;
+               }
+               demand--;
+            }
+            ByteBuffer chunk;
+            try{
+               chunk = source.next();
+            }
+            catch(IOException | RuntimeException e){
+               fail(e);
+               return;
+            }
+            if(chunk == null){
+               if(finish()){
+                  subscriber.onComplete();
+               }
+               return;
+            }
+            subscriber.onNext(chunk);
+         }
+      }
+
+      private void fail(Throwable error) {
+         if(finish()){
+            subscriber.onError(error);
+         }
+      }
+
+      private synchronized boolean finish() {
+         if(done){
+            return false;
+         }
+         done = true;
+         return true;
+      }
+   }
+}
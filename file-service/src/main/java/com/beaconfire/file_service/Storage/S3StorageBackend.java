@@ -0,0 +1,188 @@
+package com.beaconfire.file_service.Storage;
+
+import com.beaconfire.file_service.DTO.FileRequestResponse;
+import com.beaconfire.file_service.Service.S3MultipartUploader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Objects in one S3 bucket. Uploads go through the multipart uploader, so memory use is bounded
+ * by the part budget, and copies stay server-side. With an {@link S3AsyncClient} configured
+ * (file.download.async), downloads are opened without blocking.
+ */
+@Component
+@ConditionalOnProperty(name = "file.storage.backend", havingValue = "s3", matchIfMissing = true)
+public class S3StorageBackend implements StorageBackend {
+
+   private final S3Client s3Client;
+   private final S3MultipartUploader multipartUploader;
+   private final S3AsyncClient s3AsyncClient;
+
+   // Chunks buffered per async download before the response writer catches up
+   @Value("${file.download.async-window:4}")
+   private int asyncWindow = 4;
+
+   @Value("${aws.s3.bucket-name}")
+   private String bucketName;
+
+   @Autowired
+   public S3StorageBackend(S3Client s3Client, S3MultipartUploader multipartUploader,
+                           @Nullable S3AsyncClient s3AsyncClient) {
+      this.s3Client = s3Client;
+      this.multipartUploader = multipartUploader;
+      this.s3AsyncClient = s3AsyncClient;
+   }
+
+   @Override
+   public long put(String key, String contentType, InputStream content) throws IOException {
+      return multipartUploader.upload(bucketName, key, contentType, content);
+   }
+
+   @Override
+   public Optional<ObjectMetadata> stat(String key) {
+      try{
+         HeadObjectResponse head = s3Client.headObject(HeadObjectRequest.builder().bucket(bucketName).key(key).build());
+         return Optional.of(ObjectMetadata.builder()
+               .size(head.contentLength() != null ? head.contentLength() : 0)
+               .contentType(head.contentType())
+               .eTag(head.eTag())
+               .build());
+      }
+      catch(NoSuchKeyException e){
+         return Optional.empty();
+      }
+      catch(S3Exception e){
+         if(e.statusCode() == 404){
+            return Optional.empty();
+         }
+         throw e;
+      }
+   }
+
+   @Override
+   public InputStream open(String key) {
+      return s3Client.getObject(GetObjectRequest.builder()
+            .bucket(bucketName)
+            .key(key)
+            .build());
+   }
+
+   @Override
+   public FileRequestResponse read(String key, String range, String ifNoneMatch) {
+      GetObjectRequest request = GetObjectRequest.builder()
+            .bucket(bucketName)
+            .key(key)
+            .range(range)
+            .ifNoneMatch(ifNoneMatch)
+            .build();
+      try{
+         ResponseInputStream<GetObjectResponse> content = s3Client.getObject(request);
+         GetObjectResponse response = content.response();
+
+         return FileRequestResponse.builder()
+               .status(response.contentRange() != null ? 206 : 200)
+               .content(ObjectBody.of(content))
+               .contentType(response.contentType())
+               .contentLength(response.contentLength())
+               .eTag(response.eTag())
+               .contentRange(response.contentRange())
+               .build();
+      }
+      catch(S3Exception e){
+         if(e.statusCode() == 304 || e.statusCode() == 416){
+            return FileRequestResponse.builder()
+                  .status(e.statusCode())
+                  .eTag(ifNoneMatch)
+                  .build();
+         }
+         throw e;
+      }
+   }
+
+   @Override
+   public CompletableFuture<FileRequestResponse> readAsync(String key, String range, String ifNoneMatch) {
+      if(s3AsyncClient == null){
+         return StorageBackend.super.readAsync(key, range, ifNoneMatch);
+      }
+      GetObjectRequest request = GetObjectRequest.builder()
+            .bucket(bucketName)
+            .key(key)
+            .range(range)
+            .ifNoneMatch(ifNoneMatch)
+            .build();
+
+      // Completes once the response headers are in, the body is pulled while it is written out
+      return s3AsyncClient.getObject(request, AsyncResponseTransformer.<GetObjectResponse>toPublisher())
+            .handle((publisher, error) -> {
+               if(error == null){
+                  GetObjectResponse response = publisher.response();
+                  return FileRequestResponse.builder()
+                        .status(response.contentRange() != null ? 206 : 200)
+                        .content(new PublisherBody(publisher, asyncWindow))
+                        .contentType(response.contentType())
+                        .contentLength(response.contentLength())
+                        .eTag(response.eTag())
+                        .contentRange(response.contentRange())
+                        .build();
+               }
+               Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+               if(cause instanceof S3Exception s3 && (s3.statusCode() == 304 || s3.statusCode() == 416)){
+                  return FileRequestResponse.builder()
+                        .status(s3.statusCode())
+                        .eTag(ifNoneMatch)
+                        .build();
+               }
+               throw cause instanceof RuntimeException runtime ? runtime : new CompletionException(cause);
+            });
+   }
+
+   @Override
+   public void copy(String sourceKey, String targetKey) {
+      s3Client.copyObject(CopyObjectRequest.builder()
+            .sourceBucket(bucketName)
+            .sourceKey(sourceKey)
+            .destinationBucket(bucketName)
+            .destinationKey(targetKey)
+            .build());
+   }
+
+   @Override
+   public List<String> list(String prefix, int max) {
+      return s3Client.listObjectsV2(ListObjectsV2Request.builder()
+                  .bucket(bucketName)
+                  .prefix(prefix)
+                  .maxKeys(max)
+                  .build())
+            .contents().stream()
+            .map(S3Object::key)
+            .toList();
+   }
+
+   @Override
+   public void delete(String key) {
+      s3Client.deleteObject(DeleteObjectRequest.builder().bucket(bucketName).key(key).build());
+   }
+
+   @Override
+   public String url(String key) {
+      return s3Client.utilities().getUrl(GetUrlRequest.builder()
+            .bucket(bucketName)
+            .key(key)
+            .build()).toString();
+   }
+}
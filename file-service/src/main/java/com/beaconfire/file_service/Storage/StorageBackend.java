@@ -0,0 +1,80 @@
+package com.beaconfire.file_service.Storage;
+
+import com.beaconfire.file_service.DTO.FileRequestResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Where file bytes live. The services only deal in object keys; the backend decides how a key
+ * maps to storage and how bodies are streamed back. Selected with {@code file.storage.backend}
+ * ({@code s3}, the default, or {@code local}).
+ */
+public interface StorageBackend {
+
+   /**
+    * Store everything readable from the stream under the given key, replacing any existing object.
+    * Readers never see a partially written object.
+    * @return the number of bytes stored
+    */
+   long put(String key, String contentType, InputStream content) throws IOException;
+
+   /**
+    * @return size, content type and ETag of the object, or empty if nothing is stored under the key
+    */
+   Optional<ObjectMetadata> stat(String key);
+
+   /**
+    * Open the whole object for processing inside the service. The caller must close the stream.
+    */
+   InputStream open(String key) throws IOException;
+
+   /**
+    * Open a download. A satisfied Range gives 206, a matching If-None-Match 304 and an
+    * unsatisfiable Range 416, the last two without a body.
+    * @param range optional HTTP Range header
+    * @param ifNoneMatch optional ETag the client already has
+    */
+   FileRequestResponse read(String key, String range, String ifNoneMatch) throws IOException;
+
+   /**
+    * Like {@link #read}, without blocking the caller while the backend responds. Backends without
+    * a non-blocking client complete the future on the calling thread.
+    */
+   default CompletableFuture<FileRequestResponse> readAsync(String key, String range, String ifNoneMatch) {
+      try{
+         return CompletableFuture.completedFuture(read(key, range, ifNoneMatch));
+      }
+      catch(IOException | RuntimeException e){
+         return CompletableFuture.failedFuture(e);
+      }
+   }
+
+   void copy(String sourceKey, String targetKey);
+
+   /**
+    * Make the source object available under the target key and drop the source.
+    */
+   default void move(String sourceKey, String targetKey) {
+      copy(sourceKey, targetKey);
+      delete(sourceKey);
+   }
+
+   /**
+    * @return up to max keys starting with the prefix, in no particular order
+    */
+   List<String> list(String prefix, int max);
+
+   /**
+    * Remove the object. Deleting a missing key is not an error.
+    */
+   void delete(String key);
+
+   /**
+    * @return the URL handed to clients for the key; the key is its last path segment
+    */
+   String url(String key);
+}
@@ -0,0 +1,207 @@
+package com.beaconfire.file_service;
+
+import com.beaconfire.file_service.Controller.AsyncDownload;
+import com.beaconfire.file_service.DTO.FileRequestResponse;
+import com.beaconfire.file_service.Storage.ObjectBody;
+import com.beaconfire.file_service.Storage.PublisherBody;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives an async download by hand: the output is ready only when the test says so, as a
+ * container's is only when the client has taken what was written.
+ */
+public class AsyncDownloadTest {
+
+   private static final int CHUNK_SIZE = 64 * 1024;
+   private static final int WINDOW = 2;
+
+   private SlowClientOutput output;
+   private MockHttpServletResponse response;
+   private AsyncContext asyncContext;
+   private AtomicBoolean completed;
+   private AsyncDownload download;
+
+   @BeforeEach
+   public void setUp() {
+      output = new SlowClientOutput();
+      response = new MockHttpServletResponse() {
+         @Override
+         public ServletOutputStream getOutputStream() {
+            return output;
+         }
+      };
+      asyncContext = Mockito.mock(AsyncContext.class);
+      Mockito.when(asyncContext.getResponse()).thenReturn(response);
+      completed = new AtomicBoolean();
+      Mockito.doAnswer(invocation -> {
+         completed.set(true);
+         return null;
+      }).when(asyncContext).complete();
+      download = new AsyncDownload(asyncContext, Duration.ofMinutes(1), WINDOW);
+   }
+
+   @Test
+   void testBodyWrittenOnlyWhileTheClientKeepsUp() throws Exception {
+      byte[] content = new byte[10 * CHUNK_SIZE + 123];
+      new Random(7).nextBytes(content);
+      AtomicLong read = new AtomicLong();
+      InputStream counting = new FilterInputStream(new ByteArrayInputStream(content)) {
+         @Override
+         public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            read.addAndGet(Math.max(n, 0));
+            return n;
+         }
+      };
+
+      download.respond(FileRequestResponse.builder()
+            .content(ObjectBody.of(counting))
+            .contentType("image/png")
+            .contentLength((long) content.length)
+            .build(), "photo.png");
+
+      // Nothing is sent before the client is ready, and only the window is read ahead
+      assertEquals(0, output.bytes.size());
+      assertTrue(read.get() <= (long) WINDOW * CHUNK_SIZE);
+      assertEquals(200, response.getStatus());
+      assertEquals("attachment; filename=\"photo.png\"", response.getHeader("Content-Disposition"));
+
+      int rounds = 0;
+      while (!completed.get() && rounds++ < 100) {
+         output.clientTookEverything();
+         assertTrue(read.get() - output.bytes.size() <= (long) WINDOW * CHUNK_SIZE);
+      }
+
+      assertArrayEquals(content, output.bytes.toByteArray());
+      Mockito.verify(asyncContext, Mockito.times(1)).complete();
+   }
+
+   @Test
+   void testTransferCancelledWhenTheClientGoesAway() {
+      AtomicLong requested = new AtomicLong();
+      AtomicBoolean cancelled = new AtomicBoolean();
+      PublisherBody body = new PublisherBody(subscriber -> subscriber.onSubscribe(new Subscription() {
+         @Override
+         public void request(long n) {
+            requested.addAndGet(n);
+         }
+
+         @Override
+         public void cancel() {
+            cancelled.set(true);
+         }
+      }), WINDOW);
+
+      download.respond(FileRequestResponse.builder()
+            .content(body)
+            .contentLength(1000L)
+            .build(), "video.mp4");
+      assertEquals(WINDOW, requested.get());
+
+      output.listener.onError(new IOException("Connection reset by peer"));
+
+      assertTrue(cancelled.get());
+      Mockito.verify(asyncContext).complete();
+   }
+
+   @Test
+   void testTimeoutBeforeTheObjectArrives() throws Exception {
+      AtomicBoolean closed = new AtomicBoolean();
+      ObjectBody body = new ObjectBody() {
+         @Override
+         public long writeTo(OutputStream out) {
+            throw new AssertionError("Must not be written");
+         }
+
+         @Override
+         public Publisher<ByteBuffer> chunks() {
+            throw new AssertionError("Must not be published");
+         }
+
+         @Override
+         public void close() {
+            closed.set(true);
+         }
+      };
+
+      download.onTimeout(new AsyncEvent(asyncContext));
+      download.respond(FileRequestResponse.builder().content(body).build(), "late.bin");
+
+      assertEquals(500, response.getStatus());
+      assertTrue(closed.get());
+      assertNull(output.listener);
+      Mockito.verify(asyncContext, Mockito.times(1)).complete();
+   }
+
+   @Test
+   void testNotModifiedHasNoBody() {
+      download.respond(FileRequestResponse.builder().status(304).eTag("\"abc123\"").build(), "photo.png");
+
+      assertEquals(304, response.getStatus());
+      assertEquals("\"abc123\"", response.getHeader("ETag"));
+      assertNull(output.listener);
+      Mockito.verify(asyncContext).complete();
+   }
+
+   /**
+    * Accepts one write each time the client has caught up, and refuses writes in between, as
+    * non-blocking servlet output does.
+    */
+   private static class SlowClientOutput extends ServletOutputStream {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      WriteListener listener;
+      private boolean ready;
+
+      void clientTookEverything() throws IOException {
+         ready = true;
+         listener.onWritePossible();
+      }
+
+      @Override
+      public boolean isReady() {
+         return ready;
+      }
+
+      @Override
+      public void setWriteListener(WriteListener writeListener) {
+         listener = writeListener;
+      }
+
+      @Override
+      public void write(int b) {
+         write(new byte[]{(byte) b}, 0, 1);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) {
+         if (!ready) {
+            throw new IllegalStateException("Written while the output was not ready");
+         }
+         bytes.write(b, off, len);
+         ready = false;
+      }
+   }
+}
@@ -0,0 +1,31 @@
+package com.beaconfire.file_service;
+
+import com.beaconfire.file_service.Storage.HotObjectCache;
+import com.beaconfire.file_service.Storage.StorageBackend;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Hot-object caches for tests that construct services by hand.
+ */
+final class Caches {
+
+   private Caches() {
+   }
+
+   static HotObjectCache disabled(StorageBackend storage) throws IOException {
+      return new HotObjectCache(storage, new SimpleMeterRegistry(), false,
+            DataSize.ofKilobytes(256), DataSize.ofMegabytes(64), DataSize.ofMegabytes(64), DataSize.ofGigabytes(2), null);
+   }
+
+   static HotObjectCache enabled(StorageBackend storage, MeterRegistry meterRegistry, Path dir,
+                                 DataSize memoryMaxObjectSize, DataSize memoryCapacity,
+                                 DataSize diskMaxObjectSize, DataSize diskCapacity) throws IOException {
+      return new HotObjectCache(storage, meterRegistry, true,
+            memoryMaxObjectSize, memoryCapacity, diskMaxObjectSize, diskCapacity, dir);
+   }
+}
@@ -0,0 +1,395 @@
+package com.beaconfire.file_service;
+
+import com.beaconfire.file_service.DTO.FileRequestResponse;
+import com.beaconfire.file_service.Storage.HotObjectCache;
+import com.beaconfire.file_service.Storage.LocalStorageBackend;
+import com.beaconfire.file_service.Storage.ObjectMetadata;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HotObjectCacheTest {
+
+   @TempDir
+   Path storageDir;
+
+   @TempDir
+   Path cacheDir;
+
+   private CountingStorage origin;
+   private SimpleMeterRegistry meterRegistry;
+   private HotObjectCache cache;
+
+   @BeforeEach
+   public void setUp() throws Exception {
+      origin = new CountingStorage(storageDir);
+      meterRegistry = new SimpleMeterRegistry();
+      // Memory tier takes objects up to 1 KB (3 KB total), disk tier up to 64 KB (128 KB total)
+      cache = Caches.enabled(origin, meterRegistry, cacheDir,
+            DataSize.ofKilobytes(1), DataSize.ofKilobytes(3), DataSize.ofKilobytes(64), DataSize.ofKilobytes(128));
+   }
+
+   @Test
+   void testSmallObjectServedFromMemory() throws Exception {
+      byte[] avatar = bytes(512);
+      origin.put("avatar.png", "image/png", new ByteArrayInputStream(avatar));
+
+      assertArrayEquals(avatar, body(cache.read("avatar.png", null, null)));
+      FileRequestResponse second = cache.read("avatar.png", null, null);
+
+      assertArrayEquals(avatar, body(second));
+      assertEquals("image/png", second.getContentType());
+      assertEquals(1, origin.reads.get());
+      assertEquals(1, meterRegistry.get("file.cache.hits").tag("tier", "memory").counter().count());
+      assertEquals(1, meterRegistry.get("file.cache.misses").counter().count());
+      assertEquals(512, meterRegistry.get("file.cache.bytes_saved").counter().count());
+      assertEquals(0.5, meterRegistry.get("file.cache.hit_ratio").gauge().value());
+   }
+
+   @Test
+   void testLargerObjectServedFromDiskWithRange() throws Exception {
+      byte[] attachment = bytes(20 * 1024);
+      origin.put("report.pdf", "application/pdf", new ByteArrayInputStream(attachment));
+      String originETag = origin.stat("report.pdf").map(ObjectMetadata::getETag).orElseThrow();
+
+      body(cache.read("report.pdf", null, null));
+      FileRequestResponse range = cache.read("report.pdf", "bytes=100-199", null);
+
+      assertEquals(206, range.getStatus());
+      assertEquals("bytes 100-199/20480", range.getContentRange());
+      assertArrayEquals(Arrays.copyOfRange(attachment, 100, 200), body(range));
+      // Clients keep seeing the backend's ETag
+      assertEquals(originETag, range.getETag());
+      assertEquals(304, cache.read("report.pdf", null, originETag).getStatus());
+      assertEquals(1, origin.reads.get());
+      assertEquals(2, meterRegistry.get("file.cache.hits").tag("tier", "disk").counter().count());
+   }
+
+   @Test
+   void testObjectTooLargeForCacheGoesToBackend() throws Exception {
+      origin.put("video.mp4", "video/mp4", new ByteArrayInputStream(bytes(100 * 1024)));
+
+      body(cache.read("video.mp4", null, null));
+      body(cache.read("video.mp4", null, null));
+
+      // Sized from the GET itself, and only the first download found out it was too large
+      assertEquals(2, origin.reads.get());
+      assertEquals(0, origin.opens.get());
+      assertEquals(0, origin.stats.get());
+   }
+
+   @Test
+   void testTooLargeRangeAfterFirstDownloadSkipsTheFill() throws Exception {
+      byte[] video = bytes(100 * 1024);
+      origin.put("video.mp4", "video/mp4", new ByteArrayInputStream(video));
+
+      // The first request wants a range, so the GET that found the object too large is not its answer
+      FileRequestResponse first = cache.read("video.mp4", "bytes=0-99", null);
+      FileRequestResponse second = cache.read("video.mp4", "bytes=100-199", null);
+
+      assertArrayEquals(Arrays.copyOfRange(video, 0, 100), body(first));
+      assertArrayEquals(Arrays.copyOfRange(video, 100, 200), body(second));
+      assertEquals(3, origin.reads.get());
+      assertEquals(0, origin.stats.get());
+      assertEquals(2, meterRegistry.get("file.cache.misses").counter().count());
+   }
+
+   @Test
+   void testMissingDiskCopyIsAMissAndRefilled() throws Exception {
+      byte[] attachment = bytes(20 * 1024);
+      origin.put("report.pdf", "application/pdf", new ByteArrayInputStream(attachment));
+      body(cache.read("report.pdf", null, null));
+
+      // The copy disappears from under the index
+      FileSystemUtils.deleteRecursively(cacheDir.resolve("hot-objects").resolve("data"));
+
+      assertArrayEquals(attachment, body(cache.read("report.pdf", null, null)));
+      assertArrayEquals(attachment, body(cache.read("report.pdf", null, null)));
+
+      assertEquals(2, origin.reads.get());
+      assertEquals(2, meterRegistry.get("file.cache.misses").counter().count());
+      assertEquals(1, meterRegistry.get("file.cache.hits").tag("tier", "disk").counter().count());
+      assertEquals(20 * 1024, meterRegistry.get("file.cache.bytes_saved").counter().count());
+   }
+
+   @Test
+   void testIndexMatchesDiskUnderConcurrentEviction() throws Exception {
+      List<String> keys = new ArrayList<>();
+      for (int i = 0; i < 12; i++) {
+         keys.add("doc" + i);
+         origin.put("doc" + i, "application/pdf", new ByteArrayInputStream(bytes(20 * 1024)));
+      }
+
+      // Twelve 20 KB objects churn through a 128 KB disk tier from eight threads
+      ExecutorService clients = Executors.newFixedThreadPool(8);
+      try {
+         List<Future<?>> downloads = new ArrayList<>();
+         for (int t = 0; t < 8; t++) {
+            int offset = t;
+            downloads.add(clients.submit(() -> {
+               for (int i = 0; i < 200; i++) {
+                  String key = keys.get((i * 7 + offset) % keys.size());
+                  assertEquals(20 * 1024, body(cache.read(key, null, null)).length);
+               }
+               return null;
+            }));
+         }
+         for (Future<?> download : downloads) {
+            download.get(30, TimeUnit.SECONDS);
+         }
+      }
+      finally {
+         clients.shutdownNow();
+      }
+
+      // Every indexed copy is still on disk, and nothing else is
+      long onDisk;
+      try (Stream<Path> files = Files.walk(cacheDir.resolve("hot-objects").resolve("data"))) {
+         onDisk = files.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+      }
+      assertEquals((double) onDisk, meterRegistry.get("file.cache.size").tag("tier", "disk").gauge().value());
+   }
+
+   @Test
+   void testLeastRecentlyUsedIsEvicted() throws Exception {
+      for (String key : List.of("a", "b", "c", "d")) {
+         origin.put(key, "image/png", new ByteArrayInputStream(bytes(1024)));
+      }
+      body(cache.read("a", null, null));
+      body(cache.read("b", null, null));
+      body(cache.read("c", null, null));
+      // Touch a, so b is now the least recently used
+      body(cache.read("a", null, null));
+      body(cache.read("d", null, null));
+      assertEquals(4, origin.reads.get());
+
+      body(cache.read("a", null, null));
+      body(cache.read("c", null, null));
+      body(cache.read("d", null, null));
+      assertEquals(4, origin.reads.get());
+
+      body(cache.read("b", null, null));
+      assertEquals(5, origin.reads.get());
+      assertEquals(3072, meterRegistry.get("file.cache.size").tag("tier", "memory").gauge().value());
+   }
+
+   @Test
+   void testConcurrentMissesShareOneFetch() throws Exception {
+      origin.put("popular.jpg", "image/jpeg", new ByteArrayInputStream(bytes(8 * 1024)));
+      origin.readDelayMillis = 200;
+
+      ExecutorService clients = Executors.newFixedThreadPool(8);
+      try {
+         CountDownLatch start = new CountDownLatch(1);
+         List<Future<byte[]>> downloads = new ArrayList<>();
+         for (int i = 0; i < 8; i++) {
+            downloads.add(clients.submit(() -> {
+               start.await();
+               return body(cache.read("popular.jpg", null, null));
+            }));
+         }
+         start.countDown();
+         for (Future<byte[]> download : downloads) {
+            assertEquals(8 * 1024, download.get(10, TimeUnit.SECONDS).length);
+         }
+      }
+      finally {
+         clients.shutdownNow();
+      }
+      assertEquals(1, origin.reads.get());
+   }
+
+   @Test
+   void testEvictedAfterDelete() throws Exception {
+      origin.put("avatar.png", "image/png", new ByteArrayInputStream(bytes(512)));
+      body(cache.read("avatar.png", null, null));
+
+      cache.evict("avatar.png");
+      body(cache.read("avatar.png", null, null));
+
+      assertEquals(2, origin.reads.get());
+   }
+
+   @Test
+   void testAsyncMissFillsCacheFromTheSameTransfer() throws Exception {
+      byte[] avatar = bytes(512);
+      byte[] attachment = bytes(20 * 1024);
+      origin.put("avatar.png", "image/png", new ByteArrayInputStream(avatar));
+      origin.put("report.pdf", "application/pdf", new ByteArrayInputStream(attachment));
+
+      assertArrayEquals(avatar, body(cache.readAsync("avatar.png", null, null).get(10, TimeUnit.SECONDS)));
+      assertArrayEquals(attachment, body(cache.readAsync("report.pdf", null, null).get(10, TimeUnit.SECONDS)));
+      assertArrayEquals(avatar, body(cache.readAsync("avatar.png", null, null).get(10, TimeUnit.SECONDS)));
+      assertArrayEquals(attachment, body(cache.read("report.pdf", null, null)));
+
+      // Each object went over the wire from the backend once, and was never fetched again to fill a tier
+      assertEquals(2, origin.reads.get());
+      assertEquals(0, origin.opens.get());
+      assertEquals(1, meterRegistry.get("file.cache.hits").tag("tier", "memory").counter().count());
+      assertEquals(1, meterRegistry.get("file.cache.hits").tag("tier", "disk").counter().count());
+   }
+
+   @Test
+   void testPublishedAsyncMissFillsCache() throws Exception {
+      byte[] avatar = bytes(512);
+      byte[] attachment = bytes(20 * 1024);
+      origin.put("avatar.png", "image/png", new ByteArrayInputStream(avatar));
+      origin.put("report.pdf", "application/pdf", new ByteArrayInputStream(attachment));
+
+      // As written by a non-blocking download, which takes the body as chunks
+      assertArrayEquals(avatar, published(cache.readAsync("avatar.png", null, null).get(10, TimeUnit.SECONDS)));
+      assertArrayEquals(attachment, published(cache.readAsync("report.pdf", null, null).get(10, TimeUnit.SECONDS)));
+      assertArrayEquals(avatar, published(cache.readAsync("avatar.png", null, null).get(10, TimeUnit.SECONDS)));
+      assertArrayEquals(attachment, published(cache.readAsync("report.pdf", null, null).get(10, TimeUnit.SECONDS)));
+
+      assertEquals(2, origin.reads.get());
+      assertEquals(0, origin.opens.get());
+   }
+
+   @Test
+   void testAbortedAsyncMissIsNotCached() throws Exception {
+      origin.put("avatar.png", "image/png", new ByteArrayInputStream(bytes(512)));
+
+      cache.readAsync("avatar.png", null, null).get(10, TimeUnit.SECONDS).getContent().close();
+      body(cache.readAsync("avatar.png", null, null).get(10, TimeUnit.SECONDS));
+
+      assertEquals(2, origin.reads.get());
+   }
+
+   @Test
+   void testOnlyClearsItsOwnDirectory() throws Exception {
+      Path unrelated = Files.writeString(cacheDir.resolve("keep.txt"), "not the cache's");
+      origin.put("report.pdf", "application/pdf", new ByteArrayInputStream(bytes(20 * 1024)));
+      body(cache.read("report.pdf", null, null));
+
+      // A restart clears what the previous run cached, and nothing else
+      HotObjectCache restarted = Caches.enabled(origin, new SimpleMeterRegistry(), cacheDir,
+            DataSize.ofKilobytes(1), DataSize.ofKilobytes(3), DataSize.ofKilobytes(64), DataSize.ofKilobytes(128));
+      body(restarted.read("report.pdf", null, null));
+
+      assertTrue(Files.exists(unrelated));
+      assertEquals(2, origin.reads.get());
+   }
+
+   @Test
+   void testRefusesDirectoryItDidNotCreate() throws Exception {
+      Path foreign = Files.createDirectories(storageDir.resolve("elsewhere").resolve("hot-objects"));
+      Files.writeString(foreign.resolve("important.txt"), "data");
+
+      assertThrows(IllegalStateException.class, () -> Caches.enabled(origin, new SimpleMeterRegistry(),
+            foreign.getParent(), DataSize.ofKilobytes(1), DataSize.ofKilobytes(3), DataSize.ofKilobytes(64),
+            DataSize.ofKilobytes(128)));
+      assertTrue(Files.exists(foreign.resolve("important.txt")));
+   }
+
+   private static byte[] bytes(int size) {
+      byte[] content = new byte[size];
+      for (int i = 0; i < size; i++) {
+         content[i] = (byte) (i % 251);
+      }
+      return content;
+   }
+
+   private static byte[] body(FileRequestResponse response) throws IOException {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try (var content = response.getContent()) {
+         content.writeTo(out);
+      }
+      return out.toByteArray();
+   }
+
+   private static byte[] published(FileRequestResponse response) throws IOException {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      CompletableFuture<Void> done = new CompletableFuture<>();
+      try (var content = response.getContent()) {
+         content.chunks().subscribe(new Subscriber<ByteBuffer>() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+               subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer chunk) {
+               byte[] bytes = new byte[chunk.remaining()];
+               chunk.get(bytes);
+               out.writeBytes(bytes);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+               done.completeExceptionally(error);
+            }
+
+            @Override
+            public void onComplete() {
+               done.complete(null);
+            }
+         });
+         done.get(10, TimeUnit.SECONDS);
+      }
+      catch (InterruptedException | ExecutionException | TimeoutException e) {
+         throw new IOException(e);
+      }
+      return out.toByteArray();
+   }
+
+   /**
+    * Local storage standing in for S3, counting how often the cache goes to it.
+    */
+   static class CountingStorage extends LocalStorageBackend {
+      final AtomicInteger opens = new AtomicInteger();
+      final AtomicInteger reads = new AtomicInteger();
+      final AtomicInteger stats = new AtomicInteger();
+      volatile long readDelayMillis;
+
+      CountingStorage(Path root) throws IOException {
+         super(root, "local://files/");
+      }
+
+      @Override
+      public InputStream open(String key) throws IOException {
+         opens.incrementAndGet();
+         return super.open(key);
+      }
+
+      @Override
+      public Optional<ObjectMetadata> stat(String key) {
+         stats.incrementAndGet();
+         return super.stat(key);
+      }
+
+      @Override
+      public FileRequestResponse read(String key, String range, String ifNoneMatch) throws IOException {
+         reads.incrementAndGet();
+         try {
+            Thread.sleep(readDelayMillis);
+         }
+         catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+         return super.read(key, range, ifNoneMatch);
+      }
+   }
+}
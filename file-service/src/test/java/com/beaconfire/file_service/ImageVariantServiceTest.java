@@ -0,0 +1,210 @@
+package com.beaconfire.file_service;
+
+import com.beaconfire.file_service.Service.ImageVariant;
+import com.beaconfire.file_service.Service.ImageVariantService;
+import com.beaconfire.file_service.Storage.LocalStorageBackend;
+import com.beaconfire.file_service.Storage.ObjectMetadata;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against the local filesystem backend, so no S3 or network is needed.
+ */
+public class ImageVariantServiceTest {
+
+   @TempDir
+   Path root;
+
+   private LocalStorageBackend storage;
+   private ImageVariantService imageVariantService;
+
+   @BeforeEach
+   public void setUp() throws Exception {
+      storage = new LocalStorageBackend(root, "local://files/");
+      imageVariantService = new ImageVariantService(storage, 1, 10);
+      setField("maxSourceSize", DataSize.ofMegabytes(25));
+      setField("maxSourcePixels", 40_000_000L);
+      setField("maxWait", Duration.ofSeconds(10));
+   }
+
+   @AfterEach
+   public void tearDown() {
+      imageVariantService.shutdown();
+   }
+
+   @Test
+   void testMissingVariantBuiltOnRequest() throws Exception {
+      store("photo.png", "image/png", image(2000, 1000, "png"));
+
+      String key = imageVariantService.resolveVariant("photo.png", ImageVariant.THUMBNAIL);
+
+      assertEquals("variants/thumbnail/photo.png", key);
+      BufferedImage thumbnail = read(key);
+      assertEquals(160, thumbnail.getWidth());
+      assertEquals(80, thumbnail.getHeight());
+      // All sizes come out of the same decode
+      assertEquals(640, read("variants/feed/photo.png").getWidth());
+      assertEquals(1600, read("variants/full/photo.png").getWidth());
+   }
+
+   @Test
+   void testSmallImageIsCopiedUnchanged() throws Exception {
+      byte[] original = image(100, 50, "jpeg");
+      store("small.jpg", "image/jpeg", original);
+
+      String key = imageVariantService.resolveVariant("small.jpg", ImageVariant.FEED);
+
+      assertEquals("variants/feed/small.jpg", key);
+      assertArrayEquals(original, content(key));
+   }
+
+   @Test
+   void testNonImageServesOriginal() throws Exception {
+      store("notes.pdf", "application/pdf", new byte[]{1, 2, 3});
+
+      assertEquals("notes.pdf", imageVariantService.resolveVariant("notes.pdf", ImageVariant.THUMBNAIL));
+      assertTrue(storage.stat("variants/thumbnail/notes.pdf").isEmpty());
+   }
+
+   @Test
+   void testVariantsGeneratedAfterUpload() throws Exception {
+      store("banner.jpg", "image/jpeg", image(3000, 1200, "jpeg"));
+
+      imageVariantService.scheduleVariants("banner.jpg", "image/jpeg");
+
+      long deadline = System.currentTimeMillis() + 10_000;
+      while (storage.stat("variants/full/banner.jpg").isEmpty() && System.currentTimeMillis() < deadline) {
+         Thread.sleep(20);
+      }
+      assertTrue(storage.stat("variants/thumbnail/banner.jpg").isPresent());
+      assertTrue(storage.stat("variants/feed/banner.jpg").isPresent());
+      assertTrue(storage.stat("variants/full/banner.jpg").isPresent());
+   }
+
+   @Test
+   void testOnDemandBuildRunsOnWorkerPool() throws Exception {
+      Set<String> writerThreads = ConcurrentHashMap.newKeySet();
+      LocalStorageBackend recording = new LocalStorageBackend(root, "local://files/") {
+         @Override
+         public long put(String key, String contentType, InputStream content) throws IOException {
+            writerThreads.add(Thread.currentThread().getName());
+            return super.put(key, contentType, content);
+         }
+      };
+      imageVariantService.shutdown();
+      imageVariantService = new ImageVariantService(recording, 1, 10);
+      setField("maxSourceSize", DataSize.ofMegabytes(25));
+      setField("maxSourcePixels", 40_000_000L);
+      setField("maxWait", Duration.ofSeconds(10));
+      store("photo.png", "image/png", image(2000, 1000, "png"));
+      writerThreads.clear();
+
+      assertEquals("variants/feed/photo.png", imageVariantService.resolveVariant("photo.png", ImageVariant.FEED));
+      assertFalse(writerThreads.isEmpty());
+      assertFalse(writerThreads.contains(Thread.currentThread().getName()));
+   }
+
+   @Test
+   void testAsyncResolveDoesNotWaitOnTheCaller() throws Exception {
+      Set<String> statThreads = ConcurrentHashMap.newKeySet();
+      LocalStorageBackend recording = new LocalStorageBackend(root, "local://files/") {
+         @Override
+         public Optional<ObjectMetadata> stat(String key) {
+            statThreads.add(Thread.currentThread().getName());
+            return super.stat(key);
+         }
+      };
+      imageVariantService.shutdown();
+      // A single worker both looks the variant up and builds it, so neither may wait on the other
+      imageVariantService = new ImageVariantService(recording, 1, 10);
+      setField("maxSourceSize", DataSize.ofMegabytes(25));
+      setField("maxSourcePixels", 40_000_000L);
+      setField("maxWait", Duration.ofSeconds(10));
+      store("photo.png", "image/png", image(2000, 1000, "png"));
+      statThreads.clear();
+
+      CompletableFuture<String> key = imageVariantService.resolveVariantAsync("photo.png", ImageVariant.THUMBNAIL);
+
+      assertEquals("variants/thumbnail/photo.png", key.get(10, TimeUnit.SECONDS));
+      assertFalse(statThreads.contains(Thread.currentThread().getName()));
+      assertTrue(storage.stat("variants/thumbnail/photo.png").isPresent());
+   }
+
+   @Test
+   void testAsyncResolveOfNonImageServesOriginal() throws Exception {
+      store("notes.pdf", "application/pdf", new byte[]{1, 2, 3});
+
+      assertEquals("notes.pdf", imageVariantService.resolveVariantAsync("notes.pdf", ImageVariant.THUMBNAIL)
+            .get(10, TimeUnit.SECONDS));
+   }
+
+   @Test
+   void testTooManyPixelsServesOriginal() throws Exception {
+      setField("maxSourcePixels", 1_000_000L);
+      store("huge.png", "image/png", image(2000, 1000, "png"));
+
+      assertEquals("huge.png", imageVariantService.resolveVariant("huge.png", ImageVariant.THUMBNAIL));
+      assertTrue(storage.stat("variants/thumbnail/huge.png").isEmpty());
+   }
+
+   @Test
+   void testVariantsRebuiltAfterDelete() throws Exception {
+      store("photo.png", "image/png", image(2000, 1000, "png"));
+      imageVariantService.resolveVariant("photo.png", ImageVariant.THUMBNAIL);
+
+      for (ImageVariant variant : ImageVariant.values()) {
+         storage.delete(ImageVariantService.variantKey("photo.png", variant));
+      }
+      imageVariantService.evictVariants("photo.png");
+
+      assertEquals("variants/thumbnail/photo.png", imageVariantService.resolveVariant("photo.png", ImageVariant.THUMBNAIL));
+      assertTrue(storage.stat("variants/thumbnail/photo.png").isPresent());
+   }
+
+   private void store(String key, String contentType, byte[] content) throws Exception {
+      storage.put(key, contentType, new ByteArrayInputStream(content));
+   }
+
+   private byte[] image(int width, int height, String format) throws Exception {
+      BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      ImageIO.write(image, format, out);
+      return out.toByteArray();
+   }
+
+   private BufferedImage read(String key) throws Exception {
+      return ImageIO.read(new ByteArrayInputStream(content(key)));
+   }
+
+   private byte[] content(String key) throws Exception {
+      try (InputStream in = storage.open(key)) {
+         return in.readAllBytes();
+      }
+   }
+
+   private void setField(String name, Object value) throws Exception {
+      Field field = ImageVariantService.class.getDeclaredField(name);
+      field.setAccessible(true);
+      field.set(imageVariantService, value);
+   }
+}
@@ -0,0 +1,69 @@
+package com.beaconfire.file_service;
+
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Async S3 stand-in for tests and benchmarks, serving the objects of a {@link LocalS3StandIn}.
+ * Every response arrives after a fixed latency on a single timer thread, the way a real client
+ * answers on its event loop, so no thread is held while a request is outstanding.
+ */
+public class LatentS3AsyncStandIn implements S3AsyncClient {
+
+   private final LocalS3StandIn objects;
+   private final long latencyMillis;
+   private final ScheduledExecutorService eventLoop = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "s3-stand-in-event-loop");
+      thread.setDaemon(true);
+      return thread;
+   });
+
+   public LatentS3AsyncStandIn(LocalS3StandIn objects, long latencyMillis) {
+      this.objects = objects;
+      this.latencyMillis = latencyMillis;
+   }
+
+   @Override
+   public <ReturnT> CompletableFuture<ReturnT> getObject(GetObjectRequest request,
+                                                         AsyncResponseTransformer<GetObjectResponse, ReturnT> transformer) {
+      CompletableFuture<ReturnT> result = transformer.prepare();
+      eventLoop.schedule(() -> {
+         LocalS3StandIn.StoredObject object = objects.getStoredObject(request.key());
+         if (object == null) {
+            transformer.exceptionOccurred(
+                  NoSuchKeyException.builder().statusCode(404).message("No such key: " + request.key()).build());
+            return;
+         }
+         String eTag = objects.headObject(HeadObjectRequest.builder().key(request.key()).build()).eTag();
+         if (eTag.equals(request.ifNoneMatch())) {
+            transformer.exceptionOccurred(S3Exception.builder().statusCode(304).message("Not Modified").build());
+            return;
+         }
+         byte[] content = object.content() != null ? object.content() : new byte[0];
+         transformer.onResponse(GetObjectResponse.builder()
+               .contentLength((long) content.length)
+               .contentType(object.contentType())
+               .eTag(eTag)
+               .build());
+         transformer.onStream(AsyncRequestBody.fromBytes(content));
+      }, latencyMillis, TimeUnit.MILLISECONDS);
+      return result;
+   }
+
+   @Override
+   public String serviceName() {
+      return SERVICE_NAME;
+   }
+
+   @Override
+   public void close() {
+      eventLoop.shutdownNow();
+   }
+}
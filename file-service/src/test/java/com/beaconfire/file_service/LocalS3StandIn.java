@@ -0,0 +1,220 @@
+package com.beaconfire.file_service;
+
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Utilities;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory S3 stand-in for tests. With {@code retainContent = false} it only counts bytes, so
+ * multi-gigabyte uploads can be exercised on a small heap.
+ */
+public class LocalS3StandIn implements S3Client {
+
+   private final boolean retainContent;
+   private final Map<String, StoredObject> objects = new ConcurrentHashMap<>();
+   private final Map<String, Map<Integer, StoredObject>> multipartUploads = new ConcurrentHashMap<>();
+   private final Set<String> abortedUploads = ConcurrentHashMap.newKeySet();
+   private final AtomicInteger partsInFlight = new AtomicInteger();
+   private final AtomicInteger maxPartsInFlight = new AtomicInteger();
+   private final Map<String, AtomicInteger> putObjectCalls = new ConcurrentHashMap<>();
+
+   public LocalS3StandIn(boolean retainContent) {
+      this.retainContent = retainContent;
+   }
+
+   public record StoredObject(byte[] content, long size, String contentType) {}
+
+   @Override
+   public PutObjectResponse putObject(PutObjectRequest request, RequestBody body) {
+      putObjectCalls.computeIfAbsent(request.key(), k -> new AtomicInteger()).incrementAndGet();
+      StoredObject object = drain(body, request.contentType());
+      objects.put(request.key(), object);
+      return PutObjectResponse.builder().eTag(eTag(request.key())).build();
+   }
+
+   @Override
+   public CreateMultipartUploadResponse createMultipartUpload(CreateMultipartUploadRequest request) {
+      String uploadId = UUID.randomUUID().toString();
+      multipartUploads.put(uploadId, new ConcurrentHashMap<>());
+      return CreateMultipartUploadResponse.builder().uploadId(uploadId).build();
+   }
+
+   @Override
+   public UploadPartResponse uploadPart(UploadPartRequest request, RequestBody body) {
+      int inFlight = partsInFlight.incrementAndGet();
+      maxPartsInFlight.accumulateAndGet(inFlight, Math::max);
+      try {
+         multipartUploads.get(request.uploadId()).put(request.partNumber(), drain(body, null));
+         return UploadPartResponse.builder().eTag("part-" + request.partNumber()).build();
+      }
+      finally {
+         partsInFlight.decrementAndGet();
+      }
+   }
+
+   @Override
+   public CompleteMultipartUploadResponse completeMultipartUpload(CompleteMultipartUploadRequest request) {
+      Map<Integer, StoredObject> parts = new TreeMap<>(multipartUploads.remove(request.uploadId()));
+      long size = 0;
+      ByteArrayOutputStream content = retainContent ? new ByteArrayOutputStream() : null;
+      for (StoredObject part : parts.values()) {
+         size += part.size();
+         if (content != null) {
+            content.writeBytes(part.content());
+         }
+      }
+      objects.put(request.key(), new StoredObject(content != null ? content.toByteArray() : null, size, null));
+      return CompleteMultipartUploadResponse.builder().key(request.key()).eTag(eTag(request.key())).build();
+   }
+
+   @Override
+   public AbortMultipartUploadResponse abortMultipartUpload(AbortMultipartUploadRequest request) {
+      multipartUploads.remove(request.uploadId());
+      abortedUploads.add(request.uploadId());
+      return AbortMultipartUploadResponse.builder().build();
+   }
+
+   @Override
+   public HeadObjectResponse headObject(HeadObjectRequest request) {
+      StoredObject object = objects.get(request.key());
+      if (object == null) {
+         throw NoSuchKeyException.builder().statusCode(404).message("No such key: " + request.key()).build();
+      }
+      return HeadObjectResponse.builder()
+            .contentLength(object.size())
+            .contentType(object.contentType())
+            .eTag(eTag(request.key()))
+            .build();
+   }
+
+   @Override
+   public <ReturnT> ReturnT getObject(GetObjectRequest request, ResponseTransformer<GetObjectResponse, ReturnT> transformer) {
+      StoredObject object = objects.get(request.key());
+      if (object == null) {
+         throw NoSuchKeyException.builder().statusCode(404).message("No such key: " + request.key()).build();
+      }
+      byte[] content = object.content() != null ? object.content() : new byte[0];
+      GetObjectResponse response = GetObjectResponse.builder()
+            .contentLength((long) content.length)
+            .contentType(object.contentType())
+            .eTag(eTag(request.key()))
+            .build();
+      try {
+         return transformer.transform(response, AbortableInputStream.create(new ByteArrayInputStream(content)));
+      }
+      catch (Exception e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   @Override
+   public CopyObjectResponse copyObject(CopyObjectRequest request) {
+      StoredObject source = objects.get(request.sourceKey());
+      if (source == null) {
+         throw NoSuchKeyException.builder().statusCode(404).message("No such key: " + request.sourceKey()).build();
+      }
+      objects.put(request.destinationKey(), source);
+      return CopyObjectResponse.builder().build();
+   }
+
+   @Override
+   public DeleteObjectResponse deleteObject(DeleteObjectRequest request) {
+      objects.remove(request.key());
+      return DeleteObjectResponse.builder().build();
+   }
+
+   @Override
+   public ListObjectsV2Response listObjectsV2(ListObjectsV2Request request) {
+      List<S3Object> contents = objects.keySet().stream()
+            .filter(key -> key.startsWith(request.prefix()))
+            .sorted()
+            .limit(request.maxKeys())
+            .map(key -> S3Object.builder().key(key).size(objects.get(key).size()).build())
+            .toList();
+      return ListObjectsV2Response.builder().contents(contents).keyCount(contents.size()).build();
+   }
+
+   @Override
+   public S3Utilities utilities() {
+      return S3Utilities.builder().region(Region.US_EAST_1).build();
+   }
+
+   @Override
+   public String serviceName() {
+      return SERVICE_NAME;
+   }
+
+   @Override
+   public void close() {
+   }
+
+   public StoredObject getStoredObject(String key) {
+      return objects.get(key);
+   }
+
+   public Set<String> getKeys() {
+      return objects.keySet();
+   }
+
+   public Set<String> getAbortedUploads() {
+      return abortedUploads;
+   }
+
+   public int getMaxPartsInFlight() {
+      return maxPartsInFlight.get();
+   }
+
+   public int getPutObjectCalls() {
+      return putObjectCalls.values().stream().mapToInt(AtomicInteger::get).sum();
+   }
+
+   /**
+    * @return the number of single-request uploads to keys outside the prefix
+    */
+   public int getPutObjectCallsOutside(String prefix) {
+      return putObjectCalls.entrySet().stream()
+            .filter(entry -> !entry.getKey().startsWith(prefix))
+            .mapToInt(entry -> entry.getValue().get())
+            .sum();
+   }
+
+   private StoredObject drain(RequestBody body, String contentType) {
+      try (InputStream in = body.contentStreamProvider().newStream()) {
+         if (retainContent) {
+            byte[] content = in.readAllBytes();
+            return new StoredObject(content, content.length, contentType);
+         }
+         byte[] scratch = new byte[64 * 1024];
+         long size = 0;
+         int read;
+         while ((read = in.read(scratch)) > 0) {
+            size += read;
+         }
+         return new StoredObject(null, size, contentType);
+      }
+      catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   private String eTag(String key) {
+      return "\"" + Integer.toHexString(key.hashCode()) + "\"";
+   }
+}
@@ -0,0 +1,176 @@
+package com.beaconfire.file_service;
+
+import com.beaconfire.file_service.DTO.FileRequestResponse;
+import com.beaconfire.file_service.Service.ContentReferences;
+import com.beaconfire.file_service.Service.ImageVariantService;
+import com.beaconfire.file_service.Service.S3Service;
+import com.beaconfire.file_service.Storage.LocalStorageBackend;
+import com.beaconfire.file_service.Storage.ObjectMetadata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class LocalStorageBackendTest {
+
+   private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.UTF_8);
+
+   @TempDir
+   Path root;
+
+   private LocalStorageBackend storage;
+
+   @BeforeEach
+   public void setUp() throws Exception {
+      storage = new LocalStorageBackend(root, "local://files");
+   }
+
+   @Test
+   void testPutAndRead() throws Exception {
+      assertEquals(CONTENT.length, storage.put("digits.txt", "text/plain", new ByteArrayInputStream(CONTENT)));
+
+      FileRequestResponse response = storage.read("digits.txt", null, null);
+
+      assertEquals(200, response.getStatus());
+      assertEquals("text/plain", response.getContentType());
+      assertEquals(CONTENT.length, response.getContentLength());
+      assertNotNull(response.getETag());
+      assertArrayEquals(CONTENT, body(response));
+      assertEquals("local://files/digits.txt", storage.url("digits.txt"));
+   }
+
+   @Test
+   void testRangeRequests() throws Exception {
+      storage.put("digits.txt", "text/plain", new ByteArrayInputStream(CONTENT));
+
+      FileRequestResponse middle = storage.read("digits.txt", "bytes=2-5", null);
+      assertEquals(206, middle.getStatus());
+      assertEquals("bytes 2-5/10", middle.getContentRange());
+      assertEquals(4, middle.getContentLength());
+      assertArrayEquals("2345".getBytes(StandardCharsets.UTF_8), body(middle));
+
+      FileRequestResponse suffix = storage.read("digits.txt", "bytes=-3", null);
+      assertEquals("bytes 7-9/10", suffix.getContentRange());
+      assertArrayEquals("789".getBytes(StandardCharsets.UTF_8), body(suffix));
+
+      assertEquals(416, storage.read("digits.txt", "bytes=10-", null).getStatus());
+   }
+
+   @Test
+   void testNotModified() throws Exception {
+      storage.put("digits.txt", "text/plain", new ByteArrayInputStream(CONTENT));
+      String eTag = storage.stat("digits.txt").map(ObjectMetadata::getETag).orElseThrow();
+
+      FileRequestResponse response = storage.read("digits.txt", null, eTag);
+
+      assertEquals(304, response.getStatus());
+      assertNull(response.getContent());
+   }
+
+   @Test
+   void testObjectsAreSharded() throws Exception {
+      storage.put("a.txt", "text/plain", new ByteArrayInputStream(CONTENT));
+      storage.put("variants/thumbnail/b.png", "image/png", new ByteArrayInputStream(CONTENT));
+
+      List<Path> files;
+      try (Stream<Path> walk = Files.walk(root.resolve("data"))) {
+         files = walk.filter(Files::isRegularFile).map(root.resolve("data")::relativize).toList();
+      }
+      assertEquals(2, files.size());
+      // Two shard levels before the key
+      assertTrue(files.stream().anyMatch(path -> path.getNameCount() == 3 && path.endsWith("a.txt")));
+      assertTrue(files.stream().anyMatch(path -> path.getNameCount() == 5 && path.endsWith("variants/thumbnail/b.png")));
+   }
+
+   @Test
+   void testFailedWriteKeepsPreviousVersion() throws Exception {
+      storage.put("digits.txt", "text/plain", new ByteArrayInputStream(CONTENT));
+
+      assertThrows(IOException.class, () -> storage.put("digits.txt", "text/plain", new FailingInputStream()));
+
+      FileRequestResponse response = storage.read("digits.txt", null, null);
+      assertArrayEquals(CONTENT, body(response));
+      try (Stream<Path> temp = Files.list(root.resolve("tmp"))) {
+         assertEquals(0, temp.count());
+      }
+   }
+
+   @Test
+   void testMoveAndDelete() throws Exception {
+      storage.put("staging/upload.bin", "video/mp4", new ByteArrayInputStream(CONTENT));
+
+      storage.move("staging/upload.bin", "final.mp4");
+
+      assertTrue(storage.stat("staging/upload.bin").isEmpty());
+      assertEquals("video/mp4", storage.stat("final.mp4").map(ObjectMetadata::getContentType).orElseThrow());
+
+      storage.delete("final.mp4");
+      assertTrue(storage.stat("final.mp4").isEmpty());
+   }
+
+   @Test
+   void testRejectsKeysOutsideRoot() {
+      assertThrows(IllegalArgumentException.class,
+            () -> storage.put("../escape.txt", "text/plain", new ByteArrayInputStream(CONTENT)));
+      assertThrows(IllegalArgumentException.class, () -> storage.stat("/etc/passwd"));
+   }
+
+   @Test
+   void testUploadsRunOfflineOnLocalStorage() throws Exception {
+      S3Service s3Service = new S3Service(storage, Caches.disabled(storage), new ContentReferences(storage),
+            mock(ImageVariantService.class),
+            DataSize.ofKilobytes(64), DataSize.ofMegabytes(10));
+      byte[] large = new byte[(int) DataSize.ofMegabytes(1).toBytes()];
+      for (int i = 0; i < large.length; i++) {
+         large[i] = (byte) (i % 251);
+      }
+
+      String first = s3Service.uploadFile("clip.mp4", "video/mp4", new ByteArrayInputStream(large));
+      String second = s3Service.uploadFile("clip.mp4", "video/mp4", new ByteArrayInputStream(large));
+
+      assertEquals(first, second);
+      assertTrue(first.startsWith("local://files/"));
+      assertArrayEquals(large, body(s3Service.downloadFile(first)));
+      // The staging copy was renamed into place or dropped, next to one reference per upload
+      assertEquals(2, storage.list("refs/", 10).size());
+      try (Stream<Path> walk = Files.walk(root.resolve("data"))) {
+         assertEquals(3, walk.filter(Files::isRegularFile).count());
+      }
+   }
+
+   private byte[] body(FileRequestResponse response) throws IOException {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try (var content = response.getContent()) {
+         content.writeTo(out);
+      }
+      return out.toByteArray();
+   }
+
+   /**
+    * Delivers a few bytes, then fails like a dropped client connection.
+    */
+   static class FailingInputStream extends InputStream {
+      private int remaining = 4;
+
+      @Override
+      public int read() throws IOException {
+         if (remaining-- > 0) {
+            return 'x';
+         }
+         throw new IOException("Connection reset");
+      }
+   }
+}
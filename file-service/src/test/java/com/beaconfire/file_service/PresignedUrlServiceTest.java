@@ -0,0 +1,210 @@
+package com.beaconfire.file_service;
+
+import com.beaconfire.file_service.DTO.FileMetadata;
+import com.beaconfire.file_service.DTO.IssuedUpload;
+import com.beaconfire.file_service.DTO.PresignedUploadRequest;
+import com.beaconfire.file_service.DTO.PresignedUrlResponse;
+import com.beaconfire.file_service.Exception.FileTooLargeException;
+import com.beaconfire.file_service.Exception.InvalidUploadException;
+import com.beaconfire.file_service.Service.FileMetadataRegistry;
+import com.beaconfire.file_service.Service.ImageVariantService;
+import com.beaconfire.file_service.Service.PresignedUrlService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Signs against a local S3-compatible endpoint (e.g. MinIO on port 9000). Signing is offline,
+ * and the completion callback runs against the in-memory stand-in.
+ */
+public class PresignedUrlServiceTest {
+
+   private S3Presigner s3Presigner;
+   private LocalS3StandIn s3;
+   private FileMetadataRegistry metadataRegistry;
+   private PresignedUrlService presignedUrlService;
+
+   @BeforeEach
+   public void setUp() throws Exception {
+      s3Presigner = S3Presigner.builder()
+            .region(Region.US_EAST_1)
+            .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("minio", "minio123")))
+            .endpointOverride(URI.create("http://localhost:9000"))
+            .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).build())
+            .build();
+      s3 = new LocalS3StandIn(true);
+      metadataRegistry = new FileMetadataRegistry(s3, Jackson2ObjectMapperBuilder.json().build(), "test-bucket");
+      presignedUrlService = new PresignedUrlService(s3Presigner, s3, metadataRegistry, mock(ImageVariantService.class));
+
+      setField("bucketName", "test-bucket");
+      setField("ttl", Duration.ofMinutes(15));
+      setField("maxFileSize", DataSize.ofMegabytes(10));
+      setField("allowedContentTypes", List.of("image/*", "application/pdf"));
+   }
+
+   @AfterEach
+   public void tearDown() {
+      s3Presigner.close();
+   }
+
+   @Test
+   void testPresignUpload() {
+      PresignedUrlResponse response = presignedUrlService.presignUpload(PresignedUploadRequest.builder()
+            .fileName("avatar.png")
+            .contentType("image/png")
+            .contentLength(1024L)
+            .build());
+
+      URL url = assertDoesNotThrow(() -> new URL(response.getUrl()));
+      assertEquals("localhost", url.getHost());
+      assertEquals(9000, url.getPort());
+      assertTrue(url.getPath().startsWith("/test-bucket/"));
+      assertTrue(url.getPath().endsWith(".png"));
+      assertTrue(response.getUrl().contains("X-Amz-Expires=900"));
+      assertEquals("PUT", response.getMethod());
+      assertTrue(response.getSignedHeaders().keySet().stream().anyMatch("content-type"::equalsIgnoreCase));
+      assertNotNull(response.getExpiresAt());
+   }
+
+   @Test
+   void testPresignUploadRejectsContentType() {
+      assertThrows(InvalidUploadException.class, () -> presignedUrlService.presignUpload(PresignedUploadRequest.builder()
+            .fileName("script.sh")
+            .contentType("application/x-sh")
+            .contentLength(1024L)
+            .build()));
+   }
+
+   @Test
+   void testPresignUploadRejectsSize() {
+      assertThrows(FileTooLargeException.class, () -> presignedUrlService.presignUpload(PresignedUploadRequest.builder()
+            .fileName("huge.png")
+            .contentType("image/png")
+            .contentLength(DataSize.ofMegabytes(11).toBytes())
+            .build()));
+   }
+
+   @Test
+   void testPresignDownload() {
+      PresignedUrlResponse response = presignedUrlService.presignDownload("http://s3-bucket-url/unique-key.png");
+
+      assertEquals("GET", response.getMethod());
+      assertEquals("unique-key.png", response.getKey());
+      assertTrue(response.getUrl().startsWith("http://localhost:9000/test-bucket/unique-key.png?"));
+   }
+
+   @Test
+   void testCompleteUploadRecordsMetadata() {
+      String key = presign("uploaded.png", 2048);
+      upload(key, 2048);
+
+      FileMetadata metadata = presignedUrlService.completeUpload(key);
+
+      assertEquals(2048, metadata.getSize());
+      assertEquals("image/png", metadata.getContentType());
+      assertTrue(metadataRegistry.find(key).isPresent());
+      assertTrue(metadataRegistry.findIssued(key).isEmpty());
+   }
+
+   @Test
+   void testCompleteUploadSurvivesRestart() {
+      String key = presign("uploaded.png", 2048);
+      upload(key, 2048);
+
+      FileMetadataRegistry restarted = new FileMetadataRegistry(s3, Jackson2ObjectMapperBuilder.json().build(), "test-bucket");
+      PresignedUrlService otherInstance = new PresignedUrlService(s3Presigner, s3, restarted, mock(ImageVariantService.class));
+      copyFields(otherInstance);
+
+      assertEquals(2048, otherInstance.completeUpload(key).getSize());
+      // Completing again returns the recorded metadata
+      assertEquals(2048, presignedUrlService.completeUpload(key).getSize());
+   }
+
+   @Test
+   void testCompleteUploadUnknownKey() {
+      assertThrows(InvalidUploadException.class, () -> presignedUrlService.completeUpload("missing.png"));
+      assertTrue(metadataRegistry.find("missing.png").isEmpty());
+   }
+
+   @Test
+   void testCompleteUploadRejectsKeyNotIssued() {
+      upload("someone-elses.png", 2048);
+
+      assertThrows(InvalidUploadException.class, () -> presignedUrlService.completeUpload("someone-elses.png"));
+      assertTrue(metadataRegistry.find("someone-elses.png").isEmpty());
+   }
+
+   @Test
+   void testCompleteUploadRejectsExpiredKey() {
+      metadataRegistry.issue(IssuedUpload.builder()
+            .key("late.png")
+            .contentType("image/png")
+            .contentLength(2048)
+            .completeBy(Instant.now().minusSeconds(1))
+            .build());
+      upload("late.png", 2048);
+
+      assertThrows(InvalidUploadException.class, () -> presignedUrlService.completeUpload("late.png"));
+   }
+
+   @Test
+   void testCompleteUploadDeletesOversizedObject() {
+      String key = presign("oversized.png", 1024);
+      upload(key, (int) DataSize.ofMegabytes(11).toBytes());
+
+      assertThrows(FileTooLargeException.class, () -> presignedUrlService.completeUpload(key));
+      assertNull(s3.getStoredObject(key));
+      assertTrue(metadataRegistry.findIssued(key).isEmpty());
+   }
+
+   private String presign(String fileName, long contentLength) {
+      return presignedUrlService.presignUpload(PresignedUploadRequest.builder()
+            .fileName(fileName)
+            .contentType("image/png")
+            .contentLength(contentLength)
+            .build()).getKey();
+   }
+
+   private void upload(String key, int size) {
+      s3.putObject(PutObjectRequest.builder().bucket("test-bucket").key(key).contentType("image/png").build(),
+            RequestBody.fromBytes(new byte[size]));
+   }
+
+   private void copyFields(PresignedUrlService target) {
+      for (String name : List.of("bucketName", "ttl", "maxFileSize", "allowedContentTypes")) {
+         try {
+            Field field = PresignedUrlService.class.getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, field.get(presignedUrlService));
+         }
+         catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+         }
+      }
+   }
+
+   private void setField(String name, Object value) throws Exception {
+      Field field = PresignedUrlService.class.getDeclaredField(name);
+      field.setAccessible(true);
+      field.set(presignedUrlService, value);
+   }
+}
@@ -0,0 +1,143 @@
+package com.beaconfire.file_service;
+
+import com.beaconfire.file_service.DTO.FileRequestResponse;
+import com.beaconfire.file_service.Service.ContentReferences;
+import com.beaconfire.file_service.Service.ImageVariantService;
+import com.beaconfire.file_service.Service.S3MultipartUploader;
+import com.beaconfire.file_service.Service.S3Service;
+import com.beaconfire.file_service.Storage.ObjectMetadata;
+import com.beaconfire.file_service.Storage.S3StorageBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class S3AsyncDownloadTest {
+
+   private static final long LATENCY_MILLIS = 200;
+
+   private LocalS3StandIn s3;
+   private LatentS3AsyncStandIn s3Async;
+   private S3MultipartUploader uploader;
+   private S3StorageBackend storage;
+
+   @BeforeEach
+   public void setUp() throws Exception {
+      s3 = new LocalS3StandIn(true);
+      s3Async = new LatentS3AsyncStandIn(s3, LATENCY_MILLIS);
+      uploader = new S3MultipartUploader(s3, DataSize.ofMegabytes(5), 2, DataSize.ofGigabytes(1), 2);
+      storage = new S3StorageBackend(s3, uploader, s3Async);
+      setField(storage, "bucketName", "test-bucket");
+   }
+
+   @AfterEach
+   public void tearDown() {
+      uploader.shutdown();
+      s3Async.close();
+   }
+
+   @Test
+   void testAsyncRead() throws Exception {
+      byte[] content = store("notes.txt", "text/plain", "async body");
+
+      FileRequestResponse response = storage.readAsync("notes.txt", null, null).get(5, TimeUnit.SECONDS);
+
+      assertEquals(200, response.getStatus());
+      assertEquals("text/plain", response.getContentType());
+      assertEquals(content.length, response.getContentLength());
+      assertArrayEquals(content, body(response));
+   }
+
+   @Test
+   void testAsyncNotModified() throws Exception {
+      store("notes.txt", "text/plain", "async body");
+      String eTag = storage.stat("notes.txt").map(ObjectMetadata::getETag).orElseThrow();
+
+      FileRequestResponse response = storage.readAsync("notes.txt", null, eTag).get(5, TimeUnit.SECONDS);
+
+      assertEquals(304, response.getStatus());
+      assertNull(response.getContent());
+   }
+
+   @Test
+   void testAsyncMissingObjectFails() {
+      ExecutionException error = assertThrows(ExecutionException.class,
+            () -> storage.readAsync("missing.txt", null, null).get(5, TimeUnit.SECONDS));
+
+      assertInstanceOf(NoSuchKeyException.class, error.getCause());
+   }
+
+   @Test
+   void testConcurrentDownloadsDoNotHoldThreads() throws Exception {
+      int downloads = 50;
+      byte[] content = store("popular.txt", "text/plain", "shared body");
+
+      long started = System.nanoTime();
+      List<CompletableFuture<FileRequestResponse>> responses = new ArrayList<>();
+      for (int i = 0; i < downloads; i++) {
+         responses.add(storage.readAsync("popular.txt", null, null));
+      }
+      long issuedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+      for (CompletableFuture<FileRequestResponse> response : responses) {
+         assertArrayEquals(content, body(response.get(5, TimeUnit.SECONDS)));
+      }
+      long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+      // One thread issued every request without waiting on S3, and the waits overlapped
+      assertTrue(issuedMillis < LATENCY_MILLIS, "Issuing took " + issuedMillis + " ms");
+      assertTrue(elapsedMillis < downloads * LATENCY_MILLIS / 5, "Downloads took " + elapsedMillis + " ms");
+   }
+
+   @Test
+   void testServiceDownloadsAsyncWhenEnabled() throws Exception {
+      S3Service s3Service = new S3Service(storage, Caches.disabled(storage), mock(ContentReferences.class),
+            mock(ImageVariantService.class),
+            DataSize.ofKilobytes(64), DataSize.ofMegabytes(10));
+      setField(s3Service, "asyncDownloads", true);
+      byte[] content = "uploaded then streamed".getBytes(StandardCharsets.UTF_8);
+      String objectUrl = s3Service.uploadFile("notes.txt", "text/plain", new ByteArrayInputStream(content));
+
+      CompletableFuture<FileRequestResponse> download = s3Service.downloadFileAsync(objectUrl, null, null, null);
+
+      assertFalse(download.isDone());
+      assertArrayEquals(content, body(download.get(5, TimeUnit.SECONDS)));
+   }
+
+   private byte[] store(String key, String contentType, String text) {
+      byte[] content = text.getBytes(StandardCharsets.UTF_8);
+      s3.putObject(PutObjectRequest.builder().bucket("test-bucket").key(key).contentType(contentType).build(),
+            RequestBody.fromBytes(content));
+      return content;
+   }
+
+   private static byte[] body(FileRequestResponse response) throws IOException {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try (var content = response.getContent()) {
+         content.writeTo(out);
+      }
+      return out.toByteArray();
+   }
+
+   private static void setField(Object target, String name, Object value) throws Exception {
+      Field field = target.getClass().getDeclaredField(name);
+      field.setAccessible(true);
+      field.set(target, value);
+   }
+}
@@ -2,7 +2,10 @@ package com.beaconfire.file_service;
 
 import com.beaconfire.file_service.Controller.S3Controller;
 import com.beaconfire.file_service.DTO.FileRequestResponse;
+import com.beaconfire.file_service.Exception.UnsupportedVariantException;
+import com.beaconfire.file_service.Service.FileDeletion;
 import com.beaconfire.file_service.Service.S3Service;
+import com.beaconfire.file_service.Storage.ObjectBody;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,10 +14,18 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultMatcher;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -73,17 +84,189 @@ public class S3ControllerTest {
       String objectUrl = "http://s3-bucket-url/test.txt";
 
       FileRequestResponse mockResponse = FileRequestResponse.builder()
-            .content(fileContent.getBytes())
+            .content(ObjectBody.of(new ByteArrayInputStream(fileContent.getBytes())))
             .contentType(contentType)
+            .contentLength((long) fileContent.length())
+            .eTag("\"abc123\"")
             .build();
 
-      Mockito.when(s3Service.downloadFile(Mockito.any())).thenReturn(mockResponse);
+      Mockito.when(s3Service.downloadFile(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any()))
+            .thenReturn(mockResponse);
 
       mockMvc.perform(get("/files/download")
                   .param("objectUrl", objectUrl))
             .andExpect(status().isOk())
             .andExpect(header().string("Content-Disposition", "attachment; filename=\"test.txt\""))
+            .andExpect(header().string("Content-Length", String.valueOf(fileContent.length())))
+            .andExpect(header().string("ETag", "\"abc123\""))
+            .andExpect(header().string("Accept-Ranges", "bytes"))
             .andExpect(MockMvcResultMatchers.content().contentType(MediaType.TEXT_PLAIN))
             .andExpect(MockMvcResultMatchers.content().bytes(fileContent.getBytes()));
    }
+
+   @Test
+   void testDownloadRange() throws Exception {
+      String objectUrl = "http://s3-bucket-url/video.mp4";
+
+      FileRequestResponse mockResponse = FileRequestResponse.builder()
+            .status(206)
+            .content(ObjectBody.of(new ByteArrayInputStream("0123".getBytes())))
+            .contentType("video/mp4")
+            .contentLength(4L)
+            .contentRange("bytes 0-3/1000")
+            .build();
+
+      Mockito.when(s3Service.downloadFile(objectUrl, null, "bytes=0-3", null))
+            .thenReturn(mockResponse);
+
+      mockMvc.perform(get("/files/download")
+                  .param("objectUrl", objectUrl)
+                  .header("Range", "bytes=0-3"))
+            .andExpect(status().isPartialContent())
+            .andExpect(header().string("Content-Range", "bytes 0-3/1000"))
+            .andExpect(header().string("Content-Length", "4"))
+            .andExpect(MockMvcResultMatchers.content().bytes("0123".getBytes()));
+   }
+
+   @Test
+   void testDownloadNotModified() throws Exception {
+      String objectUrl = "http://s3-bucket-url/test.txt";
+
+      FileRequestResponse mockResponse = FileRequestResponse.builder()
+            .status(304)
+            .eTag("\"abc123\"")
+            .build();
+
+      Mockito.when(s3Service.downloadFile(objectUrl, null, null, "\"abc123\""))
+            .thenReturn(mockResponse);
+
+      mockMvc.perform(get("/files/download")
+                  .param("objectUrl", objectUrl)
+                  .header("If-None-Match", "\"abc123\""))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string("ETag", "\"abc123\""))
+            .andExpect(MockMvcResultMatchers.content().bytes(new byte[0]));
+   }
+
+   @Test
+   void testDownloadVariant() throws Exception {
+      String objectUrl = "http://s3-bucket-url/avatar.png";
+
+      FileRequestResponse mockResponse = FileRequestResponse.builder()
+            .content(ObjectBody.of(new ByteArrayInputStream("thumb".getBytes())))
+            .contentType("image/png")
+            .contentLength(5L)
+            .build();
+
+      Mockito.when(s3Service.downloadFile(objectUrl, "thumbnail", null, null))
+            .thenReturn(mockResponse);
+
+      mockMvc.perform(get("/files/download")
+                  .param("objectUrl", objectUrl)
+                  .param("size", "thumbnail"))
+            .andExpect(status().isOk())
+            .andExpect(MockMvcResultMatchers.content().bytes("thumb".getBytes()));
+   }
+
+   @Test
+   void testDownloadUnknownVariant() throws Exception {
+      Mockito.when(s3Service.downloadFile(Mockito.any(), Mockito.eq("huge"), Mockito.any(), Mockito.any()))
+            .thenThrow(new UnsupportedVariantException("Unknown image size: huge"));
+
+      mockMvc.perform(get("/files/download")
+                  .param("objectUrl", "http://s3-bucket-url/avatar.png")
+                  .param("size", "huge"))
+            .andExpect(status().isBadRequest());
+   }
+
+   @Test
+   void testDownloadBackendFailure() throws Exception {
+      Mockito.when(s3Service.downloadFile(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any()))
+            .thenThrow(new RuntimeException("S3 Error"));
+
+      mockMvc.perform(get("/files/download")
+                  .param("objectUrl", "http://s3-bucket-url/test.txt"))
+            .andExpect(status().isInternalServerError());
+   }
+
+   @Test
+   void testAsyncDownloadNotModified() throws Exception {
+      String objectUrl = "http://s3-bucket-url/test.txt";
+
+      FileRequestResponse mockResponse = FileRequestResponse.builder()
+            .status(304)
+            .eTag("\"abc123\"")
+            .build();
+
+      Mockito.when(s3Service.isAsyncDownloads()).thenReturn(true);
+      Mockito.when(s3Service.downloadFileAsync(objectUrl, null, null, "\"abc123\""))
+            .thenReturn(CompletableFuture.completedFuture(mockResponse));
+
+      MvcResult result = mockMvc.perform(get("/files/download")
+                  .param("objectUrl", objectUrl)
+                  .header("If-None-Match", "\"abc123\""))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string("ETag", "\"abc123\""))
+            .andReturn();
+
+      // The request was answered on its own async context, with no MVC async dispatch
+      assertFalse(result.getRequest().isAsyncStarted());
+      Mockito.verify(s3Service, Mockito.never()).downloadFile(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+   }
+
+   @Test
+   void testAsyncDownloadUnknownVariant() throws Exception {
+      Mockito.when(s3Service.isAsyncDownloads()).thenReturn(true);
+      Mockito.when(s3Service.downloadFileAsync(Mockito.any(), Mockito.eq("huge"), Mockito.any(), Mockito.any()))
+            .thenThrow(new UnsupportedVariantException("Unknown image size: huge"));
+
+      mockMvc.perform(get("/files/download")
+                  .param("objectUrl", "http://s3-bucket-url/avatar.png")
+                  .param("size", "huge"))
+            .andExpect(status().isBadRequest());
+   }
+
+   @Test
+   void testAsyncDownloadBackendFailure() throws Exception {
+      CompletableFuture<FileRequestResponse> pending = new CompletableFuture<>();
+      Mockito.when(s3Service.isAsyncDownloads()).thenReturn(true);
+      Mockito.when(s3Service.downloadFileAsync(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any()))
+            .thenReturn(pending);
+
+      MvcResult result = mockMvc.perform(get("/files/download")
+                  .param("objectUrl", "http://s3-bucket-url/test.txt"))
+            .andReturn();
+      assertTrue(result.getRequest().isAsyncStarted());
+
+      pending.completeExceptionally(new RuntimeException("S3 Error"));
+      assertFalse(result.getRequest().isAsyncStarted());
+      assertEquals(500, result.getResponse().getStatus());
+   }
+
+   @Test
+   void testDelete() throws Exception {
+      Mockito.when(s3Service.deleteFile("http://s3-bucket-url/test.txt")).thenReturn(FileDeletion.DELETED);
+
+      mockMvc.perform(delete("/files")
+                  .param("objectUrl", "http://s3-bucket-url/test.txt"))
+            .andExpect(status().isNoContent());
+   }
+
+   @Test
+   void testDeleteSharedContentOnlyReleasesIt() throws Exception {
+      Mockito.when(s3Service.deleteFile(Mockito.any())).thenReturn(FileDeletion.RELEASED);
+
+      mockMvc.perform(delete("/files")
+                  .param("objectUrl", "http://s3-bucket-url/shared.png"))
+            .andExpect(status().isAccepted());
+   }
+
+   @Test
+   void testDeleteUntrackedContentDeletesNothing() throws Exception {
+      Mockito.when(s3Service.deleteFile(Mockito.any())).thenReturn(FileDeletion.UNTRACKED);
+
+      mockMvc.perform(delete("/files")
+                  .param("objectUrl", "http://s3-bucket-url/untracked.png"))
+            .andExpect(status().isConflict());
+   }
 }
@@ -0,0 +1,145 @@
+package com.beaconfire.file_service;
+
+import com.beaconfire.file_service.Exception.FileTooLargeException;
+import com.beaconfire.file_service.Service.S3MultipartUploader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Surefire runs this module with a 256 MB heap, so the 1 GB uploads below only pass if the
+ * uploader really streams instead of buffering the file.
+ */
+public class S3MultipartUploaderTest {
+
+   private static final long ONE_GB = DataSize.ofGigabytes(1).toBytes();
+
+   private S3MultipartUploader uploader;
+
+   @AfterEach
+   public void tearDown() {
+      if (uploader != null) {
+         uploader.shutdown();
+      }
+   }
+
+   @Test
+   void testSmallFileUsesSinglePut() throws Exception {
+      LocalS3StandIn s3 = new LocalS3StandIn(true);
+      uploader = new S3MultipartUploader(s3, DataSize.ofMegabytes(5), 4, DataSize.ofGigabytes(2), 4);
+      byte[] content = "Test Content".getBytes(StandardCharsets.UTF_8);
+
+      long size = uploader.upload("test-bucket", "small.txt", "text/plain", new ByteArrayInputStream(content));
+
+      assertEquals(content.length, size);
+      assertEquals(1, s3.getPutObjectCalls());
+      assertArrayEquals(content, s3.getStoredObject("small.txt").content());
+   }
+
+   @Test
+   void testMultipartKeepsPartOrder() throws Exception {
+      LocalS3StandIn s3 = new LocalS3StandIn(true);
+      uploader = new S3MultipartUploader(s3, DataSize.ofMegabytes(5), 3, DataSize.ofGigabytes(2), 4);
+      byte[] content = new byte[(int) DataSize.ofMegabytes(23).toBytes()];
+      for (int i = 0; i < content.length; i++) {
+         content[i] = (byte) (i / 1024);
+      }
+
+      long size = uploader.upload("test-bucket", "medium.bin", "application/octet-stream", new ByteArrayInputStream(content));
+
+      assertEquals(content.length, size);
+      assertEquals(0, s3.getPutObjectCalls());
+      assertArrayEquals(content, s3.getStoredObject("medium.bin").content());
+   }
+
+   @Test
+   void testOneGigabyteUploadStaysWithinMemoryBudget() throws Exception {
+      LocalS3StandIn s3 = new LocalS3StandIn(false);
+      uploader = new S3MultipartUploader(s3, DataSize.ofMegabytes(8), 4, DataSize.ofGigabytes(2), 8);
+
+      long size = uploader.upload("test-bucket", "large.bin", "video/mp4", new GeneratedInputStream(ONE_GB));
+
+      assertEquals(ONE_GB, size);
+      assertEquals(ONE_GB, s3.getStoredObject("large.bin").size());
+      assertTrue(s3.getMaxPartsInFlight() <= 4);
+   }
+
+   @Test
+   void testConcurrentOneGigabyteUploads() throws Exception {
+      LocalS3StandIn s3 = new LocalS3StandIn(false);
+      uploader = new S3MultipartUploader(s3, DataSize.ofMegabytes(8), 4, DataSize.ofGigabytes(2), 8);
+
+      Thread[] uploads = new Thread[3];
+      Throwable[] failures = new Throwable[uploads.length];
+      for (int i = 0; i < uploads.length; i++) {
+         int index = i;
+         uploads[i] = new Thread(() -> {
+            try {
+               uploader.upload("test-bucket", "large-" + index + ".bin", "video/mp4", new GeneratedInputStream(ONE_GB));
+            }
+            catch (Throwable t) {
+               failures[index] = t;
+            }
+         });
+         uploads[i].start();
+      }
+      for (Thread upload : uploads) {
+         upload.join();
+      }
+
+      for (int i = 0; i < uploads.length; i++) {
+         assertNull(failures[i]);
+         assertEquals(ONE_GB, s3.getStoredObject("large-" + i + ".bin").size());
+      }
+   }
+
+   @Test
+   void testUploadAbortedWhenTooLarge() {
+      LocalS3StandIn s3 = new LocalS3StandIn(false);
+      uploader = new S3MultipartUploader(s3, DataSize.ofMegabytes(5), 2, DataSize.ofMegabytes(12), 2);
+
+      assertThrows(FileTooLargeException.class,
+            () -> uploader.upload("test-bucket", "too-large.bin", "application/octet-stream",
+                  new GeneratedInputStream(DataSize.ofMegabytes(20).toBytes())));
+      assertEquals(1, s3.getAbortedUploads().size());
+      assertNull(s3.getStoredObject("too-large.bin"));
+   }
+
+   /**
+    * Produces {@code size} bytes without ever holding them.
+    */
+   static class GeneratedInputStream extends InputStream {
+      private long remaining;
+
+      GeneratedInputStream(long size) {
+         this.remaining = size;
+      }
+
+      @Override
+      public int read() {
+         if (remaining <= 0) {
+            return -1;
+         }
+         remaining--;
+         return 'x';
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) {
+         if (remaining <= 0) {
+            return -1;
+         }
+         int count = (int) Math.min(len, remaining);
+         Arrays.fill(b, off, off + count, (byte) 'x');
+         remaining -= count;
+         return count;
+      }
+   }
+}
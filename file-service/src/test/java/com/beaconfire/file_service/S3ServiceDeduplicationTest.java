@@ -0,0 +1,147 @@
+package com.beaconfire.file_service;
+
+import com.beaconfire.file_service.Service.ContentReferences;
+import com.beaconfire.file_service.Service.FileDeletion;
+import com.beaconfire.file_service.Service.ImageVariantService;
+import com.beaconfire.file_service.Service.S3MultipartUploader;
+import com.beaconfire.file_service.Service.S3Service;
+import com.beaconfire.file_service.Storage.S3StorageBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class S3ServiceDeduplicationTest {
+
+   private LocalS3StandIn s3;
+   private S3MultipartUploader uploader;
+   private S3StorageBackend storage;
+   private S3Service s3Service;
+
+   @BeforeEach
+   public void setUp() throws Exception {
+      s3 = new LocalS3StandIn(true);
+      uploader = new S3MultipartUploader(s3, DataSize.ofMegabytes(5), 2, DataSize.ofGigabytes(1), 2);
+      storage = new S3StorageBackend(s3, uploader, null);
+      Field bucketNameField = S3StorageBackend.class.getDeclaredField("bucketName");
+      bucketNameField.setAccessible(true);
+      bucketNameField.set(storage, "test-bucket");
+
+      s3Service = newService();
+   }
+
+   @AfterEach
+   public void tearDown() {
+      uploader.shutdown();
+   }
+
+   @Test
+   void testSmallDuplicateIsNotUploadedAgain() throws Exception {
+      byte[] content = "same avatar".getBytes(StandardCharsets.UTF_8);
+
+      String first = s3Service.uploadFile("avatar.png", "image/png", new ByteArrayInputStream(content));
+      String second = s3Service.uploadFile("other-name.png", "image/png", new ByteArrayInputStream(content));
+
+      String expectedKey = sha256(content) + ".png";
+      assertEquals(first, second);
+      assertTrue(first.endsWith("/" + expectedKey));
+      assertEquals(1, s3.getPutObjectCallsOutside("refs/"));
+   }
+
+   @Test
+   void testLargeDuplicateKeepsSingleObject() throws Exception {
+      byte[] content = new byte[(int) DataSize.ofMegabytes(12).toBytes()];
+      for (int i = 0; i < content.length; i++) {
+         content[i] = (byte) (i % 251);
+      }
+
+      String first = s3Service.uploadFile("video.mp4", "video/mp4", new ByteArrayInputStream(content));
+      String second = s3Service.uploadFile("video.mp4", "video/mp4", new ByteArrayInputStream(content));
+
+      String expectedKey = sha256(content) + ".mp4";
+      assertEquals(first, second);
+      assertArrayEquals(content, s3.getStoredObject(expectedKey).content());
+      // Staging objects are always cleaned up, leaving the object and a reference per upload
+      assertEquals(Set.of(expectedKey), s3.getKeys().stream()
+            .filter(key -> !key.startsWith("refs/"))
+            .collect(Collectors.toSet()));
+   }
+
+   @Test
+   void testExistingObjectFoundAfterRestart() throws Exception {
+      byte[] content = "uploaded before restart".getBytes(StandardCharsets.UTF_8);
+      s3Service.uploadFile("meme.gif", "image/gif", new ByteArrayInputStream(content));
+
+      S3Service restarted = newService();
+      restarted.uploadFile("meme.gif", "image/gif", new ByteArrayInputStream(content));
+
+      assertEquals(1, s3.getPutObjectCallsOutside("refs/"));
+   }
+
+   @Test
+   void testDeleteKeepsSharedContentUntilLastReference() throws Exception {
+      byte[] content = "shared meme".getBytes(StandardCharsets.UTF_8);
+      String url = s3Service.uploadFile("meme.gif", "image/gif", new ByteArrayInputStream(content));
+      s3Service.uploadFile("meme.gif", "image/gif", new ByteArrayInputStream(content));
+      String key = sha256(content) + ".gif";
+
+      // The count lives in the bucket, so a restarted or second instance releases the same one
+      assertEquals(FileDeletion.RELEASED, newService().deleteFile(url));
+      assertNotNull(s3.getStoredObject(key));
+
+      assertEquals(FileDeletion.DELETED, s3Service.deleteFile(url));
+      assertNull(s3.getStoredObject(key));
+      assertEquals(Set.of(), s3.getKeys());
+   }
+
+   @Test
+   void testLargeUploadsAreCountedToo() throws Exception {
+      byte[] content = new byte[(int) DataSize.ofMegabytes(6).toBytes()];
+      String url = s3Service.uploadFile("video.mp4", "video/mp4", new ByteArrayInputStream(content));
+      s3Service.uploadFile("video.mp4", "video/mp4", new ByteArrayInputStream(content));
+
+      assertEquals(FileDeletion.RELEASED, s3Service.deleteFile(url));
+      assertEquals(FileDeletion.DELETED, s3Service.deleteFile(url));
+      assertNull(s3.getStoredObject(sha256(content) + ".mp4"));
+   }
+
+   @Test
+   void testUntrackedContentIsNotDeleted() throws Exception {
+      byte[] content = "stored before references were kept".getBytes(StandardCharsets.UTF_8);
+      String key = sha256(content) + ".png";
+      storage.put(key, "image/png", new ByteArrayInputStream(content));
+
+      assertEquals(FileDeletion.UNTRACKED, s3Service.deleteFile("http://bucket/" + key));
+      assertNotNull(s3.getStoredObject(key));
+   }
+
+   @Test
+   void testDeleteRemovesObjectUnderItsOwnKey() throws Exception {
+      storage.put("3f2b6c1e-0d1a-4c55-9a43-5b1f2e7c8d90.png", "image/png",
+            new ByteArrayInputStream("direct upload".getBytes(StandardCharsets.UTF_8)));
+
+      assertEquals(FileDeletion.DELETED, s3Service.deleteFile("http://bucket/3f2b6c1e-0d1a-4c55-9a43-5b1f2e7c8d90.png"));
+      assertNull(s3.getStoredObject("3f2b6c1e-0d1a-4c55-9a43-5b1f2e7c8d90.png"));
+   }
+
+   private S3Service newService() throws Exception {
+      return new S3Service(storage, Caches.disabled(storage), new ContentReferences(storage),
+            mock(ImageVariantService.class),
+            DataSize.ofMegabytes(5), DataSize.ofGigabytes(1));
+   }
+
+   private String sha256(byte[] content) throws Exception {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+   }
+}
@@ -1,23 +1,35 @@
 package com.beaconfire.file_service;
 
 import com.beaconfire.file_service.DTO.FileRequestResponse;
+import com.beaconfire.file_service.Service.ContentReferences;
+import com.beaconfire.file_service.Service.ImageVariantService;
+import com.beaconfire.file_service.Service.S3MultipartUploader;
 import com.beaconfire.file_service.Service.S3Service;
+import com.beaconfire.file_service.Storage.S3StorageBackend;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.TestPropertySource;
-import software.amazon.awssdk.core.ResponseBytes;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.http.AbortableInputStream;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3Utilities;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.GetUrlRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 
 import java.lang.reflect.Field;
 import java.net.URL;
@@ -36,16 +48,23 @@ public class S3ServiceTest {
    @Mock
    private S3Client s3Client;
 
-   @InjectMocks
    private S3Service s3Service;
 
    @BeforeEach
    public void setUp() throws Exception {
       MockitoAnnotations.openMocks(this);
-
-      Field bucketNameField = S3Service.class.getDeclaredField("bucketName");
+      S3StorageBackend storage = new S3StorageBackend(s3Client,
+            new S3MultipartUploader(s3Client, DataSize.ofMegabytes(8), 2, DataSize.ofGigabytes(2), 2), null);
+      s3Service = new S3Service(storage,
+            Caches.disabled(storage),
+            mock(ContentReferences.class),
+            mock(ImageVariantService.class),
+            DataSize.ofMegabytes(8),
+            DataSize.ofGigabytes(2));
+
+      Field bucketNameField = S3StorageBackend.class.getDeclaredField("bucketName");
       bucketNameField.setAccessible(true);
-      bucketNameField.set(s3Service, "test-bucket");
+      bucketNameField.set(storage, "test-bucket");
    }
 
    @Test
@@ -66,6 +85,8 @@ public class S3ServiceTest {
       when(mockS3Utilities.getUrl(any(GetUrlRequest.class))).thenReturn(new URL(expectedUrl));
 
       // Mock S3Client behavior
+      when(s3Client.headObject(any(HeadObjectRequest.class)))
+            .thenThrow(NoSuchKeyException.builder().statusCode(404).build());
       when(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
             .thenReturn(null);
 
@@ -79,33 +100,70 @@ public class S3ServiceTest {
    }
 
    @Test
-   void testDownloadFile_Success() {
+   void testDownloadFile_Success() throws Exception {
       // Arrange
       String objectUrl = "http://s3-bucket-url/unique-key.txt";
-      String bucketName = "test-bucket";
-      String uniqueKey = "unique-key.txt";
       byte[] fileContent = "Test Content".getBytes(StandardCharsets.UTF_8);
       String contentType = "text/plain";
 
-      // Mock S3Client behavior
-      ResponseBytes<GetObjectResponse> mockResponse = mock(ResponseBytes.class);
-      when(mockResponse.asByteArray()).thenReturn(fileContent);
-
       GetObjectResponse mockMetadata = GetObjectResponse.builder()
             .contentType(contentType)
+            .contentLength((long) fileContent.length)
+            .eTag("\"abc123\"")
             .build();
-      when(mockResponse.response()).thenReturn(mockMetadata);
 
-      when(s3Client.getObject(any(GetObjectRequest.class), any(ResponseTransformer.class)))
-            .thenReturn(mockResponse);
+      when(s3Client.getObject(any(GetObjectRequest.class)))
+            .thenReturn(new ResponseInputStream<>(mockMetadata,
+                  AbortableInputStream.create(new ByteArrayInputStream(fileContent))));
 
       // Act
       FileRequestResponse result = s3Service.downloadFile(objectUrl);
 
       // Assert
       assertNotNull(result);
-      assertArrayEquals(fileContent, result.getContent());
+      assertEquals(200, result.getStatus());
+      ByteArrayOutputStream body = new ByteArrayOutputStream();
+      result.getContent().writeTo(body);
+      assertArrayEquals(fileContent, body.toByteArray());
       assertEquals(contentType, result.getContentType());
-      verify(s3Client, times(1)).getObject(any(GetObjectRequest.class), any(ResponseTransformer.class));
+      assertEquals(fileContent.length, result.getContentLength());
+      assertEquals("\"abc123\"", result.getETag());
+      verify(s3Client, times(1)).getObject(any(GetObjectRequest.class));
+      verify(s3Client, never()).getObject(any(GetObjectRequest.class), any(ResponseTransformer.class));
+   }
+
+   @Test
+   void testDownloadFile_Range() {
+      String objectUrl = "http://s3-bucket-url/unique-key.mp4";
+
+      GetObjectResponse mockMetadata = GetObjectResponse.builder()
+            .contentType("video/mp4")
+            .contentLength(4L)
+            .contentRange("bytes 0-3/1000")
+            .build();
+      when(s3Client.getObject(any(GetObjectRequest.class)))
+            .thenReturn(new ResponseInputStream<>(mockMetadata,
+                  AbortableInputStream.create(new ByteArrayInputStream("0123".getBytes()))));
+
+      FileRequestResponse result = s3Service.downloadFile(objectUrl, "bytes=0-3", null);
+
+      ArgumentCaptor<GetObjectRequest> captor = ArgumentCaptor.forClass(GetObjectRequest.class);
+      verify(s3Client).getObject(captor.capture());
+      assertEquals("bytes=0-3", captor.getValue().range());
+      assertEquals(206, result.getStatus());
+      assertEquals("bytes 0-3/1000", result.getContentRange());
+   }
+
+   @Test
+   void testDownloadFile_NotModified() {
+      String objectUrl = "http://s3-bucket-url/unique-key.txt";
+
+      when(s3Client.getObject(any(GetObjectRequest.class)))
+            .thenThrow(S3Exception.builder().statusCode(304).build());
+
+      FileRequestResponse result = s3Service.downloadFile(objectUrl, null, "\"abc123\"");
+
+      assertEquals(304, result.getStatus());
+      assertNull(result.getContent());
    }
 }
@@ -0,0 +1,153 @@
+package com.beaconfire.file_service.benchmark;
+
+import com.beaconfire.file_service.DTO.FileRequestResponse;
+import com.beaconfire.file_service.LatentS3AsyncStandIn;
+import com.beaconfire.file_service.LocalS3StandIn;
+import com.beaconfire.file_service.Service.S3MultipartUploader;
+import com.beaconfire.file_service.Storage.S3StorageBackend;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A burst of concurrent downloads against an S3 stand-in that answers after a fixed latency,
+ * served by the same small pool of request threads. Blocking reads hold a thread per outstanding
+ * download, async reads hand the wait to the client's event loop.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.beaconfire.file_service.benchmark.AsyncDownloadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AsyncDownloadBenchmark {
+
+   private static final String KEY = "avatar.png";
+
+   @Param({"20"})
+   private long latencyMillis;
+
+   @Param({"64"})
+   private int concurrentDownloads;
+
+   @Param({"8"})
+   private int requestThreads;
+
+   private LatentS3AsyncStandIn s3Async;
+   private S3MultipartUploader uploader;
+   private S3StorageBackend storage;
+   private ExecutorService requestPool;
+   private ExecutorService writerPool;
+
+   @Setup
+   public void setUp() throws Exception {
+      LocalS3StandIn s3 = new LatentS3StandIn(latencyMillis);
+      s3.putObject(PutObjectRequest.builder().key(KEY).contentType("image/png").build(),
+            RequestBody.fromBytes(new byte[16 * 1024]));
+      s3Async = new LatentS3AsyncStandIn(s3, latencyMillis);
+      uploader = new S3MultipartUploader(s3, DataSize.ofMegabytes(5), 1, DataSize.ofMegabytes(64), 1);
+      storage = new S3StorageBackend(s3, uploader, s3Async);
+      Field bucketName = S3StorageBackend.class.getDeclaredField("bucketName");
+      bucketName.setAccessible(true);
+      bucketName.set(storage, "benchmark-bucket");
+
+      requestPool = Executors.newFixedThreadPool(requestThreads);
+      writerPool = Executors.newFixedThreadPool(requestThreads);
+   }
+
+   @TearDown
+   public void tearDown() {
+      requestPool.shutdownNow();
+      writerPool.shutdownNow();
+      uploader.shutdown();
+      s3Async.close();
+   }
+
+   @Benchmark
+   public long blockingDownloads() throws Exception {
+      List<Future<Long>> downloads = new ArrayList<>();
+      for (int i = 0; i < concurrentDownloads; i++) {
+         downloads.add(requestPool.submit(() -> drain(storage.read(KEY, null, null))));
+      }
+      long total = 0;
+      for (Future<Long> download : downloads) {
+         total += download.get();
+      }
+      return total;
+   }
+
+   @Benchmark
+   public long asyncDownloads() throws Exception {
+      List<CompletableFuture<Long>> downloads = new ArrayList<>();
+      for (int i = 0; i < concurrentDownloads; i++) {
+         downloads.add(CompletableFuture
+               .supplyAsync(() -> storage.readAsync(KEY, null, null), requestPool)
+               .thenCompose(response -> response)
+               .thenApplyAsync(AsyncDownloadBenchmark::drain, writerPool));
+      }
+      long total = 0;
+      for (CompletableFuture<Long> download : downloads) {
+         total += download.get();
+      }
+      return total;
+   }
+
+   private static long drain(FileRequestResponse response) {
+      try (var content = response.getContent()) {
+         return content.writeTo(OutputStream.nullOutputStream());
+      }
+      catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   /**
+    * Blocking stand-in that holds the calling thread for the latency, as a synchronous client does.
+    */
+   static class LatentS3StandIn extends LocalS3StandIn {
+      private final long latencyMillis;
+
+      LatentS3StandIn(long latencyMillis) {
+         super(true);
+         this.latencyMillis = latencyMillis;
+      }
+
+      @Override
+      public <ReturnT> ReturnT getObject(GetObjectRequest request,
+                                         ResponseTransformer<GetObjectResponse, ReturnT> transformer) {
+         try {
+            Thread.sleep(latencyMillis);
+         }
+         catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+         return super.getObject(request, transformer);
+      }
+   }
+
+   public static void main(String[] args) throws RunnerException {
+      new Runner(new OptionsBuilder()
+            .include(AsyncDownloadBenchmark.class.getSimpleName())
+            .build()).run();
+   }
+}
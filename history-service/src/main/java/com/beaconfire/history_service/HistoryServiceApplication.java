@@ -6,12 +6,14 @@ import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cloud.openfeign.EnableFeignClients;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableDiscoveryClient
 @EnableFeignClients(basePackages = "com.beaconfire.history_service.feign")
 @EnableCaching
 @EnableAspectJAutoProxy
+@EnableScheduling
 public class HistoryServiceApplication {
 	public static void main(String[] args) {
 		System.out.print("HISTORY SERVICE RUNNING XXXXX");
@@ -0,0 +1,25 @@
+package com.beaconfire.history_service.aop;
+
+import com.beaconfire.history_service.dto.ServiceResponse;
+import com.beaconfire.history_service.feign.LastKnownResponses;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps successful Feign responses for the fallbacks.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class FeignResponseAspect {
+    private final LastKnownResponses lastKnownResponses;
+
+    @AfterReturning(pointcut = "execution(* com.beaconfire.history_service.feign.*FeignClient.*(..))", returning = "response")
+    public void recordResponse(JoinPoint joinPoint, ServiceResponse<?> response) {
+        lastKnownResponses.record(joinPoint.getSignature().getDeclaringType(),
+                joinPoint.getSignature().getName(), joinPoint.getArgs(), response);
+    }
+}
@@ -0,0 +1,36 @@
+package com.beaconfire.history_service.config;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts circuit breaker state transitions as feign.circuitbreaker.transitions, tagged with the
+ * breaker name and the states left and entered. Breaker state, call and bulkhead gauges come
+ * from resilience4j-micrometer.
+ */
+@Component
+@Slf4j
+public class CircuitBreakerMetrics {
+    private final MeterRegistry meterRegistry;
+
+    public CircuitBreakerMetrics(CircuitBreakerRegistry circuitBreakerRegistry, MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        circuitBreakerRegistry.getAllCircuitBreakers().forEach(this::bind);
+        circuitBreakerRegistry.getEventPublisher().onEntryAdded(event -> bind(event.getAddedEntry()));
+    }
+
+    private void bind(CircuitBreaker circuitBreaker) {
+        circuitBreaker.getEventPublisher().onStateTransition(event -> {
+            CircuitBreaker.StateTransition transition = event.getStateTransition();
+            log.warn("Circuit breaker {} went from {} to {}", event.getCircuitBreakerName(),
+                    transition.getFromState(), transition.getToState());
+            meterRegistry.counter("feign.circuitbreaker.transitions",
+                    "name", event.getCircuitBreakerName(),
+                    "from", transition.getFromState().name(),
+                    "to", transition.getToState().name()).increment();
+        });
+    }
+}
@@ -4,13 +4,12 @@ import feign.Retryer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.concurrent.TimeUnit;
-
 @Configuration
 public class FeignConfig {
 
+    // One quick retry; repeated failures are left to the circuit breaker instead of piling up
     @Bean
     public Retryer retryer() {
-        return new Retryer.Default(100, TimeUnit.SECONDS.toMillis(1), 3);
+        return new Retryer.Default(100, 250, 2);
     }
 }
\ No newline at end of file
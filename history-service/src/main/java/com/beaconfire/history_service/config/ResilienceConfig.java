@@ -0,0 +1,80 @@
+package com.beaconfire.history_service.config;
+
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.ThreadPoolBulkheadConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JCircuitBreakerFactory;
+import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JConfigBuilder;
+import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4jBulkheadConfigurationBuilder;
+import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4jBulkheadProvider;
+import org.springframework.cloud.client.circuitbreaker.Customizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import java.time.Duration;
+
+/**
+ * Circuit breaker and bulkhead settings shared by the Feign clients. Each client method gets its
+ * own breaker and bulkhead with these settings; connect and read timeouts are set per client in
+ * the spring.cloud.openfeign.client.config properties.
+ */
+@Configuration
+public class ResilienceConfig {
+
+    @Value("${feign.resilience.failure-rate-threshold:50}")
+    private float failureRateThreshold = 50;
+
+    @Value("${feign.resilience.slow-call-duration:1500ms}")
+    private Duration slowCallDuration = Duration.ofMillis(1500);
+
+    @Value("${feign.resilience.sliding-window-size:20}")
+    private int slidingWindowSize = 20;
+
+    @Value("${feign.resilience.wait-in-open-state:10s}")
+    private Duration waitInOpenState = Duration.ofSeconds(10);
+
+    @Value("${feign.resilience.time-limit:5s}")
+    private Duration timeLimit = Duration.ofSeconds(5);
+
+    @Value("${feign.resilience.max-concurrent-calls:20}")
+    private int maxConcurrentCalls = 20;
+
+    @Bean
+    public Customizer<Resilience4JCircuitBreakerFactory> circuitBreakerCustomizer() {
+        return factory -> factory.configureDefault(id -> new Resilience4JConfigBuilder(id)
+                .circuitBreakerConfig(CircuitBreakerConfig.custom()
+                        .slidingWindowSize(slidingWindowSize)
+                        .minimumNumberOfCalls(Math.min(10, slidingWindowSize))
+                        .failureRateThreshold(failureRateThreshold)
+                        .slowCallDurationThreshold(slowCallDuration)
+                        .slowCallRateThreshold(failureRateThreshold)
+                        .waitDurationInOpenState(waitInOpenState)
+                        .permittedNumberOfCallsInHalfOpenState(3)
+                        .build())
+                // Longer than connect plus read timeout and the retry; only a stuck call hits it
+                .timeLimiterConfig(TimeLimiterConfig.custom()
+                        .timeoutDuration(timeLimit)
+                        .build())
+                .build());
+    }
+
+    /**
+     * A call that finds every permit taken fails at once instead of queueing, and is answered by
+     * the client's fallback.
+     */
+    @Bean
+    public Customizer<Resilience4jBulkheadProvider> bulkheadCustomizer() {
+        return provider -> provider.configureDefault(id -> new Resilience4jBulkheadConfigurationBuilder()
+                .bulkheadConfig(BulkheadConfig.custom()
+                        .maxConcurrentCalls(maxConcurrentCalls)
+                        .maxWaitDuration(Duration.ZERO)
+                        .build())
+                .threadPoolBulkheadConfig(ThreadPoolBulkheadConfig.custom()
+                        .coreThreadPoolSize(maxConcurrentCalls)
+                        .maxThreadPoolSize(maxConcurrentCalls)
+                        .queueCapacity(1)
+                        .build())
+                .build());
+    }
+}
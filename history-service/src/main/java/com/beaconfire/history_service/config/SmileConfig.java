@@ -0,0 +1,33 @@
+package com.beaconfire.history_service.config;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import feign.RequestInterceptor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Smile is Jackson's binary encoding of the JSON data model, so the same DTOs travel in either.
+ * The converter reads and writes application/x-jackson-smile with Boot's Jackson settings and is
+ * ordered after JSON, so only callers that ask for Smile get it. With feign.codec.smile.enabled,
+ * Feign clients ask for Smile first and JSON second, for services that cannot produce Smile.
+ */
+@Configuration
+public class SmileConfig {
+
+    static final String SMILE_FIRST = "application/x-jackson-smile, application/json;q=0.9";
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "feign.codec.smile.enabled", havingValue = "true")
+    public RequestInterceptor smileAcceptInterceptor() {
+        return template -> template.removeHeader(HttpHeaders.ACCEPT).header(HttpHeaders.ACCEPT, SMILE_FIRST);
+    }
+}
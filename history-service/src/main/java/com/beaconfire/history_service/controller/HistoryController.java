@@ -1,14 +1,22 @@
 package com.beaconfire.history_service.controller;
 
 import com.beaconfire.history_service.dto.HistoryCreateDTO;
+import com.beaconfire.history_service.dto.HistoryPageDTO;
 import com.beaconfire.history_service.dto.HistoryResponseDTO;
 import com.beaconfire.history_service.service.HistoryService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.headers.Header;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.context.config.annotation.RefreshScope;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RefreshScope
@@ -16,6 +24,8 @@ import java.util.List;
 @RequestMapping("/history")
 @Slf4j
 public class HistoryController {
+    static final String NEXT_BEFORE_HEADER = "X-Next-Before";
+
     private final HistoryService historyService;
 
     @Value("${user.role}")
@@ -25,11 +35,40 @@ public class HistoryController {
         this.historyService = historyService;
     }
 
+    /**
+     * Newest first, one page at a time. The X-Next-Before header carries the cursor for the next
+     * page and is absent on the last one.
+     */
+    @Operation(
+            summary = "Get a user's history",
+            description = "One page of the user's viewed posts, newest first. Responses are always paged: without "
+                    + "limit a page holds history.page.default-limit entries (50), so a client that wants the "
+                    + "whole history must follow the X-Next-Before header, passing it as before, until it is absent."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "History page fetched successfully",
+                    headers = @Header(name = NEXT_BEFORE_HEADER,
+                            description = "Cursor for the next page, \"<view date>_<history ID>\"; absent on the last page")),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor")
+    })
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<HistoryResponseDTO>> getUserHistory(
-            @PathVariable Integer userId) {
+            @PathVariable Integer userId,
+            @Parameter(description = "Start of the window, inclusive")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "End of the window, exclusive")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "X-Next-Before of the previous page, or a date-time to list the views before it")
+            @RequestParam(required = false) String before,
+            @Parameter(description = "Page size, default 50, at most 200")
+            @RequestParam(required = false) Integer limit) {
         log.info("Received request to get history for user {}", userId);
-        return ResponseEntity.ok(historyService.getUserHistory(userId));
+        HistoryPageDTO page = historyService.getUserHistory(userId, from, to, before, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextBefore() != null) {
+            response.header(NEXT_BEFORE_HEADER, page.getNextBefore());
+        }
+        return response.body(page.getItems());
     }
 
     @GetMapping("/config")
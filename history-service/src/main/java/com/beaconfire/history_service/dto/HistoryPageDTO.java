@@ -0,0 +1,18 @@
+package com.beaconfire.history_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistoryPageDTO {
+    private List<HistoryResponseDTO> items;
+
+    // "<view date>_<history ID>" of the last row; pass as "before" to get the next page, null on the last page
+    private String nextBefore;
+}
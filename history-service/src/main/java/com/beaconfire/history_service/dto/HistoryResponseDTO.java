@@ -21,4 +21,7 @@ public class HistoryResponseDTO {
     private String postTitle;
     private String authorName;
     private Integer authorId;
+
+    // Post or author details could not be loaded in time; the entry carries what is known
+    private boolean partial;
 }
\ No newline at end of file
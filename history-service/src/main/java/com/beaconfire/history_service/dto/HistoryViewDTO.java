@@ -0,0 +1,17 @@
+package com.beaconfire.history_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistoryViewDTO {
+    private Integer userId;
+    private String postId;
+    private LocalDateTime viewDate;
+}
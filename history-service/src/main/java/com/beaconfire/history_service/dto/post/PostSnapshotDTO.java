@@ -0,0 +1,21 @@
+package com.beaconfire.history_service.dto.post;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The post details stored with each history row of the post.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostSnapshotDTO {
+    private String postId;
+    private String title;
+    private Integer authorId;
+    private String authorName;
+    private String accessibility;
+}
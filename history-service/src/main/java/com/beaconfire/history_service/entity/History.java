@@ -8,7 +8,14 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "history")
+@Table(name = "history",
+        uniqueConstraints = @UniqueConstraint(name = "uk_history_user_post", columnNames = {"user_id", "post_id"}),
+        indexes = {
+                @Index(name = "idx_history_user_view_date", columnList = "user_id, view_date"),
+                @Index(name = "idx_history_view_date", columnList = "view_date"),
+                @Index(name = "idx_history_post", columnList = "post_id"),
+                @Index(name = "idx_history_snapshot_at", columnList = "snapshot_at")
+        })
 @Data
 @Builder
 @NoArgsConstructor
@@ -18,15 +25,27 @@ public class History {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer historyId;
 
-    @Column(nullable = false)
+    @Column(name = "user_id", nullable = false)
     private Integer userId;
 
-    @Column(nullable = false)
+    @Column(name = "post_id", nullable = false)
     private String postId;
 
-    @Column(nullable = false)
+    @Column(name = "view_date", nullable = false)
     private LocalDateTime viewDate;
 
+    // Snapshot of the post, written by HistorySnapshotRefresher; null until the first refresh
+    private String postTitle;
+
+    private Integer authorId;
+
+    private String authorName;
+
+    private String postAccessibility;
+
+    @Column(name = "snapshot_at")
+    private LocalDateTime snapshotAt;
+
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
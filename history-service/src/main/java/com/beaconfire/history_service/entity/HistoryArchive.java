@@ -0,0 +1,42 @@
+package com.beaconfire.history_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * History rows past the retention period, moved here by the retention job. Not read by the
+ * service; kept for reporting and restores.
+ */
+@Entity
+@Table(name = "history_archive",
+        indexes = @Index(name = "idx_history_archive_user", columnList = "user_id"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistoryArchive {
+    @Id
+    private Integer historyId;
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Column(name = "post_id", nullable = false)
+    private String postId;
+
+    @Column(name = "view_date", nullable = false)
+    private LocalDateTime viewDate;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(nullable = false)
+    private LocalDateTime archivedAt;
+}
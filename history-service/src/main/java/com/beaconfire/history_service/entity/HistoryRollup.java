@@ -0,0 +1,32 @@
+package com.beaconfire.history_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * One row per user summing up the history rows archived so far.
+ */
+@Entity
+@Table(name = "history_rollup")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistoryRollup {
+    @Id
+    @Column(name = "user_id")
+    private Integer userId;
+
+    @Column(nullable = false)
+    private Long archivedViews;
+
+    @Column(nullable = false)
+    private LocalDateTime firstViewDate;
+
+    @Column(nullable = false)
+    private LocalDateTime lastViewDate;
+}
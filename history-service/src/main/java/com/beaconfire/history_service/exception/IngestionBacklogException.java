@@ -0,0 +1,7 @@
+package com.beaconfire.history_service.exception;
+
+public class IngestionBacklogException extends RuntimeException {
+    public IngestionBacklogException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,66 @@
+package com.beaconfire.history_service.feign;
+
+import com.beaconfire.history_service.dto.ServiceResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The latest successful response of each Feign call, by client, method and arguments, for
+ * fallbacks to serve while a service is unavailable. Bounded by entry count and age, least
+ * recently used entries first out.
+ */
+@Component
+public class LastKnownResponses {
+    private final Duration maxAge;
+    private final Map<String, Entry> entries;
+
+    public LastKnownResponses(@Value("${feign.fallback.max-entries:1000}") int maxEntries,
+                              @Value("${feign.fallback.max-age:5m}") Duration maxAge) {
+        this.maxAge = maxAge;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Keeps a successful response. A response served from here is not stored again, so its age
+     * keeps counting from the real call.
+     */
+    public synchronized void record(Class<?> client, String method, Object[] args, ServiceResponse<?> response) {
+        if (response == null || !response.isSuccess()) {
+            return;
+        }
+        String key = key(client, method, args);
+        Entry current = entries.get(key);
+        if (current == null || current.response() != response) {
+            entries.put(key, new Entry(response, System.nanoTime()));
+        }
+    }
+
+    /**
+     * The caller names the method, so the payload has the type that method returns.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> Optional<ServiceResponse<T>> find(Class<?> client, String method, Object... args) {
+        Entry entry = entries.get(key(client, method, args));
+        if (entry == null || System.nanoTime() - entry.recordedNanos() > maxAge.toNanos()) {
+            return Optional.empty();
+        }
+        return Optional.of((ServiceResponse<T>) entry.response());
+    }
+
+    private static String key(Class<?> client, String method, Object[] args) {
+        return client.getSimpleName() + "." + method + Arrays.deepToString(args);
+    }
+
+    private record Entry(ServiceResponse<?> response, long recordedNanos) {
+    }
+}
@@ -4,11 +4,20 @@ import com.beaconfire.history_service.config.FeignConfig;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 
-import com.beaconfire.history_service.dto.DataResponse;
+import java.util.List;
 
-@FeignClient(name = "posts-service", path = "/posts", configuration = FeignConfig.class)
+import com.beaconfire.history_service.dto.ServiceResponse;
+import com.beaconfire.history_service.dto.post.PostDTO;
+
+@FeignClient(name = "posts-service", path = "/posts", configuration = FeignConfig.class,
+        fallbackFactory = PostFeignClientFallbackFactory.class)
 public interface PostFeignClient {
     @GetMapping("/{postId}")
-    DataResponse getPostById(@PathVariable("postId") String postId);
+    ServiceResponse<PostDTO> getPostById(@PathVariable("postId") String postId);
+
+    // Posts without author details; at most 100 IDs per call
+    @GetMapping("/batch")
+    ServiceResponse<List<PostDTO>> getPostsByIds(@RequestParam("ids") List<String> postIds);
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.beaconfire.history_service.feign;
+
+import com.beaconfire.history_service.dto.ServiceResponse;
+import com.beaconfire.history_service.dto.post.PostDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.openfeign.FallbackFactory;
+import org.springframework.stereotype.Component;
+import java.util.List;
+
+/**
+ * Used when a posts-service call fails or its circuit is open: the last known response for the
+ * same call if there is a recent one, otherwise an unsuccessful response.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class PostFeignClientFallbackFactory implements FallbackFactory<PostFeignClient> {
+    private final LastKnownResponses lastKnownResponses;
+
+    @Override
+    public PostFeignClient create(Throwable cause) {
+        log.warn("posts-service call failed: {}", cause.toString());
+        return new PostFeignClient() {
+            @Override
+            public ServiceResponse<PostDTO> getPostById(String postId) {
+                return lastKnownResponses.<PostDTO>find(PostFeignClient.class, "getPostById", postId)
+                        .orElseGet(() -> unavailable(cause));
+            }
+
+            @Override
+            public ServiceResponse<List<PostDTO>> getPostsByIds(List<String> postIds) {
+                return lastKnownResponses.<List<PostDTO>>find(PostFeignClient.class, "getPostsByIds", postIds)
+                        .orElseGet(() -> unavailable(cause));
+            }
+        };
+    }
+
+    private <T> ServiceResponse<T> unavailable(Throwable cause) {
+        return ServiceResponse.<T>builder()
+                .success(false)
+                .message("posts-service unavailable: " + cause.getMessage())
+                .build();
+    }
+}
@@ -4,11 +4,20 @@ import com.beaconfire.history_service.config.FeignConfig;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 
-import com.beaconfire.history_service.dto.DataResponse;
+import java.util.List;
 
-@FeignClient(name = "users-service", path = "/users", configuration = FeignConfig.class)
+import com.beaconfire.history_service.dto.ServiceResponse;
+import com.beaconfire.history_service.dto.user.UserDTO;
+
+@FeignClient(name = "users-service", path = "/users", configuration = FeignConfig.class,
+        fallbackFactory = UserFeignClientFallbackFactory.class)
 public interface UserFeignClient {
     @GetMapping("/{id}")
-    DataResponse getUserById(@PathVariable("id") Integer userId);
+    ServiceResponse<UserDTO> getUserById(@PathVariable("id") Integer userId);
+
+    // ID, name and profile image of each user only; at most 100 IDs per call
+    @GetMapping("/summaries")
+    ServiceResponse<List<UserDTO>> getUsersByIds(@RequestParam("ids") List<Integer> userIds);
 }
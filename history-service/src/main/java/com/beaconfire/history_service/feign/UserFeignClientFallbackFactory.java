@@ -0,0 +1,45 @@
+package com.beaconfire.history_service.feign;
+
+import com.beaconfire.history_service.dto.ServiceResponse;
+import com.beaconfire.history_service.dto.user.UserDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.openfeign.FallbackFactory;
+import org.springframework.stereotype.Component;
+import java.util.List;
+
+/**
+ * Used when a users-service call fails or its circuit is open: the last known response for the
+ * same call if there is a recent one, otherwise an unsuccessful response.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class UserFeignClientFallbackFactory implements FallbackFactory<UserFeignClient> {
+    private final LastKnownResponses lastKnownResponses;
+
+    @Override
+    public UserFeignClient create(Throwable cause) {
+        log.warn("users-service call failed: {}", cause.toString());
+        return new UserFeignClient() {
+            @Override
+            public ServiceResponse<UserDTO> getUserById(Integer userId) {
+                return lastKnownResponses.<UserDTO>find(UserFeignClient.class, "getUserById", userId)
+                        .orElseGet(() -> unavailable(cause));
+            }
+
+            @Override
+            public ServiceResponse<List<UserDTO>> getUsersByIds(List<Integer> userIds) {
+                return lastKnownResponses.<List<UserDTO>>find(UserFeignClient.class, "getUsersByIds", userIds)
+                        .orElseGet(() -> unavailable(cause));
+            }
+        };
+    }
+
+    private <T> ServiceResponse<T> unavailable(Throwable cause) {
+        return ServiceResponse.<T>builder()
+                .success(false)
+                .message("users-service unavailable: " + cause.getMessage())
+                .build();
+    }
+}
@@ -0,0 +1,62 @@
+package com.beaconfire.history_service.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Moves history rows older than a cutoff out of the hot table, one bounded batch per transaction:
+ * the rows are copied to history_archive, counted into the per-user history_rollup, then deleted.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HistoryArchiver {
+    private static final String SELECT_EXPIRED =
+            "SELECT history_id FROM history WHERE view_date < :cutoff ORDER BY view_date LIMIT :limit FOR UPDATE";
+
+    private static final String COPY_TO_ARCHIVE =
+            "INSERT IGNORE INTO history_archive " +
+            "(history_id, user_id, post_id, view_date, created_at, updated_at, archived_at) " +
+            "SELECT history_id, user_id, post_id, view_date, created_at, updated_at, :archivedAt " +
+            "FROM history WHERE history_id IN (:ids)";
+
+    private static final String ROLL_UP =
+            "INSERT INTO history_rollup (user_id, archived_views, first_view_date, last_view_date) " +
+            "SELECT user_id, COUNT(*), MIN(view_date), MAX(view_date) " +
+            "FROM history WHERE history_id IN (:ids) GROUP BY user_id " +
+            "ON DUPLICATE KEY UPDATE archived_views = archived_views + VALUES(archived_views), " +
+            "first_view_date = LEAST(first_view_date, VALUES(first_view_date)), " +
+            "last_view_date = GREATEST(last_view_date, VALUES(last_view_date))";
+
+    private static final String DELETE_ARCHIVED =
+            "DELETE FROM history WHERE history_id IN (:ids)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Archives up to batchSize of the oldest rows viewed before the cutoff, found through the
+     * view_date index.
+     * @return the number of rows moved; fewer than batchSize once nothing older is left
+     */
+    @Transactional
+    public int archiveBatch(LocalDateTime cutoff, int batchSize) {
+        List<Integer> ids = jdbcTemplate.queryForList(SELECT_EXPIRED,
+                new MapSqlParameterSource()
+                        .addValue("cutoff", cutoff)
+                        .addValue("limit", batchSize),
+                Integer.class);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        MapSqlParameterSource batch = new MapSqlParameterSource()
+                .addValue("ids", ids)
+                .addValue("archivedAt", LocalDateTime.now());
+        jdbcTemplate.update(COPY_TO_ARCHIVE, batch);
+        jdbcTemplate.update(ROLL_UP, batch);
+        return jdbcTemplate.update(DELETE_ARCHIVED, batch);
+    }
+}
@@ -2,16 +2,60 @@ package com.beaconfire.history_service.repository;
 
 import com.beaconfire.history_service.entity.History;
 import jakarta.validation.constraints.NotNull;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface HistoryRepository extends JpaRepository<History, Integer> {
-    List<History> findByUserIdOrderByViewDateDesc(Integer userId);
+    /**
+     * One page of a user's history, newest first, with views in [from, to) that come after the
+     * cursor: viewed before beforeDate, or at that time with a lower ID, so views sharing a
+     * timestamp never straddle a page boundary. Served by the (user_id, view_date) index, whose
+     * entries end with the primary key, so the cost depends on the page size, not on the history
+     * length. Rows whose post snapshot is not published are left out; rows not snapshotted yet are kept.
+     */
+    @Query("SELECT h FROM History h WHERE h.userId = :userId AND h.viewDate >= :from AND h.viewDate < :to " +
+            "AND (h.viewDate < :beforeDate OR (h.viewDate = :beforeDate AND h.historyId < :beforeId)) " +
+            "AND (h.postAccessibility IS NULL OR h.postAccessibility = 'PUBLISHED') " +
+            "ORDER BY h.viewDate DESC, h.historyId DESC")
+    List<History> findPage(
+            @Param("userId") Integer userId,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("beforeDate") LocalDateTime beforeDate,
+            @Param("beforeId") Integer beforeId,
+            Limit limit);
+
+    /**
+     * Record a view in one statement on the unique (user_id, post_id) key: the first view inserts
+     * the row, later ones move its view date forward, never back.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO history (user_id, post_id, view_date, created_at, updated_at) " +
+            "VALUES (:userId, :postId, :viewDate, :viewDate, :viewDate) " +
+            "ON DUPLICATE KEY UPDATE view_date = GREATEST(view_date, :viewDate), updated_at = :viewDate",
+            nativeQuery = true)
+    int upsertView(
+            @Param("userId") Integer userId,
+            @Param("postId") String postId,
+            @Param("viewDate") LocalDateTime viewDate);
+
+    @Query("SELECT DISTINCT h.postId FROM History h WHERE h.snapshotAt IS NULL")
+    List<String> findPostIdsWithoutSnapshot(Limit limit);
+
+    @Query("SELECT DISTINCT h.postId FROM History h WHERE h.snapshotAt < :staleBefore")
+    List<String> findPostIdsWithSnapshotBefore(
+            @Param("staleBefore") LocalDateTime staleBefore,
+            Limit limit);
 
     @Query("SELECT h FROM History h WHERE h.userId = :userId AND h.postId = :postId")
     Optional<History> findByUserIdAndPostId(
@@ -0,0 +1,35 @@
+package com.beaconfire.history_service.repository;
+
+import com.beaconfire.history_service.dto.post.PostSnapshotDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Writes post snapshots to every history row of each post, one JDBC batch per call, through the
+ * post_id index.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HistorySnapshotWriter {
+    private static final String UPDATE_SNAPSHOT =
+            "UPDATE history SET post_title = ?, author_id = ?, author_name = ?, post_accessibility = ?, " +
+            "snapshot_at = ? WHERE post_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public void updateSnapshots(List<PostSnapshotDTO> snapshots, LocalDateTime snapshotAt) {
+        jdbcTemplate.batchUpdate(UPDATE_SNAPSHOT, snapshots, snapshots.size(), (statement, snapshot) -> {
+            statement.setString(1, snapshot.getTitle());
+            statement.setObject(2, snapshot.getAuthorId());
+            statement.setString(3, snapshot.getAuthorName());
+            statement.setString(4, snapshot.getAccessibility());
+            statement.setObject(5, snapshotAt);
+            statement.setString(6, snapshot.getPostId());
+        });
+    }
+}
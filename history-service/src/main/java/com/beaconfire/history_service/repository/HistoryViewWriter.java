@@ -0,0 +1,43 @@
+package com.beaconfire.history_service.repository;
+
+import com.beaconfire.history_service.dto.HistoryViewDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Writes many views in one JDBC batch, with the same upsert as
+ * {@link HistoryRepository#upsertView}. With rewriteBatchedStatements on, the MySQL driver sends
+ * the batch as multi-row statements.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HistoryViewWriter {
+    private static final String UPSERT_VIEW =
+            "INSERT INTO history (user_id, post_id, view_date, created_at, updated_at) VALUES (?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE view_date = GREATEST(view_date, VALUES(view_date)), " +
+            "updated_at = VALUES(updated_at)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Rows are written in key order, so concurrent batches from several instances lock them in
+     * the same order and do not deadlock.
+     */
+    @Transactional
+    public void upsertViews(List<HistoryViewDTO> views) {
+        List<HistoryViewDTO> ordered = views.stream()
+                .sorted(Comparator.comparing(HistoryViewDTO::getUserId).thenComparing(HistoryViewDTO::getPostId))
+                .toList();
+        jdbcTemplate.batchUpdate(UPSERT_VIEW, ordered, ordered.size(), (statement, view) -> {
+            statement.setInt(1, view.getUserId());
+            statement.setString(2, view.getPostId());
+            statement.setObject(3, view.getViewDate());
+            statement.setObject(4, view.getViewDate());
+            statement.setObject(5, view.getViewDate());
+        });
+    }
+}
@@ -0,0 +1,249 @@
+package com.beaconfire.history_service.service;
+
+import com.beaconfire.history_service.dto.HistoryResponseDTO;
+import com.beaconfire.history_service.dto.ServiceResponse;
+import com.beaconfire.history_service.dto.post.PostDTO;
+import com.beaconfire.history_service.dto.post.PostSnapshotDTO;
+import com.beaconfire.history_service.dto.user.UserDTO;
+import com.beaconfire.history_service.entity.History;
+import com.beaconfire.history_service.feign.PostFeignClient;
+import com.beaconfire.history_service.feign.UserFeignClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Adds post titles and author names to history entries. Distinct post IDs, then distinct author
+ * IDs, are looked up in batches, and the batches of each step run in parallel on a bounded pool,
+ * each with its own timeout. A batch that fails, times out or finds the pool full does not drop
+ * its entries: they are returned with whatever is known and marked partial.
+ */
+@Component
+@Slf4j
+public class HistoryEnricher {
+    private static final String UNKNOWN_AUTHOR = "Unknown Author";
+    // Snapshot accessibility of a post the posts service no longer has
+    private static final String DELETED = "DELETED";
+
+    private final PostFeignClient postFeignClient;
+    private final UserFeignClient userFeignClient;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+    private final long callTimeoutMillis;
+    private final ThreadPoolExecutor executor;
+
+    public HistoryEnricher(PostFeignClient postFeignClient,
+                           UserFeignClient userFeignClient,
+                           MeterRegistry meterRegistry,
+                           @Value("${history.enrichment.batch-size:100}") int batchSize,
+                           @Value("${history.enrichment.threads:8}") int threads,
+                           @Value("${history.enrichment.queue-capacity:100}") int queueCapacity,
+                           @Value("${history.enrichment.call-timeout:2s}") Duration callTimeout) {
+        this.postFeignClient = postFeignClient;
+        this.userFeignClient = userFeignClient;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.callTimeoutMillis = callTimeout.toMillis();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "history-enrichment-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Entries whose post does not exist or is not published are left out.
+     */
+    public List<HistoryResponseDTO> enrich(List<History> histories) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            Lookup<String, PostDTO> posts = lookUp("posts", histories.stream()
+                    .map(History::getPostId)
+                    .distinct()
+                    .collect(Collectors.toList()), this::fetchPosts);
+            Lookup<Integer, UserDTO> authors = lookUp("authors", histories.stream()
+                    .map(history -> posts.found().get(history.getPostId()))
+                    .filter(post -> post != null && isPublished(post))
+                    .map(PostDTO::getUserId)
+                    .distinct()
+                    .collect(Collectors.toList()), this::fetchAuthors);
+
+            List<HistoryResponseDTO> result = new ArrayList<>(histories.size());
+            for (History history : histories) {
+                HistoryResponseDTO dto = new HistoryResponseDTO();
+                BeanUtils.copyProperties(history, dto);
+
+                PostDTO post = posts.found().get(history.getPostId());
+                if (post == null) {
+                    if (posts.failed().contains(history.getPostId())) {
+                        dto.setPartial(true);
+                        result.add(dto);
+                    } else {
+                        log.debug("Could not find post {}", history.getPostId());
+                    }
+                    continue;
+                }
+                if (!isPublished(post)) {
+                    log.debug("Post is not published: {}", post.getAccessibility());
+                    continue;
+                }
+
+                dto.setPostTitle(post.getTitle());
+                dto.setAuthorId(post.getUserId());
+                UserDTO author = authors.found().get(post.getUserId());
+                if (author != null) {
+                    dto.setAuthorName(author.getFirstName() + " " + author.getLastName());
+                } else {
+                    dto.setAuthorName(UNKNOWN_AUTHOR);
+                    dto.setPartial(authors.failed().contains(post.getUserId()));
+                }
+                result.add(dto);
+            }
+            return result;
+        } finally {
+            sample.stop(Timer.builder("history.enrichment")
+                    .description("Time to enrich one history listing")
+                    .tag("size", sizeBucket(histories.size()))
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Current details of each post, to be stored with its history rows. A post the posts service
+     * no longer has comes back as DELETED; a post whose post or author lookup failed is left out,
+     * so its snapshot is tried again later instead of being overwritten with a placeholder.
+     */
+    public List<PostSnapshotDTO> snapshot(List<String> postIds) {
+        Lookup<String, PostDTO> posts = lookUp("posts", postIds, this::fetchPosts);
+        Lookup<Integer, UserDTO> authors = lookUp("authors", postIds.stream()
+                .map(postId -> posts.found().get(postId))
+                .filter(post -> post != null)
+                .map(PostDTO::getUserId)
+                .distinct()
+                .collect(Collectors.toList()), this::fetchAuthors);
+
+        List<PostSnapshotDTO> snapshots = new ArrayList<>(postIds.size());
+        for (String postId : postIds) {
+            if (posts.failed().contains(postId)) {
+                continue;
+            }
+            PostDTO post = posts.found().get(postId);
+            if (post == null) {
+                snapshots.add(PostSnapshotDTO.builder().postId(postId).accessibility(DELETED).build());
+                continue;
+            }
+            if (authors.failed().contains(post.getUserId())) {
+                continue;
+            }
+            UserDTO author = authors.found().get(post.getUserId());
+            snapshots.add(PostSnapshotDTO.builder()
+                    .postId(postId)
+                    .title(post.getTitle())
+                    .authorId(post.getUserId())
+                    .authorName(author != null ? author.getFirstName() + " " + author.getLastName() : UNKNOWN_AUTHOR)
+                    .accessibility(post.getAccessibility())
+                    .build());
+        }
+        return snapshots;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <K, V> Lookup<K, V> lookUp(String what, List<K> ids, Function<List<K>, Map<K, V>> fetchBatch) {
+        List<List<K>> batches = new ArrayList<>();
+        List<CompletableFuture<Map<K, V>>> calls = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<K> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            batches.add(batch);
+            try {
+                calls.add(CompletableFuture.supplyAsync(() -> fetchBatch.apply(batch), executor)
+                        .orTimeout(callTimeoutMillis, TimeUnit.MILLISECONDS));
+            } catch (RejectedExecutionException e) {
+                calls.add(CompletableFuture.failedFuture(e));
+            }
+        }
+
+        Map<K, V> found = new HashMap<>();
+        Set<K> failed = new HashSet<>();
+        for (int i = 0; i < calls.size(); i++) {
+            try {
+                found.putAll(calls.get(i).join());
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                log.error("Could not fetch {} {}: {}", what, batches.get(i), cause.toString());
+                meterRegistry.counter("history.enrichment.failures",
+                        "lookup", what, "reason", cause.getClass().getSimpleName()).increment();
+                failed.addAll(batches.get(i));
+            }
+        }
+        return new Lookup<>(found, failed);
+    }
+
+    private Map<String, PostDTO> fetchPosts(List<String> postIds) {
+        log.debug("Fetching {} posts", postIds.size());
+        ServiceResponse<List<PostDTO>> response = postFeignClient.getPostsByIds(postIds);
+        if (!response.isSuccess() || response.getData() == null) {
+            throw new IllegalStateException(response.getMessage());
+        }
+        Map<String, PostDTO> posts = new HashMap<>();
+        for (PostDTO post : response.getData()) {
+            posts.put(post.getPostId(), post);
+        }
+        return posts;
+    }
+
+    private Map<Integer, UserDTO> fetchAuthors(List<Integer> authorIds) {
+        log.debug("Fetching {} authors", authorIds.size());
+        ServiceResponse<List<UserDTO>> response = userFeignClient.getUsersByIds(authorIds);
+        if (!response.isSuccess() || response.getData() == null) {
+            throw new IllegalStateException(response.getMessage());
+        }
+        Map<Integer, UserDTO> authors = new HashMap<>();
+        for (UserDTO author : response.getData()) {
+            authors.put(author.getId(), author);
+        }
+        return authors;
+    }
+
+    private boolean isPublished(PostDTO post) {
+        return "PUBLISHED".equals(post.getAccessibility());
+    }
+
+    private String sizeBucket(int entries) {
+        if (entries < 100) {
+            return "small";
+        }
+        return entries < 1000 ? "medium" : "large";
+    }
+
+    private record Lookup<K, V>(Map<K, V> found, Set<K> failed) {
+    }
+}
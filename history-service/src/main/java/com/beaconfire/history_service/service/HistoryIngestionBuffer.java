@@ -0,0 +1,267 @@
+package com.beaconfire.history_service.service;
+
+import com.beaconfire.history_service.dto.HistoryViewDTO;
+import com.beaconfire.history_service.exception.IngestionBacklogException;
+import com.beaconfire.history_service.repository.HistoryViewWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accepts views into a bounded queue and writes them from a single writer thread. The writer
+ * collects views for up to one flush interval or one batch, keeps only the latest view of each
+ * (user, post) pair, and upserts the rest in one JDBC batch. When the queue stays full for the
+ * offer timeout, the view is refused with an {@link IngestionBacklogException} instead of piling
+ * up in memory. A batch that fails to write is retried with a doubling pause before its views are
+ * counted as failed; the writer takes nothing new meanwhile, so a slow database fills the queue
+ * and pushes back on callers. Views still queued at shutdown are written before the service stops.
+ * Created only when {@code history.ingestion.buffered} is on.
+ */
+@Component
+@ConditionalOnProperty(name = "history.ingestion.buffered", havingValue = "true")
+@Slf4j
+public class HistoryIngestionBuffer {
+    // How often a waiting writer checks whether the service is stopping
+    private static final long STOP_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final HistoryViewWriter historyViewWriter;
+    private final BlockingQueue<Pending> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutMillis;
+    private final long shutdownTimeoutMillis;
+    private final int writeAttempts;
+    private final long retryBackoffMillis;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final Counter accepted;
+    private final Counter rejected;
+    private final Counter collapsed;
+    private final Counter failed;
+    private final Counter retries;
+    private final Timer lag;
+    private final Timer flushes;
+
+    public HistoryIngestionBuffer(HistoryViewWriter historyViewWriter,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${history.ingestion.queue-capacity:10000}") int queueCapacity,
+                                  @Value("${history.ingestion.batch-size:500}") int batchSize,
+                                  @Value("${history.ingestion.flush-interval:200ms}") Duration flushInterval,
+                                  @Value("${history.ingestion.offer-timeout:50ms}") Duration offerTimeout,
+                                  @Value("${history.ingestion.shutdown-timeout:10s}") Duration shutdownTimeout,
+                                  @Value("${history.ingestion.write-attempts:3}") int writeAttempts,
+                                  @Value("${history.ingestion.retry-backoff:100ms}") Duration retryBackoff) {
+        this.historyViewWriter = historyViewWriter;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.offerTimeoutMillis = offerTimeout.toMillis();
+        this.shutdownTimeoutMillis = shutdownTimeout.toMillis();
+        this.writeAttempts = Math.max(1, writeAttempts);
+        this.retryBackoffMillis = retryBackoff.toMillis();
+
+        this.accepted = meterRegistry.counter("history.ingestion.views", "outcome", "accepted");
+        this.rejected = meterRegistry.counter("history.ingestion.views", "outcome", "rejected");
+        this.collapsed = meterRegistry.counter("history.ingestion.views", "outcome", "collapsed");
+        this.failed = meterRegistry.counter("history.ingestion.views", "outcome", "failed");
+        this.retries = meterRegistry.counter("history.ingestion.retries");
+        this.lag = Timer.builder("history.ingestion.lag")
+                .description("Time from accepting a view to writing it")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.flushes = Timer.builder("history.ingestion.flush")
+                .description("Time to write one batch of views")
+                .register(meterRegistry);
+        Gauge.builder("history.ingestion.queue.size", queue, BlockingQueue::size)
+                .description("Views waiting to be written")
+                .register(meterRegistry);
+        Gauge.builder("history.ingestion.queue.oldest", this, HistoryIngestionBuffer::oldestPendingSeconds)
+                .description("Seconds the oldest waiting view has been queued")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+
+        this.writer = new Thread(this::writeLoop, "history-ingestion-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues a view, waiting up to the offer timeout for room.
+     * @throws IngestionBacklogException if the queue stays full or the buffer is shutting down
+     */
+    public void submit(Integer userId, String postId, LocalDateTime viewDate) {
+        if (!running) {
+            rejected.increment();
+            throw new IngestionBacklogException("History ingestion is shutting down");
+        }
+        Pending pending = new Pending(HistoryViewDTO.builder()
+                .userId(userId)
+                .postId(postId)
+                .viewDate(viewDate)
+                .build(), System.nanoTime());
+        boolean queued;
+        try {
+            queued = queue.offer(pending, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            rejected.increment();
+            throw new IngestionBacklogException("History ingestion queue is full");
+        }
+        accepted.increment();
+    }
+
+    /**
+     * Stops accepting views and writes everything still queued, waiting up to the shutdown timeout.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        try {
+            writer.join(shutdownTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            log.warn("History ingestion writer did not finish in {} ms, {} views left unwritten",
+                    shutdownTimeoutMillis, queue.size());
+            return;
+        }
+        // Views offered while the writer was stopping
+        while (!queue.isEmpty()) {
+            flush(collect(queue.poll()));
+        }
+    }
+
+    private void writeLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(STOP_CHECK_NANOS, TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    flush(collect(first));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("History ingestion writer failed", e);
+            }
+        }
+    }
+
+    /**
+     * Gathers views after the first until the batch is full, the flush interval has passed or,
+     * once shutting down, the queue is empty. Repeats of a (user, post) pair keep the latest view
+     * date and the earliest arrival, so the lag covers the time the first of them waited.
+     */
+    private Collection<Pending> collect(Pending first) {
+        Map<String, Pending> window = new LinkedHashMap<>();
+        window.put(key(first.view()), first);
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (window.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            Pending next;
+            if (running && remaining > 0) {
+                try {
+                    next = queue.poll(Math.min(remaining, STOP_CHECK_NANOS), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                if (next == null) {
+                    continue;
+                }
+            } else {
+                next = queue.poll();
+                if (next == null) {
+                    break;
+                }
+            }
+            Pending previous = window.putIfAbsent(key(next.view()), next);
+            if (previous != null) {
+                collapsed.increment();
+                if (next.view().getViewDate().isAfter(previous.view().getViewDate())) {
+                    window.put(key(next.view()), new Pending(next.view(), previous.enqueuedNanos()));
+                }
+            }
+        }
+        return window.values();
+    }
+
+    /**
+     * Writes a batch, retrying up to the configured attempts with a pause that doubles each time.
+     * Only a batch that failed every attempt, or whose retry was interrupted, is dropped.
+     */
+    private void flush(Collection<Pending> batch) {
+        List<HistoryViewDTO> views = new ArrayList<>(batch.size());
+        batch.forEach(pending -> views.add(pending.view()));
+        long backoffMillis = retryBackoffMillis;
+        for (int attempt = 1; ; attempt++) {
+            Timer.Sample sample = Timer.start();
+            try {
+                historyViewWriter.upsertViews(views);
+                long now = System.nanoTime();
+                batch.forEach(pending -> lag.record(now - pending.enqueuedNanos(), TimeUnit.NANOSECONDS));
+                log.debug("Wrote {} history views", views.size());
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= writeAttempts || !pause(backoffMillis)) {
+                    log.error("Could not write {} history views after {} attempts, dropping them: {}",
+                            views.size(), attempt, e.toString());
+                    failed.increment(views.size());
+                    return;
+                }
+                log.warn("Could not write {} history views, retrying in {} ms: {}",
+                        views.size(), backoffMillis, e.toString());
+                retries.increment();
+                backoffMillis *= 2;
+            } finally {
+                sample.stop(flushes);
+            }
+        }
+    }
+
+    /**
+     * @return false if interrupted
+     */
+    private static boolean pause(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private double oldestPendingSeconds() {
+        Pending oldest = queue.peek();
+        return oldest == null ? 0 : (System.nanoTime() - oldest.enqueuedNanos()) / 1e9;
+    }
+
+    private static String key(HistoryViewDTO view) {
+        return view.getUserId() + ":" + view.getPostId();
+    }
+
+    private record Pending(HistoryViewDTO view, long enqueuedNanos) {
+    }
+}
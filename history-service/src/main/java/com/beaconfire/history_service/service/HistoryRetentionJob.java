@@ -0,0 +1,82 @@
+package com.beaconfire.history_service.service;
+
+import com.beaconfire.history_service.repository.HistoryArchiver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Keeps history rows for the retention period only. Each run archives older rows in bounded
+ * batches, each its own short transaction, pausing between batches so live reads and writes are
+ * not starved, and stops after a maximum number of batches; the rest waits for the next run.
+ */
+@Component
+@Slf4j
+public class HistoryRetentionJob {
+    private final HistoryArchiver historyArchiver;
+    private final Counter archived;
+    private final Timer runs;
+
+    @Value("${history.retention.enabled:false}")
+    private boolean enabled = false;
+
+    @Value("${history.retention.days:365}")
+    private int retentionDays = 365;
+
+    @Value("${history.retention.batch-size:1000}")
+    private int batchSize = 1000;
+
+    @Value("${history.retention.max-batches:500}")
+    private int maxBatches = 500;
+
+    @Value("${history.retention.pause:100ms}")
+    private Duration pause = Duration.ofMillis(100);
+
+    public HistoryRetentionJob(HistoryArchiver historyArchiver, MeterRegistry meterRegistry) {
+        this.historyArchiver = historyArchiver;
+        this.archived = Counter.builder("history.retention.archived")
+                .description("History rows moved to the archive")
+                .register(meterRegistry);
+        this.runs = Timer.builder("history.retention.run")
+                .description("Time to run the retention job once")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${history.retention.cron:0 30 3 * * *}")
+    public void run() {
+        if (enabled) {
+            runs.record(() -> archiveOlderThan(LocalDateTime.now().minusDays(retentionDays)));
+        }
+    }
+
+    /**
+     * @return the number of rows archived in this run
+     */
+    long archiveOlderThan(LocalDateTime cutoff) {
+        log.info("Archiving history viewed before {}", cutoff);
+        long total = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            int moved = historyArchiver.archiveBatch(cutoff, batchSize);
+            total += moved;
+            archived.increment(moved);
+            if (moved < batchSize) {
+                log.info("Archived {} history rows", total);
+                return total;
+            }
+            try {
+                Thread.sleep(pause.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        log.info("Archived {} history rows, stopping until the next run", total);
+        return total;
+    }
+}
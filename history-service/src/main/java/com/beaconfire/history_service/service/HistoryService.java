@@ -1,112 +1,146 @@
 package com.beaconfire.history_service.service;
 
-import com.beaconfire.history_service.dto.DataResponse;
 import com.beaconfire.history_service.dto.HistoryCreateDTO;
+import com.beaconfire.history_service.dto.HistoryPageDTO;
 import com.beaconfire.history_service.dto.HistoryResponseDTO;
-import com.beaconfire.history_service.dto.user.UserDTO;
 import com.beaconfire.history_service.entity.History;
-import com.beaconfire.history_service.feign.PostFeignClient;
-import com.beaconfire.history_service.feign.UserFeignClient;
+import com.beaconfire.history_service.exception.ValidationException;
 import com.beaconfire.history_service.repository.HistoryRepository;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
+/**
+ * Not transactional as a whole: entries are read and written through the repository's own
+ * transactions. Post and author details come from the snapshot stored with each row; only rows
+ * not snapshotted yet are enriched remotely, after the read, so no database connection is held
+ * while waiting on other services.
+ */
 @Service
 @Slf4j
-@Transactional
 @RequiredArgsConstructor
 public class HistoryService {
     private final HistoryRepository historyRepository;
     private final ValidationService validationService;
-    private final PostFeignClient postFeignClient;
-    private final UserFeignClient userFeignClient;
-    private final ObjectMapper objectMapper;
+    private final HistoryEnricher historyEnricher;
+    // Present only with history.ingestion.buffered: views are queued and written in batches
+    private final Optional<HistoryIngestionBuffer> historyIngestionBuffer;
 
-    public List<HistoryResponseDTO> getUserHistory(Integer userId) {
-        log.info("Fetching history for user {}", userId);
-        return historyRepository.findByUserIdOrderByViewDateDesc(userId)
-                .stream()
-                .map(this::convertToDTO)
-                .filter(dto -> dto != null)
-                .collect(Collectors.toList());
-    }
+    // Bounds for open-ended windows, inside the range of a MySQL DATETIME
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 0, 0);
 
-    public HistoryResponseDTO createHistory(HistoryCreateDTO dto) {
-        log.info("Creating/Updating history for user {} and post {}",
-                dto.getUserId(), dto.getPostId());
+    // Off when the gateway already authenticates every caller of POST /history
+    @Value("${history.create.validate-user:true}")
+    private boolean validateUser = true;
 
-        validationService.validateUserAndPost(dto.getUserId(), dto.getPostId());
+    @Value("${history.page.default-limit:50}")
+    private int defaultLimit = 50;
 
-        var existingHistory = historyRepository.findByUserIdAndPostId(
-                dto.getUserId(), dto.getPostId());
+    @Value("${history.page.max-limit:200}")
+    private int maxLimit = 200;
 
-        History history = existingHistory.orElseGet(() -> {
-            var newHistory = new History();
-            newHistory.setUserId(dto.getUserId());
-            newHistory.setPostId(dto.getPostId());
-            return newHistory;
-        });
+    /**
+     * One page of the user's history, newest first. Pages are keyed by view date and history ID:
+     * pass the returned nextBefore as before to continue. Entries left out by enrichment do not shift pages.
+     * @param from optional start of the window, inclusive
+     * @param to optional end of the window, exclusive
+     * @param before optional cursor from the previous page, exclusive; a bare view date returns
+     * the views strictly before it
+     * @param limit optional page size, capped at history.page.max-limit
+     * @throws ValidationException if the cursor is malformed
+     */
+    public HistoryPageDTO getUserHistory(Integer userId, LocalDateTime from, LocalDateTime to,
+                                         String before, Integer limit) {
+        log.info("Fetching history for user {} from {} to {} before {}", userId, from, to, before);
+        int pageSize = limit == null ? defaultLimit : Math.max(1, Math.min(limit, maxLimit));
 
-        history.setViewDate(LocalDateTime.now());
-        return convertToDTO(historyRepository.save(history));
-    }
-
-    private HistoryResponseDTO convertToDTO(History history) {
-        HistoryResponseDTO dto = new HistoryResponseDTO();
-        BeanUtils.copyProperties(history, dto);
+        LocalDateTime beforeDate = LATEST;
+        int beforeId = Integer.MAX_VALUE;
+        if (before != null) {
+            int separator = before.lastIndexOf('_');
+            try {
+                beforeDate = LocalDateTime.parse(separator < 0 ? before : before.substring(0, separator));
+                beforeId = separator < 0 ? Integer.MIN_VALUE : Integer.parseInt(before.substring(separator + 1));
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new ValidationException("Invalid cursor: " + before);
+            }
+        }
+        List<History> page = historyRepository.findPage(userId,
+                from != null ? from : EARLIEST,
+                to != null ? to : LATEST,
+                beforeDate,
+                beforeId,
+                Limit.of(pageSize));
 
-        try {
-            log.debug("Fetching post details for postId: {}", history.getPostId());
-            DataResponse postResponse = postFeignClient.getPostById(history.getPostId());
+        String nextBefore = null;
+        if (page.size() == pageSize) {
+            History last = page.get(page.size() - 1);
+            nextBefore = last.getViewDate() + "_" + last.getHistoryId();
+        }
+        return HistoryPageDTO.builder()
+                .items(toDTOs(page))
+                .nextBefore(nextBefore)
+                .build();
+    }
 
-            if (postResponse.isSuccess() && postResponse.getData() != null) {
-                JsonNode postData = objectMapper.valueToTree(postResponse.getData());
-                log.debug("Post response data: {}", postData);
+    private List<HistoryResponseDTO> toDTOs(List<History> page) {
+        List<History> notSnapshotted = page.stream()
+                .filter(history -> history.getSnapshotAt() == null)
+                .collect(Collectors.toList());
+        // A page belongs to one user, so post IDs are unique within it
+        Map<String, HistoryResponseDTO> enriched = new HashMap<>();
+        if (!notSnapshotted.isEmpty()) {
+            historyEnricher.enrich(notSnapshotted).forEach(dto -> enriched.put(dto.getPostId(), dto));
+        }
 
-                JsonNode postNode = postData.get("post");
-                if (postNode != null) {
-                    String accessibility = postNode.get("accessibility").asText();
-                    log.debug("Post accessibility: {}", accessibility);
+        List<HistoryResponseDTO> items = new ArrayList<>(page.size());
+        for (History history : page) {
+            if (history.getSnapshotAt() != null) {
+                HistoryResponseDTO dto = new HistoryResponseDTO();
+                BeanUtils.copyProperties(history, dto);
+                items.add(dto);
+            } else if (enriched.containsKey(history.getPostId())) {
+                items.add(enriched.get(history.getPostId()));
+            }
+        }
+        return items;
+    }
 
-                    if ("PUBLISHED".equals(accessibility)) {
-                        dto.setPostTitle(postNode.get("title").asText());
-                        Integer authorId = postNode.get("userId").asInt();
-                        dto.setAuthorId(authorId);
+    /**
+     * Records a view with a single upsert or, with buffered ingestion, queues it for the next batch.
+     * The response carries the recorded view only; post and author details are added when the
+     * history is read.
+     */
+    public HistoryResponseDTO createHistory(HistoryCreateDTO dto) {
+        log.info("Creating/Updating history for user {} and post {}",
+                dto.getUserId(), dto.getPostId());
 
-                        try {
-                            DataResponse authorResponse = userFeignClient.getUserById(authorId);
-                            if (authorResponse.isSuccess() && authorResponse.getData() != null) {
-                                UserDTO author = objectMapper.convertValue(authorResponse.getData(), UserDTO.class);
-                                dto.setAuthorName(author.getFirstName() + " " + author.getLastName());
-                                return dto;
-                            }
-                        } catch (Exception e) {
-                            log.error("Error fetching author details: {}", e.getMessage());
-                            dto.setAuthorName("Unknown Author");
-                            return dto;
-                        }
-                    } else {
-                        log.debug("Post is not published: {}", accessibility);
-                        return null;
-                    }
-                } else {
-                    log.error("Could not find post data in response");
-                    return null;
-                }
-            }
-        } catch (Exception e) {
-            log.error("Error processing post {}: {}", history.getPostId(), e.getMessage(), e);
-            return null;
+        if (validateUser) {
+            validationService.validateUserAndPost(dto.getUserId(), dto.getPostId());
         }
 
-        return null;
+        LocalDateTime viewDate = LocalDateTime.now();
+        if (historyIngestionBuffer.isPresent()) {
+            historyIngestionBuffer.get().submit(dto.getUserId(), dto.getPostId(), viewDate);
+        } else {
+            historyRepository.upsertView(dto.getUserId(), dto.getPostId(), viewDate);
+        }
+        return HistoryResponseDTO.builder()
+                .userId(dto.getUserId())
+                .postId(dto.getPostId())
+                .viewDate(viewDate)
+                .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,92 @@
+package com.beaconfire.history_service.service;
+
+import com.beaconfire.history_service.dto.post.PostSnapshotDTO;
+import com.beaconfire.history_service.repository.HistoryRepository;
+import com.beaconfire.history_service.repository.HistorySnapshotWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the post snapshots stored with history rows filled in and fresh, so reads need no remote
+ * calls. Each pass first snapshots posts of newly viewed rows, then re-reads posts whose snapshot
+ * is older than the maximum age, picking up title, accessibility and author name changes.
+ */
+@Component
+@Slf4j
+public class HistorySnapshotRefresher {
+    private final HistoryRepository historyRepository;
+    private final HistorySnapshotWriter historySnapshotWriter;
+    private final HistoryEnricher historyEnricher;
+    private final Counter refreshed;
+
+    @Value("${history.snapshot.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${history.snapshot.batch-size:100}")
+    private int batchSize = 100;
+
+    @Value("${history.snapshot.max-batches:50}")
+    private int maxBatches = 50;
+
+    @Value("${history.snapshot.max-age:1h}")
+    private Duration maxAge = Duration.ofHours(1);
+
+    public HistorySnapshotRefresher(HistoryRepository historyRepository,
+                                    HistorySnapshotWriter historySnapshotWriter,
+                                    HistoryEnricher historyEnricher,
+                                    MeterRegistry meterRegistry) {
+        this.historyRepository = historyRepository;
+        this.historySnapshotWriter = historySnapshotWriter;
+        this.historyEnricher = historyEnricher;
+        this.refreshed = Counter.builder("history.snapshot.refreshed")
+                .description("Posts whose snapshot was written to their history rows")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${history.snapshot.refresh-interval-ms:30000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        int filled = refreshAll(() -> historyRepository.findPostIdsWithoutSnapshot(Limit.of(batchSize)));
+        LocalDateTime staleBefore = LocalDateTime.now().minus(maxAge);
+        int renewed = refreshAll(() -> historyRepository.findPostIdsWithSnapshotBefore(staleBefore, Limit.of(batchSize)));
+        if (filled > 0 || renewed > 0) {
+            log.info("Snapshotted {} new and {} stale posts", filled, renewed);
+        }
+    }
+
+    /**
+     * Refreshes batch after batch until a batch is short, nothing in a batch could be fetched, or
+     * the maximum number of batches is reached.
+     * @return the number of posts refreshed
+     */
+    int refreshAll(Supplier<List<String>> nextBatch) {
+        int total = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            List<String> postIds = nextBatch.get();
+            if (postIds.isEmpty()) {
+                break;
+            }
+            List<PostSnapshotDTO> snapshots = historyEnricher.snapshot(postIds);
+            if (!snapshots.isEmpty()) {
+                historySnapshotWriter.updateSnapshots(snapshots, LocalDateTime.now());
+                refreshed.increment(snapshots.size());
+                total += snapshots.size();
+            }
+            if (postIds.size() < batchSize || snapshots.isEmpty()) {
+                break;
+            }
+        }
+        return total;
+    }
+}
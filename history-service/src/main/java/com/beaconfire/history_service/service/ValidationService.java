@@ -2,7 +2,8 @@ package com.beaconfire.history_service.service;
 
 import org.springframework.stereotype.Service;
 
-import com.beaconfire.history_service.dto.DataResponse;
+import com.beaconfire.history_service.dto.ServiceResponse;
+import com.beaconfire.history_service.dto.user.UserDTO;
 import com.beaconfire.history_service.feign.UserFeignClient;
 import com.beaconfire.history_service.exception.ValidationException;
 
@@ -15,7 +16,7 @@ public class ValidationService {
 
     public void validateUserAndPost(Integer userId, String postId) {
         try {
-            DataResponse userResponse = userFeignClient.getUserById(userId);
+            ServiceResponse<UserDTO> userResponse = userFeignClient.getUserById(userId);
             if (!userResponse.isSuccess()) {
                 throw new ValidationException("User not found with ID: " + userId);
             }
@@ -0,0 +1,32 @@
+package com.beaconfire.history_service.config;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerMetricsTest {
+
+    @Test
+    void transitions_ShouldBeCountedPerBreaker() {
+        CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        new CircuitBreakerMetrics(circuitBreakerRegistry, meterRegistry);
+
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("UserFeignClientgetUserByIdInteger");
+        circuitBreaker.transitionToOpenState();
+        circuitBreaker.transitionToHalfOpenState();
+
+        assertEquals(1, meterRegistry.get("feign.circuitbreaker.transitions")
+                .tag("name", "UserFeignClientgetUserByIdInteger")
+                .tag("from", "CLOSED")
+                .tag("to", "OPEN")
+                .counter().count());
+        assertEquals(1, meterRegistry.get("feign.circuitbreaker.transitions")
+                .tag("from", "OPEN")
+                .tag("to", "HALF_OPEN")
+                .counter().count());
+    }
+}
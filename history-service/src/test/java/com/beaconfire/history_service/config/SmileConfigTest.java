@@ -0,0 +1,51 @@
+package com.beaconfire.history_service.config;
+
+import com.beaconfire.history_service.dto.DataResponse;
+import feign.RequestTemplate;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SmileConfigTest {
+
+    private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+
+    private final SmileConfig smileConfig = new SmileConfig();
+
+    @Test
+    void smileConverter_ShouldRoundTripTheJsonDataModel() throws Exception {
+        MappingJackson2SmileHttpMessageConverter converter =
+                smileConfig.smileHttpMessageConverter(new Jackson2ObjectMapperBuilder());
+        DataResponse response = DataResponse.builder()
+                .success(true)
+                .message("Posts found")
+                .data(List.of(Map.of("postId", "p1", "title", "Hello")))
+                .build();
+
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        converter.write(response, SMILE, output);
+        assertEquals(SMILE, output.getHeaders().getContentType());
+
+        DataResponse read = (DataResponse) converter.read(DataResponse.class,
+                new MockHttpInputMessage(output.getBodyAsBytes()));
+        assertEquals(response, read);
+    }
+
+    @Test
+    void smileAcceptInterceptor_ShouldPreferSmileAndFallBackToJson() {
+        RequestTemplate template = new RequestTemplate();
+        template.header(HttpHeaders.ACCEPT, "application/json");
+
+        smileConfig.smileAcceptInterceptor().apply(template);
+
+        assertEquals(List.of(SmileConfig.SMILE_FIRST), List.copyOf(template.headers().get(HttpHeaders.ACCEPT)));
+    }
+}
@@ -1,6 +1,7 @@
 package com.beaconfire.history_service.controller;
 
 import com.beaconfire.history_service.dto.HistoryCreateDTO;
+import com.beaconfire.history_service.dto.HistoryPageDTO;
 import com.beaconfire.history_service.dto.HistoryResponseDTO;
 import com.beaconfire.history_service.service.HistoryService;
 import org.junit.jupiter.api.BeforeEach;
@@ -61,16 +62,33 @@ class HistoryControllerTest {
                 .authorName("John Doe")
                 .build();
 
-        when(historyService.getUserHistory(1))
-                .thenReturn(Arrays.asList(testResponseDTO));
+        when(historyService.getUserHistory(1, null, null, null, null))
+                .thenReturn(HistoryPageDTO.builder().items(Arrays.asList(testResponseDTO)).build());
 
         ResponseEntity<List<HistoryResponseDTO>> response =
-                historyController.getUserHistory(1);
+                historyController.getUserHistory(1, null, null, null, null);
 
         assertTrue(response.getStatusCode().is2xxSuccessful());
         assertNotNull(response.getBody());
         assertEquals(1, response.getBody().size());
-        verify(historyService).getUserHistory(1);
+        assertFalse(response.getHeaders().containsKey(HistoryController.NEXT_BEFORE_HEADER));
+        verify(historyService).getUserHistory(1, null, null, null, null);
+    }
+
+    @Test
+    void getUserHistory_ShouldReturnCursorForNextPage() {
+        String before = "2024-01-15T12:00_7";
+        when(historyService.getUserHistory(1, null, null, before, 1))
+                .thenReturn(HistoryPageDTO.builder()
+                        .items(Arrays.asList(testResponseDTO))
+                        .nextBefore("2024-01-10T09:30_3")
+                        .build());
+
+        ResponseEntity<List<HistoryResponseDTO>> response =
+                historyController.getUserHistory(1, null, null, before, 1);
+
+        assertEquals(1, response.getBody().size());
+        assertEquals("2024-01-10T09:30_3", response.getHeaders().getFirst(HistoryController.NEXT_BEFORE_HEADER));
     }
 
     @Test
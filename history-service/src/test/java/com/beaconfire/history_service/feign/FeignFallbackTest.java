@@ -0,0 +1,55 @@
+package com.beaconfire.history_service.feign;
+
+import com.beaconfire.history_service.dto.ServiceResponse;
+import com.beaconfire.history_service.dto.user.UserDTO;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeignFallbackTest {
+
+    private final LastKnownResponses lastKnownResponses = new LastKnownResponses(2, Duration.ofMinutes(5));
+    private final UserFeignClient fallback = new UserFeignClientFallbackFactory(lastKnownResponses)
+            .create(new IllegalStateException("connect timed out"));
+
+    @Test
+    void fallback_ShouldServeLastKnownResponse() {
+        ServiceResponse<UserDTO> user = ServiceResponse.<UserDTO>builder()
+                .success(true)
+                .data(UserDTO.builder().id(1).build())
+                .build();
+        lastKnownResponses.record(UserFeignClient.class, "getUserById", new Object[]{1}, user);
+
+        assertSame(user, fallback.getUserById(1));
+    }
+
+    @Test
+    void fallback_WithoutLastKnownResponse_ShouldDegrade() {
+        ServiceResponse<List<UserDTO>> response = fallback.getUsersByIds(List.of(1, 2));
+
+        assertFalse(response.isSuccess());
+        assertEquals("users-service unavailable: connect timed out", response.getMessage());
+    }
+
+    @Test
+    void lastKnownResponses_ShouldKeepOnlySuccessfulRecentEntries() {
+        LastKnownResponses expiring = new LastKnownResponses(2, Duration.ZERO);
+        expiring.record(UserFeignClient.class, "getUserById", new Object[]{1},
+                ServiceResponse.builder().success(true).build());
+        lastKnownResponses.record(UserFeignClient.class, "getUserById", new Object[]{2},
+                ServiceResponse.builder().success(false).build());
+        lastKnownResponses.record(PostFeignClient.class, "getPostById", new Object[]{"a"},
+                ServiceResponse.builder().success(true).build());
+        lastKnownResponses.record(PostFeignClient.class, "getPostById", new Object[]{"b"},
+                ServiceResponse.builder().success(true).build());
+        lastKnownResponses.record(PostFeignClient.class, "getPostById", new Object[]{"c"},
+                ServiceResponse.builder().success(true).build());
+
+        assertTrue(expiring.find(UserFeignClient.class, "getUserById", 1).isEmpty());
+        assertTrue(lastKnownResponses.find(UserFeignClient.class, "getUserById", 2).isEmpty());
+        assertTrue(lastKnownResponses.find(PostFeignClient.class, "getPostById", "a").isEmpty());
+        assertTrue(lastKnownResponses.find(PostFeignClient.class, "getPostById", "c").isPresent());
+    }
+}
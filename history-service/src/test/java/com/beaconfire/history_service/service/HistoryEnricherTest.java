@@ -0,0 +1,180 @@
+package com.beaconfire.history_service.service;
+
+import com.beaconfire.history_service.dto.HistoryResponseDTO;
+import com.beaconfire.history_service.dto.ServiceResponse;
+import com.beaconfire.history_service.dto.post.PostDTO;
+import com.beaconfire.history_service.dto.post.PostSnapshotDTO;
+import com.beaconfire.history_service.dto.user.UserDTO;
+import com.beaconfire.history_service.entity.History;
+import com.beaconfire.history_service.feign.PostFeignClient;
+import com.beaconfire.history_service.feign.UserFeignClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class HistoryEnricherTest {
+
+    private static final long CALL_LATENCY_MILLIS = 50;
+
+    @Mock
+    private PostFeignClient postFeignClient;
+
+    @Mock
+    private UserFeignClient userFeignClient;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Integer> postBatchSizes = new CopyOnWriteArrayList<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private HistoryEnricher historyEnricher;
+
+    @AfterEach
+    void tearDown() {
+        historyEnricher.shutdown();
+    }
+
+    @Test
+    void enrich_LargeHistory_ShouldFanOutBatches() {
+        historyEnricher = newEnricher(Duration.ofSeconds(2));
+        List<History> histories = histories(1000);
+        stubSlowServices(0);
+
+        List<HistoryResponseDTO> result = historyEnricher.enrich(histories);
+
+        assertEquals(1000, result.size());
+        assertTrue(result.stream().noneMatch(HistoryResponseDTO::isPartial));
+        // 1000 distinct posts in batches of 100, then the 50 authors in one batch
+        assertEquals(10, postBatchSizes.size());
+        assertTrue(postBatchSizes.stream().allMatch(size -> size == 100));
+        verify(userFeignClient, times(1)).getUsersByIds(anyList());
+        // The post batches overlapped, on no more threads than the pool has
+        assertTrue(peakInFlight.get() > 1, "Peak in-flight calls was " + peakInFlight.get());
+        assertTrue(peakInFlight.get() <= 8, "Peak in-flight calls was " + peakInFlight.get());
+        assertEquals(1, meterRegistry.get("history.enrichment").tag("size", "large").timer().count());
+    }
+
+    @Test
+    void enrich_SlowBatch_ShouldTimeOutAndDegrade() {
+        historyEnricher = newEnricher(Duration.ofMillis(100));
+        List<History> histories = histories(10);
+        stubSlowServices(1000);
+
+        long started = System.nanoTime();
+        List<HistoryResponseDTO> result = historyEnricher.enrich(histories);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertEquals(10, result.size());
+        assertTrue(result.stream().allMatch(HistoryResponseDTO::isPartial));
+        assertTrue(result.stream().allMatch(dto -> dto.getPostTitle() == null));
+        assertTrue(elapsedMillis < 1000, "Enrichment took " + elapsedMillis + " ms");
+        assertEquals(1, meterRegistry.get("history.enrichment.failures")
+                .tag("lookup", "posts").tag("reason", "TimeoutException").counter().count());
+        verifyNoInteractions(userFeignClient);
+    }
+
+    @Test
+    void snapshot_ShouldMarkMissingPostsDeletedAndSkipFailedAuthors() {
+        historyEnricher = newEnricher(Duration.ofSeconds(2));
+        when(postFeignClient.getPostsByIds(List.of("post1", "post2", "gone"))).thenReturn(ServiceResponse.<List<PostDTO>>builder()
+                .success(true)
+                .data(List.of(post("post1", "First", 7, "PUBLISHED"), post("post2", "Second", 8, "HIDDEN")))
+                .build());
+        when(userFeignClient.getUsersByIds(List.of(7, 8)))
+                .thenReturn(ServiceResponse.<List<UserDTO>>builder().success(false).message("users-service down").build());
+
+        List<PostSnapshotDTO> snapshots = historyEnricher.snapshot(List.of("post1", "post2", "gone"));
+
+        // Both authors failed, so only the deleted post can be snapshotted now
+        assertEquals(1, snapshots.size());
+        assertEquals("gone", snapshots.get(0).getPostId());
+        assertEquals("DELETED", snapshots.get(0).getAccessibility());
+    }
+
+    @Test
+    void snapshot_ShouldCarryPostAndAuthorDetails() {
+        historyEnricher = newEnricher(Duration.ofSeconds(2));
+        when(postFeignClient.getPostsByIds(List.of("post1"))).thenReturn(ServiceResponse.<List<PostDTO>>builder()
+                .success(true)
+                .data(List.of(post("post1", "First", 7, "HIDDEN")))
+                .build());
+        when(userFeignClient.getUsersByIds(List.of(7))).thenReturn(ServiceResponse.<List<UserDTO>>builder()
+                .success(true)
+                .data(List.of(UserDTO.builder().id(7).firstName("Ada").lastName("Lovelace").build()))
+                .build());
+
+        List<PostSnapshotDTO> snapshots = historyEnricher.snapshot(List.of("post1"));
+
+        assertEquals(1, snapshots.size());
+        assertEquals("First", snapshots.get(0).getTitle());
+        assertEquals(7, snapshots.get(0).getAuthorId());
+        assertEquals("Ada Lovelace", snapshots.get(0).getAuthorName());
+        assertEquals("HIDDEN", snapshots.get(0).getAccessibility());
+    }
+
+    private HistoryEnricher newEnricher(Duration callTimeout) {
+        return new HistoryEnricher(postFeignClient, userFeignClient,
+                meterRegistry, 100, 8, 100, callTimeout);
+    }
+
+    private PostDTO post(String postId, String title, Integer userId, String accessibility) {
+        return PostDTO.builder().postId(postId).title(title).userId(userId).accessibility(accessibility).build();
+    }
+
+    private List<History> histories(int size) {
+        List<History> histories = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            histories.add(History.builder().historyId(i).userId(1).postId("post" + i).build());
+        }
+        return histories;
+    }
+
+    /**
+     * Posts are answered after the latency plus the extra delay, authors after the latency; 50 authors in total.
+     * Post calls are counted while they are in flight.
+     */
+    private void stubSlowServices(long extraPostDelayMillis) {
+        when(postFeignClient.getPostsByIds(anyList())).thenAnswer(invocation -> {
+            List<String> ids = invocation.getArgument(0);
+            postBatchSizes.add(ids.size());
+            peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(CALL_LATENCY_MILLIS + extraPostDelayMillis);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return ServiceResponse.<List<PostDTO>>builder()
+                    .success(true)
+                    .data(ids.stream()
+                            .map(id -> post(id, "Title " + id, Integer.parseInt(id.substring(4)) % 50, "PUBLISHED"))
+                            .collect(Collectors.toList()))
+                    .build();
+        });
+        if (extraPostDelayMillis == 0) {
+            when(userFeignClient.getUsersByIds(anyList())).thenAnswer(invocation -> {
+                Thread.sleep(CALL_LATENCY_MILLIS);
+                List<Integer> ids = invocation.getArgument(0);
+                return ServiceResponse.<List<UserDTO>>builder()
+                        .success(true)
+                        .data(ids.stream()
+                                .map(id -> UserDTO.builder().id(id).firstName("First" + id).lastName("Last" + id).build())
+                                .collect(Collectors.toList()))
+                        .build();
+            });
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.beaconfire.history_service.service;
+
+import com.beaconfire.history_service.dto.HistoryViewDTO;
+import com.beaconfire.history_service.exception.IngestionBacklogException;
+import com.beaconfire.history_service.repository.HistoryViewWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class HistoryIngestionBufferTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Mock
+    private HistoryViewWriter historyViewWriter;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<List<HistoryViewDTO>> batches = Collections.synchronizedList(new ArrayList<>());
+    private HistoryIngestionBuffer historyIngestionBuffer;
+
+    @AfterEach
+    void tearDown() {
+        historyIngestionBuffer.shutdown();
+    }
+
+    @Test
+    void submit_RepeatedViews_ShouldCollapseIntoOneBatch() {
+        recordBatches();
+        historyIngestionBuffer = newBuffer(100, 100, Duration.ofSeconds(1));
+
+        for (int i = 0; i < 5; i++) {
+            historyIngestionBuffer.submit(1, "post1", NOW.plusSeconds(i));
+        }
+        historyIngestionBuffer.submit(2, "post1", NOW);
+        historyIngestionBuffer.shutdown();
+
+        assertEquals(1, batches.size());
+        List<HistoryViewDTO> batch = batches.get(0);
+        assertEquals(2, batch.size());
+        assertEquals(NOW.plusSeconds(4), batch.get(0).getViewDate());
+        assertEquals(2, batch.get(1).getUserId());
+        assertEquals(4, views("collapsed"));
+        assertEquals(2, meterRegistry.get("history.ingestion.lag").timer().count());
+    }
+
+    @Test
+    void submit_QueueFull_ShouldRejectView() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            batches.add(new ArrayList<>(invocation.getArgument(0)));
+            return null;
+        }).when(historyViewWriter).upsertViews(anyList());
+        historyIngestionBuffer = newBuffer(2, 1, Duration.ofMillis(10));
+
+        historyIngestionBuffer.submit(1, "post1", NOW);
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        historyIngestionBuffer.submit(1, "post2", NOW);
+        historyIngestionBuffer.submit(1, "post3", NOW);
+
+        assertThrows(IngestionBacklogException.class,
+                () -> historyIngestionBuffer.submit(1, "post4", NOW));
+        assertEquals(1, views("rejected"));
+
+        release.countDown();
+        historyIngestionBuffer.shutdown();
+        assertEquals(3, batches.stream().mapToInt(List::size).sum());
+    }
+
+    @Test
+    void shutdown_ShouldWriteQueuedViewsWithoutWaitingForTheWindow() {
+        recordBatches();
+        historyIngestionBuffer = newBuffer(100, 100, Duration.ofMinutes(1));
+        for (int i = 0; i < 3; i++) {
+            historyIngestionBuffer.submit(1, "post" + i, NOW);
+        }
+
+        long started = System.nanoTime();
+        historyIngestionBuffer.shutdown();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertEquals(3, batches.stream().mapToInt(List::size).sum());
+        assertTrue(elapsedMillis < 1000, "Shutdown took " + elapsedMillis + " ms");
+        assertThrows(IngestionBacklogException.class,
+                () -> historyIngestionBuffer.submit(1, "late", NOW));
+    }
+
+    @Test
+    void flush_WriterFailsOnce_ShouldRetryBatch() {
+        doThrow(new IllegalStateException("database down"))
+                .doAnswer(invocation -> {
+                    batches.add(new ArrayList<>(invocation.getArgument(0)));
+                    return null;
+                })
+                .when(historyViewWriter).upsertViews(anyList());
+        historyIngestionBuffer = newBuffer(100, 100, Duration.ofMillis(50));
+
+        historyIngestionBuffer.submit(1, "post1", NOW);
+        historyIngestionBuffer.submit(1, "post2", NOW);
+        historyIngestionBuffer.shutdown();
+
+        assertEquals(1, batches.size());
+        assertEquals(2, batches.get(0).size());
+        assertEquals(0, views("failed"));
+        assertEquals(1, meterRegistry.get("history.ingestion.retries").counter().count());
+        assertEquals(2, meterRegistry.get("history.ingestion.lag").timer().count());
+    }
+
+    @Test
+    void flush_WriterFails_ShouldCountDroppedViews() {
+        doThrow(new IllegalStateException("database down"))
+                .when(historyViewWriter).upsertViews(anyList());
+        historyIngestionBuffer = newBuffer(100, 100, Duration.ofMillis(50));
+
+        historyIngestionBuffer.submit(1, "post1", NOW);
+        historyIngestionBuffer.submit(1, "post2", NOW);
+        historyIngestionBuffer.shutdown();
+
+        verify(historyViewWriter, times(3)).upsertViews(anyList());
+        assertEquals(2, views("failed"));
+    }
+
+    private HistoryIngestionBuffer newBuffer(int queueCapacity, int batchSize, Duration flushInterval) {
+        return new HistoryIngestionBuffer(historyViewWriter, meterRegistry, queueCapacity, batchSize,
+                flushInterval, Duration.ofMillis(10), Duration.ofSeconds(5), 3, Duration.ofMillis(10));
+    }
+
+    private void recordBatches() {
+        doAnswer(invocation -> {
+            batches.add(new ArrayList<>(invocation.getArgument(0)));
+            return null;
+        }).when(historyViewWriter).upsertViews(anyList());
+    }
+
+    private double views(String outcome) {
+        return meterRegistry.get("history.ingestion.views").tag("outcome", outcome).counter().count();
+    }
+}
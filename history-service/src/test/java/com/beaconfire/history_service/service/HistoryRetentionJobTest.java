@@ -0,0 +1,84 @@
+package com.beaconfire.history_service.service;
+
+import com.beaconfire.history_service.repository.HistoryArchiver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class HistoryRetentionJobTest {
+
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Mock
+    private HistoryArchiver historyArchiver;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HistoryRetentionJob historyRetentionJob;
+
+    @BeforeEach
+    void setUp() {
+        historyRetentionJob = new HistoryRetentionJob(historyArchiver, meterRegistry);
+        ReflectionTestUtils.setField(historyRetentionJob, "batchSize", 100);
+        ReflectionTestUtils.setField(historyRetentionJob, "maxBatches", 5);
+        ReflectionTestUtils.setField(historyRetentionJob, "pause", Duration.ZERO);
+    }
+
+    @Test
+    void archiveOlderThan_ShouldStopAtShortBatch() {
+        when(historyArchiver.archiveBatch(CUTOFF, 100)).thenReturn(100, 100, 40);
+
+        long total = historyRetentionJob.archiveOlderThan(CUTOFF);
+
+        assertEquals(240, total);
+        verify(historyArchiver, times(3)).archiveBatch(CUTOFF, 100);
+        assertEquals(240, meterRegistry.get("history.retention.archived").counter().count());
+    }
+
+    @Test
+    void archiveOlderThan_ShouldStopAtMaxBatches() {
+        when(historyArchiver.archiveBatch(CUTOFF, 100)).thenReturn(100);
+
+        long total = historyRetentionJob.archiveOlderThan(CUTOFF);
+
+        assertEquals(500, total);
+        verify(historyArchiver, times(5)).archiveBatch(CUTOFF, 100);
+    }
+
+    @Test
+    void run_ShouldUseRetentionPeriodAsCutoff() {
+        ReflectionTestUtils.setField(historyRetentionJob, "enabled", true);
+        ReflectionTestUtils.setField(historyRetentionJob, "retentionDays", 30);
+        when(historyArchiver.archiveBatch(any(LocalDateTime.class), eq(100))).thenReturn(0);
+
+        LocalDateTime before = LocalDateTime.now().minusDays(30);
+        historyRetentionJob.run();
+        LocalDateTime after = LocalDateTime.now().minusDays(30);
+
+        ArgumentCaptor<LocalDateTime> cutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(historyArchiver).archiveBatch(cutoff.capture(), eq(100));
+        assertFalse(cutoff.getValue().isBefore(before));
+        assertFalse(cutoff.getValue().isAfter(after));
+        assertEquals(1, meterRegistry.get("history.retention.run").timer().count());
+    }
+
+    @Test
+    void run_Disabled_ShouldNotArchive() {
+        historyRetentionJob.run();
+
+        verify(historyArchiver, never()).archiveBatch(any(), anyInt());
+    }
+}
@@ -1,30 +1,36 @@
 package com.beaconfire.history_service.service;
 
-import com.beaconfire.history_service.dto.DataResponse;
 import com.beaconfire.history_service.dto.HistoryCreateDTO;
+import com.beaconfire.history_service.dto.HistoryPageDTO;
 import com.beaconfire.history_service.dto.HistoryResponseDTO;
+import com.beaconfire.history_service.dto.ServiceResponse;
+import com.beaconfire.history_service.dto.post.PostDTO;
 import com.beaconfire.history_service.dto.user.UserDTO;
 import com.beaconfire.history_service.entity.History;
+import com.beaconfire.history_service.exception.ValidationException;
 import com.beaconfire.history_service.feign.PostFeignClient;
 import com.beaconfire.history_service.feign.UserFeignClient;
 import com.beaconfire.history_service.repository.HistoryRepository;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
-import com.fasterxml.jackson.databind.JsonNode;
 
 @ExtendWith(MockitoExtension.class)
 class HistoryServiceTest {
@@ -42,9 +48,9 @@ class HistoryServiceTest {
     private UserFeignClient userFeignClient;
 
     @Mock
-    private ObjectMapper objectMapper;
+    private HistoryIngestionBuffer historyIngestionBuffer;
 
-    @InjectMocks
+    private HistoryEnricher historyEnricher;
     private HistoryService historyService;
 
     private History testHistory;
@@ -52,6 +58,11 @@ class HistoryServiceTest {
 
     @BeforeEach
     void setUp() {
+        historyEnricher = new HistoryEnricher(postFeignClient, userFeignClient,
+                new SimpleMeterRegistry(), 100, 4, 100, Duration.ofSeconds(2));
+        historyService = new HistoryService(historyRepository, validationService, historyEnricher,
+                Optional.empty());
+
         testHistory = History.builder()
                 .historyId(1)
                 .userId(1)
@@ -67,124 +78,272 @@ class HistoryServiceTest {
                 .build();
     }
 
+    @AfterEach
+    void tearDown() {
+        historyEnricher.shutdown();
+    }
+
     @Test
     void getUserHistory_ShouldReturnHistoryList() {
         // Mock History Repository
-        when(historyRepository.findByUserIdOrderByViewDateDesc(1))
+        when(historyRepository.findPage(eq(1), any(), any(), any(), any(), any()))
                 .thenReturn(Arrays.asList(testHistory));
 
-        // Mock Post Response
-        DataResponse postResponse = DataResponse.builder()
-                .success(true)
-                .data(Map.of(
-                        "post", Map.of(
-                                "title", "Test Post",
-                                "userId", 2,
-                                "accessibility", "PUBLISHED"
-                        )
-                ))
-                .build();
+        // Mock bulk Feign calls
+        when(postFeignClient.getPostsByIds(List.of("post123")))
+                .thenReturn(postsResponse(post("post123", "Test Post", 2, "PUBLISHED")));
+        when(userFeignClient.getUsersByIds(List.of(2)))
+                .thenReturn(usersResponse(user(2, "John", "Doe")));
 
-        // Mock User Response
-        DataResponse userResponse = DataResponse.builder()
-                .success(true)
-                .data(Map.of(
-                        "firstName", "John",
-                        "lastName", "Doe"
-                ))
-                .build();
-
-        // Mock Feign Client calls
-        when(postFeignClient.getPostById(testHistory.getPostId()))
-                .thenReturn(postResponse);
-        when(userFeignClient.getUserById(2))
-                .thenReturn(userResponse);
-
-        // Mock ObjectMapper responses
-        when(objectMapper.valueToTree(postResponse.getData()))
-                .thenReturn(createJsonNode(Map.of(
-                        "post", Map.of(
-                                "title", "Test Post",
-                                "userId", 2,
-                                "accessibility", "PUBLISHED"
-                        )
-                )));
-        when(objectMapper.convertValue(any(), eq(UserDTO.class)))
-                .thenReturn(UserDTO.builder()
-                        .firstName("John")
-                        .lastName("Doe")
-                        .build());
-
-        List<HistoryResponseDTO> result = historyService.getUserHistory(1);
+        List<HistoryResponseDTO> result = historyService.getUserHistory(1, null, null, null, null).getItems();
 
         assertNotNull(result);
         assertEquals(1, result.size());
         assertEquals(testHistory.getHistoryId(), result.get(0).getHistoryId());
         assertEquals("Test Post", result.get(0).getPostTitle());
         assertEquals("John Doe", result.get(0).getAuthorName());
+        assertEquals(2, result.get(0).getAuthorId());
+    }
+
+    @Test
+    void getUserHistory_Snapshotted_ShouldEnrichOnlyNewRows() {
+        History snapshotted = History.builder()
+                .historyId(2)
+                .userId(1)
+                .postId("seen")
+                .viewDate(LocalDateTime.now().minusDays(1))
+                .postTitle("Seen Post")
+                .authorId(3)
+                .authorName("Jane Roe")
+                .postAccessibility("PUBLISHED")
+                .snapshotAt(LocalDateTime.now())
+                .build();
+        when(historyRepository.findPage(eq(1), any(), any(), any(), any(), any()))
+                .thenReturn(Arrays.asList(testHistory, snapshotted));
+        when(postFeignClient.getPostsByIds(List.of("post123")))
+                .thenReturn(postsResponse(post("post123", "Test Post", 2, "PUBLISHED")));
+        when(userFeignClient.getUsersByIds(List.of(2)))
+                .thenReturn(usersResponse(user(2, "John", "Doe")));
+
+        List<HistoryResponseDTO> result = historyService.getUserHistory(1, null, null, null, null).getItems();
+
+        assertEquals(2, result.size());
+        assertEquals("Test Post", result.get(0).getPostTitle());
+        assertEquals("seen", result.get(1).getPostId());
+        assertEquals("Seen Post", result.get(1).getPostTitle());
+        assertEquals("Jane Roe", result.get(1).getAuthorName());
+        assertEquals(3, result.get(1).getAuthorId());
+        assertFalse(result.get(1).isPartial());
+    }
+
+    @Test
+    void getUserHistory_AllSnapshotted_ShouldNotCallOtherServices() {
+        testHistory.setPostTitle("Test Post");
+        testHistory.setAuthorId(2);
+        testHistory.setAuthorName("John Doe");
+        testHistory.setPostAccessibility("PUBLISHED");
+        testHistory.setSnapshotAt(LocalDateTime.now());
+        when(historyRepository.findPage(eq(1), any(), any(), any(), any(), any()))
+                .thenReturn(List.of(testHistory));
+
+        List<HistoryResponseDTO> result = historyService.getUserHistory(1, null, null, null, null).getItems();
+
+        assertEquals(1, result.size());
+        assertEquals("John Doe", result.get(0).getAuthorName());
+        verifyNoInteractions(postFeignClient, userFeignClient);
+    }
+
+    @Test
+    void getUserHistory_LargeHistory_ShouldLookUpPostsAndAuthorsInBatches() {
+        List<History> histories = new ArrayList<>();
+        List<PostDTO> posts = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            histories.add(History.builder().historyId(i).userId(1).postId("post" + i).build());
+            // Three authors between all posts
+            posts.add(post("post" + i, "Post " + i, i % 3, "PUBLISHED"));
+        }
+        when(historyRepository.findPage(eq(1), any(), any(), any(), any(), any())).thenReturn(histories);
+        when(postFeignClient.getPostsByIds(anyList())).thenAnswer(invocation -> {
+            List<String> ids = invocation.getArgument(0);
+            return postsResponse(posts.stream().filter(post -> ids.contains(post.getPostId())).toArray(PostDTO[]::new));
+        });
+        when(userFeignClient.getUsersByIds(anyList()))
+                .thenReturn(usersResponse(user(0, "Ann", "Lee"), user(1, "Bob", "Ray"), user(2, "Cy", "Kim")));
+
+        List<HistoryResponseDTO> result = historyService.getUserHistory(1, null, null, null, null).getItems();
+
+        assertEquals(150, result.size());
+        assertEquals("Post 0", result.get(0).getPostTitle());
+        assertEquals("Bob Ray", result.get(100).getAuthorName());
+        // 150 posts in batches of 100, three distinct authors in one batch
+        verify(postFeignClient, times(2)).getPostsByIds(anyList());
+        verify(userFeignClient, times(1)).getUsersByIds(List.of(0, 1, 2));
+        verify(postFeignClient, never()).getPostById(any());
+        verify(userFeignClient, never()).getUserById(any());
+    }
+
+    @Test
+    void getUserHistory_ShouldSkipUnpublishedPostsAndKeepUnknownAuthors() {
+        History hidden = History.builder().historyId(2).userId(1).postId("hidden").build();
+        History missing = History.builder().historyId(3).userId(1).postId("missing").build();
+        when(historyRepository.findPage(eq(1), any(), any(), any(), any(), any()))
+                .thenReturn(Arrays.asList(testHistory, hidden, missing));
+        when(postFeignClient.getPostsByIds(List.of("post123", "hidden", "missing")))
+                .thenReturn(postsResponse(
+                        post("post123", "Test Post", 2, "PUBLISHED"),
+                        post("hidden", "Hidden Post", 2, "HIDDEN")));
+        when(userFeignClient.getUsersByIds(List.of(2)))
+                .thenThrow(new RuntimeException("users-service unavailable"));
+
+        List<HistoryResponseDTO> result = historyService.getUserHistory(1, null, null, null, null).getItems();
+
+        assertEquals(1, result.size());
+        assertEquals("post123", result.get(0).getPostId());
+        assertEquals("Unknown Author", result.get(0).getAuthorName());
+        assertTrue(result.get(0).isPartial());
     }
 
     @Test
-    void createHistory_NewEntry_ShouldCreateHistory() {
-        when(historyRepository.findByUserIdAndPostId(1, "post123"))
-                .thenReturn(Optional.empty());
-        when(historyRepository.save(any(History.class)))
-                .thenReturn(testHistory);
+    void getUserHistory_PostLookupFails_ShouldKeepEntriesAsPartial() {
+        when(historyRepository.findPage(eq(1), any(), any(), any(), any(), any()))
+                .thenReturn(Arrays.asList(testHistory));
+        when(postFeignClient.getPostsByIds(List.of("post123")))
+                .thenThrow(new RuntimeException("posts-service unavailable"));
+
+        List<HistoryResponseDTO> result = historyService.getUserHistory(1, null, null, null, null).getItems();
+
+        assertEquals(1, result.size());
+        assertEquals("post123", result.get(0).getPostId());
+        assertNull(result.get(0).getPostTitle());
+        assertTrue(result.get(0).isPartial());
+        verifyNoInteractions(userFeignClient);
+    }
+
+    @Test
+    void getUserHistory_ShouldReadOnePageWithinTheWindow() {
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 2, 1, 0, 0);
+        LocalDateTime before = LocalDateTime.of(2024, 1, 15, 12, 0);
+        History newer = History.builder().historyId(2).userId(1).postId("post2")
+                .viewDate(LocalDateTime.of(2024, 1, 15, 11, 0)).build();
+        History older = History.builder().historyId(1).userId(1).postId("post1")
+                .viewDate(LocalDateTime.of(2024, 1, 10, 9, 30)).build();
+        when(historyRepository.findPage(1, from, to, before, 7, Limit.of(2)))
+                .thenReturn(Arrays.asList(newer, older));
+        when(postFeignClient.getPostsByIds(List.of("post2", "post1")))
+                .thenReturn(postsResponse(post("post2", "Second", 2, "PUBLISHED"), post("post1", "First", 2, "HIDDEN")));
+        when(userFeignClient.getUsersByIds(List.of(2)))
+                .thenReturn(usersResponse(user(2, "John", "Doe")));
+
+        HistoryPageDTO page = historyService.getUserHistory(1, from, to, "2024-01-15T12:00_7", 2);
+
+        // The hidden post is left out, but the cursor still moves past it
+        assertEquals(1, page.getItems().size());
+        assertEquals("Second", page.getItems().get(0).getPostTitle());
+        assertEquals("2024-01-10T09:30_1", page.getNextBefore());
+    }
+
+    @Test
+    void getUserHistory_BareDateCursor_ShouldListViewsStrictlyBeforeIt() {
+        LocalDateTime before = LocalDateTime.of(2024, 1, 15, 12, 0);
+
+        HistoryPageDTO page = historyService.getUserHistory(1, null, null, "2024-01-15T12:00", null);
+
+        assertTrue(page.getItems().isEmpty());
+        verify(historyRepository).findPage(eq(1), any(), any(), eq(before), eq(Integer.MIN_VALUE), eq(Limit.of(50)));
+    }
+
+    @Test
+    void getUserHistory_MalformedCursor_ShouldBeRejected() {
+        assertThrows(ValidationException.class,
+                () -> historyService.getUserHistory(1, null, null, "2024-01-15T12:00_x", null));
+        verifyNoInteractions(historyRepository);
+    }
+
+    @Test
+    void getUserHistory_LastPage_ShouldHaveNoCursor() {
+        when(historyRepository.findPage(eq(1), any(), any(), any(), any(), eq(Limit.of(200))))
+                .thenReturn(List.of());
+
+        HistoryPageDTO page = historyService.getUserHistory(1, null, null, null, 10_000);
+
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextBefore());
+        verifyNoInteractions(postFeignClient, userFeignClient);
+    }
+
+    @Test
+    void createHistory_ShouldUpsertInOneStatement() {
         doNothing().when(validationService)
                 .validateUserAndPost(any(), any());
+        when(historyRepository.upsertView(eq(1), eq("post123"), any(LocalDateTime.class)))
+                .thenReturn(1);
 
-        // Mock Post Response for new entry
-        DataResponse postResponse = DataResponse.builder()
-                .success(true)
-                .data(Map.of(
-                        "post", Map.of(
-                                "title", "Test Post",
-                                "userId", 2,
-                                "accessibility", "PUBLISHED"
-                        )
-                ))
-                .build();
+        HistoryResponseDTO result = historyService.createHistory(testCreateDTO);
 
-        // Mock User Response
-        DataResponse userResponse = DataResponse.builder()
-                .success(true)
-                .data(Map.of(
-                        "firstName", "John",
-                        "lastName", "Doe"
-                ))
-                .build();
+        assertNotNull(result);
+        assertEquals(1, result.getUserId());
+        assertEquals("post123", result.getPostId());
+        assertNotNull(result.getViewDate());
+        verify(historyRepository).upsertView(1, "post123", result.getViewDate());
+        verify(historyRepository, never()).findByUserIdAndPostId(any(), any());
+        verify(historyRepository, never()).save(any(History.class));
+        verifyNoInteractions(postFeignClient, userFeignClient);
+    }
 
-        // Mock Feign Client calls
-        when(postFeignClient.getPostById("post123"))
-                .thenReturn(postResponse);
-        when(userFeignClient.getUserById(2))
-                .thenReturn(userResponse);
-
-        // Mock ObjectMapper
-        when(objectMapper.valueToTree(postResponse.getData()))
-                .thenReturn(createJsonNode(Map.of(
-                        "post", Map.of(
-                                "title", "Test Post",
-                                "userId", 2,
-                                "accessibility", "PUBLISHED"
-                        )
-                )));
-        when(objectMapper.convertValue(any(), eq(UserDTO.class)))
-                .thenReturn(UserDTO.builder()
-                        .firstName("John")
-                        .lastName("Doe")
-                        .build());
+    @Test
+    void createHistory_ValidationDisabled_ShouldSkipRemoteCheck() {
+        ReflectionTestUtils.setField(historyService, "validateUser", false);
+        when(historyRepository.upsertView(eq(1), eq("post123"), any(LocalDateTime.class)))
+                .thenReturn(2);
+
+        historyService.createHistory(testCreateDTO);
+
+        verifyNoInteractions(validationService);
+        verify(historyRepository).upsertView(eq(1), eq("post123"), any(LocalDateTime.class));
+    }
+
+    @Test
+    void createHistory_Buffered_ShouldQueueView() {
+        historyService = new HistoryService(historyRepository, validationService, historyEnricher,
+                Optional.of(historyIngestionBuffer));
+        doNothing().when(validationService)
+                .validateUserAndPost(any(), any());
 
         HistoryResponseDTO result = historyService.createHistory(testCreateDTO);
 
-        assertNotNull(result);
-        assertEquals(testHistory.getHistoryId(), result.getHistoryId());
-        assertEquals("Test Post", result.getPostTitle());
-        assertEquals("John Doe", result.getAuthorName());
-        verify(historyRepository).save(any(History.class));
+        verify(historyIngestionBuffer).submit(1, "post123", result.getViewDate());
+        verify(historyRepository, never()).upsertView(any(), any(), any());
     }
 
-    private JsonNode createJsonNode(Map<String, Object> data) {
-        return new ObjectMapper().valueToTree(data);
+    private PostDTO post(String postId, String title, Integer userId, String accessibility) {
+        return PostDTO.builder()
+                .postId(postId)
+                .title(title)
+                .userId(userId)
+                .accessibility(accessibility)
+                .build();
+    }
+
+    private UserDTO user(Integer id, String firstName, String lastName) {
+        return UserDTO.builder()
+                .id(id)
+                .firstName(firstName)
+                .lastName(lastName)
+                .build();
+    }
+
+    private ServiceResponse<List<PostDTO>> postsResponse(PostDTO... posts) {
+        return ServiceResponse.<List<PostDTO>>builder()
+                .success(true)
+                .data(List.of(posts))
+                .build();
+    }
+
+    private ServiceResponse<List<UserDTO>> usersResponse(UserDTO... users) {
+        return ServiceResponse.<List<UserDTO>>builder()
+                .success(true)
+                .data(List.of(users))
+                .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,87 @@
+package com.beaconfire.history_service.service;
+
+import com.beaconfire.history_service.dto.post.PostSnapshotDTO;
+import com.beaconfire.history_service.repository.HistoryRepository;
+import com.beaconfire.history_service.repository.HistorySnapshotWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class HistorySnapshotRefresherTest {
+
+    @Mock
+    private HistoryRepository historyRepository;
+
+    @Mock
+    private HistorySnapshotWriter historySnapshotWriter;
+
+    @Mock
+    private HistoryEnricher historyEnricher;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HistorySnapshotRefresher historySnapshotRefresher;
+
+    @BeforeEach
+    void setUp() {
+        historySnapshotRefresher = new HistorySnapshotRefresher(historyRepository, historySnapshotWriter,
+                historyEnricher, meterRegistry);
+        ReflectionTestUtils.setField(historySnapshotRefresher, "batchSize", 2);
+    }
+
+    @Test
+    void refresh_ShouldFillNewRowsThenRenewStaleOnes() {
+        when(historyRepository.findPostIdsWithoutSnapshot(Limit.of(2)))
+                .thenReturn(List.of("new1", "new2"), List.of("new3"));
+        when(historyRepository.findPostIdsWithSnapshotBefore(any(LocalDateTime.class), eq(Limit.of(2))))
+                .thenReturn(List.of("old1"));
+        when(historyEnricher.snapshot(anyList())).thenAnswer(invocation -> {
+            List<String> postIds = invocation.getArgument(0);
+            return postIds.stream()
+                    .map(postId -> PostSnapshotDTO.builder().postId(postId).accessibility("PUBLISHED").build())
+                    .toList();
+        });
+
+        historySnapshotRefresher.refresh();
+
+        verify(historyEnricher).snapshot(List.of("new1", "new2"));
+        verify(historyEnricher).snapshot(List.of("new3"));
+        verify(historyEnricher).snapshot(List.of("old1"));
+        verify(historySnapshotWriter, times(3)).updateSnapshots(anyList(), any(LocalDateTime.class));
+        assertEquals(4, meterRegistry.get("history.snapshot.refreshed").counter().count());
+    }
+
+    @Test
+    void refresh_NothingFetched_ShouldStopInsteadOfRetryingTheSameBatch() {
+        when(historyRepository.findPostIdsWithoutSnapshot(Limit.of(2))).thenReturn(List.of("new1", "new2"));
+        when(historyRepository.findPostIdsWithSnapshotBefore(any(LocalDateTime.class), eq(Limit.of(2))))
+                .thenReturn(List.of());
+        when(historyEnricher.snapshot(List.of("new1", "new2"))).thenReturn(List.of());
+
+        historySnapshotRefresher.refresh();
+
+        verify(historyEnricher, times(1)).snapshot(anyList());
+        verifyNoInteractions(historySnapshotWriter);
+    }
+
+    @Test
+    void refresh_Disabled_ShouldDoNothing() {
+        ReflectionTestUtils.setField(historySnapshotRefresher, "enabled", false);
+
+        historySnapshotRefresher.refresh();
+
+        verifyNoInteractions(historyRepository, historyEnricher, historySnapshotWriter);
+    }
+}
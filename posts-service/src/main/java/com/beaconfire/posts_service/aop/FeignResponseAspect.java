@@ -0,0 +1,25 @@
+package com.beaconfire.posts_service.aop;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import com.beaconfire.posts_service.dto.ServiceResponse;
+import com.beaconfire.posts_service.feign.LastKnownResponses;
+
+@Aspect
+@Component
+public class FeignResponseAspect {
+
+    private final LastKnownResponses lastKnownResponses;
+
+    public FeignResponseAspect(LastKnownResponses lastKnownResponses) {
+        this.lastKnownResponses = lastKnownResponses;
+    }
+
+    @AfterReturning(pointcut = "execution(* com.beaconfire.posts_service.feign.UserFeignClient.*(..))", returning = "response")
+    public void recordResponse(JoinPoint joinPoint, ServiceResponse<?> response) {
+        lastKnownResponses.record(joinPoint.getSignature().getName(), joinPoint.getArgs(), response);
+    }
+}
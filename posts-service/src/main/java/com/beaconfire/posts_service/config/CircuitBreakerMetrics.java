@@ -0,0 +1,39 @@
+package com.beaconfire.posts_service.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Publishes feign.circuitbreaker.transitions{name, from, to} for every breaker, including the
+ * ones created lazily on a client's first call.
+ */
+@Component
+public class CircuitBreakerMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreakerMetrics.class);
+
+    private final MeterRegistry meterRegistry;
+
+    public CircuitBreakerMetrics(CircuitBreakerRegistry circuitBreakerRegistry, MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        circuitBreakerRegistry.getAllCircuitBreakers().forEach(this::bind);
+        circuitBreakerRegistry.getEventPublisher().onEntryAdded(event -> bind(event.getAddedEntry()));
+    }
+
+    private void bind(CircuitBreaker circuitBreaker) {
+        circuitBreaker.getEventPublisher().onStateTransition(event -> {
+            CircuitBreaker.StateTransition transition = event.getStateTransition();
+            logger.warn("Circuit breaker {} went from {} to {}", event.getCircuitBreakerName(),
+                    transition.getFromState(), transition.getToState());
+            meterRegistry.counter("feign.circuitbreaker.transitions",
+                    "name", event.getCircuitBreakerName(),
+                    "from", transition.getFromState().name(),
+                    "to", transition.getToState().name()).increment();
+        });
+    }
+}
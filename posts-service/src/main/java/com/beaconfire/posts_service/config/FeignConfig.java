@@ -0,0 +1,35 @@
+package com.beaconfire.posts_service.config;
+
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.cloud.openfeign.support.HttpMessageConverterCustomizer;
+import org.springframework.cloud.openfeign.support.ResponseEntityDecoder;
+import org.springframework.cloud.openfeign.support.SpringDecoder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.beaconfire.posts_service.feign.TypedResponseDecoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import feign.codec.Decoder;
+import feign.optionals.OptionalDecoder;
+
+/**
+ * Feign clients decode with the application's ObjectMapper, configured once by Spring Boot
+ * (Java time support included), and reuse one ObjectReader per return type.
+ */
+@Configuration
+public class FeignConfig {
+
+    @Bean
+    public Decoder feignDecoder(ObjectMapper objectMapper,
+                                MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter,
+                                ObjectFactory<HttpMessageConverters> messageConverters,
+                                ObjectProvider<HttpMessageConverterCustomizer> customizers) {
+        Decoder springDecoder = new SpringDecoder(messageConverters, customizers);
+        return new OptionalDecoder(new ResponseEntityDecoder(new TypedResponseDecoder(
+                objectMapper, smileHttpMessageConverter.getObjectMapper(), springDecoder)));
+    }
+}
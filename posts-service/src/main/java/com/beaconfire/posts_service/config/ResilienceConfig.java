@@ -0,0 +1,76 @@
+package com.beaconfire.posts_service.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JCircuitBreakerFactory;
+import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JConfigBuilder;
+import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4jBulkheadConfigurationBuilder;
+import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4jBulkheadProvider;
+import org.springframework.cloud.client.circuitbreaker.Customizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.ThreadPoolBulkheadConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+
+/**
+ * Breaker and bulkhead for each UserFeignClient method. Timeouts of the calls themselves are the
+ * Feign connect and read timeouts in application.properties.
+ */
+@Configuration
+public class ResilienceConfig {
+
+    @Value("${feign.resilience.failure-rate-threshold:50}")
+    private float failureRateThreshold = 50;
+
+    @Value("${feign.resilience.slow-call-duration:1s}")
+    private Duration slowCallDuration = Duration.ofSeconds(1);
+
+    @Value("${feign.resilience.sliding-window-size:20}")
+    private int slidingWindowSize = 20;
+
+    @Value("${feign.resilience.wait-in-open-state:10s}")
+    private Duration waitInOpenState = Duration.ofSeconds(10);
+
+    @Value("${feign.resilience.time-limit:3s}")
+    private Duration timeLimit = Duration.ofSeconds(3);
+
+    @Value("${feign.resilience.max-concurrent-calls:20}")
+    private int maxConcurrentCalls = 20;
+
+    @Bean
+    public Customizer<Resilience4JCircuitBreakerFactory> circuitBreakerCustomizer() {
+        return factory -> factory.configureDefault(id -> new Resilience4JConfigBuilder(id)
+                .circuitBreakerConfig(CircuitBreakerConfig.custom()
+                        .slidingWindowSize(slidingWindowSize)
+                        .minimumNumberOfCalls(Math.min(10, slidingWindowSize))
+                        .failureRateThreshold(failureRateThreshold)
+                        .slowCallDurationThreshold(slowCallDuration)
+                        .slowCallRateThreshold(failureRateThreshold)
+                        .waitDurationInOpenState(waitInOpenState)
+                        .permittedNumberOfCallsInHalfOpenState(3)
+                        .build())
+                .timeLimiterConfig(TimeLimiterConfig.custom()
+                        .timeoutDuration(timeLimit)
+                        .build())
+                .build());
+    }
+
+    @Bean
+    public Customizer<Resilience4jBulkheadProvider> bulkheadCustomizer() {
+        return provider -> provider.configureDefault(id -> new Resilience4jBulkheadConfigurationBuilder()
+                .bulkheadConfig(BulkheadConfig.custom()
+                        .maxConcurrentCalls(maxConcurrentCalls)
+                        .maxWaitDuration(Duration.ZERO)
+                        .build())
+                .threadPoolBulkheadConfig(ThreadPoolBulkheadConfig.custom()
+                        .coreThreadPoolSize(maxConcurrentCalls)
+                        .maxThreadPoolSize(maxConcurrentCalls)
+                        .queueCapacity(1)
+                        .build())
+                .build());
+    }
+}
@@ -0,0 +1,34 @@
+package com.beaconfire.posts_service.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import feign.RequestInterceptor;
+
+/**
+ * Reads and writes application/x-jackson-smile, Jackson's binary encoding of the same DTOs.
+ * The converter comes after JSON, so only callers asking for Smile get it. With
+ * feign.codec.smile.enabled, calls to users-service ask for Smile first and JSON second.
+ */
+@Configuration
+public class SmileConfig {
+
+    public static final String SMILE_FIRST = "application/x-jackson-smile, application/json;q=0.9";
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "feign.codec.smile.enabled", havingValue = "true")
+    public RequestInterceptor smileAcceptInterceptor() {
+        return template -> template.removeHeader(HttpHeaders.ACCEPT).header(HttpHeaders.ACCEPT, SMILE_FIRST);
+    }
+}
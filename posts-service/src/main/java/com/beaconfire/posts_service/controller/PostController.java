@@ -214,6 +214,24 @@ public class PostController {
                      .build();
      
     }
+
+    @Operation(summary = "Get posts by IDs", description = "Retrieves several posts in one call, without author details. IDs without a post are skipped.")
+    @GetMapping("/batch")
+    public DataResponse getPostsByIds(@RequestParam("ids") List<String> postIds) {
+        if (postIds.size() > PostService.MAX_BATCH_SIZE) {
+            return DataResponse.builder()
+                    .success(false)
+                    .message("At most " + PostService.MAX_BATCH_SIZE + " post IDs can be requested at once")
+                    .data(null)
+                    .build();
+        }
+        List<Post> posts = postService.getPostsByIds(postIds);
+        return DataResponse.builder()
+                .success(true)
+                .message("Posts retrieved successfully")
+                .data(posts)
+                .build();
+    }
     
     @Operation(summary = "Get posts by accessibility", description = "Retrieves posts filtered by accessibility status.")
     @GetMapping("/accessibility/{accessibility}")
@@ -0,0 +1,19 @@
+package com.beaconfire.posts_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A {@link DataResponse} from another service, with the payload decoded straight into its DTO.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ServiceResponse<T> {
+    private Boolean success;
+    private String message;
+    private T data;
+}
@@ -0,0 +1,68 @@
+package com.beaconfire.posts_service.feign;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.beaconfire.posts_service.dto.ServiceResponse;
+
+/**
+ * Successful users-service responses, by method and arguments, kept so the Feign fallback can
+ * answer with the last known user or permissions while users-service is down. Entries expire
+ * after max-age, so a user's permissions are never served stale for longer than that.
+ */
+@Component
+public class LastKnownResponses {
+
+    private final Duration maxAge;
+    private final Map<String, Entry> entries;
+
+    public LastKnownResponses(@Value("${feign.fallback.max-entries:1000}") int maxEntries,
+                              @Value("${feign.fallback.max-age:5m}") Duration maxAge) {
+        this.maxAge = maxAge;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Responses served by the fallback come back through here unchanged and are not re-stamped.
+     */
+    public synchronized void record(String method, Object[] args, ServiceResponse<?> response) {
+        if (response == null || !Boolean.TRUE.equals(response.getSuccess())) {
+            return;
+        }
+        String key = key(method, args);
+        Entry current = entries.get(key);
+        if (current == null || current.response() != response) {
+            entries.put(key, new Entry(response, System.nanoTime()));
+        }
+    }
+
+    /**
+     * The caller names the method, so the payload has the type that method returns.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> Optional<ServiceResponse<T>> find(String method, Object... args) {
+        Entry entry = entries.get(key(method, args));
+        if (entry == null || System.nanoTime() - entry.recordedNanos() > maxAge.toNanos()) {
+            return Optional.empty();
+        }
+        return Optional.of((ServiceResponse<T>) entry.response());
+    }
+
+    private static String key(String method, Object[] args) {
+        return method + Arrays.deepToString(args);
+    }
+
+    private record Entry(ServiceResponse<?> response, long recordedNanos) {
+    }
+}
@@ -0,0 +1,69 @@
+package com.beaconfire.posts_service.feign;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import feign.Response;
+import feign.Util;
+import feign.codec.Decoder;
+
+/**
+ * Decodes JSON and Smile response bodies straight into the declared return type, such as
+ * ServiceResponse&lt;UserDTO&gt;, with one ObjectReader per type built on first use from the
+ * already configured mappers. Other content types go to the fallback decoder.
+ */
+public class TypedResponseDecoder implements Decoder {
+
+    private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper smileMapper;
+    private final Decoder fallback;
+    private final Map<Type, ObjectReader> jsonReaders = new ConcurrentHashMap<>();
+    private final Map<Type, ObjectReader> smileReaders = new ConcurrentHashMap<>();
+
+    public TypedResponseDecoder(ObjectMapper jsonMapper, ObjectMapper smileMapper, Decoder fallback) {
+        this.jsonMapper = jsonMapper;
+        this.smileMapper = smileMapper;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public Object decode(Response response, Type type) throws IOException {
+        if (response.body() == null) {
+            return Util.emptyValueOf(type);
+        }
+        if (type == String.class) {
+            return fallback.decode(response, type);
+        }
+        MediaType contentType = contentType(response);
+        ObjectReader reader;
+        if (contentType == null || MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
+            reader = jsonReaders.computeIfAbsent(type, t -> jsonMapper.readerFor(jsonMapper.constructType(t)));
+        } else if (SMILE.isCompatibleWith(contentType)) {
+            reader = smileReaders.computeIfAbsent(type, t -> smileMapper.readerFor(smileMapper.constructType(t)));
+        } else {
+            return fallback.decode(response, type);
+        }
+        try (InputStream body = response.body().asInputStream()) {
+            return reader.readValue(body);
+        }
+    }
+
+    private static MediaType contentType(Response response) {
+        Collection<String> values = response.headers().get("Content-Type");
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        return MediaType.parseMediaType(values.iterator().next());
+    }
+}
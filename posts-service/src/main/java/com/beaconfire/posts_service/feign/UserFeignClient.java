@@ -4,14 +4,18 @@ import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 
-import com.beaconfire.posts_service.dto.DataResponse;
+import com.beaconfire.posts_service.config.FeignConfig;
+import com.beaconfire.posts_service.dto.ServiceResponse;
+import com.beaconfire.posts_service.dto.UserDTO;
+import com.beaconfire.posts_service.dto.UserPermissionsDTO;
 
-@FeignClient(name = "USERS-SERVICE")
+@FeignClient(name = "USERS-SERVICE", configuration = FeignConfig.class,
+        fallbackFactory = UserFeignClientFallbackFactory.class)
 public interface UserFeignClient {
 
     @GetMapping("/users/{id}")
-    DataResponse getUserById(@PathVariable("id") Integer userId);
+    ServiceResponse<UserDTO> getUserById(@PathVariable("id") Integer userId);
     
     @GetMapping("/users/{id}/permissions")
-    DataResponse getUserPermissions(@PathVariable("id") Integer userId);
+    ServiceResponse<UserPermissionsDTO> getUserPermissions(@PathVariable("id") Integer userId);
 }
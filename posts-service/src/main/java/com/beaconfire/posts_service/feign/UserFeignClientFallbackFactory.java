@@ -0,0 +1,52 @@
+package com.beaconfire.posts_service.feign;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.openfeign.FallbackFactory;
+import org.springframework.stereotype.Component;
+
+import com.beaconfire.posts_service.dto.ServiceResponse;
+import com.beaconfire.posts_service.dto.UserDTO;
+import com.beaconfire.posts_service.dto.UserPermissionsDTO;
+
+/**
+ * Answers users-service calls that failed, timed out, found the circuit open or the bulkhead
+ * full. Callers already treat an unsuccessful response as "user unknown", which for permissions
+ * means the action is refused.
+ */
+@Component
+public class UserFeignClientFallbackFactory implements FallbackFactory<UserFeignClient> {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserFeignClientFallbackFactory.class);
+
+    private final LastKnownResponses lastKnownResponses;
+
+    public UserFeignClientFallbackFactory(LastKnownResponses lastKnownResponses) {
+        this.lastKnownResponses = lastKnownResponses;
+    }
+
+    @Override
+    public UserFeignClient create(Throwable cause) {
+        logger.warn("users-service call failed: {}", cause.toString());
+        return new UserFeignClient() {
+            @Override
+            public ServiceResponse<UserDTO> getUserById(Integer userId) {
+                return lastKnownResponses.<UserDTO>find("getUserById", userId)
+                        .orElseGet(() -> unavailable(cause));
+            }
+
+            @Override
+            public ServiceResponse<UserPermissionsDTO> getUserPermissions(Integer userId) {
+                return lastKnownResponses.<UserPermissionsDTO>find("getUserPermissions", userId)
+                        .orElseGet(() -> unavailable(cause));
+            }
+        };
+    }
+
+    private <T> ServiceResponse<T> unavailable(Throwable cause) {
+        return ServiceResponse.<T>builder()
+                .success(false)
+                .message("users-service unavailable: " + cause.getMessage())
+                .build();
+    }
+}
@@ -1,10 +1,11 @@
 package com.beaconfire.posts_service.service;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 import org.springframework.cache.annotation.CacheEvict;
@@ -17,8 +18,8 @@ import com.beaconfire.posts_service.domain.Metadata;
 import com.beaconfire.posts_service.domain.Post;
 import com.beaconfire.posts_service.domain.PostReply;
 import com.beaconfire.posts_service.domain.SubReply;
-import com.beaconfire.posts_service.dto.DataResponse;
 import com.beaconfire.posts_service.dto.PostWithUserDTO;
+import com.beaconfire.posts_service.dto.ServiceResponse;
 import com.beaconfire.posts_service.dto.UserDTO;
 import com.beaconfire.posts_service.dto.UserPermissionsDTO;
 import com.beaconfire.posts_service.dto.UserType;
@@ -26,27 +27,26 @@ import com.beaconfire.posts_service.exception.PostNotFoundException;
 import com.beaconfire.posts_service.exception.ReplyNotFoundException;
 import com.beaconfire.posts_service.feign.UserFeignClient;
 import com.beaconfire.posts_service.repo.PostRepository;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 //LOOK into getAllPosts , getPostById for interaction with User service
 @Service
 public class PostService {
 
+    // Upper bound on the IDs accepted by one batch lookup
+    public static final int MAX_BATCH_SIZE = 100;
+
     private final PostRepository postRepository;
     private final UserFeignClient userFeignClient;
-    private final ObjectMapper objectMapper;
     
-    public PostService(PostRepository postRepository, UserFeignClient userFeignClient, ObjectMapper objectMapper ) {
+    public PostService(PostRepository postRepository, UserFeignClient userFeignClient) {
         this.postRepository = postRepository;
         this.userFeignClient= userFeignClient;
-        this.objectMapper = objectMapper;
     }
     private UserDTO fetchUserById(Integer userId) {
         try {
-            DataResponse response = userFeignClient.getUserById(userId);
-            if (response.getSuccess()) {
-                return objectMapper.convertValue(response.getData(), UserDTO.class);
+            ServiceResponse<UserDTO> response = userFeignClient.getUserById(userId);
+            if (Boolean.TRUE.equals(response.getSuccess())) {
+                return response.getData();
             }
         } catch (Exception e) {
             System.err.println("Error fetching user data for ID: " + userId + " - " + e.getMessage());
@@ -58,26 +58,12 @@ public class PostService {
     public List<PostWithUserDTO> getPostsByUserId(Integer userId) {
         List<Post> posts = postRepository.findByUserId(userId);
 
-        AtomicReference<UserDTO> userRef = new AtomicReference<>(null);
-
-        try {
-            DataResponse response = userFeignClient.getUserById(userId);
-            if (response.getSuccess()) {
-                // Configure ObjectMapper to handle LocalDateTime
-                objectMapper.registerModule(new JavaTimeModule());
-                
-                // Convert data to UserDTO
-                UserDTO user = objectMapper.convertValue(response.getData(), UserDTO.class);
-                userRef.set(user);
-            }
-        } catch (Exception e) {
-            System.err.println("Error fetching user data: " + e.getMessage());
-        }
+        UserDTO user = fetchUserById(userId);
 
         return posts.stream()
                 .map(post -> PostWithUserDTO.builder()
                         .post(post)
-                        .user(userRef.get())
+                        .user(user)
                         .build())
                 .collect(Collectors.toList());
     }
@@ -97,17 +83,17 @@ public class PostService {
                 .collect(Collectors.toList());
     }
 
+    // The checks here need only the user's type and active flag, which the user record carries
     public UserPermissionsDTO fetchUserPermissions(Integer userId) {
-        try {
-            DataResponse response = userFeignClient.getUserById(userId);
-            if (response.getSuccess()) {
-                objectMapper.registerModule(new JavaTimeModule());
-                return objectMapper.convertValue(response.getData(), UserPermissionsDTO.class);
-            }
-        } catch (Exception e) {
-            System.err.println("Error fetching user permissions: " + e.getMessage());
+        UserDTO user = fetchUserById(userId);
+        if (user == null) {
+            return null;
         }
-        return null;
+        return UserPermissionsDTO.builder()
+                .userId(user.getId())
+                .type(user.getType())
+                .active(user.getActive())
+                .build();
     }
 
 
@@ -279,6 +265,14 @@ public class PostService {
     }
 
 
+    /**
+     * Posts for a batch of IDs in one query, without author details, for callers that look the
+     * authors up in bulk themselves. IDs without a post are skipped.
+     */
+    public List<Post> getPostsByIds(Collection<String> postIds) {
+        return postRepository.findAllById(new LinkedHashSet<>(postIds));
+    }
+
     @Cacheable(value = "posts", key = "#postId", unless = "#result == null")
     public PostWithUserDTO getPostById(String postId) {
         Post post = postRepository.findById(postId)
@@ -172,6 +172,39 @@ class PostControllerTest {
         verify(postService, times(1)).getPostsByUserId(1);
     }
 
+    @Test
+    void getPostsByIds_Success() {
+        // Arrange
+        Post first = new Post();
+        first.setPostId("p1");
+        Post second = new Post();
+        second.setPostId("p2");
+
+        when(postService.getPostsByIds(List.of("p1", "p2"))).thenReturn(List.of(first, second));
+
+        // Act
+        DataResponse response = postController.getPostsByIds(List.of("p1", "p2"));
+
+        // Assert
+        assertTrue(response.getSuccess());
+        assertEquals(2, ((List<?>) response.getData()).size());
+        verify(postService, times(1)).getPostsByIds(List.of("p1", "p2"));
+    }
+
+    @Test
+    void getPostsByIds_TooManyIds() {
+        // Arrange
+        List<String> postIds = Collections.nCopies(PostService.MAX_BATCH_SIZE + 1, "p1");
+
+        // Act
+        DataResponse response = postController.getPostsByIds(postIds);
+
+        // Assert
+        assertFalse(response.getSuccess());
+        assertNull(response.getData());
+        verifyNoInteractions(postService);
+    }
+
     @Test
     void updateAccessibility_Success() {
         // Arrange
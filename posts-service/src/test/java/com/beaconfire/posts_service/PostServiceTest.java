@@ -31,16 +31,14 @@ import com.beaconfire.posts_service.domain.Metadata;
 import com.beaconfire.posts_service.domain.Post;
 import com.beaconfire.posts_service.domain.PostReply;
 import com.beaconfire.posts_service.domain.SubReply;
-import com.beaconfire.posts_service.dto.DataResponse;
 import com.beaconfire.posts_service.dto.PostWithUserDTO;
+import com.beaconfire.posts_service.dto.ServiceResponse;
 import com.beaconfire.posts_service.dto.UserDTO;
-import com.beaconfire.posts_service.dto.UserPermissionsDTO;
 import com.beaconfire.posts_service.exception.PostNotFoundException;
 import com.beaconfire.posts_service.exception.ReplyNotFoundException;
 import com.beaconfire.posts_service.feign.UserFeignClient;
 import com.beaconfire.posts_service.repo.PostRepository;
 import com.beaconfire.posts_service.service.PostService;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 class PostServiceTest {
 
@@ -50,9 +48,6 @@ class PostServiceTest {
     @Mock
     private UserFeignClient userFeignClient;
 
-    @Mock
-    private ObjectMapper objectMapper;
-
     @InjectMocks
     private PostService postService;
 
@@ -60,8 +55,7 @@ class PostServiceTest {
     void setUp() {
         userFeignClient = mock(UserFeignClient.class);
         postRepository = mock(PostRepository.class);
-        objectMapper = new ObjectMapper();
-        postService = new PostService(postRepository, userFeignClient, objectMapper);
+        postService = new PostService(postRepository, userFeignClient);
     }
 
     
@@ -80,13 +74,13 @@ class PostServiceTest {
         userDTO.setId(userId);
         userDTO.setFirstName("John");
 
-        DataResponse userResponse = mock(DataResponse.class);
-        when(userResponse.getSuccess()).thenReturn(true);
-        when(userResponse.getData()).thenReturn(userDTO);
+        ServiceResponse<UserDTO> userResponse = ServiceResponse.<UserDTO>builder()
+                .success(true)
+                .data(userDTO)
+                .build();
 
         when(postRepository.findByUserId(userId)).thenReturn(posts);
         when(userFeignClient.getUserById(userId)).thenReturn(userResponse);
-        when(objectMapper.convertValue(userResponse.getData(), UserDTO.class)).thenReturn(userDTO);
 
         // Act
         List<PostWithUserDTO> result = postService.getPostsByUserId(userId);
@@ -108,15 +102,15 @@ class PostServiceTest {
         Post post = new Post();
         post.setUserId(userId);
 
-        UserPermissionsDTO permissions = new UserPermissionsDTO();
-        permissions.setActive(true);
+        UserDTO user = new UserDTO();
+        user.setActive(true);
 
-        DataResponse mockResponse = mock(DataResponse.class);
-        when(mockResponse.getSuccess()).thenReturn(true);
-        when(mockResponse.getData()).thenReturn(permissions);
+        ServiceResponse<UserDTO> mockResponse = ServiceResponse.<UserDTO>builder()
+                .success(true)
+                .data(user)
+                .build();
 
         when(userFeignClient.getUserById(userId)).thenReturn(mockResponse);
-        when(objectMapper.convertValue(mockResponse.getData(), UserPermissionsDTO.class)).thenReturn(permissions);
         when(postRepository.save(any(Post.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
@@ -135,15 +129,15 @@ class PostServiceTest {
         Post post = new Post();
         post.setUserId(userId);
 
-        UserPermissionsDTO permissions = new UserPermissionsDTO();
-        permissions.setActive(false);
+        UserDTO user = new UserDTO();
+        user.setActive(false);
 
-        DataResponse mockResponse = mock(DataResponse.class);
-        when(mockResponse.getSuccess()).thenReturn(true);
-        when(mockResponse.getData()).thenReturn(permissions);
+        ServiceResponse<UserDTO> mockResponse = ServiceResponse.<UserDTO>builder()
+                .success(true)
+                .data(user)
+                .build();
 
         when(userFeignClient.getUserById(userId)).thenReturn(mockResponse);
-        when(objectMapper.convertValue(mockResponse.getData(), UserPermissionsDTO.class)).thenReturn(permissions);
 
         // Act & Assert
         IllegalStateException exception = assertThrows(IllegalStateException.class, () -> postService.createPost(post));
@@ -250,7 +244,7 @@ class PostServiceTest {
 
         when(postRepository.findById(postId)).thenReturn(Optional.of(post));
         when(userFeignClient.getUserById(2)).thenReturn(
-                DataResponse.builder().success(false).build()
+                ServiceResponse.<UserDTO>builder().success(false).build()
         );
 
         Exception exception = assertThrows(IllegalStateException.class, () -> postService.updatePost(postId, updatedPost));
@@ -302,16 +296,16 @@ class PostServiceTest {
         reply.setUserId(userId);
         reply.setComment("Test reply");
 
-        UserPermissionsDTO permissions = UserPermissionsDTO.builder()
-                .userId(userId)
+        UserDTO user = UserDTO.builder()
+                .id(userId)
                 .active(true)
                 .build();
 
-        // Create DataResponse with UserPermissionsDTO as the data
-        DataResponse mockResponse = DataResponse.builder()
+        // Create the users-service response with the user as the data
+        ServiceResponse<UserDTO> mockResponse = ServiceResponse.<UserDTO>builder()
                 .success(true)
                 .message("User found")
-                .data(permissions)
+                .data(user)
                 .build();
 
         when(postRepository.findById(postId)).thenReturn(Optional.of(post));
@@ -363,16 +357,16 @@ class PostServiceTest {
         PostReply reply = new PostReply();
         reply.setUserId(userId);
 
-        UserPermissionsDTO permissions = UserPermissionsDTO.builder()
-                .userId(userId)
+        UserDTO user = UserDTO.builder()
+                .id(userId)
                 .active(false)
                 .build();
 
-        // Create DataResponse with UserPermissionsDTO as the data
-        DataResponse mockResponse = DataResponse.builder()
+        // Create the users-service response with the user as the data
+        ServiceResponse<UserDTO> mockResponse = ServiceResponse.<UserDTO>builder()
                 .success(true)
                 .message("User found")
-                .data(permissions)
+                .data(user)
                 .build();
 
         when(postRepository.findById(postId)).thenReturn(Optional.of(post));
@@ -403,16 +397,16 @@ class PostServiceTest {
         reply.setComment("Existing reply");
 
         // Mock user permissions
-        UserPermissionsDTO permissions = UserPermissionsDTO.builder()
-                .userId(userId)
+        UserDTO user = UserDTO.builder()
+                .id(userId)
                 .active(true)
                 .build();
 
-        // Create DataResponse with UserPermissionsDTO as the data
-        DataResponse mockResponse = DataResponse.builder()
+        // Create the users-service response with the user as the data
+        ServiceResponse<UserDTO> mockResponse = ServiceResponse.<UserDTO>builder()
                 .success(true)
                 .message("User found")
-                .data(permissions)
+                .data(user)
                 .build();
 
         // Mock post repository and userFeignClient
@@ -834,10 +828,21 @@ public void testUpdateSubReply_SubReplyNotFound() {
     verify(postRepository, never()).save(any(Post.class));
 }
 
+@Test
+public void testGetPostsByIds_QueriesEachIdOnce() {
+    // Arrange
+    Post post = new Post();
+    post.setPostId("p1");
+    when(postRepository.findAllById(Set.of("p1"))).thenReturn(List.of(post));
 
-}
-
-
+    // Act
+    List<Post> posts = postService.getPostsByIds(List.of("p1", "p1"));
 
+    // Assert
+    assertEquals(1, posts.size());
+    verify(postRepository, times(1)).findAllById(Set.of("p1"));
+    verify(userFeignClient, never()).getUserById(any());
+}
 
 
+}
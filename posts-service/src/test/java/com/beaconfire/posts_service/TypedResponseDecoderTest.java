@@ -0,0 +1,93 @@
+package com.beaconfire.posts_service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.beaconfire.posts_service.dto.ServiceResponse;
+import com.beaconfire.posts_service.dto.UserDTO;
+import com.beaconfire.posts_service.dto.UserType;
+import com.beaconfire.posts_service.feign.TypedResponseDecoder;
+import com.beaconfire.posts_service.feign.UserFeignClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import feign.Request;
+import feign.Response;
+import feign.codec.Decoder;
+
+class TypedResponseDecoderTest {
+
+    private static final String USER_JSON = "{\"success\":true,\"message\":\"User found\",\"data\":"
+            + "{\"id\":7,\"firstName\":\"Ada\",\"type\":\"NORMAL\",\"active\":true,"
+            + "\"createdAt\":\"2024-01-01T10:00:00\",\"unknownField\":\"ignored\"}}";
+
+    private final ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper smileMapper = Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build();
+    private final Decoder fallback = mock(Decoder.class);
+    private final TypedResponseDecoder decoder = new TypedResponseDecoder(jsonMapper, smileMapper, fallback);
+
+    @Test
+    void testDecodesJsonIntoTypedUser() throws Exception {
+        ServiceResponse<UserDTO> response = decodeUser(response("application/json",
+                USER_JSON.getBytes(StandardCharsets.UTF_8)));
+
+        assertTrue(response.getSuccess());
+        assertEquals(7, response.getData().getId());
+        assertEquals(UserType.NORMAL, response.getData().getType());
+        assertEquals(LocalDateTime.of(2024, 1, 1, 10, 0), response.getData().getCreatedAt());
+    }
+
+    @Test
+    void testDecodesSmileIntoTypedUser() throws Exception {
+        byte[] smile = smileMapper.writeValueAsBytes(jsonMapper.readTree(USER_JSON));
+
+        ServiceResponse<UserDTO> response = decodeUser(response("application/x-jackson-smile", smile));
+
+        assertEquals("Ada", response.getData().getFirstName());
+        assertEquals(LocalDateTime.of(2024, 1, 1, 10, 0), response.getData().getCreatedAt());
+    }
+
+    @Test
+    void testOtherContentTypesGoToFallback() throws Exception {
+        Response response = response("text/plain", "not json".getBytes(StandardCharsets.UTF_8));
+        Type type = userResponseType();
+        when(fallback.decode(response, type)).thenReturn(null);
+
+        assertNull(decoder.decode(response, type));
+        verify(fallback).decode(response, type);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ServiceResponse<UserDTO> decodeUser(Response response) throws Exception {
+        return (ServiceResponse<UserDTO>) decoder.decode(response, userResponseType());
+    }
+
+    private static Type userResponseType() throws NoSuchMethodException {
+        return UserFeignClient.class.getMethod("getUserById", Integer.class).getGenericReturnType();
+    }
+
+    private static Response response(String contentType, byte[] body) {
+        Map<String, Collection<String>> headers = Map.of("Content-Type", List.of(contentType));
+        return Response.builder()
+                .status(200)
+                .request(Request.create(Request.HttpMethod.GET, "/users/7", Map.of(), null,
+                        StandardCharsets.UTF_8, null))
+                .headers(headers)
+                .body(body)
+                .build();
+    }
+}
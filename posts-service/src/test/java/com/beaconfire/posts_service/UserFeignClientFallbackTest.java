@@ -0,0 +1,55 @@
+package com.beaconfire.posts_service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import com.beaconfire.posts_service.dto.ServiceResponse;
+import com.beaconfire.posts_service.dto.UserDTO;
+import com.beaconfire.posts_service.dto.UserPermissionsDTO;
+import com.beaconfire.posts_service.feign.LastKnownResponses;
+import com.beaconfire.posts_service.feign.UserFeignClient;
+import com.beaconfire.posts_service.feign.UserFeignClientFallbackFactory;
+
+class UserFeignClientFallbackTest {
+
+    private final LastKnownResponses lastKnownResponses = new LastKnownResponses(100, Duration.ofMinutes(5));
+    private final UserFeignClient fallback = new UserFeignClientFallbackFactory(lastKnownResponses)
+            .create(new RuntimeException("CircuitBreaker 'UserFeignClientgetUserByIdInteger' is OPEN"));
+
+    @Test
+    void testFallbackServesLastKnownUser() {
+        ServiceResponse<UserDTO> user = ServiceResponse.<UserDTO>builder()
+                .success(true)
+                .data(UserDTO.builder().id(1).build())
+                .build();
+        lastKnownResponses.record("getUserById", new Object[]{1}, user);
+
+        assertSame(user, fallback.getUserById(1));
+    }
+
+    @Test
+    void testFallbackDegradesWithoutLastKnownResponse() {
+        lastKnownResponses.record("getUserPermissions", new Object[]{1},
+                ServiceResponse.builder().success(false).message("User not found").build());
+
+        ServiceResponse<UserPermissionsDTO> response = fallback.getUserPermissions(1);
+
+        assertFalse(response.getSuccess());
+        assertEquals("users-service unavailable: CircuitBreaker 'UserFeignClientgetUserByIdInteger' is OPEN",
+                response.getMessage());
+    }
+
+    @Test
+    void testLastKnownResponseExpires() {
+        LastKnownResponses expiring = new LastKnownResponses(100, Duration.ZERO);
+        expiring.record("getUserById", new Object[]{1}, ServiceResponse.builder().success(true).build());
+
+        assertTrue(expiring.find("getUserById", 1).isEmpty());
+    }
+}
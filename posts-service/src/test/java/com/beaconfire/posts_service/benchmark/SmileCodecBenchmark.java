@@ -0,0 +1,104 @@
+package com.beaconfire.posts_service.benchmark;
+
+import com.beaconfire.posts_service.dto.ServiceResponse;
+import com.beaconfire.posts_service.dto.UserDTO;
+import com.beaconfire.posts_service.dto.UserType;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of writing and reading a batch of users, as a /users/batch response, in JSON and in Smile.
+ * Both mappers come from the same builder settings the services use, so only the encoding differs.
+ * Encoded sizes are printed once per trial.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.beaconfire.posts_service.benchmark.SmileCodecBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SmileCodecBenchmark {
+
+    private static final TypeReference<ServiceResponse<List<UserDTO>>> USERS = new TypeReference<>() {};
+
+    @Param({"1", "100"})
+    private int users;
+
+    private ObjectWriter jsonWriter;
+    private ObjectReader jsonReader;
+    private ObjectWriter smileWriter;
+    private ObjectReader smileReader;
+    private ServiceResponse<List<UserDTO>> response;
+    private byte[] json;
+    private byte[] smile;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+        ObjectMapper smileMapper = Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build();
+        jsonWriter = jsonMapper.writerFor(USERS);
+        jsonReader = jsonMapper.readerFor(USERS);
+        smileWriter = smileMapper.writerFor(USERS);
+        smileReader = smileMapper.readerFor(USERS);
+
+        List<UserDTO> batch = new ArrayList<>();
+        for (int i = 1; i <= users; i++) {
+            batch.add(UserDTO.builder()
+                    .id(i)
+                    .firstName("First" + i)
+                    .lastName("Last" + i)
+                    .email("user" + i + "@example.com")
+                    .type(UserType.NORMAL)
+                    .active(true)
+                    .createdAt(LocalDateTime.of(2024, 1, 1, 10, 0))
+                    .updatedAt(LocalDateTime.of(2024, 6, 1, 10, 0))
+                    .profileImageUrl("https://cdn.example.com/avatars/" + i + ".png")
+                    .build());
+        }
+        response = ServiceResponse.<List<UserDTO>>builder().success(true).message("Users found").data(batch).build();
+        json = jsonWriter.writeValueAsBytes(response);
+        smile = smileWriter.writeValueAsBytes(response);
+        System.out.printf("%n%d users: JSON %d bytes, Smile %d bytes%n", users, json.length, smile.length);
+    }
+
+    @Benchmark
+    public byte[] writeJson() throws IOException {
+        return jsonWriter.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] writeSmile() throws IOException {
+        return smileWriter.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public ServiceResponse<List<UserDTO>> readJson() throws IOException {
+        return jsonReader.readValue(json);
+    }
+
+    @Benchmark
+    public ServiceResponse<List<UserDTO>> readSmile() throws IOException {
+        return smileReader.readValue(smile);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SmileCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
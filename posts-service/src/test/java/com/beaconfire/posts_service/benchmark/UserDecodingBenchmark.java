@@ -0,0 +1,92 @@
+package com.beaconfire.posts_service.benchmark;
+
+import com.beaconfire.posts_service.dto.ServiceResponse;
+import com.beaconfire.posts_service.dto.UserDTO;
+import com.beaconfire.posts_service.feign.TypedResponseDecoder;
+import com.beaconfire.posts_service.feign.UserFeignClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import feign.Request;
+import feign.Response;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a users-service user response on the posts hot path, three ways: registering
+ * JavaTimeModule on the shared mapper per call and converting the payload map to UserDTO, as
+ * PostService used to; the same map conversion on a mapper configured once; and
+ * TypedResponseDecoder reading straight into ServiceResponse&lt;UserDTO&gt; with a cached ObjectReader.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.beaconfire.posts_service.benchmark.UserDecodingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserDecodingBenchmark {
+
+    private static final byte[] USER_JSON = ("{\"success\":true,\"message\":\"User found\",\"data\":{"
+            + "\"id\":1,\"firstName\":\"Ada\",\"lastName\":\"Lovelace\",\"email\":\"ada@example.com\","
+            + "\"type\":\"NORMAL\",\"active\":true,"
+            + "\"createdAt\":\"2024-01-01T10:00:00\",\"updatedAt\":\"2024-06-01T10:00:00\","
+            + "\"profileImageUrl\":\"https://cdn.example.com/avatars/1.png\"}}").getBytes(StandardCharsets.UTF_8);
+
+    private ObjectMapper sharedMapper;
+    private ObjectMapper objectMapper;
+    private TypedResponseDecoder decoder;
+    private Type userResponseType;
+    private Request request;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        sharedMapper = new ObjectMapper();
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        ObjectMapper smileMapper = Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build();
+        decoder = new TypedResponseDecoder(objectMapper, smileMapper, (response, type) -> null);
+        userResponseType = UserFeignClient.class.getMethod("getUserById", Integer.class).getGenericReturnType();
+        request = Request.create(Request.HttpMethod.GET, "/users/1", Map.of(), null, StandardCharsets.UTF_8, null);
+    }
+
+    @Benchmark
+    public UserDTO registerModulePerCall() throws IOException {
+        sharedMapper.registerModule(new JavaTimeModule());
+        Map<?, ?> response = sharedMapper.readValue(USER_JSON, Map.class);
+        return sharedMapper.convertValue(response.get("data"), UserDTO.class);
+    }
+
+    @Benchmark
+    public UserDTO convertValue() throws IOException {
+        Map<?, ?> response = objectMapper.readValue(USER_JSON, Map.class);
+        return objectMapper.convertValue(response.get("data"), UserDTO.class);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public UserDTO typedObjectReader() throws IOException {
+        Response response = Response.builder()
+                .status(200)
+                .request(request)
+                .headers(Map.of("Content-Type", List.of("application/json")))
+                .body(USER_JSON)
+                .build();
+        return ((ServiceResponse<UserDTO>) decoder.decode(response, userResponseType)).getData();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UserDecodingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,158 @@
+package com.beaconfire.posts_service.benchmark;
+
+import com.beaconfire.posts_service.dto.ServiceResponse;
+import com.beaconfire.posts_service.dto.UserDTO;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import feign.Client;
+import feign.Feign;
+import feign.RequestLine;
+import feign.codec.Decoder;
+import feign.hc5.ApacheHttp5Client;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Fetching a user from a local stand-in for users-service, the way PostService did before and does
+ * now: a fresh connection per call with the payload decoded to a map and converted to UserDTO,
+ * against a pooled HttpClient 5 connection with the payload decoded straight into UserDTO.
+ * The stand-in gzips responses above 1KB when the client accepts gzip, like server.compression.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.beaconfire.posts_service.benchmark.UserFeignCallBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserFeignCallBenchmark {
+
+    private static final int MIN_COMPRESSED_SIZE = 1024;
+
+    /** Padding added to the profile image URL, to compare payloads below and above the gzip threshold. */
+    @Param({"0", "4096"})
+    private int padding;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private HttpServer server;
+    private CloseableHttpClient pooledHttpClient;
+    private UsersApi unpooledUntyped;
+    private UsersApi pooledTyped;
+
+    /** The users-service call, declared without Spring MVC annotations so plain Feign can target it. */
+    interface UsersApi {
+        @RequestLine("GET /users/{id}")
+        ServiceResponse<UserDTO> getUserById(@feign.Param("id") Integer userId);
+
+        @RequestLine("GET /users/{id}")
+        ServiceResponse<Object> getUserByIdUntyped(@feign.Param("id") Integer userId);
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] body = userJson(padding).getBytes(StandardCharsets.UTF_8);
+        byte[] gzipped = gzip(body);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/users/", exchange -> respond(exchange, body, gzipped));
+        server.start();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        Decoder decoder = (response, type) -> {
+            try (Reader reader = response.body().asReader(StandardCharsets.UTF_8)) {
+                return objectMapper.readValue(reader, objectMapper.constructType(type));
+            }
+        };
+        unpooledUntyped = Feign.builder()
+                .client(new Client.Default(null, null))
+                .decoder(decoder)
+                .target(UsersApi.class, url);
+
+        pooledHttpClient = HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(200)
+                        .setMaxConnPerRoute(50)
+                        .build())
+                .build();
+        pooledTyped = Feign.builder()
+                .client(new ApacheHttp5Client(pooledHttpClient))
+                .decoder(decoder)
+                .target(UsersApi.class, url);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        pooledHttpClient.close();
+        server.stop(0);
+    }
+
+    @Benchmark
+    public UserDTO unpooledConvertValue() {
+        ServiceResponse<Object> response = unpooledUntyped.getUserByIdUntyped(1);
+        return objectMapper.convertValue(response.getData(), UserDTO.class);
+    }
+
+    @Benchmark
+    public UserDTO pooledTypedDecode() {
+        return pooledTyped.getUserById(1).getData();
+    }
+
+    private static void respond(HttpExchange exchange, byte[] body, byte[] gzipped) throws IOException {
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        boolean compress = body.length >= MIN_COMPRESSED_SIZE
+                && acceptEncoding != null && acceptEncoding.contains("gzip");
+        byte[] payload = compress ? gzipped : body;
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (compress) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, payload.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(payload);
+        }
+    }
+
+    private static String userJson(int padding) {
+        return "{\"success\":true,\"message\":\"User found\",\"data\":{"
+                + "\"id\":1,\"firstName\":\"Ada\",\"lastName\":\"Lovelace\",\"email\":\"ada@example.com\","
+                + "\"type\":\"NORMAL\",\"active\":true,"
+                + "\"createdAt\":\"2024-01-01T10:00:00\",\"updatedAt\":\"2024-06-01T10:00:00\","
+                + "\"profileImageUrl\":\"https://cdn.example.com/avatars/1.png?v=" + "a".repeat(padding) + "\"}}";
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UserFeignCallBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
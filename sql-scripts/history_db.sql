@@ -0,0 +1,50 @@
+-- Indexes for the history table. New databases get them from the History entity mapping;
+-- run this once on an existing history_db.
+
+-- Keep only the latest view per user and post so the unique index can be added
+DELETE h FROM history h
+JOIN history newer
+    ON newer.user_id = h.user_id
+    AND newer.post_id = h.post_id
+    AND (newer.view_date > h.view_date
+        OR (newer.view_date = h.view_date AND newer.history_id > h.history_id));
+
+-- One row per user and post; also serves lookups by user and post
+-- Pages of a user's history, newest first
+ALTER TABLE history
+    ADD UNIQUE INDEX uk_history_user_post (user_id, post_id),
+    ADD INDEX idx_history_user_view_date (user_id, view_date);
+
+-- Rows past the retention period are found by view date
+ALTER TABLE history
+    ADD INDEX idx_history_view_date (view_date);
+
+-- Archived rows, moved out of history by the retention job
+CREATE TABLE history_archive (
+    history_id INT PRIMARY KEY,
+    user_id INT NOT NULL,
+    post_id VARCHAR(255) NOT NULL,
+    view_date DATETIME(6) NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    archived_at DATETIME(6) NOT NULL,
+    INDEX idx_history_archive_user (user_id)
+);
+
+-- Per-user totals of the archived rows
+CREATE TABLE history_rollup (
+    user_id INT PRIMARY KEY,
+    archived_views BIGINT NOT NULL,
+    first_view_date DATETIME(6) NOT NULL,
+    last_view_date DATETIME(6) NOT NULL
+);
+
+-- Post snapshot stored with each row, filled in by the snapshot refresher
+ALTER TABLE history
+    ADD COLUMN post_title VARCHAR(255),
+    ADD COLUMN author_id INT,
+    ADD COLUMN author_name VARCHAR(255),
+    ADD COLUMN post_accessibility VARCHAR(255),
+    ADD COLUMN snapshot_at DATETIME(6),
+    ADD INDEX idx_history_post (post_id),
+    ADD INDEX idx_history_snapshot_at (snapshot_at);
@@ -9,9 +9,16 @@ CREATE TABLE users (
     type ENUM('VISITOR', 'NORMAL', 'ADMIN', 'SUPERADMIN') NOT NULL,
     profile_image_url VARCHAR(255),
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    date_joined DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Admin user listings: keyset pages by date joined, optionally filtered by type and active
+CREATE INDEX idx_users_date_joined ON users (date_joined, user_id);
+CREATE INDEX idx_users_type_date_joined ON users (type, date_joined, user_id);
+CREATE INDEX idx_users_active_date_joined ON users (active, date_joined, user_id);
+CREATE INDEX idx_users_type_active_date_joined ON users (type, active, date_joined, user_id);
+
 -- Insert Admin User
 INSERT INTO users (first_name, last_name, email, active, type, profile_image_url)
 VALUES 
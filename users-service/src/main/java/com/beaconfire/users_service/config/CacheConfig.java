@@ -0,0 +1,34 @@
+package com.beaconfire.users_service.config;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Caches are Caffeine caches sized by spring.cache.caffeine.spec. Hits and misses of each cache
+ * are published as cache.gets; the permissions hit rate is also a gauge of its own.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String USER_PERMISSIONS = "userPermissions";
+
+    @Bean
+    public MeterBinder userPermissionsHitRate(CacheManager cacheManager) {
+        return registry -> Gauge.builder("users.permissions.cache.hit.rate", cacheManager, manager -> {
+                    Cache cache = manager.getCache(USER_PERMISSIONS);
+                    return cache instanceof CaffeineCache caffeineCache
+                            ? caffeineCache.getNativeCache().stats().hitRate()
+                            : Double.NaN;
+                })
+                .description("Share of permission lookups answered from the cache since startup")
+                .register(registry);
+    }
+}
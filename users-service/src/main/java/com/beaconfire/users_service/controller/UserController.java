@@ -3,7 +3,9 @@ package com.beaconfire.users_service.controller;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
@@ -12,12 +14,17 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.beaconfire.users_service.domain.User.UserType;
 import com.beaconfire.users_service.dto.DataResponse;
 import com.beaconfire.users_service.dto.UpdateDto;
 import com.beaconfire.users_service.dto.UserDTO;
+import com.beaconfire.users_service.dto.UserPageDTO;
 import com.beaconfire.users_service.dto.UserPermissionsDTO;
+import com.beaconfire.users_service.dto.UserSummaryDTO;
 import com.beaconfire.users_service.exception.ResourceNotFoundException;
+import com.beaconfire.users_service.service.UserChangeLog;
 import com.beaconfire.users_service.service.UserService;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -33,11 +40,15 @@ import jakarta.validation.Valid;
 @RequestMapping("/users")
 public class UserController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final UserService userService;
+    private final UserChangeLog userChangeLog;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserChangeLog userChangeLog) {
         this.userService = userService;
+        this.userChangeLog = userChangeLog;
     }
 
     // Fetch user by ID
@@ -95,6 +106,90 @@ public class UserController {
     	}
 
 
+    @Operation(
+            summary = "Get Users by IDs",
+            description = "Retrieve several users in one call. IDs without a user are skipped."
+        )
+        @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Users fetched successfully"),
+            @ApiResponse(responseCode = "400", description = "Too many user IDs"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+        })
+        @GetMapping("/batch")
+        public ResponseEntity<DataResponse> getUsersByIds(
+                @Parameter(description = "IDs of the users to be fetched", required = true)
+                @RequestParam("ids") List<Integer> userIds) {
+            if (userIds.size() > UserService.MAX_BATCH_SIZE) {
+                return ResponseEntity.badRequest().body(
+                        DataResponse.builder()
+                                .success(false)
+                                .message("At most " + UserService.MAX_BATCH_SIZE + " user IDs can be requested at once.")
+                                .data(null)
+                                .build()
+                );
+            }
+            try {
+                List<UserDTO> users = userService.findUsersByIds(userIds);
+                return ResponseEntity.ok(
+                        DataResponse.builder()
+                                .success(true)
+                                .message("Users fetched successfully.")
+                                .data(users)
+                                .build()
+                );
+            } catch (Exception e) {
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                        DataResponse.builder()
+                                .success(false)
+                                .message("An unexpected error occurred.")
+                                .data(null)
+                                .build()
+                );
+            }
+        }
+
+    @Operation(
+            summary = "Get User Summaries by IDs",
+            description = "Retrieve the ID, name and profile image of several users, for showing authors. IDs without a user are skipped."
+        )
+        @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "User summaries fetched successfully"),
+            @ApiResponse(responseCode = "400", description = "Too many user IDs"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+        })
+        @GetMapping("/summaries")
+        public ResponseEntity<DataResponse> getUserSummariesByIds(
+                @Parameter(description = "IDs of the users to be fetched", required = true)
+                @RequestParam("ids") List<Integer> userIds) {
+            if (userIds.size() > UserService.MAX_BATCH_SIZE) {
+                return ResponseEntity.badRequest().body(
+                        DataResponse.builder()
+                                .success(false)
+                                .message("At most " + UserService.MAX_BATCH_SIZE + " user IDs can be requested at once.")
+                                .data(null)
+                                .build()
+                );
+            }
+            try {
+                List<UserSummaryDTO> users = userService.findUserSummariesByIds(userIds);
+                return ResponseEntity.ok(
+                        DataResponse.builder()
+                                .success(true)
+                                .message("User summaries fetched successfully.")
+                                .data(users)
+                                .build()
+                );
+            } catch (Exception e) {
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                        DataResponse.builder()
+                                .success(false)
+                                .message("An unexpected error occurred.")
+                                .data(null)
+                                .build()
+                );
+            }
+        }
+
     @Operation(
     	    summary = "Update User Profile",
     	    description = "Partially update a user's profile details using a PATCH request."
@@ -242,25 +337,44 @@ public class UserController {
 
     
     @Operation(
-    	    summary = "Get All Users",
-    	    description = "Fetch all users from the system as a list of user details."
+    	    summary = "List Users",
+    	    description = "One page of users ordered by date joined, newest first unless direction is ASC, "
+    	            + "optionally filtered by type and active flag. The X-Next-Cursor header carries the "
+    	            + "cursor for the next page and is absent on the last one."
     	)
     	@ApiResponses({
     	    @ApiResponse(responseCode = "200", description = "Users fetched successfully"),
+    	    @ApiResponse(responseCode = "400", description = "Invalid type, direction or cursor"),
     	    @ApiResponse(responseCode = "500", description = "Internal server error")
     	})
     	@GetMapping
-    	public ResponseEntity<DataResponse> getAllUsers() {
+    	public ResponseEntity<DataResponse> getAllUsers(
+    	        @Parameter(description = "Only users of this type") @RequestParam(value = "type", required = false) String type,
+    	        @Parameter(description = "Only active or only banned users") @RequestParam(value = "active", required = false) Boolean active,
+    	        @Parameter(description = "DESC (newest first) or ASC") @RequestParam(value = "direction", defaultValue = "DESC") String direction,
+    	        @Parameter(description = "Cursor from the previous page") @RequestParam(value = "cursor", required = false) String cursor,
+    	        @Parameter(description = "Page size") @RequestParam(value = "limit", required = false) Integer limit) {
     	    try {
-    	        // Call the service to fetch all users
-    	        List<UserDTO> users = userService.getAllUsers();
+    	        UserPageDTO page = userService.findUsers(type != null ? UserType.fromValue(type) : null, active,
+    	                Sort.Direction.fromString(direction), cursor, limit);
 
-    	        // Return success response
-    	        return ResponseEntity.ok(
+    	        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+    	        if (page.getNextCursor() != null) {
+    	            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+    	        }
+    	        return response.body(
     	                DataResponse.builder()
     	                        .success(true)
     	                        .message("Users fetched successfully.")
-    	                        .data(users)
+    	                        .data(page.getItems())
+    	                        .build()
+    	        );
+    	    } catch (IllegalArgumentException e) {
+    	        return ResponseEntity.badRequest().body(
+    	                DataResponse.builder()
+    	                        .success(false)
+    	                        .message(e.getMessage())
+    	                        .data(null)
     	                        .build()
     	        );
     	    } catch (Exception e) {
@@ -274,7 +388,58 @@ public class UserController {
     	        );
     	    }
     	}
+
+    @Operation(
+            summary = "Export Users",
+            description = "All users matching the filters as a JSON array, ordered by date joined and "
+                    + "streamed while they are read, for dashboards and reports."
+        )
+        @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Users streamed"),
+            @ApiResponse(responseCode = "400", description = "Invalid type or direction")
+        })
+        @GetMapping("/export")
+        public ResponseEntity<StreamingResponseBody> exportUsers(
+                @RequestParam(value = "type", required = false) String type,
+                @RequestParam(value = "active", required = false) Boolean active,
+                @RequestParam(value = "direction", defaultValue = "DESC") String direction) {
+            UserType userType;
+            Sort.Direction sortDirection;
+            try {
+                userType = type != null ? UserType.fromValue(type) : null;
+                sortDirection = Sort.Direction.fromString(direction);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> userService.exportUsers(userType, active, sortDirection, out));
+        }
     
+    @Operation(
+            summary = "Get User Changes",
+            description = "Users whose profile, type or active flag changed after the given token, "
+                    + "for services that cache users or permissions. Poll again with the returned latest token; "
+                    + "when complete is false, drop every cached entry. Tokens are only valid on the instance "
+                    + "that issued them and until it restarts, and it only records changes made through it; "
+                    + "any other token is answered with complete false."
+        )
+        @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "User changes fetched successfully")
+        })
+        @GetMapping("/changes")
+        public ResponseEntity<DataResponse> getUserChanges(
+                @Parameter(description = "Latest token already seen; omit on the first poll")
+                @RequestParam(value = "since", required = false) String since) {
+            return ResponseEntity.ok(
+                    DataResponse.builder()
+                            .success(true)
+                            .message("User changes fetched successfully.")
+                            .data(userChangeLog.changesSince(since))
+                            .build()
+            );
+        }
+
     @Operation(
             summary = "Get User by Email",
             description = "Retrieve the details of a user by their email address."
@@ -4,6 +4,8 @@ package com.beaconfire.users_service.domain;
 import java.time.LocalDateTime;
 import java.util.Date;
 
+import org.hibernate.annotations.DynamicUpdate;
+
 import com.fasterxml.jackson.annotation.JsonCreator;
 
 import jakarta.persistence.Column;
@@ -13,6 +15,7 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
@@ -27,7 +30,15 @@ import lombok.ToString;
 
 
 @Entity
-@Table(name = "users")
+// auth-service writes the same table, so updates only set the columns that changed
+@DynamicUpdate
+// Admin listings page by date joined, newest or oldest first, optionally filtered by type and active
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_date_joined", columnList = "date_joined, user_id"),
+        @Index(name = "idx_users_type_date_joined", columnList = "type, date_joined, user_id"),
+        @Index(name = "idx_users_active_date_joined", columnList = "active, date_joined, user_id"),
+        @Index(name = "idx_users_type_active_date_joined", columnList = "type, active, date_joined, user_id")
+})
 @Getter
 @Setter
 @ToString
@@ -0,0 +1,26 @@
+package com.beaconfire.users_service.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserChangesDTO {
+    // Pass as "since" on the next poll; names the instance that issued it
+    private String latest;
+
+    // False when changes after "since" are no longer all kept, or "since" was issued by another
+    // instance or before a restart; drop every cached entry then
+    private boolean complete;
+
+    // Users changed after "since", each once
+    private List<Integer> userIds;
+}
@@ -28,6 +28,7 @@ public class UserDTO {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private String profileImageUrl;
+    private LocalDateTime dateJoined;
 
 
     public static UserDTO fromUser(User user) {
@@ -41,6 +42,7 @@ public class UserDTO {
                 .createdAt(user.getCreatedAt())
                 .updatedAt(user.getUpdatedAt())
                 .profileImageUrl(user.getProfileImageUrl())
+                .dateJoined(user.getDateJoined())
                 .build();
     }
 }
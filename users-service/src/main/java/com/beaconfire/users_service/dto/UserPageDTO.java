@@ -0,0 +1,21 @@
+package com.beaconfire.users_service.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserPageDTO {
+    private List<UserDTO> items;
+
+    // Pass as "cursor" to get the next page in the same order; null on the last page
+    private String nextCursor;
+}
@@ -0,0 +1,22 @@
+package com.beaconfire.users_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * What other services show of a post or reply author.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSummaryDTO {
+    private Integer id;
+    private String firstName;
+    private String lastName;
+    private String profileImageUrl;
+}
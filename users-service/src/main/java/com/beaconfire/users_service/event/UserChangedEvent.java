@@ -0,0 +1,8 @@
+package com.beaconfire.users_service.event;
+
+/**
+ * Published after a user's profile, type or active flag is saved. Anything derived from the user,
+ * such as cached permissions, is stale from then on.
+ */
+public record UserChangedEvent(Integer userId) {
+}
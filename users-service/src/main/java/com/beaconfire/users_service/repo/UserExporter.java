@@ -0,0 +1,87 @@
+package com.beaconfire.users_service.repo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.beaconfire.users_service.domain.User.UserType;
+import com.beaconfire.users_service.dto.UserDTO;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Writes users out as a JSON array while the rows are read. The driver fetches fetchSize rows at
+ * a time (a server-side cursor with useCursorFetch=true), so memory use does not grow with the
+ * number of users.
+ */
+@Repository
+public class UserExporter {
+
+    private static final String SELECT_USERS =
+            "SELECT user_id, first_name, last_name, email, type, active, created_at, updated_at, "
+            + "profile_image_url, date_joined FROM users "
+            + "WHERE (:type IS NULL OR type = :type) AND (:active IS NULL OR active = :active) "
+            + "ORDER BY date_joined %1$s, user_id %1$s";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public UserExporter(DataSource dataSource, ObjectMapper objectMapper,
+                        @Value("${users.export.fetch-size:500}") int fetchSize) {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.setFetchSize(fetchSize);
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(template);
+        this.objectMapper = objectMapper;
+    }
+
+    public void export(UserType type, Boolean active, Sort.Direction direction, OutputStream out) throws IOException {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("type", type != null ? type.name() : null)
+                .addValue("active", active);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            try {
+                jdbcTemplate.query(String.format(SELECT_USERS, direction.name()), params, rs -> {
+                    try {
+                        generator.writeObject(toDTO(rs));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private static UserDTO toDTO(ResultSet rs) throws SQLException {
+        return UserDTO.builder()
+                .id(rs.getInt("user_id"))
+                .firstName(rs.getString("first_name"))
+                .lastName(rs.getString("last_name"))
+                .email(rs.getString("email"))
+                .type(UserType.valueOf(rs.getString("type")))
+                .active(rs.getObject("active", Boolean.class))
+                .createdAt(rs.getObject("created_at", LocalDateTime.class))
+                .updatedAt(rs.getObject("updated_at", LocalDateTime.class))
+                .profileImageUrl(rs.getString("profile_image_url"))
+                .dateJoined(rs.getObject("date_joined", LocalDateTime.class))
+                .build();
+    }
+}
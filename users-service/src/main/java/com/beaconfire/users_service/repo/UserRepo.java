@@ -1,13 +1,79 @@
 package com.beaconfire.users_service.repo;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.beaconfire.users_service.domain.User;
+import com.beaconfire.users_service.domain.User.UserType;
+import com.beaconfire.users_service.dto.UserDTO;
+import com.beaconfire.users_service.dto.UserSummaryDTO;
 
 @Repository
 public interface UserRepo extends JpaRepository<User, Integer> {
+
+    String USER_DTO = "SELECT new com.beaconfire.users_service.dto.UserDTO(u.id, u.firstName, u.lastName, "
+            + "u.email, u.type, u.active, u.createdAt, u.updatedAt, u.profileImageUrl, u.dateJoined) FROM User u ";
+
+    String PAGE_FILTER = "WHERE (:type IS NULL OR u.type = :type) AND (:active IS NULL OR u.active = :active) ";
+
     Optional<User> findByEmail(String email);
+
+    // Read-only lookups below select only the columns their DTO needs (never the password hash)
+    // and build the DTO directly, without managed entities
+
+    @Query(USER_DTO + "WHERE u.id = :id")
+    Optional<UserDTO> findDtoById(@Param("id") Integer id);
+
+    @Query(USER_DTO + "WHERE u.id IN :ids")
+    List<UserDTO> findDtosByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query(USER_DTO + "WHERE u.email = :email")
+    Optional<UserDTO> findDtoByEmail(@Param("email") String email);
+
+    @Query("SELECT new com.beaconfire.users_service.dto.UserSummaryDTO(u.id, u.firstName, u.lastName, "
+            + "u.profileImageUrl) FROM User u WHERE u.id IN :ids")
+    List<UserSummaryDTO> findSummariesByIdIn(@Param("ids") Collection<Integer> ids);
+
+    Optional<RoleView> findRoleById(Integer id);
+
+    /**
+     * Keyset page, newest first: users who joined before the cursor, or at the same time with a
+     * lower ID. Null filters match everyone.
+     */
+    @Query(USER_DTO + PAGE_FILTER
+            + "AND (u.dateJoined < :joined OR (u.dateJoined = :joined AND u.id < :id)) "
+            + "ORDER BY u.dateJoined DESC, u.id DESC")
+    List<UserDTO> findPageJoinedBefore(@Param("type") UserType type, @Param("active") Boolean active,
+                                       @Param("joined") LocalDateTime joined, @Param("id") Integer id,
+                                       Limit limit);
+
+    /**
+     * Keyset page, oldest first: users who joined after the cursor, or at the same time with a
+     * higher ID. Null filters match everyone.
+     */
+    @Query(USER_DTO + PAGE_FILTER
+            + "AND (u.dateJoined > :joined OR (u.dateJoined = :joined AND u.id > :id)) "
+            + "ORDER BY u.dateJoined ASC, u.id ASC")
+    List<UserDTO> findPageJoinedAfter(@Param("type") UserType type, @Param("active") Boolean active,
+                                      @Param("joined") LocalDateTime joined, @Param("id") Integer id,
+                                      Limit limit);
+
+    /**
+     * What permissions are derived from.
+     */
+    interface RoleView {
+        Integer getId();
+
+        UserType getType();
+
+        Boolean getActive();
+    }
 }
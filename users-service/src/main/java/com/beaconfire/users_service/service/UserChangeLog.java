@@ -0,0 +1,87 @@
+package com.beaconfire.users_service.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.beaconfire.users_service.dto.UserChangesDTO;
+import com.beaconfire.users_service.event.UserChangedEvent;
+
+/**
+ * The most recent user changes, numbered in order, so other services can keep near-caches of
+ * users or permissions and poll for what to drop. Only the last users.changes.capacity changes are
+ * kept; a caller that fell further behind is told its view is incomplete.
+ * <p>
+ * The log lives in memory and only sees changes made through this instance, so tokens name the
+ * instance that issued them. A token from before a restart, or from another instance behind the
+ * same load balancer, is answered as incomplete rather than compared with this instance's numbers.
+ */
+@Component
+public class UserChangeLog {
+
+    private record Change(long sequence, Integer userId) {
+    }
+
+    private final String instance = UUID.randomUUID().toString();
+    private final Deque<Change> changes = new ArrayDeque<>();
+    private long latest;
+
+    @Value("${users.changes.capacity:10000}")
+    private int capacity = 10000;
+
+    @EventListener
+    public synchronized void onUserChanged(UserChangedEvent event) {
+        changes.addLast(new Change(++latest, event.userId()));
+        if (changes.size() > capacity) {
+            changes.removeFirst();
+        }
+    }
+
+    /**
+     * Users changed after the given token, as returned in latest by an earlier call. No token, or
+     * one issued by another instance or before a restart, yields an incomplete answer.
+     */
+    public synchronized UserChangesDTO changesSince(String since) {
+        long sequence = sequenceOf(since);
+        long oldestKept = changes.isEmpty() ? latest + 1 : changes.peekFirst().sequence();
+        Set<Integer> userIds = new LinkedHashSet<>();
+        if (sequence >= 0) {
+            Iterator<Change> newestFirst = changes.descendingIterator();
+            while (newestFirst.hasNext()) {
+                Change change = newestFirst.next();
+                if (change.sequence() <= sequence) {
+                    break;
+                }
+                userIds.add(change.userId());
+            }
+        }
+        return UserChangesDTO.builder()
+                .latest(instance + ":" + latest)
+                .complete(sequence >= 0 && sequence <= latest && sequence >= oldestKept - 1)
+                .userIds(userIds.stream().toList())
+                .build();
+    }
+
+    // The sequence number in a token issued by this instance, or -1 for any other token
+    private long sequenceOf(String token) {
+        if (token == null) {
+            return -1;
+        }
+        int separator = token.lastIndexOf(':');
+        if (separator < 0 || !token.substring(0, separator).equals(instance)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(token.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -1,43 +1,92 @@
 package com.beaconfire.users_service.service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.beaconfire.users_service.config.CacheConfig;
 import com.beaconfire.users_service.domain.User;
 import com.beaconfire.users_service.domain.User.UserType;
 import com.beaconfire.users_service.dto.UpdateDto;
 import com.beaconfire.users_service.dto.UserDTO;
+import com.beaconfire.users_service.dto.UserPageDTO;
 import com.beaconfire.users_service.dto.UserPermissionsDTO;
+import com.beaconfire.users_service.dto.UserSummaryDTO;
+import com.beaconfire.users_service.event.UserChangedEvent;
 import com.beaconfire.users_service.exception.ResourceNotFoundException;
+import com.beaconfire.users_service.repo.UserExporter;
 import com.beaconfire.users_service.repo.UserRepo;
+import com.beaconfire.users_service.repo.UserRepo.RoleView;
 
 @Service
 public class UserService {
 
+    // Upper bound on the IDs accepted by one batch lookup
+    public static final int MAX_BATCH_SIZE = 100;
+
+    // Keyset cursors before the first page
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 0, 0);
+
     private final UserRepo userRepo;
+    private final UserExporter userExporter;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${users.page.default-limit:50}")
+    private int defaultLimit = 50;
+
+    @Value("${users.page.max-limit:200}")
+    private int maxLimit = 200;
 
 
     @Autowired
-    public UserService(UserRepo userRepo) {
+    public UserService(UserRepo userRepo, UserExporter userExporter, ApplicationEventPublisher eventPublisher) {
         this.userRepo = userRepo;
-
+        this.userExporter = userExporter;
+        this.eventPublisher = eventPublisher;
     }
 
     // Find user by ID
+    @Transactional(readOnly = true)
     public UserDTO findUserById(int userId) {
-        User user = userRepo.findById(userId).orElse(null);
-        if (user == null) {
-            throw new ResourceNotFoundException("User not found with ID: " + userId);
-        }
-        return UserDTO.fromUser(user);
+        return userRepo.findDtoById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
+    }
+
+
+    // Find several users in one query; IDs without a user are skipped
+    @Transactional(readOnly = true)
+    public List<UserDTO> findUsersByIds(Collection<Integer> userIds) {
+        return userRepo.findDtosByIdIn(new LinkedHashSet<>(userIds));
+    }
+
+
+    // Names and avatars only, for showing authors; IDs without a user are skipped
+    @Transactional(readOnly = true)
+    public List<UserSummaryDTO> findUserSummariesByIds(Collection<Integer> userIds) {
+        return userRepo.findSummariesByIdIn(new LinkedHashSet<>(userIds));
     }
 
     
+    // Computed once per user and cached until the user changes or the entry is evicted
+    @Cacheable(cacheNames = CacheConfig.USER_PERMISSIONS, key = "#userId")
+    @Transactional(readOnly = true)
     public UserPermissionsDTO getUserPermissions(Integer userId) {
-    	User user = userRepo.findById(userId).orElse(null);
+    	RoleView user = userRepo.findRoleById(userId).orElse(null);
     	if (user == null) {
     	    throw new ResourceNotFoundException("User not found with ID: " + userId);
     	}
@@ -91,6 +140,7 @@ public class UserService {
     
     
 
+    @CacheEvict(cacheNames = CacheConfig.USER_PERMISSIONS, key = "#userId")
     public UserDTO updateUserProfile(int userId, UpdateDto updateDto) {
     	User user = userRepo.findById(userId).orElse(null);
     	if (user == null) {
@@ -113,11 +163,13 @@ public class UserService {
 
         // Save the updated user
         User updatedUser = userRepo.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(userId));
 
         // Convert and return the updated user as UserDTO
         return UserDTO.fromUser(updatedUser);
     }
     
+    @CacheEvict(cacheNames = CacheConfig.USER_PERMISSIONS, key = "#userId")
     public UserDTO updateUserStatus(Integer userId, UserDTO userDTO, Integer currentUserId) {
         // Fetch the current user to verify Admin permissions
         User currentUser = userRepo.findById(currentUserId)
@@ -142,22 +194,57 @@ public class UserService {
         }
 
         User updatedUser = userRepo.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(userId));
 
         // Convert to DTO and return
         return UserDTO.fromUser(updatedUser);
     }
     
-    public List<UserDTO> getAllUsers() {
-        // Fetch all users from the repository
-        List<User> users = userRepo.findAll();
-        return users.stream()
-                    .map(UserDTO::fromUser) // Convert each User to UserDTO
-                    .collect(Collectors.toList());
+    /**
+     * One page of users ordered by date joined, then ID, newest first unless direction is ASC.
+     * Pages are keyed by the last user's date joined and ID: pass the returned nextCursor as
+     * cursor to continue. Null filters match every user.
+     * @param limit optional page size, capped at users.page.max-limit
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    @Transactional(readOnly = true)
+    public UserPageDTO findUsers(UserType type, Boolean active, Sort.Direction direction,
+                                 String cursor, Integer limit) {
+        int pageSize = limit == null ? defaultLimit : Math.max(1, Math.min(limit, maxLimit));
+        LocalDateTime joined = direction.isAscending() ? EARLIEST : LATEST;
+        int id = direction.isAscending() ? 0 : Integer.MAX_VALUE;
+        if (cursor != null) {
+            int separator = cursor.lastIndexOf('_');
+            try {
+                joined = LocalDateTime.parse(cursor.substring(0, Math.max(separator, 0)));
+                id = Integer.parseInt(cursor.substring(separator + 1));
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+
+        List<UserDTO> page = direction.isAscending()
+                ? userRepo.findPageJoinedAfter(type, active, joined, id, Limit.of(pageSize))
+                : userRepo.findPageJoinedBefore(type, active, joined, id, Limit.of(pageSize));
+
+        String nextCursor = null;
+        if (page.size() == pageSize) {
+            UserDTO last = page.get(page.size() - 1);
+            nextCursor = last.getDateJoined() + "_" + last.getId();
+        }
+        return UserPageDTO.builder().items(page).nextCursor(nextCursor).build();
     }
+
+    // Every matching user in date joined order, written to out as a JSON array while rows are read
+    public void exportUsers(UserType type, Boolean active, Sort.Direction direction, OutputStream out)
+            throws IOException {
+        userExporter.export(type, active, direction, out);
+    }
+
+    @Transactional(readOnly = true)
     public UserDTO findUserByEmail(String email) {
-        User user = userRepo.findByEmail(email)
+        return userRepo.findDtoByEmail(email)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with email: " + email));
-        return UserDTO.fromUser(user);
     }
 
     
@@ -0,0 +1,91 @@
+package com.beaconfire.users_service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.beaconfire.users_service.dto.UserChangesDTO;
+import com.beaconfire.users_service.event.UserChangedEvent;
+import com.beaconfire.users_service.service.UserChangeLog;
+
+class UserChangeLogTest {
+
+    private final UserChangeLog userChangeLog = new UserChangeLog();
+
+    @Test
+    void changesSince_ReturnsEachChangedUserOnce() {
+        userChangeLog.onUserChanged(new UserChangedEvent(1));
+        userChangeLog.onUserChanged(new UserChangedEvent(2));
+        userChangeLog.onUserChanged(new UserChangedEvent(1));
+
+        UserChangesDTO changes = userChangeLog.changesSince(token(1));
+
+        assertEquals(token(3), changes.getLatest());
+        assertTrue(changes.isComplete());
+        assertEquals(List.of(1, 2), changes.getUserIds());
+    }
+
+    @Test
+    void changesSince_Latest_ReturnsNothing() {
+        userChangeLog.onUserChanged(new UserChangedEvent(1));
+
+        UserChangesDTO changes = userChangeLog.changesSince(token(1));
+
+        assertTrue(changes.isComplete());
+        assertTrue(changes.getUserIds().isEmpty());
+    }
+
+    @Test
+    void changesSince_OlderThanKept_IsIncomplete() {
+        ReflectionTestUtils.setField(userChangeLog, "capacity", 2);
+        userChangeLog.onUserChanged(new UserChangedEvent(1));
+        userChangeLog.onUserChanged(new UserChangedEvent(2));
+        userChangeLog.onUserChanged(new UserChangedEvent(3));
+
+        assertFalse(userChangeLog.changesSince(token(0)).isComplete());
+        assertTrue(userChangeLog.changesSince(token(1)).isComplete());
+    }
+
+    @Test
+    void changesSince_AheadOfLatest_IsIncomplete() {
+        userChangeLog.onUserChanged(new UserChangedEvent(1));
+
+        assertFalse(userChangeLog.changesSince(token(42)).isComplete());
+    }
+
+    @Test
+    void changesSince_NoToken_IsIncomplete() {
+        userChangeLog.onUserChanged(new UserChangedEvent(1));
+
+        UserChangesDTO changes = userChangeLog.changesSince(null);
+
+        assertFalse(changes.isComplete());
+        assertEquals(token(1), changes.getLatest());
+    }
+
+    @Test
+    void changesSince_TokenFromAnotherInstance_IsIncomplete() {
+        UserChangeLog restarted = new UserChangeLog();
+        restarted.onUserChanged(new UserChangedEvent(1));
+        userChangeLog.onUserChanged(new UserChangedEvent(1));
+        userChangeLog.onUserChanged(new UserChangedEvent(2));
+
+        // Sequence 1 exists here too, but was issued by the other instance
+        UserChangesDTO changes = userChangeLog.changesSince(restarted.changesSince(null).getLatest());
+
+        assertFalse(changes.isComplete());
+        assertFalse(userChangeLog.changesSince("1").isComplete());
+        assertFalse(userChangeLog.changesSince(token(0) + "x").isComplete());
+    }
+
+    // A token for the given sequence number, as this instance would issue it
+    private String token(long sequence) {
+        String latest = userChangeLog.changesSince(null).getLatest();
+        return latest.substring(0, latest.lastIndexOf(':') + 1) + sequence;
+    }
+}
@@ -18,6 +18,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
@@ -27,6 +28,7 @@ import com.beaconfire.users_service.domain.User.UserType;
 import com.beaconfire.users_service.dto.DataResponse;
 import com.beaconfire.users_service.dto.UpdateDto;
 import com.beaconfire.users_service.dto.UserDTO;
+import com.beaconfire.users_service.dto.UserPageDTO;
 import com.beaconfire.users_service.dto.UserPermissionsDTO;
 import com.beaconfire.users_service.exception.ResourceNotFoundException;
 import com.beaconfire.users_service.service.UserService;
@@ -94,10 +96,11 @@ class UserControllerTest {
                     .profileImageUrl("http://example.com/images/jane.jpg")
                     .build()
         );
-        when(userService.getAllUsers()).thenReturn(mockUsers);
+        when(userService.findUsers(null, null, Sort.Direction.DESC, null, null))
+                .thenReturn(UserPageDTO.builder().items(mockUsers).nextCursor("2024-01-01T10:00_2").build());
 
         // Perform the test
-        ResponseEntity<DataResponse> response = userController.getAllUsers();
+        ResponseEntity<DataResponse> response = userController.getAllUsers(null, null, "DESC", null, null);
 
         // Assertions
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -105,6 +108,27 @@ class UserControllerTest {
         assertTrue(response.getBody().getSuccess());
         assertEquals("Users fetched successfully.", response.getBody().getMessage());
         assertEquals(mockUsers, response.getBody().getData());
+        assertEquals("2024-01-01T10:00_2", response.getHeaders().getFirst("X-Next-Cursor"));
+    }
+
+    @Test
+    public void testGetAllUsers_FiltersAndDirectionPassedThrough() {
+        when(userService.findUsers(UserType.ADMIN, false, Sort.Direction.ASC, "2024-01-01T10:00_2", 20))
+                .thenReturn(UserPageDTO.builder().items(Collections.emptyList()).build());
+
+        ResponseEntity<DataResponse> response = userController.getAllUsers("admin", false, "asc", "2024-01-01T10:00_2", 20);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNull(response.getHeaders().getFirst("X-Next-Cursor"));
+        verify(userService, times(1)).findUsers(UserType.ADMIN, false, Sort.Direction.ASC, "2024-01-01T10:00_2", 20);
+    }
+
+    @Test
+    public void testGetAllUsers_InvalidType() {
+        ResponseEntity<DataResponse> response = userController.getAllUsers("owner", null, "DESC", null, null);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertFalse(response.getBody().getSuccess());
     }
 
 
@@ -129,10 +153,11 @@ class UserControllerTest {
     @Test
     public void testGetAllUsers_InternalServerError() {
         // Mock the service to throw an exception
-        when(userService.getAllUsers()).thenThrow(new RuntimeException("Database error"));
+        when(userService.findUsers(null, null, Sort.Direction.DESC, null, null))
+                .thenThrow(new RuntimeException("Database error"));
 
         // Perform the test
-        ResponseEntity<DataResponse> response = userController.getAllUsers();
+        ResponseEntity<DataResponse> response = userController.getAllUsers(null, null, "DESC", null, null);
 
         // Assertions
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
@@ -143,10 +168,11 @@ class UserControllerTest {
     @Test
     public void testGetAllUsers_NoUsers() {
         // Mock service to return an empty list
-        when(userService.getAllUsers()).thenReturn(Collections.emptyList());
+        when(userService.findUsers(null, null, Sort.Direction.DESC, null, null))
+                .thenReturn(UserPageDTO.builder().items(Collections.emptyList()).build());
 
         // Perform the test
-        ResponseEntity<DataResponse> response = userController.getAllUsers();
+        ResponseEntity<DataResponse> response = userController.getAllUsers(null, null, "DESC", null, null);
 
         // Assertions
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -704,9 +730,33 @@ class UserControllerTest {
         assertNull(response.getBody().getData());
     }
 
+    @Test
+    void getUsersByIds_Success() {
+        // Arrange
+        List<UserDTO> mockUsers = List.of(
+                UserDTO.builder().id(1).firstName("John").lastName("Doe").build(),
+                UserDTO.builder().id(2).firstName("Jane").lastName("Smith").build());
+        when(userService.findUsersByIds(List.of(1, 2))).thenReturn(mockUsers);
 
+        // Act
+        ResponseEntity<DataResponse> response = userController.getUsersByIds(List.of(1, 2));
 
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(response.getBody().getSuccess());
+        assertEquals(mockUsers, response.getBody().getData());
+        verify(userService, times(1)).findUsersByIds(List.of(1, 2));
+    }
 
-    
-}
+    @Test
+    void getUsersByIds_TooManyIds() {
+        // Act
+        ResponseEntity<DataResponse> response =
+                userController.getUsersByIds(Collections.nCopies(UserService.MAX_BATCH_SIZE + 1, 1));
 
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertFalse(response.getBody().getSuccess());
+        assertNull(response.getBody().getData());
+    }
+}
@@ -4,31 +4,43 @@ package com.beaconfire.users_service;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 
 import com.beaconfire.users_service.domain.User;
 import com.beaconfire.users_service.domain.User.UserType;
 import com.beaconfire.users_service.dto.UpdateDto;
 import com.beaconfire.users_service.dto.UserDTO;
+import com.beaconfire.users_service.dto.UserPageDTO;
 import com.beaconfire.users_service.dto.UserPermissionsDTO;
+import com.beaconfire.users_service.dto.UserSummaryDTO;
+import com.beaconfire.users_service.event.UserChangedEvent;
 import com.beaconfire.users_service.exception.ResourceNotFoundException;
 import com.beaconfire.users_service.repo.UserRepo;
+import com.beaconfire.users_service.repo.UserRepo.RoleView;
 import com.beaconfire.users_service.service.UserService;
 
 class UserServiceTest {
@@ -36,6 +48,9 @@ class UserServiceTest {
     @Mock
     private UserRepo userRepo;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private UserService userService;
 
@@ -53,7 +68,7 @@ class UserServiceTest {
         user.setLastName("Doe");
         user.setEmail("john.doe@example.com");
 
-        when(userRepo.findById(1)).thenReturn(Optional.of(user));
+        when(userRepo.findDtoById(1)).thenReturn(Optional.of(UserDTO.fromUser(user)));
 
         // Act
         UserDTO result = userService.findUserById(1);
@@ -64,14 +79,14 @@ class UserServiceTest {
         assertEquals("John", result.getFirstName());
         assertEquals("Doe", result.getLastName());
         assertEquals("john.doe@example.com", result.getEmail());
-        verify(userRepo, times(1)).findById(1);
+        verify(userRepo, times(1)).findDtoById(1);
     }
 
 
     @Test
     void findUserById_UserDoesNotExist_ThrowsResourceNotFoundException() {
         // Arrange
-        when(userRepo.findById(1)).thenReturn(Optional.empty());
+        when(userRepo.findDtoById(1)).thenReturn(Optional.empty());
 
         // Act & Assert
         ResourceNotFoundException exception = assertThrows(
@@ -79,18 +94,13 @@ class UserServiceTest {
                 () -> userService.findUserById(1)
         );
         assertEquals("User not found with ID: 1", exception.getMessage());
-        verify(userRepo, times(1)).findById(1);
+        verify(userRepo, times(1)).findDtoById(1);
     }
 
     @Test
     void getUserPermissions_UserExists_ReturnsCorrectPermissions() {
         // Arrange
-        User user = new User();
-        user.setId(1);
-        user.setType(UserType.ADMIN);
-        user.setActive(true);
-
-        when(userRepo.findById(1)).thenReturn(Optional.of(user));
+        when(userRepo.findRoleById(1)).thenReturn(Optional.of(role(1, UserType.ADMIN, true)));
 
         // Act
         UserPermissionsDTO permissionsDTO = userService.getUserPermissions(1);
@@ -102,7 +112,7 @@ class UserServiceTest {
         assertTrue(permissionsDTO.getCanDeleteReplies());
         assertTrue(permissionsDTO.getCanBanUsers());
         assertFalse(permissionsDTO.getCanModifyPosts());
-        verify(userRepo, times(1)).findById(1);
+        verify(userRepo, times(1)).findRoleById(1);
     }
 
     @Test
@@ -137,6 +147,7 @@ class UserServiceTest {
         assertEquals("new-image-url", result.getProfileImageUrl());
         verify(userRepo, times(1)).findById(1);
         verify(userRepo, times(1)).save(user);
+        verify(eventPublisher, times(1)).publishEvent(new UserChangedEvent(1));
     }
 
 
@@ -158,6 +169,7 @@ class UserServiceTest {
         assertEquals("User not found with ID: 99", exception.getMessage());
         verify(userRepo, times(1)).findById(99);
         verify(userRepo, never()).save(any(User.class));
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
 
@@ -194,47 +206,65 @@ class UserServiceTest {
         verify(userRepo, times(1)).save(user);
     }
     @Test
-    void getAllUsers_Success() {
+    void findUsers_FirstPageNewestFirst_ReturnsCursorOfLastUser() {
         // Arrange
         User user1 = User.builder()
-                .id(1)
-                .firstName("John")
-                .lastName("Doe")
-                .email("john.doe@example.com")
-                .build();
-
-        User user2 = User.builder()
                 .id(2)
                 .firstName("Jane")
                 .lastName("Smith")
                 .email("jane.smith@example.com")
+                .dateJoined(LocalDateTime.of(2024, 2, 1, 10, 0))
+                .build();
+
+        User user2 = User.builder()
+                .id(1)
+                .firstName("John")
+                .lastName("Doe")
+                .email("john.doe@example.com")
+                .dateJoined(LocalDateTime.of(2024, 1, 1, 10, 0))
                 .build();
 
         List<User> users = List.of(user1, user2);
-        when(userRepo.findAll()).thenReturn(users);
+        when(userRepo.findPageJoinedBefore(isNull(), isNull(), any(LocalDateTime.class), eq(Integer.MAX_VALUE), eq(Limit.of(2))))
+                .thenReturn(users.stream().map(UserDTO::fromUser).toList());
 
         // Act
-        List<UserDTO> result = userService.getAllUsers();
+        UserPageDTO result = userService.findUsers(null, null, Sort.Direction.DESC, null, 2);
 
         // Assert
         assertNotNull(result);
-        assertEquals(2, result.size());
-
-        // Validate the first user
-        UserDTO userDTO1 = result.get(0);
-        assertEquals(1, userDTO1.getId());
-        assertEquals("John", userDTO1.getFirstName());
-        assertEquals("Doe", userDTO1.getLastName());
-        assertEquals("john.doe@example.com", userDTO1.getEmail());
-
-        // Validate the second user
-        UserDTO userDTO2 = result.get(1);
-        assertEquals(2, userDTO2.getId());
-        assertEquals("Jane", userDTO2.getFirstName());
-        assertEquals("Smith", userDTO2.getLastName());
-        assertEquals("jane.smith@example.com", userDTO2.getEmail());
-
-        verify(userRepo, times(1)).findAll();
+        assertEquals(2, result.getItems().size());
+        assertEquals("Jane", result.getItems().get(0).getFirstName());
+        assertEquals("John", result.getItems().get(1).getFirstName());
+        assertEquals("2024-01-01T10:00_1", result.getNextCursor());
+    }
+
+    @Test
+    void findUsers_OldestFirstAfterCursor_LastPageHasNoCursor() {
+        // Arrange
+        User user = User.builder()
+                .id(3)
+                .type(UserType.NORMAL)
+                .active(true)
+                .dateJoined(LocalDateTime.of(2024, 3, 1, 10, 0))
+                .build();
+        when(userRepo.findPageJoinedAfter(UserType.NORMAL, true, LocalDateTime.of(2024, 1, 1, 10, 0), 1, Limit.of(2)))
+                .thenReturn(List.of(UserDTO.fromUser(user)));
+
+        // Act
+        UserPageDTO result = userService.findUsers(UserType.NORMAL, true, Sort.Direction.ASC, "2024-01-01T10:00_1", 2);
+
+        // Assert
+        assertEquals(1, result.getItems().size());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void findUsers_MalformedCursor_ThrowsIllegalArgumentException() {
+        // Act & Assert
+        Exception exception = assertThrows(IllegalArgumentException.class, () ->
+                userService.findUsers(null, null, Sort.Direction.DESC, "yesterday", null));
+        assertEquals("Invalid cursor: yesterday", exception.getMessage());
     }
     
     @Test
@@ -248,7 +278,7 @@ class UserServiceTest {
                 .email(email)
                 .build();
 
-        when(userRepo.findByEmail(email)).thenReturn(Optional.of(user));
+        when(userRepo.findDtoByEmail(email)).thenReturn(Optional.of(UserDTO.fromUser(user)));
 
         // Act
         UserDTO result = userService.findUserByEmail(email);
@@ -259,18 +289,18 @@ class UserServiceTest {
         assertEquals("John", result.getFirstName());
         assertEquals("Doe", result.getLastName());
         assertEquals(email, result.getEmail());
-        verify(userRepo, times(1)).findByEmail(email);
+        verify(userRepo, times(1)).findDtoByEmail(email);
     }
     @Test
     void findUserByEmail_UserNotFound() {
         // Arrange
         String email = "notfound@example.com";
-        when(userRepo.findByEmail(email)).thenReturn(Optional.empty());
+        when(userRepo.findDtoByEmail(email)).thenReturn(Optional.empty());
 
         // Act & Assert
         Exception exception = assertThrows(ResourceNotFoundException.class, () -> userService.findUserByEmail(email));
         assertEquals("User not found with email: " + email, exception.getMessage());
-        verify(userRepo, times(1)).findByEmail(email);
+        verify(userRepo, times(1)).findDtoByEmail(email);
     }
 
 
@@ -310,6 +340,7 @@ class UserServiceTest {
         verify(userRepo, times(1)).findById(100);
         verify(userRepo, times(1)).findById(1);
         verify(userRepo, times(1)).save(userToUpdate);
+        verify(eventPublisher, times(1)).publishEvent(new UserChangedEvent(1));
     }
 
     @Test
@@ -425,11 +456,7 @@ class UserServiceTest {
     @Test
     void getUserPermissions_SuperAdminRole() {
         // Arrange
-        User user = new User();
-        user.setId(1);
-        user.setType(UserType.SUPERADMIN);
-        user.setActive(true);
-        when(userRepo.findById(1)).thenReturn(Optional.of(user));
+        when(userRepo.findRoleById(1)).thenReturn(Optional.of(role(1, UserType.SUPERADMIN, true)));
 
         // Act
         UserPermissionsDTO permissions = userService.getUserPermissions(1);
@@ -447,11 +474,7 @@ class UserServiceTest {
     @Test
     void getUserPermissions_AdminRole() {
         // Arrange
-        User user = new User();
-        user.setId(2);
-        user.setType(UserType.ADMIN);
-        user.setActive(true);
-        when(userRepo.findById(2)).thenReturn(Optional.of(user));
+        when(userRepo.findRoleById(2)).thenReturn(Optional.of(role(2, UserType.ADMIN, true)));
 
         // Act
         UserPermissionsDTO permissions = userService.getUserPermissions(2);
@@ -468,11 +491,7 @@ class UserServiceTest {
     @Test
     void getUserPermissions_NormalRole() {
         // Arrange
-        User user = new User();
-        user.setId(3);
-        user.setType(UserType.NORMAL);
-        user.setActive(true);
-        when(userRepo.findById(3)).thenReturn(Optional.of(user));
+        when(userRepo.findRoleById(3)).thenReturn(Optional.of(role(3, UserType.NORMAL, true)));
 
         // Act
         UserPermissionsDTO permissions = userService.getUserPermissions(3);
@@ -489,11 +508,7 @@ class UserServiceTest {
     @Test
     void getUserPermissions_VisitorRole() {
         // Arrange
-        User user = new User();
-        user.setId(4);
-        user.setType(UserType.VISITOR);
-        user.setActive(true);
-        when(userRepo.findById(4)).thenReturn(Optional.of(user));
+        when(userRepo.findRoleById(4)).thenReturn(Optional.of(role(4, UserType.VISITOR, true)));
 
         // Act
         UserPermissionsDTO permissions = userService.getUserPermissions(4);
@@ -517,24 +532,20 @@ class UserServiceTest {
     @Test
     void getUserPermissions_UserNotFound() {
         // Arrange
-        when(userRepo.findById(999)).thenReturn(Optional.empty());
+        when(userRepo.findRoleById(999)).thenReturn(Optional.empty());
 
         // Act & Assert
         Exception exception = assertThrows(ResourceNotFoundException.class, () ->
             userService.getUserPermissions(999));
         assertEquals("User not found with ID: 999", exception.getMessage());
-        verify(userRepo, times(1)).findById(999);
+        verify(userRepo, times(1)).findRoleById(999);
     }
 
 
     @Test
     void getUserPermissions_UserFound() {
         // Arrange
-        User user = new User();
-        user.setId(1);
-        user.setType(UserType.ADMIN);
-        user.setActive(true);
-        when(userRepo.findById(1)).thenReturn(Optional.of(user));
+        when(userRepo.findRoleById(1)).thenReturn(Optional.of(role(1, UserType.ADMIN, true)));
 
         // Act
         UserPermissionsDTO permissions = userService.getUserPermissions(1);
@@ -547,11 +558,57 @@ class UserServiceTest {
         assertTrue(permissions.getCanDeleteReplies());
         assertTrue(permissions.getCanBanUsers());
         assertFalse(permissions.getCanModifyPosts());
-        verify(userRepo, times(1)).findById(1);
+        verify(userRepo, times(1)).findRoleById(1);
     }
 
-    
+    @Test
+    void findUsersByIds_QueriesEachIdOnce() {
+        // Arrange
+        User user = new User();
+        user.setId(1);
+        user.setFirstName("John");
+        when(userRepo.findDtosByIdIn(Set.of(1))).thenReturn(List.of(UserDTO.fromUser(user)));
 
+        // Act
+        List<UserDTO> users = userService.findUsersByIds(List.of(1, 1));
 
+        // Assert
+        assertEquals(1, users.size());
+        assertEquals("John", users.get(0).getFirstName());
+        verify(userRepo, times(1)).findDtosByIdIn(Set.of(1));
+    }
 
+    @Test
+    void findUserSummariesByIds_QueriesEachIdOnce() {
+        // Arrange
+        UserSummaryDTO summary = new UserSummaryDTO(1, "John", "Doe", "avatar-url");
+        when(userRepo.findSummariesByIdIn(Set.of(1))).thenReturn(List.of(summary));
+
+        // Act
+        List<UserSummaryDTO> summaries = userService.findUserSummariesByIds(List.of(1, 1));
+
+        // Assert
+        assertEquals(1, summaries.size());
+        assertEquals("avatar-url", summaries.get(0).getProfileImageUrl());
+        verify(userRepo, times(1)).findSummariesByIdIn(Set.of(1));
+    }
+
+    private static RoleView role(Integer id, UserType type, Boolean active) {
+        return new RoleView() {
+            @Override
+            public Integer getId() {
+                return id;
+            }
+
+            @Override
+            public UserType getType() {
+                return type;
+            }
+
+            @Override
+            public Boolean getActive() {
+                return active;
+            }
+        };
+    }
 }
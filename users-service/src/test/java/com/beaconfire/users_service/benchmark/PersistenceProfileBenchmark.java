@@ -0,0 +1,93 @@
+package com.beaconfire.users_service.benchmark;
+
+import com.beaconfire.users_service.domain.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Changing the status of a batch of users in one transaction against an in-memory H2 database,
+ * with Hibernate's defaults and with the production profile's settings, which flush the updates as
+ * JDBC batches. Statement caching and batch rewriting are MySQL driver settings and are not
+ * measured here.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.beaconfire.users_service.benchmark.PersistenceProfileBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersistenceProfileBenchmark {
+
+    @Param({"default", "production"})
+    private String profile;
+
+    @Param({"100"})
+    private int batchSize;
+
+    private SessionFactory sessionFactory;
+    private List<Integer> ids;
+
+    @Setup
+    public void setUp() {
+        Configuration configuration = new Configuration()
+                .addAnnotatedClass(User.class)
+                .setProperty(AvailableSettings.JAKARTA_JDBC_URL, "jdbc:h2:mem:users_" + profile + ";DB_CLOSE_DELAY=-1")
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop");
+        if (profile.equals("production")) {
+            configuration
+                    .setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, "50")
+                    .setProperty(AvailableSettings.ORDER_INSERTS, "true")
+                    .setProperty(AvailableSettings.ORDER_UPDATES, "true")
+                    .setProperty(AvailableSettings.BATCH_VERSIONED_DATA, "true");
+        }
+        sessionFactory = configuration.buildSessionFactory();
+        sessionFactory.inTransaction(session -> {
+            for (int i = 1; i <= 1000; i++) {
+                session.persist(User.builder()
+                        .firstName("First" + i)
+                        .lastName("Last" + i)
+                        .email("user" + i + "@example.com")
+                        .password("$2a$10$" + "x".repeat(53))
+                        .active(true)
+                        .type(User.UserType.NORMAL)
+                        .profileImageUrl("https://cdn.example.com/avatars/" + i + ".png")
+                        .dateJoined(LocalDateTime.now())
+                        .build());
+            }
+        });
+        ids = IntStream.rangeClosed(1, batchSize).boxed().toList();
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public int updateStatus() {
+        sessionFactory.inTransaction(session -> {
+            for (Integer id : ids) {
+                User user = session.find(User.class, id);
+                user.setActive(!user.getActive());
+            }
+        });
+        return ids.size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PersistenceProfileBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
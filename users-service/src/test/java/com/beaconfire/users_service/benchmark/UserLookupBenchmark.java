@@ -0,0 +1,116 @@
+package com.beaconfire.users_service.benchmark;
+
+import com.beaconfire.users_service.domain.User;
+import com.beaconfire.users_service.dto.UserDTO;
+import com.beaconfire.users_service.dto.UserSummaryDTO;
+import com.beaconfire.users_service.repo.UserRepo;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * A batch lookup of users, as /users/batch does it, against an in-memory H2 database: loading
+ * managed User entities and converting them in a read-write transaction, which flushes and dirty
+ * checks every entity; the same in a read-only session; and the repository's constructor
+ * projections, which read only the DTO's columns and create no entities.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.beaconfire.users_service.benchmark.UserLookupBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserLookupBenchmark {
+
+    private static final String SUMMARY = "SELECT new com.beaconfire.users_service.dto.UserSummaryDTO("
+            + "u.id, u.firstName, u.lastName, u.profileImageUrl) FROM User u WHERE u.id IN :ids";
+
+    @Param({"100"})
+    private int batchSize;
+
+    private SessionFactory sessionFactory;
+    private List<Integer> ids;
+
+    @Setup
+    public void setUp() {
+        sessionFactory = new Configuration()
+                .addAnnotatedClass(User.class)
+                .setProperty(AvailableSettings.JAKARTA_JDBC_URL, "jdbc:h2:mem:users;DB_CLOSE_DELAY=-1")
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .buildSessionFactory();
+        sessionFactory.inTransaction(session -> {
+            for (int i = 1; i <= 1000; i++) {
+                session.persist(User.builder()
+                        .firstName("First" + i)
+                        .lastName("Last" + i)
+                        .email("user" + i + "@example.com")
+                        .password("$2a$10$" + "x".repeat(53))
+                        .active(true)
+                        .type(User.UserType.NORMAL)
+                        .profileImageUrl("https://cdn.example.com/avatars/" + i + ".png")
+                        .dateJoined(LocalDateTime.now())
+                        .build());
+            }
+        });
+        ids = IntStream.rangeClosed(1, batchSize).boxed().toList();
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public List<UserDTO> entities() {
+        return sessionFactory.fromTransaction(session -> session
+                .createSelectionQuery("FROM User u WHERE u.id IN :ids", User.class)
+                .setParameter("ids", ids)
+                .getResultList().stream()
+                .map(UserDTO::fromUser)
+                .toList());
+    }
+
+    @Benchmark
+    public List<UserDTO> readOnlyEntities() {
+        return sessionFactory.fromTransaction(session -> {
+            session.setDefaultReadOnly(true);
+            return session.createSelectionQuery("FROM User u WHERE u.id IN :ids", User.class)
+                    .setParameter("ids", ids)
+                    .getResultList().stream()
+                    .map(UserDTO::fromUser)
+                    .toList();
+        });
+    }
+
+    @Benchmark
+    public List<UserDTO> dtoProjection() {
+        return sessionFactory.fromTransaction(session -> session
+                .createSelectionQuery(UserRepo.USER_DTO + "WHERE u.id IN :ids", UserDTO.class)
+                .setParameter("ids", ids)
+                .getResultList());
+    }
+
+    @Benchmark
+    public List<UserSummaryDTO> summaryProjection() {
+        return sessionFactory.fromTransaction(session -> session
+                .createSelectionQuery(SUMMARY, UserSummaryDTO.class)
+                .setParameter("ids", ids)
+                .getResultList());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UserLookupBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}